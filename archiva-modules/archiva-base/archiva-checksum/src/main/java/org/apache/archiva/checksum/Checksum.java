@@ -81,7 +81,7 @@ public Checksum update( byte[] buffer, int offset, int size )
         if (this.result.length!=0) {
             reset();
         }
-        md.update( buffer, 0, size );
+        md.update( buffer, offset, size );
         return this;
     }
 
@@ -0,0 +1,78 @@
+package org.apache.archiva.checksum;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Output stream that updates the given checksums with all data, that is written to the underlying stream.
+ * The checksums are available after the stream was closed, so the data must not be read again.
+ */
+public class ChecksummingOutputStream
+    extends FilterOutputStream
+{
+    private final List<Checksum> checksums;
+
+    private long count = 0;
+
+    public ChecksummingOutputStream( OutputStream out, List<Checksum> checksums )
+    {
+        super( out );
+        this.checksums = checksums;
+    }
+
+    @Override
+    public void write( int b )
+        throws IOException
+    {
+        write( new byte[]{ (byte) b }, 0, 1 );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        out.write( b, off, len );
+        for ( Checksum checksum : checksums )
+        {
+            checksum.update( b, off, len );
+        }
+        count += len;
+    }
+
+    /**
+     * Returns the checksums. They are finished on the first call of {@link Checksum#getChecksum()}.
+     */
+    public List<Checksum> getChecksums( )
+    {
+        return checksums;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     */
+    public long getCount( )
+    {
+        return count;
+    }
+}
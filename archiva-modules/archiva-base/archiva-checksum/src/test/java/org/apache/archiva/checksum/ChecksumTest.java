@@ -23,6 +23,7 @@
 import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
@@ -68,6 +69,24 @@ public void testUpdate()
         Assert.assertEquals( "Checksum", "e396119ae0542e85a74759602fd2f81e5d36d762", checksum.getChecksum() );
     }
 
+    @Test
+    public void testChecksummingOutputStream()
+        throws IOException
+    {
+        byte buf[] = ( "xx" + "You know, I'm sick of following my dreams, man. "
+            + "I'm just going to ask where they're going and hook up with 'em later. - Mitch Hedberg" ).getBytes();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        List<Checksum> checksums = new ArrayList<>();
+        checksums.add( new Checksum( ChecksumAlgorithm.SHA1 ) );
+        try ( ChecksummingOutputStream os = new ChecksummingOutputStream( data, checksums ) )
+        {
+            os.write( buf, 2, buf.length - 2 );
+            Assert.assertEquals( buf.length - 2, os.getCount() );
+        }
+        Assert.assertEquals( buf.length - 2, data.size() );
+        Assert.assertEquals( "Checksum", "e396119ae0542e85a74759602fd2f81e5d36d762", checksums.get( 0 ).getChecksum() );
+    }
+
     @Test
     public void testUpdateMany()
         throws IOException, ChecksumValidationException
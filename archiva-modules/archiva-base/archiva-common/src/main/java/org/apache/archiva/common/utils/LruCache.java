@@ -0,0 +1,231 @@
+package org.apache.archiva.common.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+/**
+ * Thread safe in memory cache with a maximum number of entries. If the cache is full, the least recently used
+ * entry is evicted. Optionally, the entries expire after a maximum age, that is counted from the time the entry
+ * was stored.
+ * <p>
+ * Expired entries are removed on access. <code>null</code> values are not supported, a <code>null</code> result
+ * means that there is no valid entry.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @since 3.0
+ */
+public class LruCache<K, V>
+{
+    private volatile int maxEntries;
+
+    private volatile long maxAgeMillis;
+
+    private final Map<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>( 16, 0.75f, true )
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<K, Entry<V>> eldest )
+        {
+            return size( ) > maxEntries;
+        }
+    };
+
+    /**
+     * Creates a cache, whose entries do not expire.
+     *
+     * @param maxEntries the maximum number of entries
+     */
+    public LruCache( int maxEntries )
+    {
+        this( maxEntries, Long.MAX_VALUE );
+    }
+
+    /**
+     * @param maxEntries   the maximum number of entries
+     * @param maxAgeMillis the time in milliseconds after which an entry expires
+     */
+    public LruCache( int maxEntries, long maxAgeMillis )
+    {
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Returns the value of the key, or <code>null</code>, if there is no entry or if the entry is expired.
+     */
+    public synchronized V get( K key )
+    {
+        Entry<V> entry = entries.get( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+        if ( isExpired( entry ) )
+        {
+            entries.remove( key );
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized boolean containsKey( K key )
+    {
+        return get( key ) != null;
+    }
+
+    /**
+     * Stores the value and evicts the least recently used entry, if the cache is full.
+     */
+    public synchronized void put( K key, V value )
+    {
+        entries.put( key, new Entry<>( Objects.requireNonNull( value ) ) );
+    }
+
+    /**
+     * Stores the value, if there is no valid entry for the key.
+     *
+     * @return the existing value, or <code>null</code>, if the given value was stored
+     */
+    public synchronized V putIfAbsent( K key, V value )
+    {
+        V existing = get( key );
+        if ( existing == null )
+        {
+            put( key, value );
+        }
+        return existing;
+    }
+
+    /**
+     * Removes the entry of the key.
+     *
+     * @return the removed value or <code>null</code>
+     */
+    public synchronized V remove( K key )
+    {
+        Entry<V> entry = entries.remove( key );
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Removes the entry of the key, if it has the given value.
+     *
+     * @return <code>true</code>, if the entry was removed
+     */
+    public synchronized boolean remove( K key, V value )
+    {
+        Entry<V> entry = entries.get( key );
+        if ( entry != null && Objects.equals( entry.value, value ) )
+        {
+            entries.remove( key );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all entries, that match the given filter.
+     *
+     * @return the number of removed entries
+     */
+    public synchronized int removeIf( BiPredicate<? super K, ? super V> filter )
+    {
+        int count = 0;
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet( ).iterator( );
+        while ( it.hasNext( ) )
+        {
+            Map.Entry<K, Entry<V>> entry = it.next( );
+            if ( filter.test( entry.getKey( ), entry.getValue( ).value ) )
+            {
+                it.remove( );
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized void clear( )
+    {
+        entries.clear( );
+    }
+
+    /**
+     * Returns the number of entries including the expired entries, that were not accessed since they expired.
+     */
+    public synchronized int size( )
+    {
+        return entries.size( );
+    }
+
+    public int getMaxEntries( )
+    {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of entries. If the cache contains more entries, the least recently used entries
+     * are evicted.
+     */
+    public synchronized void setMaxEntries( int maxEntries )
+    {
+        this.maxEntries = maxEntries;
+        Iterator<K> it = entries.keySet( ).iterator( );
+        while ( entries.size( ) > maxEntries && it.hasNext( ) )
+        {
+            it.next( );
+            it.remove( );
+        }
+    }
+
+    public long getMaxAgeMillis( )
+    {
+        return maxAgeMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds after which an entry expires. The new value applies to the existing entries too.
+     */
+    public void setMaxAgeMillis( long maxAgeMillis )
+    {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    private boolean isExpired( Entry<V> entry )
+    {
+        return System.currentTimeMillis( ) - entry.created >= maxAgeMillis;
+    }
+
+    private static final class Entry<V>
+    {
+        private final V value;
+
+        private final long created = System.currentTimeMillis( );
+
+        Entry( V value )
+        {
+            this.value = value;
+        }
+    }
+}
@@ -21,11 +21,12 @@
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
 
 /**
  * VersionComparator - compare the parts of two version strings.
@@ -49,6 +50,9 @@
  * Words that are part of the "special word list" will be treated as their index within that heirarchy.
  * Words that cannot be identified as special, are treated using normal case-insensitive comparison rules.
  * </p>
+ * <p>
+ * The parsed versions are represented by {@link VersionKey}.
+ * </p>
  *
  */
 public class VersionComparator
@@ -56,42 +60,6 @@
 {
     private static final Comparator<String> INSTANCE = new VersionComparator();
 
-    private final List<String> specialWords;
-
-    public VersionComparator()
-    {
-        specialWords = new ArrayList<>( 23 );
-
-        // ids that refer to LATEST
-        specialWords.add( "final" );
-        specialWords.add( "release" );
-        specialWords.add( "current" );
-        specialWords.add( "latest" );
-        specialWords.add( "g" );
-        specialWords.add( "gold" );
-        specialWords.add( "fcs" );
-
-        // ids that are for a release cycle.
-        specialWords.add( "a" );
-        specialWords.add( "alpha" );
-        specialWords.add( "b" );
-        specialWords.add( "beta" );
-        specialWords.add( "pre" );
-        specialWords.add( "rc" );
-        specialWords.add( "m" );
-        specialWords.add( "milestone" );
-
-        // ids that are for dev / debug cycles.
-        specialWords.add( "dev" );
-        specialWords.add( "test" );
-        specialWords.add( "debug" );
-        specialWords.add( "unofficial" );
-        specialWords.add( "nightly" );
-        specialWords.add( "incubating" );
-        specialWords.add( "incubator" );
-        specialWords.add( "snapshot" );
-    }
-
     public static Comparator<String> getInstance()
     {
         return INSTANCE;
@@ -115,82 +83,35 @@ public int compare( String o1, String o2 )
             return -1;
         }
 
-        String[] parts1 = toParts( o1 );
-        String[] parts2 = toParts( o2 );
-
-        int diff;
-        int partLen = Math.max( parts1.length, parts2.length );
-        for ( int i = 0; i < partLen; i++ )
-        {
-            diff = comparePart( safePart( parts1, i ), safePart( parts2, i ) );
-            if ( diff != 0 )
-            {
-                return diff;
-            }
-        }
-
-        diff = parts2.length - parts1.length;
-
-        if ( diff != 0 )
-        {
-            return diff;
-        }
-
-        return o1.compareToIgnoreCase( o2 );
+        return VersionKey.of( o1 ).compareTo( VersionKey.of( o2 ) );
     }
 
-    private String safePart( String[] parts, int idx )
+    /**
+     * Sorts the given list of versions. Each version is parsed only once, so this should be preferred to
+     * sorting with the comparator for large lists.
+     *
+     * @param versions the list of versions, <code>null</code> elements are sorted to the end
+     */
+    public static void sort( List<String> versions )
     {
-        if ( idx < parts.length )
+        int size = versions.size();
+        if ( size < 2 )
         {
-            return parts[idx];
+            return;
         }
-
-        return "0";
-    }
-
-    private int comparePart( String s1, String s2 )
-    {
-        boolean is1Num = NumberUtils.isNumber( s1 );
-        boolean is2Num = NumberUtils.isNumber( s2 );
-
-        // (Special Case) Test for numbers both first.
-        if ( is1Num && is2Num )
-        {
-            int i1 = NumberUtils.toInt( s1 );
-            int i2 = NumberUtils.toInt( s2 );
-
-            return i1 - i2;
-        }
-
-        // Test for text both next.
-        if ( !is1Num && !is2Num )
-        {
-            int idx1 = specialWords.indexOf( s1.toLowerCase() );
-            int idx2 = specialWords.indexOf( s2.toLowerCase() );
-
-            // Only operate perform index based operation, if both strings
-            // are found in the specialWords index.
-            if ( idx1 >= 0 && idx2 >= 0 )
-            {
-                return idx1 - idx2;
-            }
-        }
-
-        // Comparing text to num
-        if ( !is1Num && is2Num )
+        VersionKey[] keys = new VersionKey[size];
+        int i = 0;
+        for ( String version : versions )
         {
-            return -1;
+            keys[i++] = version == null ? null : VersionKey.parse( version );
         }
-
-        // Comparing num to text
-        if ( is1Num && !is2Num )
+        Arrays.sort( keys, Comparator.nullsLast( Comparator.naturalOrder() ) );
+        ListIterator<String> it = versions.listIterator();
+        for ( VersionKey key : keys )
         {
-            return 1;
+            it.next();
+            it.set( key == null ? null : key.getVersion() );
         }
-
-        // Return comparison of strings themselves.
-        return s1.compareToIgnoreCase( s2 );
     }
 
     public static String[] toParts( String version )
@@ -0,0 +1,196 @@
+package org.apache.archiva.common.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parsed version string, that is compared with the rules of {@link VersionComparator}.
+ * <p>
+ * The parts of the version are parsed once and stored in primitive arrays: numeric parts by their value, special
+ * words by their index in the special word list. The text of the other parts is only kept for the case insensitive
+ * comparison. Comparing two keys does not allocate any objects.
+ * <p>
+ * Keys are immutable. {@link #of(String)} returns keys from a small cache, so repeated comparisons of the same
+ * version strings do not parse them again.
+ *
+ * @since 3.0
+ */
+public final class VersionKey
+    implements Comparable<VersionKey>
+{
+    private static final byte NUMBER = 0;
+
+    private static final byte SPECIAL = 1;
+
+    private static final byte TEXT = 2;
+
+    private static final List<String> SPECIAL_WORDS = Arrays.asList(
+        // ids that refer to LATEST
+        "final", "release", "current", "latest", "g", "gold", "fcs",
+        // ids that are for a release cycle.
+        "a", "alpha", "b", "beta", "pre", "rc", "m", "milestone",
+        // ids that are for dev / debug cycles.
+        "dev", "test", "debug", "unofficial", "nightly", "incubating", "incubator", "snapshot" );
+
+    private static final int CACHE_SIZE = 4096;
+
+    // direct mapped cache, the keys are immutable and may be replaced by concurrent threads
+    private static final VersionKey[] CACHE = new VersionKey[CACHE_SIZE];
+
+    private final String version;
+
+    private final byte[] types;
+
+    // the number value for numbers, the index of special words
+    private final int[] values;
+
+    // the text of parts that are no numbers, null for numbers
+    private final String[] texts;
+
+    private VersionKey( String version )
+    {
+        this.version = version;
+        String[] parts = VersionComparator.toParts( version );
+        types = new byte[parts.length];
+        values = new int[parts.length];
+        texts = new String[parts.length];
+        for ( int i = 0; i < parts.length; i++ )
+        {
+            String part = parts[i];
+            if ( NumberUtils.isNumber( part ) )
+            {
+                types[i] = NUMBER;
+                values[i] = NumberUtils.toInt( part );
+            }
+            else
+            {
+                int special = SPECIAL_WORDS.indexOf( part.toLowerCase() );
+                types[i] = special >= 0 ? SPECIAL : TEXT;
+                values[i] = special;
+                texts[i] = part;
+            }
+        }
+    }
+
+    /**
+     * Returns the key for the given version string.
+     *
+     * @param version the version string, may not be <code>null</code>
+     */
+    public static VersionKey of( String version )
+    {
+        int slot = ( version.hashCode() * 0x9E3779B9 ) >>> 20;
+        VersionKey key = CACHE[slot];
+        if ( key != null && key.version.equals( version ) )
+        {
+            return key;
+        }
+        key = new VersionKey( version );
+        CACHE[slot] = key;
+        return key;
+    }
+
+    /**
+     * Creates a new key without using the cache. This should be used for large sets of versions, whose keys are
+     * held by the caller.
+     *
+     * @param version the version string, may not be <code>null</code>
+     */
+    public static VersionKey parse( String version )
+    {
+        return new VersionKey( version );
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public int compareTo( VersionKey other )
+    {
+        int partLen = Math.max( types.length, other.types.length );
+        for ( int i = 0; i < partLen; i++ )
+        {
+            int diff = comparePart( other, i );
+            if ( diff != 0 )
+            {
+                return diff;
+            }
+        }
+
+        int diff = other.types.length - types.length;
+        if ( diff != 0 )
+        {
+            return diff;
+        }
+
+        return version.compareToIgnoreCase( other.version );
+    }
+
+    private int comparePart( VersionKey other, int i )
+    {
+        // missing parts are compared as number 0
+        byte type1 = i < types.length ? types[i] : NUMBER;
+        byte type2 = i < other.types.length ? other.types[i] : NUMBER;
+        int value1 = i < types.length ? values[i] : 0;
+        int value2 = i < other.types.length ? other.values[i] : 0;
+
+        if ( type1 == NUMBER && type2 == NUMBER )
+        {
+            return value1 - value2;
+        }
+        if ( type1 == SPECIAL && type2 == SPECIAL )
+        {
+            return value1 - value2;
+        }
+        if ( type2 == NUMBER )
+        {
+            return -1;
+        }
+        if ( type1 == NUMBER )
+        {
+            return 1;
+        }
+        return texts[i].compareToIgnoreCase( other.texts[i] );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        return o instanceof VersionKey && version.equals( ( (VersionKey) o ).version );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return version.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return version;
+    }
+}
@@ -0,0 +1,83 @@
+package org.apache.archiva.common.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+/**
+ * LruCacheTest
+ */
+public class LruCacheTest
+    extends TestCase
+{
+    public void testEvictsLeastRecentlyUsed()
+    {
+        LruCache<String, String> cache = new LruCache<>( 2 );
+        cache.put( "a", "1" );
+        cache.put( "b", "2" );
+        // a is used, so b is the eldest entry
+        assertEquals( "1", cache.get( "a" ) );
+        cache.put( "c", "3" );
+
+        assertEquals( 2, cache.size() );
+        assertEquals( "1", cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( "3", cache.get( "c" ) );
+    }
+
+    public void testShrink()
+    {
+        LruCache<String, String> cache = new LruCache<>( 3 );
+        cache.put( "a", "1" );
+        cache.put( "b", "2" );
+        cache.put( "c", "3" );
+        cache.setMaxEntries( 1 );
+
+        assertEquals( 1, cache.size() );
+        assertEquals( "3", cache.get( "c" ) );
+    }
+
+    public void testExpiry()
+    {
+        LruCache<String, String> cache = new LruCache<>( 10, 0 );
+        cache.put( "a", "1" );
+        assertNull( cache.get( "a" ) );
+        assertEquals( 0, cache.size() );
+
+        cache.setMaxAgeMillis( Long.MAX_VALUE );
+        assertNull( cache.putIfAbsent( "a", "1" ) );
+        assertEquals( "1", cache.putIfAbsent( "a", "2" ) );
+        assertTrue( cache.containsKey( "a" ) );
+    }
+
+    public void testRemove()
+    {
+        LruCache<String, String> cache = new LruCache<>( 10 );
+        cache.put( "a", "1" );
+        cache.put( "b", "2" );
+        cache.put( "c", "3" );
+
+        assertFalse( cache.remove( "a", "2" ) );
+        assertTrue( cache.remove( "a", "1" ) );
+        assertEquals( 1, cache.removeIf( ( key, value ) -> value.equals( "2" ) ) );
+        assertEquals( "3", cache.remove( "c" ) );
+        assertEquals( 0, cache.size() );
+    }
+}
@@ -95,6 +95,25 @@ public void testComparator()
         // TODO: write more unit tests.
     }
 
+    public void testSortWithNull()
+    {
+        List<String> versions = new ArrayList<>( Arrays.asList( "1.1", null, "1.0-SNAPSHOT", "1.1-rc1" ) );
+
+        VersionComparator.sort( versions );
+
+        assertEquals( Arrays.asList( "1.0-SNAPSHOT", "1.1-rc1", "1.1", null ), versions );
+    }
+
+    public void testVersionKey()
+    {
+        assertTrue( VersionKey.of( "1.0-alpha-9" ).compareTo( VersionKey.of( "1.0-alpha-10" ) ) < 0 );
+        assertTrue( VersionKey.of( "1.0" ).compareTo( VersionKey.of( "1.0.0" ) ) > 0 );
+        assertTrue( VersionKey.of( "1.0-beta" ).compareTo( VersionKey.of( "1.0-foo" ) ) < 0 );
+        assertSame( VersionKey.of( "2.3.4" ), VersionKey.of( "2.3.4" ) );
+        assertEquals( VersionKey.parse( "2.3.4" ), VersionKey.of( "2.3.4" ) );
+        assertEquals( 0, VersionKey.parse( "1.0-RC1" ).compareTo( VersionKey.parse( "1.0-RC1" ) ) );
+    }
+
     private void assertSort( String[] rawVersions, String[] expectedSort )
     {
         List<String> versions = new ArrayList<>();
@@ -107,6 +126,10 @@ private void assertSort( String[] rawVersions, String[] expectedSort )
         {
             assertEquals( "Sorted Versions[" + i + "]", expectedSort[i], (String) versions.get( i ) );
         }
+
+        versions = new ArrayList<>( Arrays.asList( rawVersions ) );
+        VersionComparator.sort( versions );
+        assertEquals( Arrays.asList( expectedSort ), versions );
     }
 
     public void testToParts()
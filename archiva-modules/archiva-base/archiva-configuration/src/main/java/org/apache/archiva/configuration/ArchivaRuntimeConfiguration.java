@@ -91,6 +91,62 @@
      */
     private List<String> checksumTypes = new ArrayList(Arrays.asList("MD5","SHA1","SHA256"));
 
+    /**
+     * Number of days, for which all repository statistics entries are
+     * kept. Older entries are compacted to one entry per day. A value
+     * &lt;= 0 disables the compaction.
+     */
+    private int statisticsFullResolutionDays = 0;
+
+    /**
+     * Maximum number of days, the repository statistics entries are
+     * kept. A value &lt;= 0 keeps the entries forever.
+     */
+    private int statisticsMaxAgeDays = 0;
+
+    /**
+     * If true, the repository purge only reports the artifacts
+     * that would be deleted.
+     */
+    private boolean repositoryPurgeDryRun = false;
+
+    /**
+     * Number of threads, that delete the files of a repository
+     * purge batch. A value of 1 deletes the files sequentially.
+     */
+    private int repositoryPurgeDeleteThreads = 4;
+
+    /**
+     * Number of threads, that execute the repository tasks. The
+     * tasks of a single repository run one after another.
+     */
+    private int repositoryScanningThreads = 4;
+
+    /**
+     * Maximum number of full repository scans, that run at the
+     * same time. The value is capped below the number of threads.
+     */
+    private int repositoryScanningMaxConcurrentScans = 2;
+
+    /**
+     * Number of remote indexes, that are downloaded at the same
+     * time.
+     */
+    private int remoteIndexMaxConcurrentDownloads = 2;
+
+    /**
+     * Space in MB, that must be left free on the disk of the index
+     * directory, while a remote index is downloaded.
+     */
+    private int remoteIndexMinFreeSpace = 1024;
+
+    /**
+     * The time to live in seconds of the cached not found failures
+     * of remote URLs. Transfer errors use the time to live of the
+     * url failure cache.
+     */
+    private int urlFailureNotFoundTimeToLiveSeconds = 3600;
+
 
       //-----------/
      //- Methods -/
@@ -264,6 +320,205 @@ public void setUrlFailureCacheConfiguration( CacheConfiguration urlFailureCacheC
         this.urlFailureCacheConfiguration = urlFailureCacheConfiguration;
     } //-- void setUrlFailureCacheConfiguration( CacheConfiguration )
 
+    /**
+     * Get the number of days, for which all repository statistics
+     * entries are kept.
+     * 
+     * @return int
+     */
+    public int getStatisticsFullResolutionDays()
+    {
+        return this.statisticsFullResolutionDays;
+    } //-- int getStatisticsFullResolutionDays()
+
+    /**
+     * Set the number of days, for which all repository statistics
+     * entries are kept. A value &lt;= 0 disables the compaction.
+     * 
+     * @param statisticsFullResolutionDays
+     */
+    public void setStatisticsFullResolutionDays( int statisticsFullResolutionDays )
+    {
+        this.statisticsFullResolutionDays = statisticsFullResolutionDays;
+    } //-- void setStatisticsFullResolutionDays( int )
+
+    /**
+     * Get the maximum number of days, the repository statistics
+     * entries are kept.
+     * 
+     * @return int
+     */
+    public int getStatisticsMaxAgeDays()
+    {
+        return this.statisticsMaxAgeDays;
+    } //-- int getStatisticsMaxAgeDays()
+
+    /**
+     * Set the maximum number of days, the repository statistics
+     * entries are kept. A value &lt;= 0 keeps the entries forever.
+     * 
+     * @param statisticsMaxAgeDays
+     */
+    public void setStatisticsMaxAgeDays( int statisticsMaxAgeDays )
+    {
+        this.statisticsMaxAgeDays = statisticsMaxAgeDays;
+    } //-- void setStatisticsMaxAgeDays( int )
+
+    /**
+     * Get if the repository purge only reports the artifacts that
+     * would be deleted.
+     * 
+     * @return boolean
+     */
+    public boolean isRepositoryPurgeDryRun()
+    {
+        return this.repositoryPurgeDryRun;
+    } //-- boolean isRepositoryPurgeDryRun()
+
+    /**
+     * Set if the repository purge only reports the artifacts that
+     * would be deleted.
+     * 
+     * @param repositoryPurgeDryRun
+     */
+    public void setRepositoryPurgeDryRun( boolean repositoryPurgeDryRun )
+    {
+        this.repositoryPurgeDryRun = repositoryPurgeDryRun;
+    } //-- void setRepositoryPurgeDryRun( boolean )
+
+    /**
+     * Get the number of threads, that delete the files of a
+     * repository purge batch.
+     * 
+     * @return int
+     */
+    public int getRepositoryPurgeDeleteThreads()
+    {
+        return this.repositoryPurgeDeleteThreads;
+    } //-- int getRepositoryPurgeDeleteThreads()
+
+    /**
+     * Set the number of threads, that delete the files of a
+     * repository purge batch. A value of 1 deletes the files
+     * sequentially.
+     * 
+     * @param repositoryPurgeDeleteThreads
+     */
+    public void setRepositoryPurgeDeleteThreads( int repositoryPurgeDeleteThreads )
+    {
+        this.repositoryPurgeDeleteThreads = repositoryPurgeDeleteThreads;
+    } //-- void setRepositoryPurgeDeleteThreads( int )
+
+    /**
+     * Get the number of threads, that execute the repository
+     * tasks.
+     * 
+     * @return int
+     */
+    public int getRepositoryScanningThreads()
+    {
+        return this.repositoryScanningThreads;
+    } //-- int getRepositoryScanningThreads()
+
+    /**
+     * Set the number of threads, that execute the repository
+     * tasks.
+     * 
+     * @param repositoryScanningThreads
+     */
+    public void setRepositoryScanningThreads( int repositoryScanningThreads )
+    {
+        this.repositoryScanningThreads = repositoryScanningThreads;
+    } //-- void setRepositoryScanningThreads( int )
+
+    /**
+     * Get the maximum number of full repository scans, that run at
+     * the same time.
+     * 
+     * @return int
+     */
+    public int getRepositoryScanningMaxConcurrentScans()
+    {
+        return this.repositoryScanningMaxConcurrentScans;
+    } //-- int getRepositoryScanningMaxConcurrentScans()
+
+    /**
+     * Set the maximum number of full repository scans, that run at
+     * the same time.
+     * 
+     * @param repositoryScanningMaxConcurrentScans
+     */
+    public void setRepositoryScanningMaxConcurrentScans( int repositoryScanningMaxConcurrentScans )
+    {
+        this.repositoryScanningMaxConcurrentScans = repositoryScanningMaxConcurrentScans;
+    } //-- void setRepositoryScanningMaxConcurrentScans( int )
+
+    /**
+     * Get the number of remote indexes, that are downloaded at the
+     * same time.
+     * 
+     * @return int
+     */
+    public int getRemoteIndexMaxConcurrentDownloads()
+    {
+        return this.remoteIndexMaxConcurrentDownloads;
+    } //-- int getRemoteIndexMaxConcurrentDownloads()
+
+    /**
+     * Set the number of remote indexes, that are downloaded at the
+     * same time.
+     * 
+     * @param remoteIndexMaxConcurrentDownloads
+     */
+    public void setRemoteIndexMaxConcurrentDownloads( int remoteIndexMaxConcurrentDownloads )
+    {
+        this.remoteIndexMaxConcurrentDownloads = remoteIndexMaxConcurrentDownloads;
+    } //-- void setRemoteIndexMaxConcurrentDownloads( int )
+
+    /**
+     * Get the space in MB, that must be left free, while a remote
+     * index is downloaded.
+     * 
+     * @return int
+     */
+    public int getRemoteIndexMinFreeSpace()
+    {
+        return this.remoteIndexMinFreeSpace;
+    } //-- int getRemoteIndexMinFreeSpace()
+
+    /**
+     * Set the space in MB, that must be left free, while a remote
+     * index is downloaded.
+     * 
+     * @param remoteIndexMinFreeSpace
+     */
+    public void setRemoteIndexMinFreeSpace( int remoteIndexMinFreeSpace )
+    {
+        this.remoteIndexMinFreeSpace = remoteIndexMinFreeSpace;
+    } //-- void setRemoteIndexMinFreeSpace( int )
+
+    /**
+     * Get the time to live in seconds of the cached not found
+     * failures of remote URLs.
+     * 
+     * @return int
+     */
+    public int getUrlFailureNotFoundTimeToLiveSeconds()
+    {
+        return this.urlFailureNotFoundTimeToLiveSeconds;
+    } //-- int getUrlFailureNotFoundTimeToLiveSeconds()
+
+    /**
+     * Set the time to live in seconds of the cached not found
+     * failures of remote URLs.
+     * 
+     * @param urlFailureNotFoundTimeToLiveSeconds
+     */
+    public void setUrlFailureNotFoundTimeToLiveSeconds( int urlFailureNotFoundTimeToLiveSeconds )
+    {
+        this.urlFailureNotFoundTimeToLiveSeconds = urlFailureNotFoundTimeToLiveSeconds;
+    } //-- void setUrlFailureNotFoundTimeToLiveSeconds( int )
+
 
     /**
      * Returns the list of checksum types to generate
@@ -1445,6 +1445,24 @@ private ArchivaRuntimeConfiguration readArchivaRuntimeConfiguration(String prefi
 
         List<String> checksumTypeList = registry.getList(prefix + "checksumTypes.type");
         value.setChecksumTypes(checksumTypeList);
+        int statisticsFullResolutionDays = registry.getInt(prefix + "statisticsFullResolutionDays", value.getStatisticsFullResolutionDays());
+        value.setStatisticsFullResolutionDays(statisticsFullResolutionDays);
+        int statisticsMaxAgeDays = registry.getInt(prefix + "statisticsMaxAgeDays", value.getStatisticsMaxAgeDays());
+        value.setStatisticsMaxAgeDays(statisticsMaxAgeDays);
+        boolean repositoryPurgeDryRun = registry.getBoolean(prefix + "repositoryPurgeDryRun", value.isRepositoryPurgeDryRun());
+        value.setRepositoryPurgeDryRun(repositoryPurgeDryRun);
+        int repositoryPurgeDeleteThreads = registry.getInt(prefix + "repositoryPurgeDeleteThreads", value.getRepositoryPurgeDeleteThreads());
+        value.setRepositoryPurgeDeleteThreads(repositoryPurgeDeleteThreads);
+        int repositoryScanningThreads = registry.getInt(prefix + "repositoryScanningThreads", value.getRepositoryScanningThreads());
+        value.setRepositoryScanningThreads(repositoryScanningThreads);
+        int repositoryScanningMaxConcurrentScans = registry.getInt(prefix + "repositoryScanningMaxConcurrentScans", value.getRepositoryScanningMaxConcurrentScans());
+        value.setRepositoryScanningMaxConcurrentScans(repositoryScanningMaxConcurrentScans);
+        int remoteIndexMaxConcurrentDownloads = registry.getInt(prefix + "remoteIndexMaxConcurrentDownloads", value.getRemoteIndexMaxConcurrentDownloads());
+        value.setRemoteIndexMaxConcurrentDownloads(remoteIndexMaxConcurrentDownloads);
+        int remoteIndexMinFreeSpace = registry.getInt(prefix + "remoteIndexMinFreeSpace", value.getRemoteIndexMinFreeSpace());
+        value.setRemoteIndexMinFreeSpace(remoteIndexMinFreeSpace);
+        int urlFailureNotFoundTimeToLiveSeconds = registry.getInt(prefix + "urlFailureNotFoundTimeToLiveSeconds", value.getUrlFailureNotFoundTimeToLiveSeconds());
+        value.setUrlFailureNotFoundTimeToLiveSeconds(urlFailureNotFoundTimeToLiveSeconds);
 
         return value;
     }
@@ -910,6 +910,48 @@ private void writeArchivaRuntimeConfiguration(String prefix, ArchivaRuntimeConfi
                 registry.setString(prefix + languageRange, value.getLanguageRange());
             }
             writeList(registry, value.getChecksumTypes(), prefix+"checksumTypes", "type");
+            if (value.getStatisticsFullResolutionDays() != 0
+            ) {
+                String statisticsFullResolutionDays = "statisticsFullResolutionDays";
+                registry.setInt(prefix + statisticsFullResolutionDays, value.getStatisticsFullResolutionDays());
+            }
+            if (value.getStatisticsMaxAgeDays() != 0
+            ) {
+                String statisticsMaxAgeDays = "statisticsMaxAgeDays";
+                registry.setInt(prefix + statisticsMaxAgeDays, value.getStatisticsMaxAgeDays());
+            }
+            String repositoryPurgeDryRun = "repositoryPurgeDryRun";
+            registry.setBoolean(prefix + repositoryPurgeDryRun, value.isRepositoryPurgeDryRun());
+            if (value.getRepositoryPurgeDeleteThreads() != 4
+            ) {
+                String repositoryPurgeDeleteThreads = "repositoryPurgeDeleteThreads";
+                registry.setInt(prefix + repositoryPurgeDeleteThreads, value.getRepositoryPurgeDeleteThreads());
+            }
+            if (value.getRepositoryScanningThreads() != 4
+            ) {
+                String repositoryScanningThreads = "repositoryScanningThreads";
+                registry.setInt(prefix + repositoryScanningThreads, value.getRepositoryScanningThreads());
+            }
+            if (value.getRepositoryScanningMaxConcurrentScans() != 2
+            ) {
+                String repositoryScanningMaxConcurrentScans = "repositoryScanningMaxConcurrentScans";
+                registry.setInt(prefix + repositoryScanningMaxConcurrentScans, value.getRepositoryScanningMaxConcurrentScans());
+            }
+            if (value.getRemoteIndexMaxConcurrentDownloads() != 2
+            ) {
+                String remoteIndexMaxConcurrentDownloads = "remoteIndexMaxConcurrentDownloads";
+                registry.setInt(prefix + remoteIndexMaxConcurrentDownloads, value.getRemoteIndexMaxConcurrentDownloads());
+            }
+            if (value.getRemoteIndexMinFreeSpace() != 1024
+            ) {
+                String remoteIndexMinFreeSpace = "remoteIndexMinFreeSpace";
+                registry.setInt(prefix + remoteIndexMinFreeSpace, value.getRemoteIndexMinFreeSpace());
+            }
+            if (value.getUrlFailureNotFoundTimeToLiveSeconds() != 3600
+            ) {
+                String urlFailureNotFoundTimeToLiveSeconds = "urlFailureNotFoundTimeToLiveSeconds";
+                registry.setInt(prefix + urlFailureNotFoundTimeToLiveSeconds, value.getUrlFailureNotFoundTimeToLiveSeconds());
+            }
         }
     }
 
@@ -0,0 +1,46 @@
+package org.apache.archiva.consumers;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+/**
+ * Keeps the report of the last dry run of the repository purge for each repository.
+ *
+ * @since 3.0
+ */
+public interface RepositoryPurgeReports
+{
+    /**
+     * Stores the report of a dry run and replaces the previous report of the repository.
+     *
+     * @param repositoryId the repository identifier
+     * @param artifacts the keys of the artifacts, that would have been deleted
+     */
+    void setDryRunReport( String repositoryId, List<String> artifacts );
+
+    /**
+     * Returns the keys of the artifacts, that would have been deleted by the last dry run of the repository purge.
+     *
+     * @param repositoryId the repository identifier
+     * @return the artifact keys, or an empty list, if there was no dry run since the start of the server
+     */
+    List<String> getDryRunReport( String repositoryId );
+}
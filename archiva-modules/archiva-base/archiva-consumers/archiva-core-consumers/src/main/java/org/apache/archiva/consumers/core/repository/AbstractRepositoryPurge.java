@@ -27,8 +27,10 @@
 import org.apache.archiva.metadata.audit.RepositoryListener;
 import org.apache.archiva.repository.ManagedRepositoryContent;
 import org.apache.archiva.repository.content.Artifact;
+import org.apache.archiva.repository.content.BaseRepositoryContentLayout;
 import org.apache.archiva.repository.content.ContentAccessException;
 import org.apache.archiva.repository.content.ItemNotFoundException;
+import org.apache.archiva.repository.content.Version;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.archiva.repository.storage.util.StorageUtil;
 import org.apache.commons.lang3.StringUtils;
@@ -36,12 +38,18 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Base class for all repository purge tasks.
@@ -61,6 +69,26 @@
 
     private static final char DELIM = ' ';
 
+    private static final int MAX_PLANNED_ARTIFACTS = 10000;
+
+    private ExecutorService deleteExecutor;
+
+    private boolean dryRun = false;
+
+    private final List<String> dryRunReport = new ArrayList<>( );
+
+    private VersionDirectoryPlan currentPlan;
+
+    // the artifacts of version directories that are already planned by this purge
+    private final Set<String> plannedArtifacts = Collections.newSetFromMap( new LinkedHashMap<String, Boolean>( )
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Boolean> eldest )
+        {
+            return size( ) > MAX_PLANNED_ARTIFACTS;
+        }
+    } );
+
     public AbstractRepositoryPurge( ManagedRepositoryContent repository, RepositorySession repositorySession,
                                     List<RepositoryListener> listeners )
     {
@@ -69,6 +97,66 @@ public AbstractRepositoryPurge( ManagedRepositoryContent repository, RepositoryS
         this.listeners = listeners;
     }
 
+    /**
+     * Sets the executor, that deletes the files of a purge batch in parallel. If not set, the files are deleted
+     * by the calling thread.
+     */
+    public void setDeleteExecutor( ExecutorService deleteExecutor )
+    {
+        this.deleteExecutor = deleteExecutor;
+    }
+
+    /**
+     * If set, the artifacts are not deleted, but only added to the dry run report.
+     */
+    public void setDryRun( boolean dryRun )
+    {
+        this.dryRun = dryRun;
+    }
+
+    public boolean isDryRun( )
+    {
+        return dryRun;
+    }
+
+    /**
+     * Returns the keys of the artifacts, that would have been deleted in dry run mode.
+     */
+    public List<String> getDryRunReport( )
+    {
+        return Collections.unmodifiableList( dryRunReport );
+    }
+
+    /**
+     * Adds the artifact to the dry run report instead of deleting it.
+     */
+    protected void addToDryRunReport( Artifact artifact )
+    {
+        log.info( "Dry run, would purge {}", artifact.toKey( ) );
+        dryRunReport.add( artifact.toKey( ) );
+    }
+
+    /**
+     * Returns the plan of the version directory of the given artifact, or <code>null</code>, if the artifacts with
+     * the same id in this directory were already planned by this purge. The scanner visits every file of a
+     * version directory, but the retention plan is computed only once for all of them.
+     */
+    protected VersionDirectoryPlan getPlan( Artifact artifact )
+        throws ContentAccessException
+    {
+        Version version = artifact.getVersion( );
+        if ( !plannedArtifacts.add( VersionDirectoryPlan.toKey( version ) + "/" + artifact.getId( ) ) )
+        {
+            return null;
+        }
+        if ( currentPlan == null || !currentPlan.isFor( version ) )
+        {
+            currentPlan = VersionDirectoryPlan.read( repository.getLayout( BaseRepositoryContentLayout.class ),
+                version );
+        }
+        return currentPlan;
+    }
+
     /*
      * We have to track namespace, project, project version, artifact version and classifier
      * There is no metadata class that contains all these properties.
@@ -186,13 +274,38 @@ public String toString( )
      */
     protected void purge( Set<Artifact> references )
     {
+        if ( references != null && !references.isEmpty( ) && dryRun )
+        {
+            for ( Artifact reference : references )
+            {
+                addToDryRunReport( reference );
+            }
+            return;
+        }
         if ( references != null && !references.isEmpty( ) )
         {
             MetadataRepository metadataRepository = repositorySession.getRepository( );
+            List<Artifact> toDelete = new ArrayList<>( references.size( ) );
+            for ( Artifact reference : references )
+            {
+                if ( reference.exists( ) )
+                {
+                    toDelete.add( reference );
+                }
+            }
+            // the listeners and the audit log are notified only about artifacts that are really deleted
+            Set<Artifact> failed = deleteItems( toDelete );
+            // the listing of the version directory is outdated now
+            currentPlan = null;
+
             Map<ArtifactInfo, ArtifactMetadata> metaRemovalList = new HashMap<>( );
             Map<String, Collection<ArtifactMetadata>> metaResolved = new HashMap<>( );
             for ( Artifact reference : references )
             {
+                if ( failed.contains( reference ) )
+                {
+                    continue;
+                }
                 String baseVersion = reference.getVersion( ).getId( );
                 String namespace = reference.getVersion( ).getProject( ).getNamespace( ).getId( );
                 // Needed for tracking in the hashmap
@@ -218,21 +331,6 @@ protected void purge( Set<Artifact> references )
                         reference.getId( ), reference.getVersion( ).getId(),
                             artifactFile.getName( ));
                 }
-                if (reference.exists())
-                {
-                    try
-                    {
-                        repository.deleteItem( reference );
-                    }
-                    catch ( ContentAccessException e )
-                    {
-                        log.error( "Error while trying to delete artifact {}: {}", reference.toString( ), e.getMessage( ), e );
-                    }
-                    catch ( ItemNotFoundException e )
-                    {
-                        log.error( "Asset deleted from background other thread: {}", e.getMessage( ) );
-                    }
-                }
 
                 boolean snapshotVersion = VersionUtil.isSnapshot( baseVersion );
 
@@ -277,16 +375,78 @@ protected void purge( Set<Artifact> references )
                     AuditEvent.PURGE_ARTIFACT );
                 // purgeSupportFiles( artifactFile );
             }
+            // the metadata session is saved once for the batch
             purgeMetadata( metadataRepository, metaRemovalList );
+        }
+    }
+
+    /*
+     * Deletes the files of the batch and returns the artifacts, that could not be deleted. The metadata session is
+     * not used by the delete tasks.
+     */
+    private Set<Artifact> deleteItems( List<Artifact> items )
+    {
+        Set<Artifact> failed = new HashSet<>( );
+        if ( deleteExecutor == null || items.size( ) < 2 )
+        {
+            for ( Artifact item : items )
+            {
+                if ( !deleteItem( item ) )
+                {
+                    failed.add( item );
+                }
+            }
+            return failed;
+        }
+        Map<Artifact, Future<Boolean>> futures = new LinkedHashMap<>( );
+        for ( Artifact item : items )
+        {
+            futures.put( item, deleteExecutor.submit( ( ) -> deleteItem( item ) ) );
+        }
+        boolean interrupted = false;
+        for ( Map.Entry<Artifact, Future<Boolean>> future : futures.entrySet( ) )
+        {
             try
             {
-                repositorySession.save( );
+                if ( interrupted || !future.getValue( ).get( ) )
+                {
+                    failed.add( future.getKey( ) );
+                }
             }
-            catch ( org.apache.archiva.metadata.repository.MetadataSessionException e )
+            catch ( InterruptedException e )
             {
-                e.printStackTrace( );
+                Thread.currentThread( ).interrupt( );
+                log.warn( "Interrupted while waiting for the deletion of artifacts" );
+                // the outcome of the remaining deletions is unknown
+                interrupted = true;
+                failed.add( future.getKey( ) );
             }
+            catch ( ExecutionException e )
+            {
+                log.error( "Error while deleting artifact: {}", e.getCause( ).getMessage( ), e.getCause( ) );
+                failed.add( future.getKey( ) );
+            }
+        }
+        return failed;
+    }
 
+    private boolean deleteItem( Artifact reference )
+    {
+        try
+        {
+            repository.deleteItem( reference );
+            return true;
+        }
+        catch ( ContentAccessException e )
+        {
+            log.error( "Error while trying to delete artifact {}: {}", reference.toString( ), e.getMessage( ), e );
+            return false;
+        }
+        catch ( ItemNotFoundException e )
+        {
+            log.error( "Asset deleted from background other thread: {}", e.getMessage( ) );
+            // the artifact is gone anyway
+            return true;
         }
     }
 
@@ -367,11 +527,6 @@ private void removeArtifact( MetadataRepository metadataRepository, ArtifactInfo
                 mavenArtifactFacetToCompare.setClassifier( artifactInfo.getClassifier( ) );
                 metadataRepository.removeFacetFromArtifact(repositorySession , repository.getId( ), groupId,
                     artifactId, version, mavenArtifactFacetToCompare );
-                try {
-                    repositorySession.save( );
-                } catch (MetadataSessionException e) {
-                    log.error("Could not save session {}", e.getMessage());
-                }
             }
         }
         else
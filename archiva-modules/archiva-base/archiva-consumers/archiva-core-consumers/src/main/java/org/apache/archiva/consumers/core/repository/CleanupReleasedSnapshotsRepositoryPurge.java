@@ -45,8 +45,9 @@
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * <p>
@@ -75,6 +76,9 @@
 
     private RepositoryRegistry repositoryRegistry;
 
+    // the version directories, that are already added to the dry run report
+    private final Set<String> reportedVersions = new HashSet<>( );
+
     public CleanupReleasedSnapshotsRepositoryPurge( ManagedRepositoryContent repository, MetadataTools metadataTools,
                                                     RepositoryRegistry repositoryRegistry,
                                                     RepositorySession repositorySession,
@@ -136,7 +140,7 @@ public void process( String path )
                 }
             }
 
-            Collections.sort( releasedVersions, VersionComparator.getInstance( ) );
+            VersionComparator.sort( releasedVersions );
 
             // Now clean out any version that is earlier than the highest released version.
             boolean needsMetadataUpdate = false;
@@ -152,6 +156,18 @@ public void process( String path )
             {
                 ArchivaItemSelector selector = versionSelectorBuilder.withVersion( artifactRef.getVersion().getId( ) ).build( );
                 Version version = layout.getVersion( selector );
+                if ( isDryRun( ) )
+                {
+                    // the scanner visits each file of the version directory, it is reported once
+                    if ( version.exists( ) && reportedVersions.add( VersionDirectoryPlan.toKey( version ) ) )
+                    {
+                        for ( Artifact artifact : layout.getArtifacts( version ) )
+                        {
+                            addToDryRunReport( artifact );
+                        }
+                    }
+                    return;
+                }
                 if (version.exists())
                 {
                     repository.deleteItem( version );
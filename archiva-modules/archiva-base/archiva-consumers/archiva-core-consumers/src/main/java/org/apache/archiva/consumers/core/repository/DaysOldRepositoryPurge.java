@@ -19,7 +19,6 @@
  * under the License.
  */
 
-import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.metadata.audit.RepositoryListener;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -29,21 +28,16 @@
 import org.apache.archiva.repository.ManagedRepositoryContent;
 import org.apache.archiva.repository.content.Artifact;
 import org.apache.archiva.repository.content.ContentItem;
-import org.apache.archiva.repository.content.base.ArchivaItemSelector;
-import org.apache.commons.lang3.StringUtils;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.regex.Matcher;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Purge from repository all snapshots older than the specified days in the repository configuration.
@@ -87,24 +81,14 @@ public void process( String path )
             Calendar olderThanThisDate = Calendar.getInstance( TimeZone.getTimeZone( "UTC" ) );
             olderThanThisDate.add( Calendar.DATE, -retentionPeriod );
 
-            ArchivaItemSelector selector = ArchivaItemSelector.builder( )
-                .withNamespace( artifactItem.getVersion( ).getProject( ).getNamespace( ).getId( ) )
-                .withProjectId( artifactItem.getVersion( ).getProject( ).getId( ) )
-                .withVersion( artifactItem.getVersion( ).getId( ) )
-                .withClassifier( "*" )
-                .includeRelatedArtifacts( )
-                .build( );
-
-            List<String> artifactVersions;
-            try ( Stream<? extends Artifact> stream = repository.getLayout( BaseRepositoryContentLayout.class ).newArtifactStream( selector ) )
+            VersionDirectoryPlan plan = getPlan( artifactItem );
+            if ( plan == null )
             {
-                artifactVersions = stream.map( a -> a.getArtifactVersion( ) )
-                    .filter( StringUtils::isNotEmpty )
-                    .distinct( )
-                    .collect( Collectors.toList( ) );
+                log.trace( "Artifacts of {} already planned in this scan.", artifactItem.getId( ) );
+                return;
             }
 
-            Collections.sort( artifactVersions, VersionComparator.getInstance( ) );
+            List<String> artifactVersions = plan.getArtifactVersions( );
 
             if ( retentionCount > artifactVersions.size( ) )
             {
@@ -115,14 +99,6 @@ public void process( String path )
             int countToPurge = artifactVersions.size( ) - retentionCount;
 
 
-            ArchivaItemSelector.Builder artifactSelectorBuilder = ArchivaItemSelector.builder( )
-                .withNamespace( artifactItem.getVersion( ).getProject( ).getNamespace( ).getId( ) )
-                .withProjectId( artifactItem.getVersion( ).getProject( ).getId( ) )
-                .withVersion( artifactItem.getVersion( ).getId( ) )
-                .withArtifactId( artifactItem.getId( ) )
-                .withClassifier( "*" )
-                .includeRelatedArtifacts( );
-
             Set<Artifact> artifactsToDelete = new HashSet<>( );
             for ( String version : artifactVersions )
             {
@@ -131,35 +107,25 @@ public void process( String path )
                     break;
                 }
 
-                ArchivaItemSelector artifactSelector = artifactSelectorBuilder.withArtifactVersion( version ).build( );
-                try
-                {
-
+                List<Artifact> artifactList = plan.getArtifacts( artifactItem.getId( ), version );
 
-                    // Is this a generic snapshot "1.0-SNAPSHOT" ?
-                    if ( VersionUtil.isGenericSnapshot( version ) )
-                    {
-                        List<? extends Artifact> artifactList = repository.getLayout( BaseRepositoryContentLayout.class ).getArtifacts( artifactSelector );
-                        if ( artifactList.size( ) > 0 && artifactList.get( 0 ).getAsset( ).getModificationTime( ).toEpochMilli( ) < olderThanThisDate.getTimeInMillis( ) )
-                        {
-                            artifactsToDelete.addAll( artifactList );
-                        }
-                    }
-                    // Is this a timestamp snapshot "1.0-20070822.123456-42" ?
-                    else if ( VersionUtil.isUniqueSnapshot( version ) )
+                // Is this a generic snapshot "1.0-SNAPSHOT" ?
+                if ( VersionUtil.isGenericSnapshot( version ) )
+                {
+                    if ( artifactList.size( ) > 0 && artifactList.get( 0 ).getAsset( ).getModificationTime( ).toEpochMilli( ) < olderThanThisDate.getTimeInMillis( ) )
                     {
-                        Calendar timestampCal = uniqueSnapshotToCalendar( version );
-
-                        if ( timestampCal.getTimeInMillis( ) < olderThanThisDate.getTimeInMillis( ) )
-                        {
-                            artifactsToDelete.addAll( repository.getLayout( BaseRepositoryContentLayout.class ).getArtifacts( artifactSelector ) );
-                        }
+                        artifactsToDelete.addAll( artifactList );
                     }
                 }
-                catch ( IllegalArgumentException e )
+                // Is this a timestamp snapshot "1.0-20070822.123456-42" ?
+                else if ( VersionUtil.isUniqueSnapshot( version ) )
                 {
-                    log.error( "Bad selector for artifact: {}", e.getMessage( ), e );
-                    // continue
+                    Calendar timestampCal = uniqueSnapshotToCalendar( version );
+
+                    if ( timestampCal.getTimeInMillis( ) < olderThanThisDate.getTimeInMillis( ) )
+                    {
+                        artifactsToDelete.addAll( artifactList );
+                    }
                 }
             }
             purge( artifactsToDelete );
@@ -0,0 +1,53 @@
+package org.apache.archiva.consumers.core.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.consumers.RepositoryPurgeReports;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the dry run reports of the repository purge in memory.
+ *
+ * @since 3.0
+ */
+@Service( "repositoryPurgeReports#default" )
+public class DefaultRepositoryPurgeReports
+    implements RepositoryPurgeReports
+{
+    private final Map<String, List<String>> dryRunReports = new ConcurrentHashMap<>( );
+
+    @Override
+    public void setDryRunReport( String repositoryId, List<String> artifacts )
+    {
+        dryRunReports.put( repositoryId, Collections.unmodifiableList( new ArrayList<>( artifacts ) ) );
+    }
+
+    @Override
+    public List<String> getDryRunReport( String repositoryId )
+    {
+        return dryRunReports.getOrDefault( repositoryId, Collections.emptyList( ) );
+    }
+}
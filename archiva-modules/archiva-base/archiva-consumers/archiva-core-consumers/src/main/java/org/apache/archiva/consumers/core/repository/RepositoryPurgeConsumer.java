@@ -20,11 +20,13 @@
  */
 
 import org.apache.archiva.configuration.ArchivaConfiguration;
+import org.apache.archiva.configuration.ArchivaRuntimeConfiguration;
 import org.apache.archiva.configuration.ConfigurationNames;
 import org.apache.archiva.configuration.FileTypes;
 import org.apache.archiva.consumers.AbstractMonitoredConsumer;
 import org.apache.archiva.consumers.ConsumerException;
 import org.apache.archiva.consumers.KnownRepositoryContentConsumer;
+import org.apache.archiva.consumers.RepositoryPurgeReports;
 import org.apache.archiva.metadata.repository.RepositorySession;
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.components.registry.Registry;
@@ -47,6 +49,9 @@
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Consumer for removing old snapshots in the repository based on the criteria
@@ -94,6 +99,17 @@
 
     private boolean deleteReleasedSnapshots;
 
+    private boolean dryRun = false;
+
+    private int deleteThreads = 4;
+
+    private ExecutorService deleteExecutor;
+
+    private String repositoryId;
+
+    @Inject
+    private RepositoryPurgeReports purgeReports;
+
     /**
      *
      */
@@ -136,6 +152,7 @@ public void beginScan( ManagedRepository repository, Date whenGathered )
     {
         ManagedRepositoryContent repositoryContent;
         repositoryContent = repository.getContent();
+        repositoryId = repository.getId( );
 
         try
         {
@@ -171,6 +188,25 @@ public void beginScan( ManagedRepository repository, Date whenGathered )
         cleanUp = new CleanupReleasedSnapshotsRepositoryPurge( repositoryContent, metadataTools, repositoryRegistry,
             repositorySession, listeners );
 
+        if ( deleteThreads > 1 && !dryRun )
+        {
+            // the consumer is a prototype, so the executor lives only for the scan
+            AtomicInteger threadNumber = new AtomicInteger( );
+            deleteExecutor = Executors.newFixedThreadPool( deleteThreads, runnable -> {
+                Thread thread =
+                    new Thread( runnable, "repository-purge-" + repositoryId + "-" + threadNumber.incrementAndGet( ) );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+        for ( RepositoryPurge purge : new RepositoryPurge[]{ repoPurge, cleanUp } )
+        {
+            if ( purge instanceof AbstractRepositoryPurge )
+            {
+                ( (AbstractRepositoryPurge) purge ).setDeleteExecutor( deleteExecutor );
+                ( (AbstractRepositoryPurge) purge ).setDryRun( dryRun );
+            }
+        }
     }
 
     @Override
@@ -208,6 +244,28 @@ public void processFile( String path, boolean executeOnEntireRepo )
     @Override
     public void completeScan( )
     {
+        if ( deleteExecutor != null )
+        {
+            deleteExecutor.shutdown( );
+            deleteExecutor = null;
+        }
+        if ( dryRun )
+        {
+            List<String> report = new ArrayList<>( );
+            for ( RepositoryPurge purge : new RepositoryPurge[]{ repoPurge, cleanUp } )
+            {
+                if ( purge instanceof AbstractRepositoryPurge )
+                {
+                    report.addAll( ( (AbstractRepositoryPurge) purge ).getDryRunReport( ) );
+                }
+            }
+            logger.info( "Dry run of the repository purge of {}: {} artifacts would be purged", repositoryId,
+                report.size( ) );
+            if ( purgeReports != null )
+            {
+                purgeReports.setDryRunReport( repositoryId, report );
+            }
+        }
         repositorySession.close( );
     }
 
@@ -243,6 +301,15 @@ public void initialize( )
         configuration.addChangeListener( this );
 
         initIncludes( );
+
+        // the consumer is a prototype, so the settings are read for each scan
+        ArchivaRuntimeConfiguration runtimeConfiguration =
+            configuration.getConfiguration( ).getArchivaRuntimeConfiguration( );
+        if ( runtimeConfiguration != null )
+        {
+            dryRun = runtimeConfiguration.isRepositoryPurgeDryRun( );
+            deleteThreads = runtimeConfiguration.getRepositoryPurgeDeleteThreads( );
+        }
     }
 
     @Override
@@ -322,6 +389,33 @@ public void setDeleteReleasedSnapshots( boolean deleteReleasedSnapshots )
         this.deleteReleasedSnapshots = deleteReleasedSnapshots;
     }
 
+    public boolean isDryRun( )
+    {
+        return dryRun;
+    }
+
+    /**
+     * If set, the purge only reports the artifacts that would be deleted.
+     */
+    public void setDryRun( boolean dryRun )
+    {
+        this.dryRun = dryRun;
+    }
+
+    public int getDeleteThreads( )
+    {
+        return deleteThreads;
+    }
+
+    /**
+     * Sets the number of threads that delete the files of a purge batch. A value of 1 deletes the files
+     * sequentially.
+     */
+    public void setDeleteThreads( int deleteThreads )
+    {
+        this.deleteThreads = deleteThreads;
+    }
+
     public RepositorySessionFactory getRepositorySessionFactory( )
     {
         return repositorySessionFactory;
@@ -332,4 +426,14 @@ public void setRepositorySessionFactory( RepositorySessionFactory repositorySess
         this.repositorySessionFactory = repositorySessionFactory;
     }
 
+    public RepositoryPurgeReports getPurgeReports( )
+    {
+        return purgeReports;
+    }
+
+    public void setPurgeReports( RepositoryPurgeReports purgeReports )
+    {
+        this.purgeReports = purgeReports;
+    }
+
 }
@@ -19,7 +19,6 @@
  * under the License.
  */
 
-import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.metadata.audit.RepositoryListener;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -29,15 +28,10 @@
 import org.apache.archiva.repository.ManagedRepositoryContent;
 import org.apache.archiva.repository.content.Artifact;
 import org.apache.archiva.repository.content.ContentItem;
-import org.apache.archiva.repository.content.base.ArchivaItemSelector;
-import org.apache.commons.lang3.StringUtils;
 
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Purge the repository by retention count. Retain only the specified number of snapshots.
@@ -70,26 +64,14 @@ public void process( String path )
 
             if ( VersionUtil.isSnapshot( artifact.getVersion( ).getId( ) ) )
             {
-                ArchivaItemSelector selector = ArchivaItemSelector.builder( )
-                    .withNamespace( artifact.getVersion( ).getProject( ).getNamespace( ).getId( ) )
-                    .withProjectId( artifact.getVersion( ).getProject( ).getId( ) )
-                    .withArtifactId( artifact.getId( ) )
-                    .withVersion( artifact.getVersion( ).getId( ) )
-                    .withClassifier( "*" )
-                    .includeRelatedArtifacts( )
-                    .build( );
-
-
-                List<String> versions;
-                try ( Stream<? extends Artifact> stream = repository.getLayout( BaseRepositoryContentLayout.class ).newArtifactStream( selector ) )
+                VersionDirectoryPlan plan = getPlan( artifact );
+                if ( plan == null )
                 {
-                    versions = stream.map( a -> a.getArtifactVersion( ) )
-                        .filter( StringUtils::isNotEmpty )
-                        .distinct( )
-                        .collect( Collectors.toList( ) );
+                    log.trace( "Artifacts of {} already planned in this scan.", artifact.getId( ) );
+                    return;
                 }
 
-                Collections.sort( versions, VersionComparator.getInstance( ) );
+                List<String> versions = plan.getArtifactVersions( artifact.getId( ) );
 
                 if ( retentionCount > versions.size( ) )
                 {
@@ -98,13 +80,6 @@ public void process( String path )
                     return;
                 }
 
-                ArchivaItemSelector.Builder selectorBuilder = ArchivaItemSelector.builder( )
-                    .withNamespace( artifact.getVersion( ).getProject( ).getNamespace( ).getId( ) )
-                    .withProjectId( artifact.getVersion( ).getProject( ).getId( ) )
-                    .withArtifactId( artifact.getId( ) )
-                    .withClassifier( "*" )
-                    .includeRelatedArtifacts( )
-                    .withVersion( artifact.getVersion( ).getId( ) );
                 int countToPurge = versions.size( ) - retentionCount;
                 Set<Artifact> artifactsToDelete = new HashSet<>( );
                 for ( String version : versions )
@@ -113,11 +88,7 @@ public void process( String path )
                     {
                         break;
                     }
-                    List<? extends Artifact> delArtifacts = repository.getLayout( BaseRepositoryContentLayout.class ).getArtifacts( selectorBuilder.withArtifactVersion( version ).build( ) );
-                    if ( delArtifacts != null && delArtifacts.size( ) > 0 )
-                    {
-                        artifactsToDelete.addAll( delArtifacts );
-                    }
+                    artifactsToDelete.addAll( plan.getArtifacts( artifact.getId( ), version ) );
                 }
                 purge( artifactsToDelete );
             }
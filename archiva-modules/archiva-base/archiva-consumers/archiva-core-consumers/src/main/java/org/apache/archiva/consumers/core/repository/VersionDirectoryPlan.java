@@ -0,0 +1,130 @@
+package org.apache.archiva.consumers.core.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.VersionComparator;
+import org.apache.archiva.repository.content.Artifact;
+import org.apache.archiva.repository.content.BaseRepositoryContentLayout;
+import org.apache.archiva.repository.content.ContentAccessException;
+import org.apache.archiva.repository.content.Version;
+import org.apache.archiva.repository.content.base.ArchivaItemSelector;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The artifacts of a single version directory, grouped by artifact id and artifact version. The directory is
+ * listed once and the retention plans of all artifacts in the directory are computed from this listing.
+ *
+ * @since 3.0
+ */
+class VersionDirectoryPlan
+{
+    private final String key;
+
+    private final Map<String, Map<String, List<Artifact>>> artifacts = new LinkedHashMap<>( );
+
+    private VersionDirectoryPlan( String key )
+    {
+        this.key = key;
+    }
+
+    /**
+     * Lists all artifacts of the version directory including the related artifacts.
+     */
+    static VersionDirectoryPlan read( BaseRepositoryContentLayout layout, Version version )
+        throws ContentAccessException
+    {
+        ArchivaItemSelector selector = ArchivaItemSelector.builder( )
+            .withNamespace( version.getProject( ).getNamespace( ).getId( ) )
+            .withProjectId( version.getProject( ).getId( ) )
+            .withVersion( version.getId( ) )
+            .withClassifier( "*" )
+            .includeRelatedArtifacts( )
+            .build( );
+        VersionDirectoryPlan plan = new VersionDirectoryPlan( toKey( version ) );
+        try ( Stream<? extends Artifact> stream = layout.newArtifactStream( selector ) )
+        {
+            stream.filter( a -> StringUtils.isNotEmpty( a.getArtifactVersion( ) ) ).forEach( a ->
+                plan.artifacts.computeIfAbsent( a.getId( ), id -> new LinkedHashMap<>( ) )
+                    .computeIfAbsent( a.getArtifactVersion( ), v -> new ArrayList<>( ) ).add( a ) );
+        }
+        return plan;
+    }
+
+    static String toKey( Version version )
+    {
+        return version.getProject( ).getNamespace( ).getId( ) + "/" + version.getProject( ).getId( ) + "/"
+            + version.getId( );
+    }
+
+    boolean isFor( Version version )
+    {
+        return key.equals( toKey( version ) );
+    }
+
+    /**
+     * Returns the artifact versions of the given artifact id, sorted from the oldest to the newest.
+     */
+    List<String> getArtifactVersions( String artifactId )
+    {
+        Map<String, List<Artifact>> versions = artifacts.get( artifactId );
+        if ( versions == null )
+        {
+            return Collections.emptyList( );
+        }
+        List<String> result = new ArrayList<>( versions.keySet( ) );
+        VersionComparator.sort( result );
+        return result;
+    }
+
+    /**
+     * Returns the artifact versions of all artifacts in the directory, sorted from the oldest to the newest.
+     */
+    List<String> getArtifactVersions( )
+    {
+        Set<String> versions = new LinkedHashSet<>( );
+        artifacts.values( ).forEach( v -> versions.addAll( v.keySet( ) ) );
+        List<String> result = new ArrayList<>( versions );
+        VersionComparator.sort( result );
+        return result;
+    }
+
+    /**
+     * Returns the artifacts with the given id and artifact version.
+     */
+    List<Artifact> getArtifacts( String artifactId, String artifactVersion )
+    {
+        Map<String, List<Artifact>> versions = artifacts.get( artifactId );
+        if ( versions == null )
+        {
+            return Collections.emptyList( );
+        }
+        List<Artifact> result = versions.get( artifactVersion );
+        return result == null ? Collections.emptyList( ) : result;
+    }
+}
@@ -41,11 +41,14 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
@@ -193,6 +196,48 @@ public void testReleasedSnapshotsExistsInSameRepo()
         // XMLAssert.assertXpathEvaluatesTo( "20070315032817", "//metadata/versioning/lastUpdated", metadataXml );
     }
 
+    @Test
+    public void testReleasedSnapshotsDryRun()
+        throws Exception
+    {
+        RepositoryRegistry repositoryRegistry = applicationContext.getBean( ArchivaRepositoryRegistry.class );
+        repositoryRegistry.removeRepository( TEST_REPO_ID );
+        repositoryRegistry.putRepository(
+            getRepoConfiguration( TEST_REPO_ID, TEST_REPO_NAME ));
+
+        String repoRoot = prepareTestRepos();
+        String projectNs = "org.apache.maven.plugins";
+        String projectName = "maven-plugin-plugin";
+        String projectRoot = repoRoot + "/" + projectNs.replaceAll( "\\.", "/" ) + "/" + projectName;
+        Path artifactMetadataFile = Paths.get( projectRoot + "/maven-metadata.xml" );
+        byte[] metadataBefore = Files.readAllBytes( artifactMetadataFile );
+
+        // no listener calls are expected
+        listenerControl.replay();
+
+        CleanupReleasedSnapshotsRepositoryPurge purge = (CleanupReleasedSnapshotsRepositoryPurge) repoPurge;
+        purge.setDryRun( true );
+        purge.process( PATH_TO_RELEASED_SNAPSHOT_IN_SAME_REPO );
+        purge.process( PATH_TO_RELEASED_SNAPSHOT_IN_SAME_REPO.replace( ".jar", ".pom" ) );
+
+        listenerControl.verify();
+        verify( metadataRepository, never() ).removeProjectVersion( any(), any(), any(), any(), any() );
+
+        // nothing is deleted and the metadata is unchanged
+        assertExists( projectRoot + "/2.3-SNAPSHOT/maven-plugin-plugin-2.3-SNAPSHOT.jar" );
+        assertExists( projectRoot + "/2.3-SNAPSHOT/maven-plugin-plugin-2.3-SNAPSHOT.pom" );
+        assertTrue( Arrays.equals( metadataBefore, Files.readAllBytes( artifactMetadataFile ) ) );
+
+        // the artifacts of the version directory are reported once
+        List<String> report = purge.getDryRunReport();
+        assertFalse( report.isEmpty() );
+        assertEquals( new HashSet<>( report ).size(), report.size() );
+        for ( String key : report )
+        {
+            assertTrue( key, key.contains( "2.3-SNAPSHOT" ) );
+        }
+    }
+
     @Test
     public void testNonArtifactFile()
         throws Exception
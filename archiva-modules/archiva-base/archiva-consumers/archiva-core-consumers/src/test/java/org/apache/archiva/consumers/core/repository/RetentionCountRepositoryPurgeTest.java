@@ -34,6 +34,8 @@
 import java.util.List;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
@@ -176,6 +178,33 @@ public void testIfAJarWasFound()
         assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070506.090132-4.pom.sha1" );
     }
 
+    /**
+     * Test that a dry run only reports the artifacts.
+     */
+    @Test
+    public void testDryRun()
+        throws Exception
+    {
+        String repoRoot = prepareTestRepos();
+        String versionRoot = repoRoot + "/org/jruby/plugins/jruby-rake-plugin/1.0RC1-SNAPSHOT";
+
+        listenerControl.replay();
+
+        ( (AbstractRepositoryPurge) repoPurge ).setDryRun( true );
+        repoPurge.process( PATH_TO_BY_RETENTION_COUNT_ARTIFACT );
+        // a second file of the same version directory is not planned again
+        repoPurge.process( PATH_TO_BY_RETENTION_COUNT_ARTIFACT );
+
+        listenerControl.verify();
+        verify( metadataRepository, never() ).removeTimestampedArtifact( eq( repositorySession ), any( ArtifactMetadata.class ), anyString() );
+
+        List<String> report = ( (AbstractRepositoryPurge) repoPurge ).getDryRunReport();
+        assertFalse( report.isEmpty() );
+        assertEquals( report.size(), new HashSet<>( report ).size() );
+        assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.153317-1.jar" );
+        assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.160758-2.jar" );
+    }
+
     /**
      * Test if the artifact to be processed is a pom
      */
@@ -72,6 +72,11 @@
 
     private ManagedRepository repository;
 
+    /**
+     * Number of files queued for indexing since the begin of a scan, that is not a scan of the entire repository.
+     */
+    private int queuedFiles;
+
     @Inject
     public NexusIndexerConsumer(
         @Named( value = "archivaTaskScheduler#indexing" ) ArchivaTaskScheduler<ArtifactIndexingTask> scheduler,
@@ -115,6 +120,7 @@ public void beginScan( ManagedRepository repository, Date whenGathered, boolean
         {
             this.repository = repository;
             managedRepository = Paths.get( repository.getLocation() );
+            queuedFiles = 0;
         }
     }
 
@@ -149,16 +155,17 @@ public void processFile( String path, boolean executeOnEntireRepo )
         {
             Path artifactFile = managedRepository.resolve(path);
 
-            // specify in indexing task that this is not a repo scan request!
+            // the index is finished only once for all files, see completeScan( false )
             ArtifactIndexingTask task =
                 new ArtifactIndexingTask( repository, artifactFile, ArtifactIndexingTask.Action.ADD,
-                                          repository.getIndexingContext(), false );
+                                          repository.getIndexingContext() );
             // only update index we don't need to scan the full repo here
             task.setOnlyUpdate( true );
             try
             {
                 log.debug( "Queueing indexing task '{}' to add or update the artifact in the index.", task );
                 scheduler.queueTask( task );
+                queuedFiles++;
             }
             catch ( TaskQueueException e )
             {
@@ -190,8 +197,25 @@ public void completeScan( boolean executeOnEntireRepo )
         {
             completeScan();
         }
-
-        // else, do nothing as the context will be closed when indexing task is executed if not a repo scan request!
+        else if ( queuedFiles > 0 )
+        {
+            // specify in indexing task that this is not a repo scan request, so the index is optimized and packed
+            // without scanning the full repo
+            ArtifactIndexingTask task =
+                new ArtifactIndexingTask( repository, null, ArtifactIndexingTask.Action.FINISH,
+                                          repository.getIndexingContext(), false );
+            task.setOnlyUpdate( true );
+            try
+            {
+                log.debug( "Queueing indexing task '{}' to finish indexing of {} files.", task, queuedFiles );
+                scheduler.queueTask( task );
+            }
+            catch ( TaskQueueException e )
+            {
+                log.error( "Error queueing task: {}: {}", task, e.getMessage(), e );
+            }
+            queuedFiles = 0;
+        }
     }
 
     @Override
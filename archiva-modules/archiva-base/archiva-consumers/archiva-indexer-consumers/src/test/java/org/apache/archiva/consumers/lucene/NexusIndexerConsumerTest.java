@@ -58,6 +58,8 @@
     {
         Set<Path> indexed = new HashSet<>();
 
+        int finished;
+
         @Override
         public void queueTask( ArtifactIndexingTask task )
             throws TaskQueueException
@@ -71,6 +73,7 @@ public void queueTask( ArtifactIndexingTask task )
                     indexed.remove( task.getResourceFile() );
                     break;
                 case FINISH:
+                    finished++;
                     try
                     {
                         task.getContext().close( false );
@@ -220,6 +223,26 @@ public void testIndexerIndexArtifactThenPom()
         assertTrue( scheduler.indexed.contains( artifactFile ) );
     }
 
+    @Test
+    public void testIndexerBatchFinishedOnce()
+        throws Exception
+    {
+        Path basePath = PathUtil.getPathFromUri( repositoryConfig.getLocation( ) );
+
+        Date now = Calendar.getInstance().getTime();
+        nexusIndexerConsumer.beginScan( repositoryConfig, now, false );
+        nexusIndexerConsumer.processFile(
+            "org/apache/archiva/archiva-index-methods-jar-test/1.0/archiva-index-methods-jar-test-1.0.jar", false );
+        nexusIndexerConsumer.processFile( "org/apache/archiva/archiva-index-methods-jar-test/1.0/pom.xml", false );
+        nexusIndexerConsumer.completeScan( false );
+
+        assertTrue( scheduler.indexed.contains( basePath.resolve(
+            "org/apache/archiva/archiva-index-methods-jar-test/1.0/archiva-index-methods-jar-test-1.0.jar" ) ) );
+        assertTrue(
+            scheduler.indexed.contains( basePath.resolve( "org/apache/archiva/archiva-index-methods-jar-test/1.0/pom.xml" ) ) );
+        assertEquals( 1, scheduler.finished );
+    }
+
     // MRM-1275 - Include other file types for the index consumer instead of just the indexable-content
     @Test
     public void testIncludedFileTypes()
@@ -89,10 +89,18 @@
     @Named (value = "repositoryStorage#maven2")
     private RepositoryStorage repositoryStorage;
 
+    @Inject
+    private DependencyGraphIndex dependencyGraphIndex;
+
     private static final Logger log = LoggerFactory.getLogger( ArchivaMetadataCreationConsumer.class );
 
     private String repoId;
 
+    /**
+     * The session shared by all files of a batch, that is not a scan of the entire repository.
+     */
+    private RepositorySession batchSession;
+
     @Override
     public String getId()
     {
@@ -136,7 +144,19 @@ public void beginScan( ManagedRepository repository, Date whenGathered, boolean
     public void processFile( String path )
         throws ConsumerException
     {
+        RepositorySession repositorySession = createSession( );
+        try
+        {
+            processFile( path, repositorySession );
+        }
+        finally
+        {
+            repositorySession.close();
+        }
+    }
 
+    private RepositorySession createSession( )
+    {
         RepositorySession repositorySession = null;
         try
         {
@@ -146,6 +166,12 @@ public void processFile( String path )
         {
             e.printStackTrace( );
         }
+        return repositorySession;
+    }
+
+    private void processFile( String path, RepositorySession repositorySession )
+        throws ConsumerException
+    {
         try
         {
             // note that we do minimal processing including checksums and POM information for performance of
@@ -198,6 +224,8 @@ public void processFile( String path )
             {
                 metadataRepository.updateProjectVersion(repositorySession , repoId, project.getNamespace(),
                     project.getId(), versionMetadata );
+                dependencyGraphIndex.updateProjectVersion( repositorySession, repoId, project.getNamespace(),
+                    project.getId(), versionMetadata );
             }
             metadataRepository.updateProject(repositorySession , repoId, project );
             repositorySession.save();
@@ -225,9 +253,6 @@ public void processFile( String path )
             }
         } catch (MetadataSessionException e) {
             throw new ConsumerException(e.getMessage(), e);
-        } finally
-        {
-            repositorySession.close();
         }
     }
 
@@ -235,7 +260,17 @@ public void processFile( String path )
     public void processFile( String path, boolean executeOnEntireRepo )
         throws ConsumerException
     {
-        processFile( path );
+        if ( executeOnEntireRepo )
+        {
+            processFile( path );
+            return;
+        }
+        // files of a batch share one session, each file is still saved or reverted on its own
+        if ( batchSession == null )
+        {
+            batchSession = createSession( );
+        }
+        processFile( path, batchSession );
     }
 
     @Override
@@ -247,6 +282,11 @@ public void completeScan()
     @Override
     public void completeScan( boolean executeOnEntireRepo )
     {
+        if ( batchSession != null )
+        {
+            batchSession.close();
+            batchSession = null;
+        }
         completeScan();
     }
 
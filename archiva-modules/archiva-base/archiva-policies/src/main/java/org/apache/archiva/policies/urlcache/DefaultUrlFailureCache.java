@@ -18,44 +18,348 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
 import org.apache.archiva.components.cache.Cache;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * DefaultUrlFailureCache
+ * Keeps the failed URLs as 64 bit hashes in a {@link NegativeLookupTable}. Because the URL contains the location of
+ * the remote repository, the entries of the remote repositories are independent.
+ * <p>
+ * Transfer errors expire after the time to live of the <code>url-failures-cache</code>, not found failures after their
+ * own time to live. Both are set by the runtime configuration. The table is written to
+ * <code>${appserver.base}/tmp/urlcache</code> periodically and on shutdown and is read again on startup.
  */
 @Service( "urlFailureCache" )
 public class DefaultUrlFailureCache
     implements UrlFailureCache
 {
-    private Cache<String, Date> urlCache;
+    private static final Logger log = LoggerFactory.getLogger( DefaultUrlFailureCache.class );
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final String SNAPSHOT_FILE = "url-failures.bin";
+
+    private final Cache<String, Date> urlCache;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock( );
+
+    private final LongAdder hits = new LongAdder( );
+
+    private final LongAdder misses = new LongAdder( );
+
+    // incremented on each change, the snapshot is only written if it changed
+    private final AtomicLong modifications = new AtomicLong( );
+
+    private long savedModifications;
+
+    private NegativeLookupTable table;
+
+    private int maxEntries = 100000;
+
+    private long notFoundTimeToLiveSeconds = 3600;
+
+    private long snapshotIntervalSeconds = 300;
+
+    private Path snapshotDirectory;
+
+    private ScheduledExecutorService snapshotScheduler;
 
     @Inject
     public DefaultUrlFailureCache( @Named( "cache#url-failures-cache" ) Cache<String, Date> urlCache )
     {
         this.urlCache = urlCache;
+        this.table = new NegativeLookupTable( maxEntries );
+    }
+
+    @PostConstruct
+    public void initialize( )
+    {
+        if ( snapshotDirectory == null )
+        {
+            String appServerBase = System.getProperty( "appserver.base" );
+            if ( StringUtils.isEmpty( appServerBase ) )
+            {
+                log.debug( "appserver.base is not set, the url failure cache is not written to disk" );
+                return;
+            }
+            snapshotDirectory = Paths.get( appServerBase, "tmp", "urlcache" );
+        }
+        loadSnapshot( );
+        if ( snapshotIntervalSeconds > 0 )
+        {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+                Thread thread = new Thread( runnable, "url-failure-cache-snapshot" );
+                thread.setDaemon( true );
+                return thread;
+            } );
+            snapshotScheduler.scheduleWithFixedDelay( this::saveSnapshot, snapshotIntervalSeconds,
+                                                      snapshotIntervalSeconds, TimeUnit.SECONDS );
+        }
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        if ( snapshotScheduler != null )
+        {
+            snapshotScheduler.shutdownNow( );
+            snapshotScheduler = null;
+        }
+        saveSnapshot( );
     }
 
     @Override
     public void cacheFailure( String url )
     {
-        urlCache.register( url, new Date() );
+        cacheFailure( url, FailureReason.TRANSFER_ERROR );
+    }
+
+    @Override
+    public void cacheFailure( String url, FailureReason reason )
+    {
+        long now = System.currentTimeMillis( );
+        long timeToLive = reason == FailureReason.NOT_FOUND ? notFoundTimeToLiveSeconds : getTransferErrorTimeToLive( );
+        lock.writeLock( ).lock( );
+        try
+        {
+            table.put( hash( url ), now + TimeUnit.SECONDS.toMillis( timeToLive ), (byte) reason.ordinal( ), now );
+        }
+        finally
+        {
+            lock.writeLock( ).unlock( );
+        }
+        modifications.incrementAndGet( );
     }
 
     @Override
     public boolean hasFailedBefore( String url )
     {
-        if ( urlCache.hasKey( url ) )
+        long key = hash( url );
+        int reason;
+        lock.readLock( ).lock( );
+        try
         {
-            urlCache.register( url, new Date() );
-            return true;
+            reason = table.get( key, System.currentTimeMillis( ) );
         }
+        finally
+        {
+            lock.readLock( ).unlock( );
+        }
+        if ( reason < 0 )
+        {
+            misses.increment( );
+            return false;
+        }
+        hits.increment( );
+        return true;
+    }
 
-        return false;
+    @Override
+    public void clear( )
+    {
+        lock.writeLock( ).lock( );
+        try
+        {
+            table.clear( );
+        }
+        finally
+        {
+            lock.writeLock( ).unlock( );
+        }
+        modifications.incrementAndGet( );
+        hits.reset( );
+        misses.reset( );
+    }
+
+    @Override
+    public UrlFailureCacheStatistics getStatistics( )
+    {
+        long now = System.currentTimeMillis( );
+        lock.readLock( ).lock( );
+        try
+        {
+            long notFound = table.count( (byte) FailureReason.NOT_FOUND.ordinal( ), now );
+            long transferError = table.count( (byte) FailureReason.TRANSFER_ERROR.ordinal( ), now );
+            return new UrlFailureCacheStatistics( notFound + transferError, notFound, transferError, hits.sum( ),
+                                                  misses.sum( ), table.getMemorySize( ) );
+        }
+        finally
+        {
+            lock.readLock( ).unlock( );
+        }
+    }
+
+    private long getTransferErrorTimeToLive( )
+    {
+        return urlCache.getTimeToLiveSeconds( );
+    }
+
+    /**
+     * Returns the 64 bit FNV-1a hash of the URL.
+     */
+    static long hash( String url )
+    {
+        long hash = 0xcbf29ce484222325L;
+        for ( byte b : url.getBytes( StandardCharsets.UTF_8 ) )
+        {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void loadSnapshot( )
+    {
+        Path file = snapshotDirectory.resolve( SNAPSHOT_FILE );
+        if ( !Files.exists( file ) )
+        {
+            return;
+        }
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( file ) ) ) )
+        {
+            if ( in.readInt( ) != SNAPSHOT_VERSION )
+            {
+                log.info( "Ignoring url failure cache {} of an unknown version", file );
+                return;
+            }
+            lock.writeLock( ).lock( );
+            try
+            {
+                table.readFrom( in, System.currentTimeMillis( ) );
+                log.debug( "Read {} url failures from {}", table.size( ), file );
+            }
+            finally
+            {
+                lock.writeLock( ).unlock( );
+            }
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not read the url failure cache {}: {}", file, e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Writes the table to the snapshot file, if it changed since the last snapshot.
+     */
+    public synchronized void saveSnapshot( )
+    {
+        long current = modifications.get( );
+        if ( snapshotDirectory == null || current == savedModifications )
+        {
+            return;
+        }
+        Path file = snapshotDirectory.resolve( SNAPSHOT_FILE );
+        Path tmpFile = snapshotDirectory.resolve( SNAPSHOT_FILE + ".tmp" );
+        try
+        {
+            Files.createDirectories( snapshotDirectory );
+            try ( DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream( Files.newOutputStream( tmpFile ) ) ) )
+            {
+                out.writeInt( SNAPSHOT_VERSION );
+                lock.readLock( ).lock( );
+                try
+                {
+                    table.writeTo( out, System.currentTimeMillis( ) );
+                }
+                finally
+                {
+                    lock.readLock( ).unlock( );
+                }
+            }
+            Files.move( tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            savedModifications = current;
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not write the url failure cache {}: {}", file, e.getMessage( ) );
+        }
+    }
+
+    public int getMaxEntries( )
+    {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of cached failures. The cached failures are removed.
+     */
+    public void setMaxEntries( int maxEntries )
+    {
+        lock.writeLock( ).lock( );
+        try
+        {
+            this.maxEntries = maxEntries;
+            this.table = new NegativeLookupTable( maxEntries );
+        }
+        finally
+        {
+            lock.writeLock( ).unlock( );
+        }
+    }
+
+    public long getNotFoundTimeToLiveSeconds( )
+    {
+        return notFoundTimeToLiveSeconds;
+    }
+
+    @Override
+    public void setNotFoundTimeToLiveSeconds( long notFoundTimeToLiveSeconds )
+    {
+        this.notFoundTimeToLiveSeconds = notFoundTimeToLiveSeconds;
+    }
+
+    public long getSnapshotIntervalSeconds( )
+    {
+        return snapshotIntervalSeconds;
+    }
+
+    /**
+     * Sets the interval of the snapshots. The value is used on initialization, 0 writes the snapshot only on shutdown.
+     */
+    public void setSnapshotIntervalSeconds( long snapshotIntervalSeconds )
+    {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    public Path getSnapshotDirectory( )
+    {
+        return snapshotDirectory;
+    }
+
+    /**
+     * Sets the directory of the snapshot. The value is used on initialization, by default the snapshot is written to
+     * <code>${appserver.base}/tmp/urlcache</code>.
+     */
+    public void setSnapshotDirectory( Path snapshotDirectory )
+    {
+        this.snapshotDirectory = snapshotDirectory;
     }
 }
@@ -0,0 +1,277 @@
+package org.apache.archiva.policies.urlcache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table of failed lookups. Each entry consists of the 64 bit hash of the URL, the expiration
+ * time and the reason of the failure, so an entry needs 17 bytes independent of the length of the URL.
+ * <p>
+ * The table uses linear probing and is rebuilt instead of deleting single entries: expired entries are dropped,
+ * when the table is full. If the table reached the maximum size, the quarter of the entries, that expire first, is
+ * dropped as well. The class is not thread safe.
+ *
+ * @since 3.0
+ */
+public class NegativeLookupTable
+{
+    // the hash 0 marks an empty slot
+    private static final long EMPTY = 0L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final int maxEntries;
+
+    private long[] keys;
+
+    private long[] expirations;
+
+    private byte[] reasons;
+
+    private int size;
+
+    /**
+     * @param maxEntries the maximum number of entries
+     */
+    public NegativeLookupTable( int maxEntries )
+    {
+        this.maxEntries = Math.max( 1, maxEntries );
+        allocate( MIN_CAPACITY );
+    }
+
+    private void allocate( int capacity )
+    {
+        keys = new long[capacity];
+        expirations = new long[capacity];
+        reasons = new byte[capacity];
+        size = 0;
+    }
+
+    private static long normalize( long key )
+    {
+        return key == EMPTY ? 1L : key;
+    }
+
+    private int slot( long key )
+    {
+        // spread the bits, the low bits select the slot
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) ( h ^ ( h >>> 32 ) ) & ( keys.length - 1 );
+    }
+
+    /**
+     * Adds or replaces the entry of the given key.
+     *
+     * @param key        the hash of the URL
+     * @param expiration the time in milliseconds, when the entry expires
+     * @param reason     the reason of the failure
+     * @param now        the current time in milliseconds
+     */
+    public void put( long key, long expiration, byte reason, long now )
+    {
+        key = normalize( key );
+        int index = find( key );
+        if ( keys[index] == key )
+        {
+            expirations[index] = expiration;
+            reasons[index] = reason;
+            return;
+        }
+        if ( ( size + 1 ) * 2 > keys.length || size >= maxEntries )
+        {
+            makeRoom( now );
+            index = find( key );
+        }
+        keys[index] = key;
+        expirations[index] = expiration;
+        reasons[index] = reason;
+        size++;
+    }
+
+    /**
+     * Returns the reason of the failure of the given key or -1, if there is no entry or if it is expired.
+     */
+    public int get( long key, long now )
+    {
+        key = normalize( key );
+        int index = find( key );
+        if ( keys[index] == key && expirations[index] > now )
+        {
+            return reasons[index];
+        }
+        return -1;
+    }
+
+    // returns the slot of the key or the empty slot, where the key belongs
+    private int find( long key )
+    {
+        int mask = keys.length - 1;
+        int index = slot( key );
+        while ( keys[index] != EMPTY && keys[index] != key )
+        {
+            index = ( index + 1 ) & mask;
+        }
+        return index;
+    }
+
+    private void makeRoom( long now )
+    {
+        long minExpiration = now;
+        int live = 0;
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            if ( keys[i] != EMPTY && expirations[i] > now )
+            {
+                live++;
+            }
+        }
+        if ( live >= maxEntries )
+        {
+            // drop the entries, that expire first
+            long[] sorted = new long[live];
+            int count = 0;
+            for ( int i = 0; i < keys.length; i++ )
+            {
+                if ( keys[i] != EMPTY && expirations[i] > now )
+                {
+                    sorted[count++] = expirations[i];
+                }
+            }
+            Arrays.sort( sorted );
+            minExpiration = sorted[Math.max( 0, live / 4 - 1 )];
+            live = live - live / 4;
+        }
+        int capacity = MIN_CAPACITY;
+        while ( capacity < ( live + 1 ) * 2 )
+        {
+            capacity <<= 1;
+        }
+        rebuild( capacity, minExpiration );
+    }
+
+    private void rebuild( int capacity, long minExpiration )
+    {
+        long[] oldKeys = keys;
+        long[] oldExpirations = expirations;
+        byte[] oldReasons = reasons;
+        allocate( capacity );
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldKeys[i] != EMPTY && oldExpirations[i] > minExpiration && size < maxEntries )
+            {
+                int index = find( oldKeys[i] );
+                keys[index] = oldKeys[i];
+                expirations[index] = oldExpirations[i];
+                reasons[index] = oldReasons[i];
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear( )
+    {
+        allocate( MIN_CAPACITY );
+    }
+
+    /**
+     * Returns the number of entries including the expired entries, that were not dropped yet.
+     */
+    public int size( )
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries of the given reason, that are not expired.
+     */
+    public int count( byte reason, long now )
+    {
+        int count = 0;
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            if ( keys[i] != EMPTY && expirations[i] > now && reasons[i] == reason )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the size of the table in bytes.
+     */
+    public long getMemorySize( )
+    {
+        return keys.length * 17L;
+    }
+
+    /**
+     * Writes the entries, that are not expired. The entries are written as number of entries followed by key,
+     * expiration time and reason of each entry.
+     */
+    public void writeTo( DataOutput out, long now )
+        throws IOException
+    {
+        int count = 0;
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            if ( keys[i] != EMPTY && expirations[i] > now )
+            {
+                count++;
+            }
+        }
+        out.writeInt( count );
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            if ( keys[i] != EMPTY && expirations[i] > now )
+            {
+                out.writeLong( keys[i] );
+                out.writeLong( expirations[i] );
+                out.writeByte( reasons[i] );
+            }
+        }
+    }
+
+    /**
+     * Adds the entries written by {@link #writeTo(DataOutput, long)}, that are not expired.
+     */
+    public void readFrom( DataInput in, long now )
+        throws IOException
+    {
+        int count = in.readInt( );
+        for ( int i = 0; i < count; i++ )
+        {
+            long key = in.readLong( );
+            long expiration = in.readLong( );
+            byte reason = in.readByte( );
+            if ( expiration > now )
+            {
+                put( key, expiration, reason, now );
+            }
+        }
+    }
+}
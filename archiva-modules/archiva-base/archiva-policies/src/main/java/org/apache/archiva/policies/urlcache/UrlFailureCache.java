@@ -28,20 +28,51 @@
 public interface UrlFailureCache
 {
     /**
-     * Store a URL in the cache as failed.
+     * Store a URL in the cache as failed because of a transfer error.
      * 
      * @param url the url to store. 
      */
     void cacheFailure( String url );
+
+    /**
+     * Store a URL in the cache as failed. The expiration time depends on the reason.
+     *
+     * @param url the url to store.
+     * @param reason the reason of the failure.
+     * @since 3.0
+     */
+    void cacheFailure( String url, FailureReason reason );
     
     /**
      * Test if a specified URL has failed before.
      * 
-     * NOTE: If the provided URL has failed, then making this call 
-     * should refresh the expiration time on that URL entry.
+     * NOTE: The expiration time of the URL entry is not refreshed by this call,
+     * a failed URL is retried after the expiration time of its failure.
      * 
      * @param url the URL to test.
      * @return true if it has failed before, false if not.
      */
     boolean hasFailedBefore( String url );
+
+    /**
+     * Removes all cached failures.
+     *
+     * @since 3.0
+     */
+    void clear( );
+
+    /**
+     * Returns the size and the hit rate of the cache.
+     *
+     * @since 3.0
+     */
+    UrlFailureCacheStatistics getStatistics( );
+
+    /**
+     * Sets the time to live of the not found failures in seconds. The time to live of the transfer errors is the time
+     * to live of the <code>url-failures-cache</code>.
+     *
+     * @since 3.0
+     */
+    void setNotFoundTimeToLiveSeconds( long notFoundTimeToLiveSeconds );
 }
@@ -0,0 +1,98 @@
+package org.apache.archiva.policies.urlcache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.io.Serializable;
+
+/**
+ * Statistics of the {@link UrlFailureCache}.
+ *
+ * @since 3.0
+ */
+public class UrlFailureCacheStatistics
+    implements Serializable
+{
+    private final long size;
+
+    private final long notFoundSize;
+
+    private final long transferErrorSize;
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long memorySize;
+
+    public UrlFailureCacheStatistics( long size, long notFoundSize, long transferErrorSize, long hits, long misses,
+                                      long memorySize )
+    {
+        this.size = size;
+        this.notFoundSize = notFoundSize;
+        this.transferErrorSize = transferErrorSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.memorySize = memorySize;
+    }
+
+    /**
+     * Returns the number of cached failures.
+     */
+    public long getSize( )
+    {
+        return size;
+    }
+
+    public long getNotFoundSize( )
+    {
+        return notFoundSize;
+    }
+
+    public long getTransferErrorSize( )
+    {
+        return transferErrorSize;
+    }
+
+    public long getHits( )
+    {
+        return hits;
+    }
+
+    public long getMisses( )
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the ratio of hits to lookups (0.0 - 1.0).
+     */
+    public double getHitRate( )
+    {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns the memory used by the cache in bytes.
+     */
+    public long getMemorySize( )
+    {
+        return memorySize;
+    }
+}
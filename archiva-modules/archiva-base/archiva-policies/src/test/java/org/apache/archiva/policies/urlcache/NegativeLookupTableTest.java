@@ -0,0 +1,124 @@
+package org.apache.archiva.policies.urlcache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import junit.framework.TestCase;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * NegativeLookupTableTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class NegativeLookupTableTest
+    extends TestCase
+{
+    private static final byte NOT_FOUND = (byte) FailureReason.NOT_FOUND.ordinal( );
+
+    private static final byte TRANSFER_ERROR = (byte) FailureReason.TRANSFER_ERROR.ordinal( );
+
+    @Test
+    public void testPutAndExpire( )
+    {
+        NegativeLookupTable table = new NegativeLookupTable( 100 );
+        table.put( 42, 2000, NOT_FOUND, 1000 );
+        table.put( 0, 3000, TRANSFER_ERROR, 1000 );
+
+        assertEquals( NOT_FOUND, table.get( 42, 1000 ) );
+        assertEquals( TRANSFER_ERROR, table.get( 0, 1000 ) );
+        assertEquals( -1, table.get( 43, 1000 ) );
+        // expired entries are not returned
+        assertEquals( -1, table.get( 42, 2000 ) );
+        assertEquals( 0, table.count( NOT_FOUND, 2000 ) );
+        assertEquals( 1, table.count( TRANSFER_ERROR, 2000 ) );
+
+        // replacing an entry changes expiration and reason
+        table.put( 42, 5000, TRANSFER_ERROR, 2000 );
+        assertEquals( TRANSFER_ERROR, table.get( 42, 4000 ) );
+        assertEquals( 2, table.size( ) );
+    }
+
+    @Test
+    public void testGrowAndPurge( )
+    {
+        NegativeLookupTable table = new NegativeLookupTable( 10000 );
+        for ( long key = 1; key <= 1000; key++ )
+        {
+            table.put( key * 31, key < 500 ? 1500 : 5000, NOT_FOUND, 1000 );
+        }
+        assertEquals( 1000, table.size( ) );
+        for ( long key = 1; key <= 1000; key++ )
+        {
+            assertEquals( NOT_FOUND, table.get( key * 31, 1000 ) );
+        }
+
+        // the expired entries are dropped, when the table grows again
+        for ( long key = 1001; key <= 1100; key++ )
+        {
+            table.put( key * 31, 5000, NOT_FOUND, 2000 );
+        }
+        assertTrue( table.size( ) < 1000 );
+        assertEquals( 601, table.count( NOT_FOUND, 2000 ) );
+    }
+
+    @Test
+    public void testEvictsEntriesExpiringFirst( )
+    {
+        NegativeLookupTable table = new NegativeLookupTable( 100 );
+        for ( long key = 1; key <= 100; key++ )
+        {
+            table.put( key, 10000 + key, NOT_FOUND, 1000 );
+        }
+        table.put( 1000, 20000, NOT_FOUND, 1000 );
+
+        assertTrue( table.size( ) <= 100 );
+        assertEquals( -1, table.get( 1, 1000 ) );
+        assertEquals( -1, table.get( 25, 1000 ) );
+        assertEquals( NOT_FOUND, table.get( 26, 1000 ) );
+        assertEquals( NOT_FOUND, table.get( 100, 1000 ) );
+        assertEquals( NOT_FOUND, table.get( 1000, 1000 ) );
+    }
+
+    @Test
+    public void testSnapshot( )
+        throws Exception
+    {
+        NegativeLookupTable table = new NegativeLookupTable( 100 );
+        table.put( 1, 2000, NOT_FOUND, 1000 );
+        table.put( 2, 5000, TRANSFER_ERROR, 1000 );
+        table.put( 3, 6000, NOT_FOUND, 1000 );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+        table.writeTo( new DataOutputStream( bytes ), 1000 );
+
+        // entries, that expired in the meantime, are skipped
+        NegativeLookupTable restored = new NegativeLookupTable( 100 );
+        restored.readFrom( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray( ) ) ), 3000 );
+        assertEquals( 2, restored.size( ) );
+        assertEquals( -1, restored.get( 1, 3000 ) );
+        assertEquals( TRANSFER_ERROR, restored.get( 2, 3000 ) );
+        assertEquals( NOT_FOUND, restored.get( 3, 3000 ) );
+    }
+}
@@ -0,0 +1,48 @@
+package org.apache.archiva.proxy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.proxy.model.CircuitBreakerStatus;
+
+import java.util.List;
+
+/**
+ * The circuit breakers of the remote repositories. The proxy handlers skip a remote repository, while its breaker is
+ * open or while the maximum number of concurrent transfers from the repository is reached.
+ *
+ * @since 3.0
+ */
+public interface RemoteRepositoryCircuitBreakers
+{
+    /**
+     * Returns the status of the breakers of all remote repositories, that were used since the start.
+     *
+     * @return the list of breaker states, ordered by the repository id
+     */
+    List<CircuitBreakerStatus> getStatus( );
+
+    /**
+     * Closes the breaker of the given remote repository and clears its statistics.
+     *
+     * @param remoteRepositoryId the id of the remote repository
+     * @return <code>true</code>, if there was a breaker for the repository
+     */
+    boolean reset( String remoteRepositoryId );
+}
@@ -0,0 +1,156 @@
+package org.apache.archiva.proxy.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of the circuit breaker of a remote repository.
+ *
+ * @since 3.0
+ */
+public class CircuitBreakerStatus
+    implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The state of a circuit breaker. Transfers are only attempted, if the breaker is closed. A half open breaker
+     * lets a single transfer through, that decides, if the breaker is closed again.
+     */
+    public enum State
+    {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String repositoryId;
+
+    private final State state;
+
+    private final long openedSince;
+
+    private final int windowCalls;
+
+    private final double failureRate;
+
+    private final long averageDuration;
+
+    private final int inFlight;
+
+    private final int maxInFlight;
+
+    private final long totalCalls;
+
+    private final long totalFailures;
+
+    private final long rejectedCalls;
+
+    public CircuitBreakerStatus( String repositoryId, State state, long openedSince, int windowCalls,
+                                 double failureRate, long averageDuration, int inFlight, int maxInFlight,
+                                 long totalCalls, long totalFailures, long rejectedCalls )
+    {
+        this.repositoryId = repositoryId;
+        this.state = state;
+        this.openedSince = openedSince;
+        this.windowCalls = windowCalls;
+        this.failureRate = failureRate;
+        this.averageDuration = averageDuration;
+        this.inFlight = inFlight;
+        this.maxInFlight = maxInFlight;
+        this.totalCalls = totalCalls;
+        this.totalFailures = totalFailures;
+        this.rejectedCalls = rejectedCalls;
+    }
+
+    /**
+     * Returns the id of the remote repository.
+     */
+    public String getRepositoryId( )
+    {
+        return repositoryId;
+    }
+
+    public State getState( )
+    {
+        return state;
+    }
+
+    /**
+     * Returns the time in milliseconds, when the breaker was opened, or 0, if it is closed.
+     */
+    public long getOpenedSince( )
+    {
+        return openedSince;
+    }
+
+    /**
+     * Returns the number of transfers in the sliding window, the failure rate is computed from.
+     */
+    public int getWindowCalls( )
+    {
+        return windowCalls;
+    }
+
+    /**
+     * Returns the rate of failed or slow transfers in the sliding window (0.0 - 1.0).
+     */
+    public double getFailureRate( )
+    {
+        return failureRate;
+    }
+
+    /**
+     * Returns the average response time of the transfers in the sliding window in milliseconds, that is the time
+     * until the remote repository started to send the response.
+     */
+    public long getAverageDuration( )
+    {
+        return averageDuration;
+    }
+
+    public int getInFlight( )
+    {
+        return inFlight;
+    }
+
+    public int getMaxInFlight( )
+    {
+        return maxInFlight;
+    }
+
+    public long getTotalCalls( )
+    {
+        return totalCalls;
+    }
+
+    public long getTotalFailures( )
+    {
+        return totalFailures;
+    }
+
+    /**
+     * Returns the number of transfers, that were skipped, because the breaker was open or no transfer slot became
+     * free within the maximum wait time.
+     */
+    public long getRejectedCalls( )
+    {
+        return rejectedCalls;
+    }
+}
@@ -73,6 +73,20 @@
     StorageAsset fetchFromProxies( ManagedRepository repository, Artifact artifact )
         throws ProxyDownloadException;
 
+    /**
+     * Performs the artifact fetch operation against the target repository of the given proxy connector only.
+     * The policies of the connector are applied like in {@link #fetchFromProxies(ManagedRepository, Artifact)}.
+     *
+     * @param repository the source repository to use. (must be a managed repository)
+     * @param artifact   the artifact to fetch.
+     * @param connector  the proxy connector of the source repository to use.
+     * @return the file that was obtained, or null if no content was obtained
+     * @throws ProxyDownloadException if there was a problem fetching the content from the target repository.
+     * @since 3.0
+     */
+    StorageAsset fetchFromProxy( ManagedRepository repository, Artifact artifact, ProxyConnector connector )
+        throws ProxyDownloadException;
+
     /**
      * Performs the artifact fetch operation against the target repositories
      * of the provided source repository.
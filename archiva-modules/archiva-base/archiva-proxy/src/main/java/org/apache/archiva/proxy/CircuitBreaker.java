@@ -0,0 +1,266 @@
+package org.apache.archiva.proxy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.proxy.model.CircuitBreakerStatus;
+import org.apache.archiva.proxy.model.CircuitBreakerStatus.State;
+
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker and bulkhead for the transfers from one remote repository.
+ * <p>
+ * The outcomes of the last transfers are kept in a sliding window. A transfer counts as failure, if it threw an
+ * error other than not found or not modified, or if the remote repository took longer than the slow call duration
+ * to start the response. The time needed to transfer the content is not counted, so large files do not open the
+ * breaker. The breaker is
+ * opened, if the window contains at least the minimum number of calls and the failure rate reaches the threshold.
+ * After the open duration the breaker lets one trial transfer through, its outcome closes or opens the breaker
+ * again.
+ * <p>
+ * Independent of the state, at most <code>maxInFlight</code> transfers from the repository run at the same time.
+ * Further transfers wait up to <code>maxWait</code> milliseconds for a free slot.
+ *
+ * @since 3.0
+ */
+public class CircuitBreaker
+{
+    private final String repositoryId;
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final long slowCallDuration;
+
+    private final long openDuration;
+
+    private final int maxInFlight;
+
+    private final long maxWait;
+
+    private final LongSupplier clock;
+
+    // the outcomes and durations of the last transfers
+    private final boolean[] windowFailures;
+
+    private final long[] windowDurations;
+
+    private int windowIndex;
+
+    private int windowCalls;
+
+    private int windowFailureCount;
+
+    private long windowDurationSum;
+
+    private State state = State.CLOSED;
+
+    private long openedSince;
+
+    private boolean trialRunning;
+
+    private int inFlight;
+
+    private long totalCalls;
+
+    private long totalFailures;
+
+    private long rejectedCalls;
+
+    /**
+     * @param repositoryId         the id of the remote repository
+     * @param windowSize           the number of transfers in the sliding window
+     * @param minimumCalls         the number of transfers needed in the window, before the breaker can open
+     * @param failureRateThreshold the failure rate (0.0 - 1.0), that opens the breaker
+     * @param slowCallDuration     the response time in milliseconds, after which a transfer counts as failure
+     * @param openDuration         the time in milliseconds, the breaker stays open before a trial transfer
+     * @param maxInFlight          the maximum number of concurrent transfers
+     * @param maxWait              the time in milliseconds, a transfer waits for a free slot
+     * @param clock                the source of the current time in milliseconds
+     */
+    public CircuitBreaker( String repositoryId, int windowSize, int minimumCalls, double failureRateThreshold,
+                           long slowCallDuration, long openDuration, int maxInFlight, long maxWait,
+                           LongSupplier clock )
+    {
+        this.repositoryId = repositoryId;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.openDuration = openDuration;
+        this.maxInFlight = maxInFlight;
+        this.maxWait = maxWait;
+        this.clock = clock;
+        this.windowFailures = new boolean[Math.max( 1, windowSize )];
+        this.windowDurations = new long[windowFailures.length];
+    }
+
+    public String getRepositoryId( )
+    {
+        return repositoryId;
+    }
+
+    /**
+     * Tries to start a transfer. If the maximum number of concurrent transfers is reached, the call waits until a
+     * running transfer is released. Every successful call must be followed by a call of
+     * {@link #release(boolean, long)}.
+     *
+     * @return <code>true</code>, if the transfer may be started, <code>false</code> if it has to be skipped, because
+     * the breaker is open
+     * @throws TimeoutException if no running transfer was released within the maximum wait time
+     */
+    public synchronized boolean tryAcquire( )
+        throws InterruptedException, TimeoutException
+    {
+        long deadline = clock.getAsLong( ) + maxWait;
+        while ( true )
+        {
+            // the state may change, while the call waits
+            if ( state == State.OPEN )
+            {
+                if ( clock.getAsLong( ) - openedSince < openDuration )
+                {
+                    rejectedCalls++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+            }
+            if ( state == State.HALF_OPEN && trialRunning )
+            {
+                rejectedCalls++;
+                return false;
+            }
+            if ( inFlight < maxInFlight )
+            {
+                break;
+            }
+            long remaining = deadline - clock.getAsLong( );
+            if ( remaining <= 0 )
+            {
+                rejectedCalls++;
+                throw new TimeoutException(
+                    "No transfer slot of repository " + repositoryId + " available within " + maxWait + "ms" );
+            }
+            wait( remaining );
+        }
+        if ( state == State.HALF_OPEN )
+        {
+            trialRunning = true;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Records the outcome of a transfer, that was started by {@link #tryAcquire()}.
+     *
+     * @param failed   <code>true</code>, if the transfer failed
+     * @param duration the response time of the remote repository in milliseconds
+     */
+    public synchronized void release( boolean failed, long duration )
+    {
+        inFlight--;
+        notifyAll( );
+        totalCalls++;
+        boolean failure = failed || duration >= slowCallDuration;
+        if ( failure )
+        {
+            totalFailures++;
+        }
+        if ( state == State.HALF_OPEN && trialRunning )
+        {
+            trialRunning = false;
+            if ( failure )
+            {
+                open( );
+            }
+            else
+            {
+                close( );
+            }
+            return;
+        }
+        record( failure, duration );
+        if ( state == State.CLOSED && windowCalls >= minimumCalls
+            && windowFailureCount >= failureRateThreshold * windowCalls )
+        {
+            open( );
+        }
+    }
+
+    /**
+     * Closes the breaker and clears the sliding window.
+     */
+    public synchronized void close( )
+    {
+        state = State.CLOSED;
+        openedSince = 0;
+        trialRunning = false;
+        windowIndex = 0;
+        windowCalls = 0;
+        windowFailureCount = 0;
+        windowDurationSum = 0;
+    }
+
+    private void open( )
+    {
+        state = State.OPEN;
+        openedSince = clock.getAsLong( );
+    }
+
+    private void record( boolean failure, long duration )
+    {
+        if ( windowCalls == windowFailures.length )
+        {
+            // remove the oldest outcome
+            if ( windowFailures[windowIndex] )
+            {
+                windowFailureCount--;
+            }
+            windowDurationSum -= windowDurations[windowIndex];
+        }
+        else
+        {
+            windowCalls++;
+        }
+        windowFailures[windowIndex] = failure;
+        windowDurations[windowIndex] = duration;
+        if ( failure )
+        {
+            windowFailureCount++;
+        }
+        windowDurationSum += duration;
+        windowIndex = ( windowIndex + 1 ) % windowFailures.length;
+    }
+
+    public synchronized State getState( )
+    {
+        return state;
+    }
+
+    public synchronized CircuitBreakerStatus getStatus( )
+    {
+        double failureRate = windowCalls == 0 ? 0 : (double) windowFailureCount / windowCalls;
+        long averageDuration = windowCalls == 0 ? 0 : windowDurationSum / windowCalls;
+        return new CircuitBreakerStatus( repositoryId, state, openedSince, windowCalls, failureRate, averageDuration,
+                                         inFlight, maxInFlight, totalCalls, totalFailures, rejectedCalls );
+    }
+}
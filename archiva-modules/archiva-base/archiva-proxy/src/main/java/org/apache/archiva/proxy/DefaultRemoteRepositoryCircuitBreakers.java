@@ -0,0 +1,178 @@
+package org.apache.archiva.proxy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.proxy.model.CircuitBreakerStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the circuit breakers of the remote repositories on first use. The settings apply to the breakers, that are
+ * created after the change.
+ *
+ * @since 3.0
+ */
+@Service( "remoteRepositoryCircuitBreakers#default" )
+public class DefaultRemoteRepositoryCircuitBreakers
+    implements RemoteRepositoryCircuitBreakers
+{
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>( );
+
+    private int windowSize = 20;
+
+    private int minimumCalls = 10;
+
+    private double failureRateThreshold = 0.5;
+
+    private long slowCallDuration = 10000;
+
+    private long openDuration = 30000;
+
+    private int maxInFlight = 20;
+
+    private long maxWait = 10000;
+
+    /**
+     * Returns the breaker of the given remote repository.
+     */
+    public CircuitBreaker getCircuitBreaker( String remoteRepositoryId )
+    {
+        return breakers.computeIfAbsent( remoteRepositoryId,
+                                         id -> new CircuitBreaker( id, windowSize, minimumCalls, failureRateThreshold,
+                                                                   slowCallDuration, openDuration, maxInFlight, maxWait,
+                                                                   System::currentTimeMillis ) );
+    }
+
+    @Override
+    public List<CircuitBreakerStatus> getStatus( )
+    {
+        return breakers.values( ).stream( ).map( CircuitBreaker::getStatus ).sorted(
+            Comparator.comparing( CircuitBreakerStatus::getRepositoryId ) ).collect( Collectors.toList( ) );
+    }
+
+    @Override
+    public boolean reset( String remoteRepositoryId )
+    {
+        CircuitBreaker breaker = breakers.get( remoteRepositoryId );
+        if ( breaker == null )
+        {
+            return false;
+        }
+        breaker.close( );
+        return true;
+    }
+
+    /**
+     * Removes all breakers. The breakers are created again with the current settings.
+     */
+    public void clear( )
+    {
+        breakers.clear( );
+    }
+
+    public int getWindowSize( )
+    {
+        return windowSize;
+    }
+
+    public void setWindowSize( int windowSize )
+    {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls( )
+    {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls( int minimumCalls )
+    {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold( )
+    {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold( double failureRateThreshold )
+    {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getSlowCallDuration( )
+    {
+        return slowCallDuration;
+    }
+
+    /**
+     * Sets the response time in milliseconds, after which a transfer counts as failure. The response time is the
+     * time until the remote repository started to send the response.
+     */
+    public void setSlowCallDuration( long slowCallDuration )
+    {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public long getOpenDuration( )
+    {
+        return openDuration;
+    }
+
+    /**
+     * Sets the time in milliseconds, an open breaker skips the remote repository before a trial transfer.
+     */
+    public void setOpenDuration( long openDuration )
+    {
+        this.openDuration = openDuration;
+    }
+
+    public int getMaxInFlight( )
+    {
+        return maxInFlight;
+    }
+
+    /**
+     * Sets the maximum number of concurrent transfers from one remote repository.
+     */
+    public void setMaxInFlight( int maxInFlight )
+    {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getMaxWait( )
+    {
+        return maxWait;
+    }
+
+    /**
+     * Sets the time in milliseconds, a transfer waits for a free slot, if the maximum number of concurrent transfers
+     * is reached.
+     */
+    public void setMaxWait( long maxWait )
+    {
+        this.maxWait = maxWait;
+    }
+}
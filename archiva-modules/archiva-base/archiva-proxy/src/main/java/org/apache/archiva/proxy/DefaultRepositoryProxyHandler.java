@@ -78,6 +78,7 @@
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
 
 public abstract class DefaultRepositoryProxyHandler implements RepositoryProxyHandler {
 
@@ -105,6 +106,12 @@ public abstract class DefaultRepositoryProxyHandler implements RepositoryProxyHa
     @Named(value = "fileLockManager#default")
     private FileLockManager fileLockManager;
 
+    @Inject
+    private StreamingDownloads streamingDownloads;
+
+    @Inject
+    private DefaultRemoteRepositoryCircuitBreakers circuitBreakers;
+
     private Map<String, NetworkProxy> networkProxyMap = new ConcurrentHashMap<>();
     private List<ChecksumAlgorithm> checksumAlgorithms;
 
@@ -138,6 +145,20 @@ private List<ProxyConnectorRuleConfiguration> findProxyConnectorRules(String sou
     @Override
     public StorageAsset fetchFromProxies( ManagedRepository repository, Artifact artifact )
         throws ProxyDownloadException
+    {
+        return fetchFromConnectors( repository, artifact, getProxyConnectors( repository ) );
+    }
+
+    @Override
+    public StorageAsset fetchFromProxy( ManagedRepository repository, Artifact artifact, ProxyConnector connector )
+        throws ProxyDownloadException
+    {
+        return fetchFromConnectors( repository, artifact, Collections.singletonList( connector ) );
+    }
+
+    private StorageAsset fetchFromConnectors( ManagedRepository repository, Artifact artifact,
+                                              List<ProxyConnector> connectors )
+        throws ProxyDownloadException
     {
         Map<String, Exception> previousExceptions = new LinkedHashMap<>();
         StorageAsset localFile = artifact.getAsset( );
@@ -147,7 +168,6 @@ public StorageAsset fetchFromProxies( ManagedRepository repository, Artifact art
         requestProperties.setProperty( "version", artifact.getVersion().getId() );
         requestProperties.setProperty( "managedRepositoryId", repository.getId() );
 
-        List<ProxyConnector> connectors = getProxyConnectors( repository );
         for ( ProxyConnector connector : connectors )
         {
             if ( !connector.isEnabled() )
@@ -351,6 +371,7 @@ public ProxyFetchResult fetchMetadataFromProxies( ManagedRepository repository,
         requestProperties.setProperty( "filetype", "metadata" );
         boolean metadataNeedsUpdating = false;
         long originalTimestamp = getLastModified( localFile );
+        List<String> updatedProxyIds = new ArrayList<>( );
 
         List<ProxyConnector> connectors = new ArrayList<>( getProxyConnectors( repository ) );
         for ( ProxyConnector connector : connectors )
@@ -373,6 +394,7 @@ public ProxyFetchResult fetchMetadataFromProxies( ManagedRepository repository,
                 if ( hasBeenUpdated( localRepoFile, originalMetadataTimestamp ) )
                 {
                     metadataNeedsUpdating = true;
+                    updatedProxyIds.add( targetRepository.getId( ) );
                 }
             }
             catch ( NotFoundException e )
@@ -398,7 +420,8 @@ public ProxyFetchResult fetchMetadataFromProxies( ManagedRepository repository,
             }
         }
 
-        if ( hasBeenUpdated( localFile, originalTimestamp ) )
+        boolean localFileUpdated = hasBeenUpdated( localFile, originalTimestamp );
+        if ( localFileUpdated )
         {
             metadataNeedsUpdating = true;
         }
@@ -407,7 +430,9 @@ public ProxyFetchResult fetchMetadataFromProxies( ManagedRepository repository,
         {
             try
             {
-                metadataTools.updateMetadata( repository.getContent(), logicalPath );
+                // only the changed proxy metadata is merged into the existing file
+                metadataTools.updateMetadata( repository.getContent(), logicalPath,
+                                              localFileUpdated ? null : updatedProxyIds );
             }
             catch ( RepositoryMetadataException e )
             {
@@ -582,11 +607,46 @@ protected StorageAsset transferFile( ProxyConnector connector, RemoteRepository
             tmpChecksumFiles[i] = tmpStorage.getAsset( resource.getName() + "." + alg.getDefaultExtension() );
         }
 
+        // Files, that are not yet in the repository, can be read by other requests while they are downloaded
+        StreamingDownload download = null;
+        if ( streamingDownloads != null && !resource.exists() )
+        {
+            download = streamingDownloads.register( repository.getId(), resource.getPath(), tmpResource.getFilePath() );
+        }
+
         try
         {
+            // Skip remote repositories, that failed repeatedly or have too many running transfers
+            CircuitBreaker circuitBreaker =
+                circuitBreakers == null ? null : circuitBreakers.getCircuitBreaker( remoteRepository.getId() );
+            if ( circuitBreaker != null && !acquire( circuitBreaker, url ) )
+            {
+                log.debug( "Transfer not attempted on {} : circuit breaker of repository [{}] is {}.", url,
+                           remoteRepository.getId(), circuitBreaker.getState() );
+                return resource.exists() ? resource : null;
+            }
 
-            transferResources( connector, remoteRepository, tmpResource,tmpChecksumFiles , url, remotePath,
-                resource, workingDirectory, repository );
+            ResponseTimer responseTimer = new ResponseTimer();
+            boolean failed = true;
+            try
+            {
+                transferResources( connector, remoteRepository, tmpResource,tmpChecksumFiles , url, remotePath,
+                    resource, workingDirectory, repository, responseTimer );
+                failed = false;
+            }
+            catch ( NotFoundException | NotModifiedException e )
+            {
+                // the remote repository answered
+                failed = false;
+                throw e;
+            }
+            finally
+            {
+                if ( circuitBreaker != null )
+                {
+                    circuitBreaker.release( failed, responseTimer.getResponseTime() );
+                }
+            }
 
             // Handle post-download policies.
             try
@@ -614,9 +674,27 @@ protected StorageAsset transferFile( ProxyConnector connector, RemoteRepository
                     moveFileIfExists( tmpResource, directory );
                 }
             }
+
+            if ( download != null )
+            {
+                if ( resource != null && resource.exists() )
+                {
+                    download.complete();
+                }
+                else
+                {
+                    download.fail( "Transfer from " + url + " was rejected by the policies" );
+                }
+            }
         }
         finally
         {
+            if ( download != null )
+            {
+                // no-op, if the download is already complete
+                download.fail( "Transfer from " + url + " failed" );
+                streamingDownloads.remove( download );
+            }
             org.apache.archiva.common.utils.FileUtils.deleteQuietly( workingDirectory );
         }
 
@@ -630,9 +708,53 @@ protected StorageAsset transferFile( ProxyConnector connector, RemoteRepository
         return resource;
     }
 
+    /**
+     * Waits for a free transfer slot of the remote repository. A transfer, that gets no slot in time, fails, so the
+     * download error policies apply and the request is not answered as not found.
+     *
+     * @return <code>false</code>, if the transfer has to be skipped, because the breaker is open
+     */
+    private boolean acquire( CircuitBreaker circuitBreaker, String url )
+        throws ProxyException
+    {
+        try
+        {
+            return circuitBreaker.tryAcquire();
+        }
+        catch ( TimeoutException e )
+        {
+            throw new ProxyException( "Transfer not attempted on " + url + " : " + e.getMessage(), e );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ProxyException( "Interrupted while waiting for the transfer of " + url, e );
+        }
+    }
+
+    /**
+     * Returns the registered download of the given file, that has to be written by {@link #transferResources} to the
+     * temporary file, or <code>null</code>, if the file is not streamed to other requests.
+     */
+    protected StreamingDownload getStreamingDownload( ManagedRepository repository, StorageAsset resource,
+                                                      StorageAsset tmpResource )
+    {
+        if ( streamingDownloads == null )
+        {
+            return null;
+        }
+        StreamingDownload download = streamingDownloads.get( repository.getId(), resource.getPath() );
+        // the download may belong to a concurrent transfer of the same file
+        return download != null && download.getFile().equals( tmpResource.getFilePath() ) ? download : null;
+    }
+
+    /**
+     * Transfers the file and its checksum files from the remote repository. The implementation has to call
+     * {@link ResponseTimer#responseStarted()}, when the remote repository starts to send the file.
+     */
     protected abstract void transferResources( ProxyConnector connector, RemoteRepository remoteRepository,
                                                StorageAsset tmpResource, StorageAsset[] checksumFiles, String url, String remotePath, StorageAsset resource, Path workingDirectory,
-                                               ManagedRepository repository ) throws ProxyException;
+                                               ManagedRepository repository, ResponseTimer responseTimer ) throws ProxyException;
 
     private void queueRepositoryTask(String repositoryId, StorageAsset localFile )
     {
@@ -892,6 +1014,26 @@ public void setArchivaConfiguration(ArchivaConfiguration archivaConfiguration )
         this.archivaConfiguration = archivaConfiguration;
     }
 
+    public DefaultRemoteRepositoryCircuitBreakers getCircuitBreakers()
+    {
+        return circuitBreakers;
+    }
+
+    public void setCircuitBreakers( DefaultRemoteRepositoryCircuitBreakers circuitBreakers )
+    {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    public StreamingDownloads getStreamingDownloads()
+    {
+        return streamingDownloads;
+    }
+
+    public void setStreamingDownloads( StreamingDownloads streamingDownloads )
+    {
+        this.streamingDownloads = streamingDownloads;
+    }
+
     public MetadataTools getMetadataTools()
     {
         return metadataTools;
@@ -0,0 +1,55 @@
+package org.apache.archiva.proxy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Measures the response time of a transfer from a remote repository. The response time is the time until the remote
+ * repository started to send the response, including the time needed to connect. The time needed to transfer the
+ * content is not included.
+ *
+ * @since 3.0
+ */
+public class ResponseTimer
+{
+    private final long start = System.currentTimeMillis( );
+
+    private volatile long responseTime = -1;
+
+    /**
+     * Marks the start of the response. Only the first call counts, so the response of the artifact is measured and
+     * not the responses of the checksum files.
+     */
+    public void responseStarted( )
+    {
+        if ( responseTime < 0 )
+        {
+            responseTime = System.currentTimeMillis( ) - start;
+        }
+    }
+
+    /**
+     * Returns the response time in milliseconds. If no response was started, e.g. because the remote repository
+     * answered with an error or the file was not modified, the time since the start of the transfer is returned.
+     */
+    public long getResponseTime( )
+    {
+        return responseTime < 0 ? System.currentTimeMillis( ) - start : responseTime;
+    }
+}
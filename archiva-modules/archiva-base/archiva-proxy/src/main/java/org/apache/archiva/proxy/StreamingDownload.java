@@ -0,0 +1,328 @@
+package org.apache.archiva.proxy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A proxy download, that is read by clients while it is written to the temporary file. The proxy handler writes the
+ * file with the stream returned by {@link #openOutputStream(long)} and marks the download as complete, after the post
+ * download policies accepted the file and it was moved into the repository.
+ * <p>
+ * All readers share one read channel, that is opened when the transfer starts. The channel stays valid, when the
+ * temporary file is moved or deleted. A reader gets the last byte only after the download is complete, so a client
+ * never receives the full content of a download, that fails the checksum verification. The stream of a failed
+ * download throws an {@link IOException}.
+ *
+ * @since 3.0
+ */
+public class StreamingDownload
+{
+    private enum State
+    {
+        NEW, STARTED, COMPLETE, FAILED
+    }
+
+    private final String key;
+
+    private final Path file;
+
+    private FileChannel channel;
+
+    private State state = State.NEW;
+
+    private long contentLength = -1;
+
+    private long written;
+
+    private int readers;
+
+    private String failure;
+
+    // notified, when the download is started
+    private final Runnable startListener;
+
+    StreamingDownload( String key, Path file, Runnable startListener )
+    {
+        this.key = key;
+        this.file = file;
+        this.startListener = startListener;
+    }
+
+    public String getKey( )
+    {
+        return key;
+    }
+
+    /**
+     * Returns the temporary file, the download is written to.
+     */
+    public Path getFile( )
+    {
+        return file;
+    }
+
+    /**
+     * Returns the length announced by the remote repository or -1, if it is not known.
+     */
+    public synchronized long getContentLength( )
+    {
+        return contentLength;
+    }
+
+    public synchronized boolean isStarted( )
+    {
+        return state != State.NEW;
+    }
+
+    public synchronized boolean isComplete( )
+    {
+        return state == State.COMPLETE;
+    }
+
+    public synchronized boolean isFailed( )
+    {
+        return state == State.FAILED;
+    }
+
+    /**
+     * Returns the stream, that writes the downloaded data to the temporary file and makes it available to the
+     * readers. The download is started by this call.
+     *
+     * @param contentLength the length of the content or -1, if it is not known
+     */
+    public OutputStream openOutputStream( long contentLength )
+        throws IOException
+    {
+        FileChannel writeChannel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING );
+        synchronized ( this )
+        {
+            this.channel = FileChannel.open( file, StandardOpenOption.READ );
+            this.contentLength = contentLength;
+            this.state = State.STARTED;
+            notifyAll( );
+        }
+        startListener.run( );
+        return new DownloadOutputStream( writeChannel );
+    }
+
+    /**
+     * Opens a stream, that reads the content while it is downloaded. The caller has to close the stream.
+     *
+     * @return the stream or <code>null</code>, if the download is already complete and the file should be read from
+     * the repository
+     * @throws IOException if the download failed
+     */
+    public synchronized InputStream openStream( )
+        throws IOException
+    {
+        if ( state == State.NEW )
+        {
+            throw new IllegalStateException( "Download " + key + " was not started" );
+        }
+        if ( state == State.FAILED )
+        {
+            throw new IOException( "Download of " + key + " failed: " + failure );
+        }
+        if ( state == State.COMPLETE && readers == 0 )
+        {
+            return null;
+        }
+        readers++;
+        return new DownloadInputStream( );
+    }
+
+    /**
+     * Marks the download as complete. The file was verified and stored in the repository.
+     */
+    public synchronized void complete( )
+    {
+        if ( state == State.STARTED )
+        {
+            state = State.COMPLETE;
+        }
+        notifyAll( );
+        closeIfUnused( );
+    }
+
+    /**
+     * Marks the download as failed. The readers get an exception instead of the remaining data.
+     */
+    public synchronized void fail( String message )
+    {
+        if ( state != State.COMPLETE )
+        {
+            state = State.FAILED;
+            failure = message;
+        }
+        notifyAll( );
+        closeIfUnused( );
+    }
+
+    private synchronized void advance( long count )
+    {
+        written += count;
+        notifyAll( );
+    }
+
+    /*
+     * Waits until data after the given position is available and returns the number of bytes, that may be read.
+     * The last byte is held back until the download is complete.
+     */
+    private synchronized long awaitAvailable( long position )
+        throws IOException
+    {
+        try
+        {
+            while ( state == State.STARTED && position >= written - 1 )
+            {
+                wait( );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Interrupted while waiting for the download of " + key );
+        }
+        if ( state == State.FAILED )
+        {
+            throw new IOException( "Download of " + key + " failed: " + failure );
+        }
+        return state == State.COMPLETE ? written - position : written - 1 - position;
+    }
+
+    private synchronized void closeReader( )
+    {
+        readers--;
+        closeIfUnused( );
+    }
+
+    private void closeIfUnused( )
+    {
+        if ( ( state == State.COMPLETE || state == State.FAILED ) && readers == 0 && channel != null )
+        {
+            try
+            {
+                channel.close( );
+            }
+            catch ( IOException e )
+            {
+                // ignore, the channel is only read
+            }
+        }
+    }
+
+    private class DownloadOutputStream
+        extends OutputStream
+    {
+        private final FileChannel writeChannel;
+
+        DownloadOutputStream( FileChannel writeChannel )
+        {
+            this.writeChannel = writeChannel;
+        }
+
+        @Override
+        public void write( int b )
+            throws IOException
+        {
+            write( new byte[]{ (byte) b }, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            ByteBuffer buffer = ByteBuffer.wrap( b, off, len );
+            while ( buffer.hasRemaining( ) )
+            {
+                writeChannel.write( buffer );
+            }
+            advance( len );
+        }
+
+        @Override
+        public void close( )
+            throws IOException
+        {
+            writeChannel.close( );
+        }
+    }
+
+    private class DownloadInputStream
+        extends InputStream
+    {
+        private long position;
+
+        private boolean closed;
+
+        @Override
+        public int read( )
+            throws IOException
+        {
+            byte[] b = new byte[1];
+            int count = read( b, 0, 1 );
+            return count < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+            throws IOException
+        {
+            if ( closed )
+            {
+                throw new IOException( "Stream closed" );
+            }
+            if ( len == 0 )
+            {
+                return 0;
+            }
+            long available = awaitAvailable( position );
+            if ( available <= 0 )
+            {
+                return -1;
+            }
+            int count = channel.read( ByteBuffer.wrap( b, off, (int) Math.min( len, available ) ), position );
+            if ( count > 0 )
+            {
+                position += count;
+            }
+            return count;
+        }
+
+        @Override
+        public void close( )
+        {
+            if ( !closed )
+            {
+                closed = true;
+                closeReader( );
+            }
+        }
+    }
+}
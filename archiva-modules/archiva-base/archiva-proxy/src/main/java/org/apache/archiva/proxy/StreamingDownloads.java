@@ -0,0 +1,204 @@
+package org.apache.archiva.proxy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of the proxy downloads, that can be read while they are running. There is at most one download per
+ * managed repository and path, all requests for the same file read from it.
+ * <p>
+ * The fetches of the requests, that want to stream the content, run on the pool of this registry. The request
+ * thread waits with {@link #awaitStart(String, String, Future)} until either the download was started or the fetch
+ * finished.
+ *
+ * @since 3.0
+ */
+@Service( "streamingDownloads#default" )
+public class StreamingDownloads
+{
+    private final ConcurrentMap<String, StreamingDownload> downloads = new ConcurrentHashMap<>( );
+
+    private boolean enabled = true;
+
+    private int threads = 20;
+
+    private ExecutorService pool;
+
+    @PostConstruct
+    public void initialize( )
+    {
+        AtomicInteger count = new AtomicInteger( );
+        pool = Executors.newFixedThreadPool( threads, runnable -> {
+            Thread thread = new Thread( runnable, "proxy-download-" + count.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    @PreDestroy
+    public void stop( )
+    {
+        if ( pool != null )
+        {
+            pool.shutdownNow( );
+        }
+    }
+
+    /**
+     * Registers a new download of the given file.
+     *
+     * @param repositoryId the id of the managed repository
+     * @param path         the path of the file in the repository
+     * @param file         the temporary file, the download is written to
+     * @return the download or <code>null</code>, if streaming is disabled or the file is already downloaded
+     */
+    public StreamingDownload register( String repositoryId, String path, Path file )
+    {
+        if ( !enabled )
+        {
+            return null;
+        }
+        String key = toKey( repositoryId, path );
+        StreamingDownload download = new StreamingDownload( key, file, this::started );
+        return downloads.putIfAbsent( key, download ) == null ? download : null;
+    }
+
+    /**
+     * Removes the download from the registry. The download must be complete or failed.
+     */
+    public void remove( StreamingDownload download )
+    {
+        downloads.remove( download.getKey( ), download );
+        synchronized ( this )
+        {
+            notifyAll( );
+        }
+    }
+
+    public StreamingDownload get( String repositoryId, String path )
+    {
+        return downloads.get( toKey( repositoryId, path ) );
+    }
+
+    /**
+     * Runs the fetch on the pool of the registry.
+     */
+    public <T> Future<T> submit( Callable<T> fetch )
+    {
+        FutureTask<T> task = new FutureTask<T>( fetch )
+        {
+            @Override
+            protected void done( )
+            {
+                // the waiting requests check, if the fetch is done
+                started( );
+            }
+        };
+        pool.execute( task );
+        return task;
+    }
+
+    /**
+     * Waits until the download of the given file is started or the fetch is finished.
+     *
+     * @param fetch the fetch of the calling request or <code>null</code>, if the request joins the download of
+     *              another request
+     * @return the started download or <code>null</code>, if the fetch finished without a running download
+     */
+    public StreamingDownload awaitStart( String repositoryId, String path, Future<?> fetch )
+        throws InterruptedException
+    {
+        String key = toKey( repositoryId, path );
+        synchronized ( this )
+        {
+            while ( true )
+            {
+                StreamingDownload download = downloads.get( key );
+                if ( download != null && download.isStarted( ) && !download.isFailed( ) )
+                {
+                    return download;
+                }
+                if ( fetch == null ? download == null : fetch.isDone( ) )
+                {
+                    return null;
+                }
+                wait( );
+            }
+        }
+    }
+
+    /**
+     * Notifies the threads waiting in {@link #awaitStart(String, String, Future)}, that a download was started or a
+     * fetch finished.
+     */
+    void started( )
+    {
+        synchronized ( this )
+        {
+            notifyAll( );
+        }
+    }
+
+    public boolean isEnabled( )
+    {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the streaming of proxy downloads. Without streaming, the requests wait until the file is
+     * stored in the repository.
+     */
+    public void setEnabled( boolean enabled )
+    {
+        this.enabled = enabled;
+    }
+
+    public int getThreads( )
+    {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads running the fetches of streaming requests. Takes effect on initialization.
+     */
+    public void setThreads( int threads )
+    {
+        this.threads = threads;
+    }
+
+    private static String toKey( String repositoryId, String path )
+    {
+        return repositoryId + ":" + StringUtils.removeStart( path, "/" );
+    }
+}
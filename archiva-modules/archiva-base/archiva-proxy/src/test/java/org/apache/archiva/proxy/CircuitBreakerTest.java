@@ -0,0 +1,202 @@
+package org.apache.archiva.proxy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.proxy.model.CircuitBreakerStatus;
+import org.apache.archiva.proxy.model.CircuitBreakerStatus.State;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CircuitBreakerTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class CircuitBreakerTest
+    extends TestCase
+{
+    private final AtomicLong time = new AtomicLong( 1000 );
+
+    private CircuitBreaker breaker;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        // window of 10 calls, opens with 5 calls and a failure rate of 50%, slow after 1s, open for 30s, no wait
+        breaker = new CircuitBreaker( "central", 10, 5, 0.5, 1000, 30000, 2, 0, time::get );
+    }
+
+    private void call( boolean failed, long duration )
+        throws Exception
+    {
+        assertTrue( breaker.tryAcquire( ) );
+        breaker.release( failed, duration );
+    }
+
+    @Test
+    public void testOpensOnFailureRate( )
+        throws Exception
+    {
+        call( false, 10 );
+        call( true, 10 );
+        call( false, 10 );
+        call( true, 10 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+
+        // slow calls count as failures
+        call( false, 5000 );
+        assertEquals( State.OPEN, breaker.getState( ) );
+        assertFalse( breaker.tryAcquire( ) );
+
+        CircuitBreakerStatus status = breaker.getStatus( );
+        assertEquals( "central", status.getRepositoryId( ) );
+        assertEquals( 5, status.getWindowCalls( ) );
+        assertEquals( 0.6, status.getFailureRate( ), 0.001 );
+        assertEquals( 1008, status.getAverageDuration( ) );
+        assertEquals( 1000, status.getOpenedSince( ) );
+        assertEquals( 3, status.getTotalFailures( ) );
+        assertEquals( 1, status.getRejectedCalls( ) );
+    }
+
+    @Test
+    public void testHalfOpenTrial( )
+        throws Exception
+    {
+        for ( int i = 0; i < 5; i++ )
+        {
+            call( true, 10 );
+        }
+        assertEquals( State.OPEN, breaker.getState( ) );
+
+        // a failed trial opens the breaker again
+        time.addAndGet( 30000 );
+        assertTrue( breaker.tryAcquire( ) );
+        assertEquals( State.HALF_OPEN, breaker.getState( ) );
+        // only one trial at a time
+        assertFalse( breaker.tryAcquire( ) );
+        breaker.release( true, 10 );
+        assertEquals( State.OPEN, breaker.getState( ) );
+        assertFalse( breaker.tryAcquire( ) );
+
+        // a successful trial closes the breaker and clears the window
+        time.addAndGet( 30000 );
+        call( false, 10 );
+        assertEquals( State.CLOSED, breaker.getState( ) );
+        assertEquals( 0, breaker.getStatus( ).getWindowCalls( ) );
+    }
+
+    @Test
+    public void testBulkhead( )
+        throws Exception
+    {
+        assertTrue( breaker.tryAcquire( ) );
+        assertTrue( breaker.tryAcquire( ) );
+        try
+        {
+            breaker.tryAcquire( );
+            fail( "Expected a timeout, the maximum number of transfers is running" );
+        }
+        catch ( TimeoutException e )
+        {
+            // expected
+        }
+        assertEquals( 2, breaker.getStatus( ).getInFlight( ) );
+
+        breaker.release( false, 10 );
+        assertTrue( breaker.tryAcquire( ) );
+        // rejected calls do not change the state
+        assertEquals( State.CLOSED, breaker.getState( ) );
+        assertEquals( 1, breaker.getStatus( ).getRejectedCalls( ) );
+    }
+
+    @Test
+    public void testBulkheadWaitsForFreeSlot( )
+        throws Exception
+    {
+        CircuitBreaker waitingBreaker =
+            new CircuitBreaker( "central", 10, 5, 0.5, 1000, 30000, 1, 10000, System::currentTimeMillis );
+        assertTrue( waitingBreaker.tryAcquire( ) );
+
+        ExecutorService executor = Executors.newSingleThreadExecutor( );
+        try
+        {
+            Future<Boolean> waiting = executor.submit( waitingBreaker::tryAcquire );
+            Thread.sleep( 100 );
+            assertFalse( waiting.isDone( ) );
+
+            waitingBreaker.release( false, 10 );
+            assertTrue( waiting.get( 5, TimeUnit.SECONDS ) );
+            assertEquals( 1, waitingBreaker.getStatus( ).getInFlight( ) );
+            assertEquals( 0, waitingBreaker.getStatus( ).getRejectedCalls( ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    @Test
+    public void testResponseTimer( )
+        throws Exception
+    {
+        // long transfers with a fast response are no failures
+        ResponseTimer timer = new ResponseTimer( );
+        timer.responseStarted( );
+        Thread.sleep( 50 );
+        assertTrue( timer.getResponseTime( ) < 50 );
+        call( false, timer.getResponseTime( ) );
+        assertEquals( 0, breaker.getStatus( ).getTotalFailures( ) );
+
+        // without a response, the time until the end of the transfer counts
+        timer = new ResponseTimer( );
+        Thread.sleep( 50 );
+        assertTrue( timer.getResponseTime( ) >= 50 );
+    }
+
+    @Test
+    public void testSlidingWindow( )
+        throws Exception
+    {
+        call( true, 10 );
+        call( true, 10 );
+        // the failures are pushed out of the window by successful calls
+        for ( int i = 0; i < 10; i++ )
+        {
+            call( false, 10 );
+        }
+        CircuitBreakerStatus status = breaker.getStatus( );
+        assertEquals( State.CLOSED, status.getState( ) );
+        assertEquals( 10, status.getWindowCalls( ) );
+        assertEquals( 0.0, status.getFailureRate( ), 0.001 );
+        assertEquals( 12, status.getTotalCalls( ) );
+    }
+}
@@ -0,0 +1,147 @@
+package org.apache.archiva.proxy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.common.utils.FileUtils;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Future;
+
+/**
+ * StreamingDownloadTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class StreamingDownloadTest
+    extends TestCase
+{
+    private Path workingDirectory;
+
+    private StreamingDownloads downloads;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        workingDirectory = Files.createTempDirectory( "streaming-download" );
+        downloads = new StreamingDownloads( );
+        downloads.setThreads( 2 );
+        downloads.initialize( );
+    }
+
+    @After
+    @Override
+    public void tearDown( )
+        throws Exception
+    {
+        downloads.stop( );
+        FileUtils.deleteQuietly( workingDirectory );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testReaderFollowsWriter( )
+        throws Exception
+    {
+        StreamingDownload download = downloads.register( "internal", "/org/test/test-1.0.jar",
+                                                         workingDirectory.resolve( "test-1.0.jar" ) );
+        assertNotNull( download );
+        // only one download per file
+        assertNull( downloads.register( "internal", "org/test/test-1.0.jar", workingDirectory.resolve( "other" ) ) );
+
+        OutputStream out = download.openOutputStream( 4 );
+        assertSame( download, downloads.awaitStart( "internal", "org/test/test-1.0.jar", null ) );
+        InputStream in = download.openStream( );
+        out.write( new byte[]{ 1, 2, 3 } );
+
+        // the last written byte is held back until the download is complete
+        byte[] buffer = new byte[10];
+        assertEquals( 2, in.read( buffer ) );
+
+        out.write( 4 );
+        out.close( );
+        assertEquals( 1, in.read( buffer, 2, 8 ) );
+        Future<Integer> last = downloads.submit( ( ) -> in.read( buffer, 3, 7 ) );
+        Thread.sleep( 100 );
+        assertFalse( last.isDone( ) );
+
+        download.complete( );
+        downloads.remove( download );
+        assertEquals( 1, last.get( ).intValue( ) );
+        assertEquals( -1, in.read( buffer ) );
+        in.close( );
+        assertEquals( 4, buffer[3] );
+
+        assertNull( downloads.get( "internal", "org/test/test-1.0.jar" ) );
+        // the file is read from the repository now
+        assertNull( download.openStream( ) );
+    }
+
+    @Test
+    public void testFailedDownload( )
+        throws Exception
+    {
+        StreamingDownload download = downloads.register( "internal", "org/test/test-1.0.jar",
+                                                         workingDirectory.resolve( "test-1.0.jar" ) );
+        OutputStream out = download.openOutputStream( -1 );
+        InputStream in = download.openStream( );
+        out.write( new byte[]{ 1, 2, 3 } );
+        out.close( );
+        download.fail( "checksum mismatch" );
+        downloads.remove( download );
+
+        try
+        {
+            while ( in.read( ) >= 0 )
+            {
+                // consume the available data
+            }
+            fail( "The reader of a failed download should get an exception" );
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage( ).contains( "checksum mismatch" ) );
+        }
+        finally
+        {
+            in.close( );
+        }
+    }
+
+    @Test
+    public void testAwaitFinishedFetch( )
+        throws Exception
+    {
+        Future<Boolean> fetch = downloads.submit( ( ) -> false );
+        assertNull( downloads.awaitStart( "internal", "org/test/test-1.0.jar", fetch ) );
+        assertFalse( fetch.get( ) );
+    }
+}
@@ -35,6 +35,51 @@
      */
     private FileLockConfiguration fileLockConfiguration;
 
+    /**
+     * @since 3.0
+     */
+    private int statisticsFullResolutionDays;
+
+    /**
+     * @since 3.0
+     */
+    private int statisticsMaxAgeDays;
+
+    /**
+     * @since 3.0
+     */
+    private boolean repositoryPurgeDryRun;
+
+    /**
+     * @since 3.0
+     */
+    private int repositoryPurgeDeleteThreads = 4;
+
+    /**
+     * @since 3.0
+     */
+    private int repositoryScanningThreads = 4;
+
+    /**
+     * @since 3.0
+     */
+    private int repositoryScanningMaxConcurrentScans = 2;
+
+    /**
+     * @since 3.0
+     */
+    private int remoteIndexMaxConcurrentDownloads = 2;
+
+    /**
+     * @since 3.0
+     */
+    private int remoteIndexMinFreeSpace = 1024;
+
+    /**
+     * @since 3.0
+     */
+    private int urlFailureNotFoundTimeToLiveSeconds = 3600;
+
     public ArchivaRuntimeConfiguration()
     {
         // no op
@@ -60,12 +105,111 @@ public void setFileLockConfiguration( FileLockConfiguration fileLockConfiguratio
         this.fileLockConfiguration = fileLockConfiguration;
     }
 
+    public int getStatisticsFullResolutionDays()
+    {
+        return statisticsFullResolutionDays;
+    }
+
+    public void setStatisticsFullResolutionDays( int statisticsFullResolutionDays )
+    {
+        this.statisticsFullResolutionDays = statisticsFullResolutionDays;
+    }
+
+    public int getStatisticsMaxAgeDays()
+    {
+        return statisticsMaxAgeDays;
+    }
+
+    public void setStatisticsMaxAgeDays( int statisticsMaxAgeDays )
+    {
+        this.statisticsMaxAgeDays = statisticsMaxAgeDays;
+    }
+
+    public boolean isRepositoryPurgeDryRun()
+    {
+        return repositoryPurgeDryRun;
+    }
+
+    public void setRepositoryPurgeDryRun( boolean repositoryPurgeDryRun )
+    {
+        this.repositoryPurgeDryRun = repositoryPurgeDryRun;
+    }
+
+    public int getRepositoryPurgeDeleteThreads()
+    {
+        return repositoryPurgeDeleteThreads;
+    }
+
+    public void setRepositoryPurgeDeleteThreads( int repositoryPurgeDeleteThreads )
+    {
+        this.repositoryPurgeDeleteThreads = repositoryPurgeDeleteThreads;
+    }
+
+    public int getRepositoryScanningThreads()
+    {
+        return repositoryScanningThreads;
+    }
+
+    public void setRepositoryScanningThreads( int repositoryScanningThreads )
+    {
+        this.repositoryScanningThreads = repositoryScanningThreads;
+    }
+
+    public int getRepositoryScanningMaxConcurrentScans()
+    {
+        return repositoryScanningMaxConcurrentScans;
+    }
+
+    public void setRepositoryScanningMaxConcurrentScans( int repositoryScanningMaxConcurrentScans )
+    {
+        this.repositoryScanningMaxConcurrentScans = repositoryScanningMaxConcurrentScans;
+    }
+
+    public int getRemoteIndexMaxConcurrentDownloads()
+    {
+        return remoteIndexMaxConcurrentDownloads;
+    }
+
+    public void setRemoteIndexMaxConcurrentDownloads( int remoteIndexMaxConcurrentDownloads )
+    {
+        this.remoteIndexMaxConcurrentDownloads = remoteIndexMaxConcurrentDownloads;
+    }
+
+    public int getRemoteIndexMinFreeSpace()
+    {
+        return remoteIndexMinFreeSpace;
+    }
+
+    public void setRemoteIndexMinFreeSpace( int remoteIndexMinFreeSpace )
+    {
+        this.remoteIndexMinFreeSpace = remoteIndexMinFreeSpace;
+    }
+
+    public int getUrlFailureNotFoundTimeToLiveSeconds()
+    {
+        return urlFailureNotFoundTimeToLiveSeconds;
+    }
+
+    public void setUrlFailureNotFoundTimeToLiveSeconds( int urlFailureNotFoundTimeToLiveSeconds )
+    {
+        this.urlFailureNotFoundTimeToLiveSeconds = urlFailureNotFoundTimeToLiveSeconds;
+    }
+
     @Override
     public String toString()
     {
         final StringBuilder sb = new StringBuilder( "ArchivaRuntimeConfiguration{" );
         sb.append( "urlFailureCacheConfiguration=" ).append( urlFailureCacheConfiguration );
         sb.append( ", fileLockConfiguration=" ).append( fileLockConfiguration );
+        sb.append( ", statisticsFullResolutionDays=" ).append( statisticsFullResolutionDays );
+        sb.append( ", statisticsMaxAgeDays=" ).append( statisticsMaxAgeDays );
+        sb.append( ", repositoryPurgeDryRun=" ).append( repositoryPurgeDryRun );
+        sb.append( ", repositoryPurgeDeleteThreads=" ).append( repositoryPurgeDeleteThreads );
+        sb.append( ", repositoryScanningThreads=" ).append( repositoryScanningThreads );
+        sb.append( ", repositoryScanningMaxConcurrentScans=" ).append( repositoryScanningMaxConcurrentScans );
+        sb.append( ", remoteIndexMaxConcurrentDownloads=" ).append( remoteIndexMaxConcurrentDownloads );
+        sb.append( ", remoteIndexMinFreeSpace=" ).append( remoteIndexMinFreeSpace );
+        sb.append( ", urlFailureNotFoundTimeToLiveSeconds=" ).append( urlFailureNotFoundTimeToLiveSeconds );
         sb.append( '}' );
         return sb.toString();
     }
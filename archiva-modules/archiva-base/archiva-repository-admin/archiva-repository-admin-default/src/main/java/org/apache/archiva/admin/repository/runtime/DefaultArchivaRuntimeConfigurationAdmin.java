@@ -29,6 +29,7 @@
 import org.apache.archiva.configuration.IndeterminateConfigurationException;
 import org.apache.archiva.components.cache.Cache;
 import org.apache.archiva.components.registry.RegistryException;
+import org.apache.archiva.policies.urlcache.UrlFailureCache;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
@@ -52,6 +53,9 @@
     @Named( value = "cache#url-failures-cache" )
     private Cache urlFailureCache;
 
+    @Inject
+    private UrlFailureCache urlFailures;
+
     @PostConstruct
     public void initialize()
         throws RepositoryAdminException
@@ -111,6 +115,8 @@ public void initialize()
         urlFailureCache.setMaxElementsOnDisk(
             archivaRuntimeConfiguration.getUrlFailureCacheConfiguration().getMaxElementsOnDisk() );
 
+        urlFailures.setNotFoundTimeToLiveSeconds( archivaRuntimeConfiguration.getUrlFailureNotFoundTimeToLiveSeconds() );
+
         if ( save )
         {
             updateArchivaRuntimeConfiguration( archivaRuntimeConfiguration );
@@ -19,8 +19,8 @@
  * under the License.
  */
 
+import org.apache.archiva.checksum.Checksum;
 import org.apache.archiva.checksum.ChecksumAlgorithm;
-import org.apache.archiva.checksum.ChecksummedFile;
 import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.components.registry.Registry;
@@ -60,14 +60,18 @@
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -129,6 +133,8 @@
 
     private SimpleDateFormat lastUpdatedFormat;
 
+    private final ProjectVersionsCache projectVersionsCache = new ProjectVersionsCache( 10000 );
+
     public MetadataTools()
     {
         lastUpdatedFormat = new SimpleDateFormat( "yyyyMMddHHmmss" );
@@ -408,13 +414,34 @@ public ArchivaRepositoryMetadata readProxyMetadata( ManagedRepositoryContent man
 
     public void updateMetadata( ManagedRepositoryContent managedRepository, String logicalResource )
         throws RepositoryMetadataException
+    {
+        updateMetadata( managedRepository, logicalResource, null );
+    }
+
+    /**
+     * Merges the metadata of the given proxies into the existing metadata file. The existing file already contains
+     * the metadata of the other proxies, so only the changed metadata has to be read. If the file does not exist,
+     * the metadata of all proxies is merged.
+     * <p>
+     * The file and its checksums are only written, if the content changed.
+     *
+     * @param managedRepository the managed repository where the metadata is kept.
+     * @param logicalResource   the path of the metadata file
+     * @param proxyIds          the ids of the proxies, whose metadata changed, or <code>null</code> for all proxies
+     * @throws RepositoryMetadataException
+     * @since 3.0
+     */
+    public void updateMetadata( ManagedRepositoryContent managedRepository, String logicalResource,
+                                Collection<String> proxyIds )
+        throws RepositoryMetadataException
     {
         final StorageAsset metadataFile = managedRepository.getRepository().getAsset( logicalResource );
         ArchivaRepositoryMetadata metadata = null;
 
         //Gather and merge all metadata available
         List<ArchivaRepositoryMetadata> metadatas =
-            getMetadatasForManagedRepository( managedRepository, logicalResource );
+            getMetadatasForManagedRepository( managedRepository, logicalResource,
+                                              metadataFile.exists() ? proxyIds : null );
         for ( ArchivaRepositoryMetadata proxiedMetadata : metadatas )
         {
             if ( metadata == null )
@@ -437,42 +464,122 @@ public void updateMetadata( ManagedRepositoryContent managedRepository, String l
         {
             availableVersions.addAll( metadataAvailableVersions );
         }
-        availableVersions = findPossibleVersions( availableVersions, metadataFile.getParent() );
+        // Add the subdirectories, that contain poms
+        availableVersions.addAll(
+            projectVersionsCache.getVersions( managedRepository.getId(), metadataFile.getParent() ) );
 
         if ( availableVersions.size() > 0 )
         {
             updateMetadataVersions( availableVersions, metadata );
         }
 
-        RepositoryMetadataWriter.write( metadata, metadataFile );
-
-        ChecksummedFile checksum = new ChecksummedFile( metadataFile.getFilePath() );
-        checksum.fixChecksums( algorithms );
+        writeMetadata( metadata, metadataFile );
     }
 
     /**
-     * Skims the parent directory of a metadata in vain hope of finding
-     * subdirectories that contain poms.
-     *
-     * @param metadataParentDirectory
-     * @return origional set plus newly found versions
+     * Writes the metadata file and its checksum files. The checksums are computed from the written content.
+     * Nothing is written, if the file has the same content and all checksum files contain its checksums. Missing
+     * or stale checksum files are rewritten.
      */
-    private Set<String> findPossibleVersions( Set<String> versions, StorageAsset metadataParentDirectory )
+    private void writeMetadata( ArchivaRepositoryMetadata metadata, StorageAsset metadataFile )
+        throws RepositoryMetadataException
     {
+        StringWriter writer = new StringWriter();
+        RepositoryMetadataWriter.write( metadata, writer );
+        byte[] content = writer.toString().getBytes( StandardCharsets.UTF_8 );
 
-        Set<String> result = new HashSet<String>( versions );
-
-        metadataParentDirectory.list().stream().filter(asset ->
-                asset.isContainer()).filter(asset -> {
-                    return asset.list().stream().anyMatch(f -> !f.isContainer() && f.getName().endsWith(".pom"));
+        boolean changed = !Arrays.equals( content, readContent( metadataFile ) );
+        if ( changed )
+        {
+            boolean written = false;
+            try ( OutputStream os = metadataFile.getWriteStream( true ) )
+            {
+                os.write( content );
+                written = true;
+            }
+            catch ( IOException e )
+            {
+                throw new RepositoryMetadataException(
+                    "Unable to write metadata file: " + metadataFile.getPath() + " - " + e.getMessage(), e );
+            }
+            finally
+            {
+                if ( !written )
+                {
+                    try
+                    {
+                        metadataFile.getStorage().removeAsset( metadataFile );
+                    }
+                    catch ( IOException e )
+                    {
+                        log.error( "Could not remove asset {}", metadataFile );
+                    }
                 }
-                ).forEach( p -> result.add(p.getName()));
+            }
+        }
+
+        for ( ChecksumAlgorithm algorithm : algorithms )
+        {
+            StorageAsset checksumFile = metadataFile.getStorage().addAsset(
+                metadataFile.getPath() + "." + algorithm.getDefaultExtension(), false );
+            Checksum checksum = new Checksum( algorithm ).update( content, 0, content.length );
+            if ( !changed && isValidChecksum( checksumFile, checksum.getChecksum() ) )
+            {
+                continue;
+            }
+            try ( OutputStream os = checksumFile.getWriteStream( true ) )
+            {
+                os.write( ( checksum.getChecksum() + "  " + metadataFile.getName() ).getBytes(
+                    StandardCharsets.UTF_8 ) );
+            }
+            catch ( IOException e )
+            {
+                log.error( "Could not write checksum file {}: {}", checksumFile, e.getMessage() );
+            }
+        }
+    }
 
-        return result;
+    /**
+     * Returns <code>true</code>, if the checksum file starts with the given checksum. As in
+     * {@link org.apache.archiva.checksum.ChecksummedFile}, the case is ignored and the file name is optional.
+     */
+    private boolean isValidChecksum( StorageAsset checksumFile, String checksum )
+    {
+        byte[] content = readContent( checksumFile );
+        if ( content == null )
+        {
+            return false;
+        }
+        String[] tokens = new String( content, StandardCharsets.UTF_8 ).trim().split( "\\s+", 2 );
+        return checksum.equalsIgnoreCase( tokens[0] );
+    }
+
+    private byte[] readContent( StorageAsset file )
+    {
+        if ( !file.exists() || file.isContainer() )
+        {
+            return null;
+        }
+        try ( InputStream is = file.getReadStream() )
+        {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ( ( read = is.read( buffer ) ) >= 0 )
+            {
+                content.write( buffer, 0, read );
+            }
+            return content.toByteArray();
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Could not read {}: {}", file, e.getMessage() );
+            return null;
+        }
     }
 
     private List<ArchivaRepositoryMetadata> getMetadatasForManagedRepository(
-        ManagedRepositoryContent managedRepository, String logicalResource )
+        ManagedRepositoryContent managedRepository, String logicalResource, Collection<String> updatedProxyIds )
     {
         List<ArchivaRepositoryMetadata> metadatas = new ArrayList<>();
         StorageAsset file = managedRepository.getRepository().getAsset( logicalResource );
@@ -491,8 +598,15 @@ private List<ArchivaRepositoryMetadata> getMetadatasForManagedRepository(
         {
             for ( String proxyId : proxyIds )
             {
-                ArchivaRepositoryMetadata proxyMetadata =
-                    readProxyMetadata( managedRepository, logicalResource, proxyId );
+                StorageAsset proxyFile =
+                    managedRepository.getRepository().getAsset( getRepositorySpecificName( proxyId, logicalResource ) );
+                // unchanged metadata is already merged, unless it is newer than the merged file
+                if ( updatedProxyIds != null && !updatedProxyIds.contains( proxyId )
+                    && !isNewer( proxyFile, file ) )
+                {
+                    continue;
+                }
+                ArchivaRepositoryMetadata proxyMetadata = readMetadataFile( managedRepository, proxyFile );
                 if ( proxyMetadata != null )
                 {
                     metadatas.add( proxyMetadata );
@@ -503,6 +617,12 @@ private List<ArchivaRepositoryMetadata> getMetadatasForManagedRepository(
         return metadatas;
     }
 
+    private static boolean isNewer( StorageAsset file, StorageAsset reference )
+    {
+        return file.exists() && ( !reference.exists()
+            || file.getModificationTime().isAfter( reference.getModificationTime() ) );
+    }
+
 
     /**
      * Update the metadata to represent the all versions/plugins of
@@ -609,9 +729,7 @@ public void updateProjectMetadata( ManagedRepositoryContent managedRepository, I
         }
 
         // Save the metadata model to disk.
-        RepositoryMetadataWriter.write( metadata, metadataFile );
-        ChecksummedFile checksum = new ChecksummedFile( metadataFile.getFilePath() );
-        checksum.fixChecksums( algorithms );
+        writeMetadata( metadata, metadataFile );
     }
 
     public MetadataReader getMetadataReader( ManagedRepositoryContent managedRepository )
@@ -628,7 +746,7 @@ private void updateMetadataVersions( Collection<String> allVersions, ArchivaRepo
     {
         // Sort the versions
         List<String> sortedVersions = new ArrayList<>( allVersions );
-        Collections.sort( sortedVersions, VersionComparator.getInstance() );
+        VersionComparator.sort( sortedVersions );
 
         // Split the versions into released and snapshots.
         List<String> releasedVersions = new ArrayList<>();
@@ -646,8 +764,8 @@ private void updateMetadataVersions( Collection<String> allVersions, ArchivaRepo
             }
         }
 
-        Collections.sort( releasedVersions, VersionComparator.getInstance() );
-        Collections.sort( snapshotVersions, VersionComparator.getInstance() );
+        VersionComparator.sort( releasedVersions );
+        VersionComparator.sort( snapshotVersions );
 
         String latestVersion = sortedVersions.get( sortedVersions.size() - 1 );
         String releaseVersion = null;
@@ -791,7 +909,7 @@ public void updateVersionMetadata( ManagedRepositoryContent managedRepository, I
             // sort the list to determine to aide in determining the Latest version.
             List<String> sortedVersions = new ArrayList<>();
             sortedVersions.addAll( snapshotVersions );
-            Collections.sort( sortedVersions, new VersionComparator() );
+            VersionComparator.sort( sortedVersions );
 
             String latestVersion = sortedVersions.get( sortedVersions.size() - 1 );
 
@@ -869,9 +987,7 @@ else if ( VersionUtil.isGenericSnapshot( latestVersion ) )
         }
 
         // Save the metadata model to disk.
-        RepositoryMetadataWriter.write( metadata, metadataFile );
-        ChecksummedFile checksum = new ChecksummedFile( metadataFile.getFilePath() );
-        checksum.fixChecksums( algorithms );
+        writeMetadata( metadata, metadataFile );
     }
 
     private void initConfigVariables()
@@ -0,0 +1,162 @@
+package org.apache.archiva.repository.metadata.base;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.LruCache;
+import org.apache.archiva.repository.storage.StorageAsset;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Caches the names of the subdirectories of a project directory, that contain a pom file.
+ * <p>
+ * The modification times of the project directory and of each subdirectory are stored with the entry. The project
+ * directory is listed again only if its modification time changed, i.e. if a subdirectory was added or removed.
+ * A subdirectory is searched for a pom file again only if its own modification time changed, so versions whose pom
+ * was purged are dropped and a pom added to an existing directory is found. Because of the resolution of the file
+ * system times, a time is not trusted, if the directory was modified shortly before it was listed.
+ *
+ * @since 3.0
+ */
+public class ProjectVersionsCache
+{
+    // the maximum resolution of the modification times of the supported file systems
+    private static final long MODIFICATION_TIME_RESOLUTION = 2000;
+
+    private final LruCache<String, Entry> entries;
+
+    /**
+     * @param maxProjects the maximum number of cached project directories
+     */
+    public ProjectVersionsCache( int maxProjects )
+    {
+        this.entries = new LruCache<>( maxProjects );
+    }
+
+    /**
+     * Returns the names of the subdirectories of the given directory, that contain a pom file.
+     *
+     * @param repositoryId the id of the repository of the directory
+     * @param directory    the project directory
+     * @return a new set of version names
+     */
+    public Set<String> getVersions( String repositoryId, StorageAsset directory )
+    {
+        String key = repositoryId + ':' + directory.getPath( );
+        if ( !directory.exists( ) || !directory.isContainer( ) )
+        {
+            entries.remove( key );
+            return new HashSet<>( );
+        }
+        Entry entry = entries.get( key );
+        long scanned = System.currentTimeMillis( );
+        long modified = getModificationTime( directory );
+        Collection<? extends StorageAsset> children;
+        if ( entry != null && entry.isValid( entry.modified, modified ) )
+        {
+            // no subdirectory was added or removed
+            children = entry.children.keySet( ).stream( ).map( directory::resolve ).collect( Collectors.toList( ) );
+        }
+        else
+        {
+            children = directory.list( );
+        }
+
+        Map<String, Long> childTimes = new HashMap<>( );
+        Set<String> versions = new HashSet<>( );
+        for ( StorageAsset child : children )
+        {
+            if ( !child.isContainer( ) )
+            {
+                continue;
+            }
+            String name = child.getName( );
+            long childModified = getModificationTime( child );
+            childTimes.put( name, childModified );
+            Long knownModified = entry == null ? null : entry.children.get( name );
+            boolean unchanged = knownModified != null && entry.isValid( knownModified, childModified );
+            if ( unchanged ? entry.versions.contains( name ) : containsPom( child ) )
+            {
+                versions.add( name );
+            }
+        }
+        entries.put( key, new Entry( modified, scanned, childTimes, versions ) );
+        return new HashSet<>( versions );
+    }
+
+    private static boolean containsPom( StorageAsset directory )
+    {
+        return directory.list( ).stream( ).anyMatch( f -> !f.isContainer( ) && f.getName( ).endsWith( ".pom" ) );
+    }
+
+    private static long getModificationTime( StorageAsset directory )
+    {
+        Instant modificationTime = directory.getModificationTime( );
+        return modificationTime == null ? 0 : modificationTime.toEpochMilli( );
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear( )
+    {
+        entries.clear( );
+    }
+
+    public int size( )
+    {
+        return entries.size( );
+    }
+
+    private static class Entry
+    {
+        final long modified;
+
+        final long scanned;
+
+        // the modification times of the subdirectories
+        final Map<String, Long> children;
+
+        final Set<String> versions;
+
+        Entry( long modified, long scanned, Map<String, Long> children, Set<String> versions )
+        {
+            this.modified = modified;
+            this.scanned = scanned;
+            this.children = children;
+            this.versions = versions;
+        }
+
+        /**
+         * Returns <code>true</code>, if the directory with the given modification time at the last scan is unchanged.
+         */
+        boolean isValid( long knownModified, long currentModified )
+        {
+            return knownModified > 0 && currentModified == knownModified
+                && scanned - knownModified > MODIFICATION_TIME_RESOLUTION;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.archiva.repository.metadata.base;
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectVersionsCacheTest
+{
+    Path basePath;
+
+    Path projectPath;
+
+    StorageAsset project;
+
+    ProjectVersionsCache cache;
+
+    @BeforeEach
+    void init( ) throws IOException
+    {
+        basePath = Files.createTempDirectory( "projectVersions" );
+        projectPath = basePath.resolve( "org/example/nightly" );
+        FilesystemStorage storage = new FilesystemStorage( basePath, new DefaultFileLockManager( ) );
+        project = storage.getAsset( "org/example/nightly" );
+        cache = new ProjectVersionsCache( 10 );
+    }
+
+    @AfterEach
+    void cleanup( )
+    {
+        FileUtils.deleteQuietly( basePath.toFile( ) );
+    }
+
+    private void createVersion( String version, String file ) throws IOException
+    {
+        Path versionPath = projectPath.resolve( version );
+        Files.createDirectories( versionPath );
+        Files.createFile( versionPath.resolve( file ) );
+    }
+
+    private void setModified( long time ) throws IOException
+    {
+        Files.setLastModifiedTime( projectPath, FileTime.fromMillis( time ) );
+    }
+
+    private void setVersionModified( String version, long time ) throws IOException
+    {
+        Files.setLastModifiedTime( projectPath.resolve( version ), FileTime.fromMillis( time ) );
+    }
+
+    @Test
+    void versionsWithPom( ) throws IOException
+    {
+        createVersion( "1.0", "nightly-1.0.pom" );
+        createVersion( "1.1", "nightly-1.1.jar" );
+        Files.createFile( projectPath.resolve( "maven-metadata.xml" ) );
+
+        assertEquals( new HashSet<>( Arrays.asList( "1.0" ) ), cache.getVersions( "internal", project ) );
+        assertEquals( 1, cache.size( ) );
+        assertTrue( cache.getVersions( "other", project.getParent( ) ).isEmpty( ) );
+    }
+
+    @Test
+    void unchangedDirectoryIsNotListed( ) throws IOException
+    {
+        long time = System.currentTimeMillis( ) - 60000;
+        createVersion( "1.0", "nightly-1.0.pom" );
+        setModified( time );
+        assertEquals( 1, cache.getVersions( "internal", project ).size( ) );
+
+        createVersion( "2.0", "nightly-2.0.pom" );
+        Files.createDirectories( projectPath.resolve( "3.0" ) );
+        setModified( time + 1000 );
+        assertEquals( new HashSet<>( Arrays.asList( "1.0", "2.0" ) ), cache.getVersions( "internal", project ) );
+
+        // a pom added to an existing directory changes the modification time of the version directory only
+        Files.createFile( projectPath.resolve( "3.0" ).resolve( "nightly-3.0.pom" ) );
+        setModified( time + 1000 );
+        assertEquals( new HashSet<>( Arrays.asList( "1.0", "2.0", "3.0" ) ),
+                      cache.getVersions( "internal", project ) );
+    }
+
+    @Test
+    void purgedPomRemovesVersion( ) throws IOException
+    {
+        long time = System.currentTimeMillis( ) - 60000;
+        createVersion( "1.0", "nightly-1.0.pom" );
+        createVersion( "1.1", "nightly-1.1.pom" );
+        setVersionModified( "1.0", time );
+        setVersionModified( "1.1", time );
+        setModified( time );
+        assertEquals( 2, cache.getVersions( "internal", project ).size( ) );
+
+        // unchanged version directories are not searched again
+        Files.delete( projectPath.resolve( "1.0" ).resolve( "nightly-1.0.pom" ) );
+        setVersionModified( "1.0", time );
+        assertEquals( 2, cache.getVersions( "internal", project ).size( ) );
+
+        // the purge deletes the pom, but keeps the version directory
+        Files.delete( projectPath.resolve( "1.1" ).resolve( "nightly-1.1.pom" ) );
+        setVersionModified( "1.1", time + 1000 );
+        setModified( time );
+        assertEquals( new HashSet<>( Arrays.asList( "1.0" ) ), cache.getVersions( "internal", project ) );
+    }
+
+    @Test
+    void recentlyModifiedDirectoryIsListedAgain( ) throws IOException
+    {
+        createVersion( "1.0", "nightly-1.0.pom" );
+        assertEquals( 1, cache.getVersions( "internal", project ).size( ) );
+        createVersion( "1.1", "nightly-1.1.pom" );
+        // the modification time may have the same value with a coarse resolution
+        setModified( System.currentTimeMillis( ) );
+        assertEquals( 2, cache.getVersions( "internal", project ).size( ) );
+    }
+
+    @Test
+    void removedVersion( ) throws IOException
+    {
+        createVersion( "1.0", "nightly-1.0.pom" );
+        createVersion( "1.1", "nightly-1.1.pom" );
+        assertEquals( 2, cache.getVersions( "internal", project ).size( ) );
+        FileUtils.deleteDirectory( projectPath.resolve( "1.1" ).toFile( ) );
+        setModified( System.currentTimeMillis( ) - 60000 );
+        assertEquals( new HashSet<>( Arrays.asList( "1.0" ) ), cache.getVersions( "internal", project ) );
+        assertTrue( cache.getVersions( "internal", project.getParent( ).resolve( "missing" ) ).isEmpty( ) );
+    }
+}
@@ -36,6 +36,7 @@
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DefaultRepositoryScanner
@@ -55,7 +56,10 @@
     @Inject
     private RepositoryContentConsumers repositoryContentConsumers;
 
-    private Set<RepositoryScannerInstance> inProgressScans = new LinkedHashSet<>();
+    /**
+     * The scans of different repositories run in parallel, so the set is modified concurrently.
+     */
+    private final Set<RepositoryScannerInstance> inProgressScans = ConcurrentHashMap.newKeySet( );
 
     @Override
     public RepositoryScanStatistics scan( ManagedRepository repository, long changesSince )
@@ -45,6 +45,8 @@
 import javax.inject.Inject;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -292,6 +294,25 @@ public List<InvalidRepositoryContentConsumer> getAvailableInvalidConsumers()
      */
     public void executeConsumers( ManagedRepository repository, Path localFile, boolean updateRelatedArtifacts )
         throws ConsumerException
+    {
+        executeConsumers( repository, Collections.singletonList( localFile ), updateRelatedArtifacts );
+    }
+
+    /**
+     * Executes all of the active selected consumers for a batch of files. The consumers get a single begin and
+     * complete scan cycle for the whole batch. An error of a consumer for one file does not stop the processing of
+     * the other files.
+     *
+     * @param repository             the repository configuration to use.
+     * @param localFiles             the local files to execute the consumers against.
+     * @param updateRelatedArtifacts <code>true</code> to run the consumers, that create missing checksums and
+     *                               update the metadata of the files. <code>false</code> skips them, e.g. for
+     *                               files deployed by maven, that come with their own checksums and metadata.
+     * @since 3.0
+     */
+    public void executeConsumers( ManagedRepository repository, Collection<Path> localFiles,
+                                  boolean updateRelatedArtifacts )
+        throws ConsumerException
     {
         List<KnownRepositoryContentConsumer> selectedKnownConsumers = null;
         // Run the repository consumers
@@ -325,23 +346,27 @@ public void executeConsumers( ManagedRepository repository, Path localFile, bool
             // yuck. In case you can't read this, it says
             // "process the file if the consumer has it in the includes list, and not in the excludes list"
             Path repoPath = PathUtil.getPathFromUri( repository.getLocation() );
-            BaseFile baseFile = new BaseFile( repoPath.toString(), localFile.toFile() );
             ConsumerWantsFilePredicate predicate = new ConsumerWantsFilePredicate( repository );
-            predicate.setBasefile( baseFile );
             predicate.setCaseSensitive( false );
 
             ConsumerProcessFileClosure closure = new ConsumerProcessFileClosure();
-            closure.setBasefile( baseFile );
             closure.setExecuteOnEntireRepo( false );
 
             Closure<RepositoryContentConsumer> processIfWanted = IfClosure.ifClosure( predicate, closure );
 
-            IterableUtils.forEach( selectedKnownConsumers, processIfWanted );
-
-            if ( predicate.getWantedFileCount() <= 0 )
+            for ( Path localFile : localFiles )
             {
-                // Nothing known processed this file.  It is invalid!
-                IterableUtils.forEach( selectedInvalidConsumers, closure );
+                BaseFile baseFile = new BaseFile( repoPath.toString(), localFile.toFile() );
+                predicate.setBasefile( baseFile );
+                closure.setBasefile( baseFile );
+
+                IterableUtils.forEach( selectedKnownConsumers, processIfWanted );
+
+                if ( predicate.getWantedFileCount() <= 0 )
+                {
+                    // Nothing known processed this file.  It is invalid!
+                    IterableUtils.forEach( selectedInvalidConsumers, closure );
+                }
             }
 
             TriggerScanCompletedClosure scanCompletedClosure = new TriggerScanCompletedClosure( repository, false );
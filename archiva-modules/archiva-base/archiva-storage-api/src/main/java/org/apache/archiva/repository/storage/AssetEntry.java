@@ -0,0 +1,80 @@
+package org.apache.archiva.repository.storage;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.time.Instant;
+
+/**
+ * A child asset together with the attributes, that were read when the parent directory was listed.
+ * The attributes are a snapshot and are not updated, if the asset is changed later.
+ *
+ * @since 3.0
+ */
+public final class AssetEntry
+{
+    private final StorageAsset asset;
+    private final boolean container;
+    private final long size;
+    private final Instant modificationTime;
+
+    public AssetEntry( StorageAsset asset, boolean container, long size, Instant modificationTime )
+    {
+        this.asset = asset;
+        this.container = container;
+        this.size = size;
+        this.modificationTime = modificationTime;
+    }
+
+    /**
+     * Creates the entry by reading the attributes from the given asset.
+     */
+    public static AssetEntry of( StorageAsset asset )
+    {
+        return new AssetEntry( asset, asset.isContainer( ), asset.getSize( ), asset.getModificationTime( ) );
+    }
+
+    public StorageAsset getAsset( )
+    {
+        return asset;
+    }
+
+    public String getName( )
+    {
+        return asset.getName( );
+    }
+
+    public boolean isContainer( )
+    {
+        return container;
+    }
+
+    /**
+     * Returns the size in bytes, or -1, if the size is not known.
+     */
+    public long getSize( )
+    {
+        return size;
+    }
+
+    public Instant getModificationTime( )
+    {
+        return modificationTime;
+    }
+}
@@ -27,6 +27,7 @@
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * A instance of this interface represents information about a specific asset in a repository.
@@ -87,6 +88,18 @@
      */
     List<? extends StorageAsset> list();
 
+    /**
+     * Lists the child assets together with their attributes. Implementations should read all attributes of
+     * a child at once, while the directory is read. The children are not sorted.
+     * The caller has to close the returned stream.
+     *
+     * @return The stream of children. If the asset is not a container, the stream is empty.
+     */
+    default Stream<AssetEntry> listEntries()
+    {
+        return list().stream().map( AssetEntry::of );
+    }
+
     /**
      * The size in bytes of the asset. If the asset does not have a size, -1 should be returned.
      *
@@ -18,6 +18,7 @@
  * under the License.
  */
 
+import org.apache.archiva.repository.storage.AssetEntry;
 import org.apache.archiva.repository.storage.RepositoryStorage;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.commons.lang3.StringUtils;
@@ -36,8 +37,11 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of an asset that is stored on the filesystem.
@@ -284,6 +288,46 @@ public List<StorageAsset> list() {
         }
     }
 
+    /**
+     * Lists the directory entries with the attributes of a single {@link BasicFileAttributes} read per entry.
+     * Entries that are removed while the directory is read, are skipped.
+     *
+     * @return The stream of entries, that must be closed by the caller.
+     */
+    @Override
+    public Stream<AssetEntry> listEntries() {
+        final DirectoryStream<Path> dirStream;
+        try {
+            dirStream = Files.newDirectoryStream(assetPath);
+        } catch (IOException e) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(dirStream.spliterator(), false)
+            .map(this::toEntry)
+            .filter(Objects::nonNull)
+            .onClose(() -> {
+                try {
+                    dirStream.close();
+                } catch (IOException e) {
+                    log.error("Could not close directory stream of {}: {}", assetPath, e.getMessage());
+                }
+            });
+    }
+
+    private AssetEntry toEntry(Path child) {
+        String name = child.getFileName().toString();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class);
+            FilesystemAsset asset = new FilesystemAsset(storage, relativePath + "/" + name, child, this.basePath,
+                attributes.isDirectory());
+            return new AssetEntry(asset, attributes.isDirectory(), attributes.size(),
+                attributes.lastModifiedTime().toInstant());
+        } catch (IOException e) {
+            log.debug("Could not read attributes of {}: {}", child, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Returns the size of the represented file. If it cannot be determined, -1 is returned.
      *
@@ -341,6 +385,17 @@ public WritableByteChannel getWriteChannel( boolean replace ) throws IOException
 
     @Override
     public boolean replaceDataFromFile( Path newData) throws IOException {
+        if (newData.getParent() != null && assetPath.getParent() != null && Files.isDirectory(assetPath.getParent())
+            && Files.isSameFile(newData.getParent(), assetPath.getParent())) {
+            // a file in the same directory replaces the data by an atomic rename
+            try {
+                Files.move(newData, assetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                applyDefaultPermissions(assetPath);
+                return true;
+            } catch (AtomicMoveNotSupportedException e) {
+                log.debug("Atomic move not supported for {}", assetPath);
+            }
+        }
         final boolean createNew = !Files.exists(assetPath);
         Path backup = null;
         if (!createNew) {
@@ -19,6 +19,7 @@
  */
 
 import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.AssetEntry;
 import org.apache.archiva.repository.storage.fs.FilesystemAsset;
 import org.apache.archiva.repository.storage.fs.FilesystemStorage;
 import org.apache.commons.io.FileUtils;
@@ -35,6 +36,9 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class FilesystemAssetTest {
 
@@ -110,6 +114,31 @@ public void list() throws IOException {
 
     }
 
+    @Test
+    public void listEntries() throws IOException {
+        FilesystemAsset asset = new FilesystemAsset(filesystemStorage, "/test1234", assetPathFile);
+        try (Stream<AssetEntry> entries = asset.listEntries()) {
+            Assert.assertEquals(0, entries.count());
+        }
+
+        FilesystemAsset asset2 = new FilesystemAsset(filesystemStorage, "/test1235", assetPathDir);
+        Path f1 = Files.createTempFile(assetPathDir, "testfile", "dat");
+        Files.write(f1, "abcdef".getBytes("ASCII"));
+        Path d1 = Files.createTempDirectory(assetPathDir, "testdir");
+        try (Stream<AssetEntry> entries = asset2.listEntries()) {
+            Map<String, AssetEntry> byName = entries.collect(Collectors.toMap(AssetEntry::getName, e -> e));
+            Assert.assertEquals(3, byName.size());
+            AssetEntry fileEntry = byName.get(f1.getFileName().toString());
+            Assert.assertFalse(fileEntry.isContainer());
+            Assert.assertEquals(6, fileEntry.getSize());
+            Assert.assertEquals(Files.getLastModifiedTime(f1).toInstant(), fileEntry.getModificationTime());
+            Assert.assertEquals("/test1235/" + f1.getFileName().toString(), fileEntry.getAsset().getPath());
+            Assert.assertTrue(byName.get(d1.getFileName().toString()).isContainer());
+        }
+        Files.deleteIfExists(f1);
+        Files.deleteIfExists(d1);
+    }
+
     @Test
     public void getSize() throws IOException {
         FilesystemAsset asset = new FilesystemAsset(filesystemStorage, "/test1234", assetPathFile);
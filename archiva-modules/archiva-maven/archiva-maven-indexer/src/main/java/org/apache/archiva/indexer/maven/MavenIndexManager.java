@@ -86,15 +86,21 @@
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Maven implementation of index manager.
@@ -141,6 +147,15 @@ public class MavenIndexManager implements ArchivaIndexManager {
 
     private ConcurrentSkipListSet<StorageAsset> activeContexts = new ConcurrentSkipListSet<>( );
 
+    // hidden directory inside the index directory, where a new generation of the packed index is created. It is kept
+    // out of the repository root, so the repository scanner and the listings do not see it.
+    private static final String PACK_STAGING_DIRECTORY = ".indexPack";
+
+    private static final String INCREMENTAL_PROPERTY_PREFIX = "nexus.index.incremental-";
+
+    private static final Pattern INCREMENTAL_CHUNK_PATTERN =
+        Pattern.compile( Pattern.quote( IndexingContext.INDEX_FILE_PREFIX ) + "\\.\\d+\\.gz" );
+
     private static final int WAIT_TIME = 100;
     private static final int MAX_WAIT = 10;
 
@@ -226,24 +241,94 @@ private void executeUpdateFunction( ArchivaIndexingContext context, IndexUpdateC
     public void pack( final ArchivaIndexingContext context ) throws IndexUpdateFailedException
     {
         executeUpdateFunction( context, indexingContext -> {
+                Path indexDirectory = indexingContext.getIndexDirectoryFile( ).toPath( );
+                Path stagingDirectory = indexDirectory.resolve( PACK_STAGING_DIRECTORY );
                 try
                 {
+                    // the new generation is packed aside and published afterwards, the served files are never
+                    // changed in place
+                    org.apache.archiva.common.utils.FileUtils.deleteDirectory( stagingDirectory );
+                    Files.createDirectories( stagingDirectory );
+                    Path properties = indexDirectory.resolve( IndexingContext.INDEX_REMOTE_PROPERTIES_FILE );
+                    if ( Files.exists( properties ) )
+                    {
+                        // the packer continues the incremental chain of the current properties
+                        Files.copy( properties, stagingDirectory.resolve( IndexingContext.INDEX_REMOTE_PROPERTIES_FILE ) );
+                    }
                     IndexPackingRequest request = new IndexPackingRequest( indexingContext,
                         indexingContext.acquireIndexSearcher( ).getIndexReader( ),
-                        indexingContext.getIndexDirectoryFile( ) );
+                        stagingDirectory.toFile( ) );
                     indexPacker.packIndex( request );
                     indexingContext.updateTimestamp( true );
+                    publishPackedIndex( stagingDirectory, indexDirectory );
                 }
                 catch ( IOException e )
                 {
                     log.error( "IOException while packing index of context " + context.getId( ) + ( StringUtils.isNotEmpty( e.getMessage( ) ) ? ": " + e.getMessage( ) : "" ) );
                     throw new IndexUpdateFailedException( "IOException during update of " + context.getId( ), e );
                 }
+                finally
+                {
+                    org.apache.archiva.common.utils.FileUtils.deleteQuietly( stagingDirectory );
+                }
             }
         );
 
     }
 
+    /*
+     * Moves the packed files into the index directory. The properties are moved last, because they announce the
+     * new generation to the clients. Incremental chunks, that are no longer listed in the properties, are removed.
+     */
+    private void publishPackedIndex( Path stagingDirectory, Path indexDirectory ) throws IOException
+    {
+        List<Path> packedFiles;
+        try ( Stream<Path> files = Files.list( stagingDirectory ) )
+        {
+            packedFiles = files.filter( file -> !IndexingContext.INDEX_REMOTE_PROPERTIES_FILE.equals( file.getFileName( ).toString( ) ) )
+                .collect( Collectors.toList( ) );
+        }
+        for ( Path file : packedFiles )
+        {
+            moveReplacing( file, indexDirectory.resolve( file.getFileName( ).toString( ) ) );
+        }
+        Path properties = stagingDirectory.resolve( IndexingContext.INDEX_REMOTE_PROPERTIES_FILE );
+        if ( !Files.exists( properties ) )
+        {
+            return;
+        }
+        Properties packedProperties = new Properties( );
+        try ( InputStream is = Files.newInputStream( properties ) )
+        {
+            packedProperties.load( is );
+        }
+        moveReplacing( properties, indexDirectory.resolve( IndexingContext.INDEX_REMOTE_PROPERTIES_FILE ) );
+
+        Set<String> chunks = packedProperties.stringPropertyNames( ).stream( )
+            .filter( key -> key.startsWith( INCREMENTAL_PROPERTY_PREFIX ) )
+            .map( key -> IndexingContext.INDEX_FILE_PREFIX + "." + packedProperties.getProperty( key ).trim( ) + ".gz" )
+            .collect( Collectors.toSet( ) );
+        try ( Stream<Path> files = Files.list( indexDirectory ) )
+        {
+            files.filter( file -> {
+                String name = file.getFileName( ).toString( );
+                return INCREMENTAL_CHUNK_PATTERN.matcher( name ).matches( ) && !chunks.contains( name );
+            } ).forEach( org.apache.archiva.common.utils.FileUtils::deleteQuietly );
+        }
+    }
+
+    private static void moveReplacing( Path source, Path target ) throws IOException
+    {
+        try
+        {
+            Files.move( source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( AtomicMoveNotSupportedException e )
+        {
+            Files.move( source, target, StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
     @Override
     public void scan(final ArchivaIndexingContext context) throws IndexUpdateFailedException
     {
@@ -105,6 +105,13 @@ public void pack() throws Exception {
                 return false;
             }
         }).findAny().isPresent());
+        assertTrue(Files.exists(indexPath.resolve(IndexingContext.INDEX_REMOTE_PROPERTIES_FILE)));
+        // the generation is published, nothing is left in the staging directory
+        assertFalse(Files.exists(indexPath.resolve(".indexPack")));
+
+        // a second pack continues the chain of the published properties
+        mavenIndexManager.pack(ctx);
+        assertTrue(Files.exists(indexPath.resolve(IndexingContext.INDEX_REMOTE_PROPERTIES_FILE)));
     }
 
     @Test
@@ -19,10 +19,13 @@
  * under the License.
  */
 
+import org.apache.archiva.policies.urlcache.FailureReason;
 import org.apache.archiva.proxy.DefaultRepositoryProxyHandler;
 import org.apache.archiva.proxy.NotFoundException;
 import org.apache.archiva.proxy.NotModifiedException;
 import org.apache.archiva.proxy.ProxyException;
+import org.apache.archiva.proxy.ResponseTimer;
+import org.apache.archiva.proxy.StreamingDownload;
 import org.apache.archiva.proxy.model.NetworkProxy;
 import org.apache.archiva.proxy.model.ProxyConnector;
 import org.apache.archiva.proxy.model.RepositoryProxyHandler;
@@ -35,10 +38,14 @@
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.wagon.ConnectionException;
 import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.StreamingWagon;
 import org.apache.maven.wagon.Wagon;
 import org.apache.maven.wagon.WagonException;
 import org.apache.maven.wagon.authentication.AuthenticationException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.events.TransferListener;
+import org.apache.maven.wagon.observers.AbstractTransferListener;
 import org.apache.maven.wagon.proxy.ProxyInfo;
 import org.apache.maven.wagon.repository.Repository;
 import org.slf4j.Logger;
@@ -47,6 +54,7 @@
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -116,15 +124,23 @@ public void setNetworkProxies(Map<String, NetworkProxy> networkProxies ) {
      * @param resource
      * @param workingDirectory
      * @param repository
+     * @param responseTimer
      * @throws ProxyException
      * @throws NotModifiedException
      */
     @Override
     protected void transferResources( ProxyConnector connector, RemoteRepository remoteRepository,
                                       StorageAsset tmpResource, StorageAsset[] checksumFiles, String url, String remotePath, StorageAsset resource,
-                                      Path workingDirectory, ManagedRepository repository )
+                                      Path workingDirectory, ManagedRepository repository, ResponseTimer responseTimer )
             throws ProxyException, NotModifiedException {
         Wagon wagon = null;
+        // the wagon starts the transfer, when the response headers are received
+        TransferListener responseListener = new AbstractTransferListener() {
+            @Override
+            public void transferStarted(TransferEvent transferEvent) {
+                responseTimer.responseStarted();
+            }
+        };
         try {
             URI repoUrl = remoteRepository.getLocation( );
             String protocol = repoUrl.getScheme( );
@@ -148,10 +164,11 @@ protected void transferResources( ProxyConnector connector, RemoteRepository rem
                 throw new ProxyException("Unsupported target repository protocol: " + protocol);
             }
 
+            wagon.addTransferListener(responseListener);
             boolean connected = connectToRepository(connector, wagon, remoteRepository);
             if (connected) {
                 transferArtifact(wagon, remoteRepository, remotePath, resource.getFilePath(),
-                    tmpResource);
+                    tmpResource, getStreamingDownload(repository, resource, tmpResource));
 
                 // TODO: these should be used to validate the download based on the policies, not always downloaded
                 // to
@@ -168,6 +185,10 @@ protected void transferResources( ProxyConnector connector, RemoteRepository rem
             // Do not cache url here.
             throw e;
         }
+        catch (NotFoundException e) {
+            urlFailureCache.cacheFailure(url, FailureReason.NOT_FOUND);
+            throw e;
+        }
         catch ( ProxyException e) {
             urlFailureCache.cacheFailure(url);
             throw e;
@@ -176,6 +197,7 @@ protected void transferResources( ProxyConnector connector, RemoteRepository rem
             throw new ProxyException(e.getMessage(), e);
         } finally {
             if (wagon != null) {
+                wagon.removeTransferListener(responseListener);
                 try {
                     wagon.disconnect();
                 } catch (ConnectionException e) {
@@ -185,11 +207,58 @@ protected void transferResources( ProxyConnector connector, RemoteRepository rem
         }
     }
 
+    /**
+     * Transfers the artifact to the temporary file. If the file is registered as streaming download and the wagon
+     * supports streaming, the content is written through the download, so other requests can read it while it is
+     * transferred.
+     *
+     * @param download the download of the file or <code>null</code>, if the file is not streamed
+     */
     protected void transferArtifact( Wagon wagon, RemoteRepository remoteRepository, String remotePath,
                                      Path resource,
-                                     StorageAsset destFile )
+                                     StorageAsset destFile, StreamingDownload download )
             throws ProxyException {
-        transferSimpleFile(wagon, remoteRepository, remotePath, resource, destFile.getFilePath());
+        if (download != null && wagon instanceof StreamingWagon && !Files.exists(resource)) {
+            streamSimpleFile((StreamingWagon) wagon, remoteRepository, remotePath, download);
+        } else {
+            transferSimpleFile(wagon, remoteRepository, remotePath, resource, destFile.getFilePath());
+        }
+    }
+
+    /**
+     * Transfers the remote file into the given download, that writes the temporary file.
+     */
+    private void streamSimpleFile( StreamingWagon wagon, RemoteRepository remoteRepository, String remotePath,
+                                   StreamingDownload download )
+            throws ProxyException {
+        log.debug("Streaming {} from {}", remotePath, remoteRepository.getId());
+        DownloadOutputStream out = new DownloadOutputStream(download);
+        wagon.addTransferListener(out.listener);
+        try {
+            try {
+                wagon.getToStream(addParameters(remotePath, remoteRepository), out);
+                // nothing is written for an empty file
+                out.open();
+            } finally {
+                out.close();
+            }
+            log.debug("Downloaded successfully.");
+        } catch (ResourceDoesNotExistException e) {
+            throw new NotFoundException(
+                    "Resource [" + remoteRepository.getLocation() + "/" + remotePath + "] does not exist: " + e.getMessage(),
+                    e);
+        } catch (WagonException e) {
+            String msg =
+                    "Download failure on resource [" + remoteRepository.getLocation() + "/" + remotePath + "]:" + e.getMessage();
+            if (e.getCause() != null) {
+                msg += " (cause: " + e.getCause() + ")";
+            }
+            throw new ProxyException(msg, e);
+        } catch (IOException e) {
+            throw new ProxyException("Could not write the download of " + remotePath + ": " + e.getMessage(), e);
+        } finally {
+            wagon.removeTransferListener(out.listener);
+        }
     }
 
     /**
@@ -219,7 +288,7 @@ protected void transferChecksum( Wagon wagon, RemoteRepository remoteRepository,
             transferSimpleFile(wagon, remoteRepository, remotePath + ext, resource, destFile);
             log.debug("Checksum {} Downloaded: {} to move to {}", url, destFile, resource);
         } catch (NotFoundException e) {
-            urlFailureCache.cacheFailure(url);
+            urlFailureCache.cacheFailure(url, FailureReason.NOT_FOUND);
             log.debug("Transfer failed, checksum not found: {}", url);
             // Consume it, do not pass this on.
         } catch (NotModifiedException e) {
@@ -386,4 +455,52 @@ public <T extends RepositoryProxyHandler> T getHandler( Class<T> clazz ) throws
             throw new IllegalArgumentException( "This Proxy Handler is no subclass of " + clazz );
         }
     }
+
+    /**
+     * Opens the output of the download with the first written byte, after the wagon announced the content length.
+     * The download is not started, if the remote file does not exist.
+     */
+    private static class DownloadOutputStream
+            extends OutputStream {
+        private final StreamingDownload download;
+
+        private long contentLength = -1;
+
+        private OutputStream out;
+
+        private final AbstractTransferListener listener = new AbstractTransferListener() {
+            @Override
+            public void transferStarted(TransferEvent transferEvent) {
+                contentLength = transferEvent.getResource().getContentLength();
+            }
+        };
+
+        DownloadOutputStream(StreamingDownload download) {
+            this.download = download;
+        }
+
+        private OutputStream open() throws IOException {
+            if (out == null) {
+                out = download.openOutputStream(contentLength);
+            }
+            return out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            open().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            open().write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
 }
@@ -22,6 +22,7 @@
 import net.sf.ehcache.CacheManager;
 import org.apache.archiva.configuration.*;
 import org.apache.archiva.policies.*;
+import org.apache.archiva.policies.urlcache.UrlFailureCache;
 import org.apache.archiva.proxy.model.RepositoryProxyHandler;
 import org.apache.archiva.repository.*;
 import org.apache.archiva.repository.base.BasicManagedRepository;
@@ -170,6 +171,10 @@ public void setUp()
         delegate.setDelegate( wagonMock );
 
         CacheManager.getInstance().clearAll();
+        // the failed urls are not kept in the ehcache region, the cache has to be cleared separately
+        applicationContext.getBean( UrlFailureCache.class ).clear();
+        // the failures of previous tests must not open the breakers of the remote repositories
+        applicationContext.getBean( DefaultRemoteRepositoryCircuitBreakers.class ).clear();
 
         log.info( "\n.\\ {}() \\._________________________________________\n", name );
     }
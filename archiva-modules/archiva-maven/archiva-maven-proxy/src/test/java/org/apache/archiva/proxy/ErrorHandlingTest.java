@@ -74,6 +74,36 @@ public void testPropagateErrorImmediatelyWithErrorThenSuccess()
         confirmSingleFailure( path, ID_MOCKED_PROXIED1 );
     }
 
+    @Test
+    public void testPropagateErrorWhenNoTransferSlotIsFree()
+        throws Exception
+    {
+        String path = PATH_IN_BOTH_REMOTES_NOT_LOCAL;
+        setupRepositoriesWithLocalFileNotPresent( path );
+
+        createMockedProxyConnector( ID_MOCKED_PROXIED1, NAME_MOCKED_PROXIED1, PropagateErrorsDownloadPolicy.STOP );
+
+        DefaultRemoteRepositoryCircuitBreakers breakers =
+            applicationContext.getBean( DefaultRemoteRepositoryCircuitBreakers.class );
+        long maxWait = breakers.getMaxWait();
+        breakers.setMaxWait( 0 );
+        try
+        {
+            // all transfer slots of the remote repository are taken, the rejection is an error and not a missing file
+            CircuitBreaker breaker = breakers.getCircuitBreaker( ID_MOCKED_PROXIED1 );
+            for ( int i = 0; i < breakers.getMaxInFlight(); i++ )
+            {
+                assertTrue( breaker.tryAcquire() );
+            }
+
+            confirmSingleFailure( path, ID_MOCKED_PROXIED1 );
+        }
+        finally
+        {
+            breakers.setMaxWait( maxWait );
+        }
+    }
+
     @Test
     public void testPropagateErrorImmediatelyWithNotFoundThenError()
         throws Exception
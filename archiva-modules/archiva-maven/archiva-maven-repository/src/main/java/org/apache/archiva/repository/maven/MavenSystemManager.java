@@ -20,13 +20,12 @@
  */
 
 import org.apache.archiva.repository.maven.dependency.tree.ArchivaRepositoryConnectorFactory;
-import org.apache.maven.repository.internal.DefaultArtifactDescriptorReader;
+import org.apache.archiva.repository.maven.dependency.tree.CachingArtifactDescriptorReader;
 import org.apache.maven.repository.internal.DefaultVersionRangeResolver;
 import org.apache.maven.repository.internal.DefaultVersionResolver;
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
-import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.collection.DependencySelector;
 import org.eclipse.aether.impl.ArtifactDescriptorReader;
 import org.eclipse.aether.impl.DefaultServiceLocator;
@@ -70,7 +69,7 @@ private synchronized void init() {
      * @param localRepoDir The repository directory
      * @return The newly created session object.
      */
-    public static RepositorySystemSession newRepositorySystemSession(String localRepoDir) {
+    public static DefaultRepositorySystemSession newRepositorySystemSession(String localRepoDir) {
         DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
 
         LocalRepository repo = new LocalRepository(localRepoDir);
@@ -112,7 +111,7 @@ public static DefaultServiceLocator newLocator() {
                 ArchivaRepositoryConnectorFactory.class);// FileRepositoryConnectorFactory.class );
         locator.addService(VersionResolver.class, DefaultVersionResolver.class);
         locator.addService(VersionRangeResolver.class, DefaultVersionRangeResolver.class);
-        locator.addService(ArtifactDescriptorReader.class, DefaultArtifactDescriptorReader.class);
+        locator.addService(ArtifactDescriptorReader.class, CachingArtifactDescriptorReader.class);
 
         return locator;
     }
@@ -0,0 +1,113 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.archiva.common.utils.LruCache;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import org.eclipse.aether.resolution.ArtifactDescriptorResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Bounded cache of the artifact descriptors that are read while collecting dependency trees. The cache is stored
+ * in the data of a shared repository system session and used by the {@link CachingArtifactDescriptorReader}.
+ * <p>
+ * The entries are futures, so concurrent reads of the same descriptor by the collector and the prefetch tasks
+ * are done only once.
+ *
+ * @since 3.0
+ */
+public class ArtifactDescriptorCache
+{
+    private final int prefetchDepth;
+
+    private final Executor prefetchExecutor;
+
+    private final LruCache<String, CompletableFuture<ArtifactDescriptorResult>> entries;
+
+    /**
+     * @param maxEntries       the maximum number of descriptors, the least recently used are evicted
+     * @param prefetchDepth    the number of levels of dependencies, that are read in advance
+     * @param prefetchExecutor the executor for reading the dependencies in advance, may be <code>null</code>
+     */
+    public ArtifactDescriptorCache( int maxEntries, int prefetchDepth, Executor prefetchExecutor )
+    {
+        this.prefetchDepth = prefetchExecutor == null ? 0 : prefetchDepth;
+        this.prefetchExecutor = prefetchExecutor;
+        this.entries = new LruCache<>( maxEntries );
+    }
+
+    /**
+     * Registers the given future for the key, if there is no entry yet.
+     *
+     * @return the existing entry, or <code>null</code>, if the given future was added
+     */
+    CompletableFuture<ArtifactDescriptorResult> putIfAbsent( String key, CompletableFuture<ArtifactDescriptorResult> future )
+    {
+        return entries.putIfAbsent( key, future );
+    }
+
+    boolean contains( String key )
+    {
+        return entries.containsKey( key );
+    }
+
+    void remove( String key, CompletableFuture<ArtifactDescriptorResult> future )
+    {
+        entries.remove( key, future );
+    }
+
+    public void clear( )
+    {
+        entries.clear( );
+    }
+
+    public int size( )
+    {
+        return entries.size( );
+    }
+
+    int getPrefetchDepth( )
+    {
+        return prefetchDepth;
+    }
+
+    Executor getPrefetchExecutor( )
+    {
+        return prefetchExecutor;
+    }
+
+    /**
+     * Returns the key of the request. The descriptor depends on the artifact, the repositories and the request
+     * context.
+     */
+    static String toKey( ArtifactDescriptorRequest request )
+    {
+        StringBuilder key = new StringBuilder( request.getArtifact( ).toString( ) );
+        key.append( '|' ).append( request.getRequestContext( ) );
+        for ( RemoteRepository repository : request.getRepositories( ) )
+        {
+            key.append( '|' ).append( repository.getId( ) );
+        }
+        return key.toString( );
+    }
+}
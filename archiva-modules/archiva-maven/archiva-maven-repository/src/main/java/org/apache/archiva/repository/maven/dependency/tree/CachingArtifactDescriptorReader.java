@@ -0,0 +1,159 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.repository.internal.DefaultArtifactDescriptorReader;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.resolution.ArtifactDescriptorException;
+import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import org.eclipse.aether.resolution.ArtifactDescriptorResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Artifact descriptor reader that uses the {@link ArtifactDescriptorCache} found in the session data.
+ * <p>
+ * The dependency collector reads the descriptors one by one. For each descriptor returned to the collector, the
+ * descriptors of its dependencies are read in advance by the prefetch executor of the cache, so the POM files
+ * are parsed in parallel while the collector walks the tree.
+ * <p>
+ * Without a cache in the session, the reader behaves like the default reader.
+ *
+ * @since 3.0
+ */
+public class CachingArtifactDescriptorReader
+    extends DefaultArtifactDescriptorReader
+{
+    private static final Logger log = LoggerFactory.getLogger( CachingArtifactDescriptorReader.class );
+
+    public CachingArtifactDescriptorReader( )
+    {
+        // no op but empty constructor needed by aether
+    }
+
+    @Override
+    public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                            ArtifactDescriptorRequest request )
+        throws ArtifactDescriptorException
+    {
+        ArtifactDescriptorCache cache = (ArtifactDescriptorCache) session.getData( ).get( ArtifactDescriptorCache.class );
+        if ( cache == null )
+        {
+            return super.readArtifactDescriptor( session, request );
+        }
+        ArtifactDescriptorResult result = read( session, request, cache );
+        prefetch( session, result, cache, cache.getPrefetchDepth( ) );
+        return result;
+    }
+
+    private ArtifactDescriptorResult read( RepositorySystemSession session, ArtifactDescriptorRequest request,
+                                           ArtifactDescriptorCache cache )
+        throws ArtifactDescriptorException
+    {
+        String key = ArtifactDescriptorCache.toKey( request );
+        CompletableFuture<ArtifactDescriptorResult> future = new CompletableFuture<>( );
+        CompletableFuture<ArtifactDescriptorResult> existing = cache.putIfAbsent( key, future );
+        if ( existing == null )
+        {
+            try
+            {
+                ArtifactDescriptorResult result = super.readArtifactDescriptor( session, request );
+                future.complete( result );
+                return result;
+            }
+            catch ( ArtifactDescriptorException | RuntimeException e )
+            {
+                // failures are not cached
+                cache.remove( key, future );
+                future.completeExceptionally( e );
+                throw e;
+            }
+        }
+        try
+        {
+            return existing.get( );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+            result.addException( e );
+            throw new ArtifactDescriptorException( result );
+        }
+        catch ( ExecutionException e )
+        {
+            // the concurrent read failed, read again to report the error for this request
+            return super.readArtifactDescriptor( session, request );
+        }
+    }
+
+    private void prefetch( RepositorySystemSession session, ArtifactDescriptorResult result,
+                           ArtifactDescriptorCache cache, int depth )
+    {
+        if ( depth <= 0 )
+        {
+            return;
+        }
+        for ( Dependency dependency : result.getDependencies( ) )
+        {
+            Artifact artifact = dependency.getArtifact( );
+            if ( isRange( artifact.getVersion( ) ) || "system".equals( dependency.getScope( ) ) )
+            {
+                continue;
+            }
+            ArtifactDescriptorRequest request =
+                new ArtifactDescriptorRequest( artifact, result.getRequest( ).getRepositories( ),
+                                               result.getRequest( ).getRequestContext( ) );
+            if ( cache.contains( ArtifactDescriptorCache.toKey( request ) ) )
+            {
+                continue;
+            }
+            try
+            {
+                cache.getPrefetchExecutor( ).execute( ( ) -> {
+                    try
+                    {
+                        prefetch( session, read( session, request, cache ), cache, depth - 1 );
+                    }
+                    catch ( ArtifactDescriptorException | RuntimeException e )
+                    {
+                        log.debug( "Could not prefetch descriptor of {}: {}", artifact, e.getMessage( ) );
+                    }
+                } );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // the prefetch queue is full, the collector reads the descriptor itself
+                return;
+            }
+        }
+    }
+
+    private static boolean isRange( String version )
+    {
+        return version.startsWith( "[" ) || version.startsWith( "(" ) || version.contains( "," );
+    }
+}
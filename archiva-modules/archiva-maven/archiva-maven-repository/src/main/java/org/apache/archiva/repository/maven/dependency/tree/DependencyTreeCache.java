@@ -0,0 +1,356 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.archiva.common.utils.LruCache;
+import org.apache.archiva.metadata.audit.AuditListener;
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
+import org.apache.archiva.repository.maven.MavenSystemManager;
+import org.apache.archiva.repository.metadata.base.MetadataTools;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositoryCache;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared state of the dependency tree builder:
+ * <ul>
+ *     <li>One repository system session per managed repository, with the remote repositories of its proxy
+ *     connectors, a bounded repository cache (raw models, resolved versions) and an {@link ArtifactDescriptorCache}.
+ *     </li>
+ *     <li>The collected dependency trees, keyed by the GAV and the requested repositories.</li>
+ * </ul>
+ * Deployments and deletions invalidate the trees of the affected repository. Changes of POM or metadata files
+ * also drop the session of the repository. Both kinds of entries have a maximum age, so changed proxy connectors
+ * and artifacts added by the repository scanner are picked up.
+ *
+ * @since 3.0
+ */
+@Service( "dependencyTreeCache#maven3" )
+public class DependencyTreeCache
+    implements AuditListener, RepositoryListener
+{
+    private static final Logger log = LoggerFactory.getLogger( DependencyTreeCache.class );
+
+    private int maxDescriptors = 5000;
+
+    private int maxRepositoryCacheEntries = 10000;
+
+    private int prefetchThreads = 4;
+
+    private int prefetchDepth = 2;
+
+    private long maxAgeMillis = TimeUnit.MINUTES.toMillis( 10 );
+
+    private ThreadPoolExecutor prefetchExecutor;
+
+    private final Map<String, RepositoryState> states = new ConcurrentHashMap<>( );
+
+    private final LruCache<String, CachedTree> trees = new LruCache<>( 200, maxAgeMillis );
+
+    @PostConstruct
+    public void initialize( )
+    {
+        AtomicInteger threadNumber = new AtomicInteger( );
+        prefetchExecutor = new ThreadPoolExecutor( prefetchThreads, prefetchThreads, 60, TimeUnit.SECONDS,
+                                                   new LinkedBlockingQueue<>( 1000 ), runnable -> {
+            Thread thread = new Thread( runnable, "dependency-tree-prefetch-" + threadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        prefetchExecutor.allowCoreThreadTimeOut( true );
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        if ( prefetchExecutor != null )
+        {
+            prefetchExecutor.shutdownNow( );
+        }
+        clear( );
+    }
+
+    /**
+     * Returns the shared session of the given managed repository, or <code>null</code>, if there is no valid one.
+     */
+    public RepositoryState getRepositoryState( String repositoryId )
+    {
+        RepositoryState state = states.get( repositoryId );
+        if ( state != null && System.currentTimeMillis( ) - state.created >= maxAgeMillis )
+        {
+            states.remove( repositoryId, state );
+            return null;
+        }
+        return state;
+    }
+
+    /**
+     * Creates the shared session of the given managed repository. If another thread created a session in the
+     * meantime, that session is returned.
+     *
+     * @param repositoryId       the managed repository id
+     * @param localRepoDir       the directory of the managed repository
+     * @param remoteRepositories the remote repositories of the proxy connectors
+     */
+    public RepositoryState createRepositoryState( String repositoryId, String localRepoDir,
+                                                  List<RemoteRepository> remoteRepositories )
+    {
+        DefaultRepositorySystemSession session = MavenSystemManager.newRepositorySystemSession( localRepoDir );
+        session.setCache( new BoundedRepositoryCache( maxRepositoryCacheEntries ) );
+        ArtifactDescriptorCache descriptorCache =
+            new ArtifactDescriptorCache( maxDescriptors, prefetchDepth, prefetchExecutor );
+        session.getData( ).set( ArtifactDescriptorCache.class, descriptorCache );
+        session.setReadOnly( );
+
+        RepositoryState state = new RepositoryState( session, descriptorCache, new ArrayList<>( remoteRepositories ) );
+        RepositoryState existing = states.putIfAbsent( repositoryId, state );
+        return existing == null ? state : existing;
+    }
+
+    /**
+     * Returns the cached tree, or <code>null</code>, if there is no valid entry.
+     */
+    public DependencyNode getTree( String key )
+    {
+        CachedTree tree = trees.get( key );
+        return tree == null ? null : tree.root;
+    }
+
+    /**
+     * Stores the collected tree.
+     *
+     * @param key           the key created by {@link #toKey(Collection, String, String, String)}
+     * @param repositoryIds the repositories, that were used for collecting the tree
+     * @param root          the root node
+     */
+    public void putTree( String key, Collection<String> repositoryIds, DependencyNode root )
+    {
+        trees.put( key, new CachedTree( root, new HashSet<>( repositoryIds ) ) );
+    }
+
+    /**
+     * Returns the cache key of a tree. The repository ids are sorted, so the key does not depend on the order, in
+     * which the caller passes them.
+     */
+    public static String toKey( Collection<String> repositoryIds, String groupId, String artifactId, String version )
+    {
+        return String.join( ",", new TreeSet<>( repositoryIds ) ) + "|" + groupId + ":" + artifactId + ":" + version;
+    }
+
+    /**
+     * Invalidates the trees that were collected from the given repository. If the resource is a POM or metadata
+     * file, or unknown, the session of the repository is dropped too.
+     *
+     * @param repositoryId the repository id
+     * @param resource     the changed resource, may be <code>null</code>
+     */
+    public void invalidate( String repositoryId, String resource )
+    {
+        trees.removeIf( ( key, tree ) -> tree.repositoryIds.contains( repositoryId ) );
+        if ( resource == null || resource.endsWith( ".pom" ) || resource.contains( MetadataTools.MAVEN_METADATA ) )
+        {
+            log.debug( "Dropping dependency tree session of {}", repositoryId );
+            states.remove( repositoryId );
+        }
+    }
+
+    public void clear( )
+    {
+        trees.clear( );
+        states.clear( );
+    }
+
+    @Override
+    public void auditEvent( AuditEvent event )
+    {
+        if ( event.getRepositoryId( ) != null && ( AuditEvent.CREATE_FILE.equals( event.getAction( ) )
+            || AuditEvent.UPLOAD_FILE.equals( event.getAction( ) ) || AuditEvent.REMOVE_FILE.equals( event.getAction( ) )
+            || AuditEvent.MERGING_REPOSITORIES.equals( event.getAction( ) ) ) )
+        {
+            invalidate( event.getRepositoryId( ), event.getResource( ) );
+        }
+    }
+
+    @Override
+    public void deleteArtifact( MetadataRepository metadataRepository, String repositoryId, String namespace,
+                                String project, String version, String id )
+    {
+        invalidate( repositoryId, id );
+    }
+
+    @Override
+    public void addArtifact( RepositorySession session, String repoId, String namespace, String projectId,
+                             ProjectVersionMetadata metadata )
+    {
+        // resolving metadata of existing files does not change the trees
+    }
+
+    @Override
+    public void addArtifactProblem( RepositorySession session, String repoId, String namespace, String projectId,
+                                    String projectVersion, RepositoryStorageMetadataException exception )
+    {
+        // no op
+    }
+
+    public int getMaxTrees( )
+    {
+        return trees.getMaxEntries( );
+    }
+
+    public void setMaxTrees( int maxTrees )
+    {
+        trees.setMaxEntries( maxTrees );
+    }
+
+    public int getMaxDescriptors( )
+    {
+        return maxDescriptors;
+    }
+
+    public void setMaxDescriptors( int maxDescriptors )
+    {
+        this.maxDescriptors = maxDescriptors;
+    }
+
+    public int getPrefetchDepth( )
+    {
+        return prefetchDepth;
+    }
+
+    public void setPrefetchDepth( int prefetchDepth )
+    {
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    public long getMaxAgeMillis( )
+    {
+        return maxAgeMillis;
+    }
+
+    public void setMaxAgeMillis( long maxAgeMillis )
+    {
+        this.maxAgeMillis = maxAgeMillis;
+        trees.setMaxAgeMillis( maxAgeMillis );
+    }
+
+    /**
+     * The shared session of a managed repository.
+     */
+    public static final class RepositoryState
+    {
+        private final RepositorySystemSession session;
+        private final ArtifactDescriptorCache descriptorCache;
+        private final List<RemoteRepository> remoteRepositories;
+        private final long created = System.currentTimeMillis( );
+
+        RepositoryState( RepositorySystemSession session, ArtifactDescriptorCache descriptorCache,
+                         List<RemoteRepository> remoteRepositories )
+        {
+            this.session = session;
+            this.descriptorCache = descriptorCache;
+            this.remoteRepositories = remoteRepositories;
+        }
+
+        public RepositorySystemSession getSession( )
+        {
+            return session;
+        }
+
+        public ArtifactDescriptorCache getDescriptorCache( )
+        {
+            return descriptorCache;
+        }
+
+        public List<RemoteRepository> getRemoteRepositories( )
+        {
+            return remoteRepositories;
+        }
+    }
+
+    private static final class CachedTree
+    {
+        private final DependencyNode root;
+        private final Set<String> repositoryIds;
+
+        CachedTree( DependencyNode root, Set<String> repositoryIds )
+        {
+            this.root = root;
+            this.repositoryIds = repositoryIds;
+        }
+    }
+
+    /**
+     * Repository cache that evicts the least recently used entries.
+     */
+    static final class BoundedRepositoryCache
+        implements RepositoryCache
+    {
+        private final LruCache<Object, Object> entries;
+
+        BoundedRepositoryCache( int maxEntries )
+        {
+            entries = new LruCache<>( maxEntries );
+        }
+
+        @Override
+        public void put( RepositorySystemSession session, Object key, Object data )
+        {
+            if ( data == null )
+            {
+                entries.remove( key );
+            }
+            else
+            {
+                entries.put( key, data );
+            }
+        }
+
+        @Override
+        public Object get( RepositorySystemSession session, Object key )
+        {
+            return entries.get( key );
+        }
+    }
+}
@@ -19,9 +19,7 @@
 
 
 import org.apache.archiva.admin.model.RepositoryAdminException;
-import org.apache.archiva.admin.model.beans.NetworkProxy;
 import org.apache.archiva.admin.model.beans.ProxyConnector;
-import org.apache.archiva.admin.model.networkproxy.NetworkProxyAdmin;
 import org.apache.archiva.admin.model.proxyconnector.ProxyConnectorAdmin;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.maven2.model.TreeEntry;
@@ -43,12 +41,12 @@
 import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
 import org.apache.maven.bridge.MavenRepositorySystem;
 import org.eclipse.aether.RepositorySystem;
-import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.CollectRequest;
 import org.eclipse.aether.collection.CollectResult;
 import org.eclipse.aether.collection.DependencyCollectionException;
 import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.aether.graph.DependencyVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -86,7 +84,7 @@
     private ProxyConnectorAdmin proxyConnectorAdmin;
 
     @Inject
-    private NetworkProxyAdmin networkProxyAdmin;
+    private DependencyTreeCache dependencyTreeCache;
 
     @Inject
     RepositoryRegistry repositoryRegistry;
@@ -127,6 +125,14 @@ public void buildDependencyTree( List<String> repositoryIds, String groupId, Str
                                      DependencyVisitor dependencyVisitor )
         throws DependencyTreeBuilderException
     {
+        String key = DependencyTreeCache.toKey( repositoryIds, groupId, artifactId, version );
+        DependencyNode root = dependencyTreeCache.getTree( key );
+        if ( root != null )
+        {
+            log.debug( "Found cached dependency tree for {}/{}/{}", groupId, artifactId, version );
+            root.accept( dependencyVisitor );
+            return;
+        }
 
         Artifact projectArtifact = mavenRepositorySystem.createProjectArtifact(groupId, artifactId, version);
         ManagedRepository repository = findArtifactInRepositories( repositoryIds, projectArtifact );
@@ -138,9 +144,26 @@ public void buildDependencyTree( List<String> repositoryIds, String groupId, Str
             return;
         }
 
-        List<org.apache.archiva.repository.RemoteRepository> remoteRepositories = new ArrayList<>();
-        Map<String, NetworkProxy> networkProxies = new HashMap<>();
+        DependencyTreeCache.RepositoryState state = dependencyTreeCache.getRepositoryState( repository.getId() );
+        if ( state == null )
+        {
+            // FIXME take care of relative path
+            state = dependencyTreeCache.createRepositoryState( repository.getId(),
+                repository.getRoot().getFilePath().toAbsolutePath().toString(), getRemoteRepositories( repository ) );
+        }
 
+        root = collect( state, groupId, artifactId, version );
+        if ( root != null )
+        {
+            dependencyTreeCache.putTree( key, repositoryIds, root );
+            root.accept( dependencyVisitor );
+        }
+    }
+
+    private List<org.eclipse.aether.repository.RemoteRepository> getRemoteRepositories( ManagedRepository repository )
+        throws DependencyTreeBuilderException
+    {
+        List<org.eclipse.aether.repository.RemoteRepository> remoteRepositories = new ArrayList<>();
         try
         {
             // MRM-1411
@@ -153,15 +176,12 @@ public void buildDependencyTree( List<String> repositoryIds, String groupId, Str
             {
                 for ( ProxyConnector proxyConnector : proxyConnectors )
                 {
-                    remoteRepositories.add(
-                        repositoryRegistry.getRemoteRepository( proxyConnector.getTargetRepoId() ) );
-
-                    NetworkProxy networkProxyConfig = networkProxyAdmin.getNetworkProxy( proxyConnector.getProxyId() );
-
-                    if ( networkProxyConfig != null )
+                    RemoteRepository remoteRepository =
+                        repositoryRegistry.getRemoteRepository( proxyConnector.getTargetRepoId() );
+                    if ( remoteRepository != null )
                     {
-                        // key/value: remote repo ID/proxy info
-                        networkProxies.put( proxyConnector.getTargetRepoId(), networkProxyConfig );
+                        remoteRepositories.add( new org.eclipse.aether.repository.RemoteRepository.Builder(
+                            remoteRepository.getId( ), "default", remoteRepository.getLocation( ).toString() ).build( ) );
                     }
                 }
             }
@@ -170,17 +190,7 @@ public void buildDependencyTree( List<String> repositoryIds, String groupId, Str
         {
             throw new DependencyTreeBuilderException( e.getMessage(), e );
         }
-
-        // FIXME take care of relative path
-        ResolveRequest resolveRequest = new ResolveRequest();
-        resolveRequest.dependencyVisitor = dependencyVisitor;
-        resolveRequest.localRepoDir = repository.getRoot().getFilePath().toAbsolutePath().toString();
-        resolveRequest.groupId = groupId;
-        resolveRequest.artifactId = artifactId;
-        resolveRequest.version = version;
-        resolveRequest.remoteRepositories = remoteRepositories;
-        resolveRequest.networkProxies = networkProxies;
-        resolve( resolveRequest );
+        return remoteRepositories;
     }
 
 
@@ -199,54 +209,30 @@ public List<TreeEntry> buildDependencyTree( List<String> repositoryIds, String g
         return treeEntries;
     }
 
-    private static class ResolveRequest
-    {
-        String localRepoDir, groupId, artifactId, version;
-
-        DependencyVisitor dependencyVisitor;
-
-        List<org.apache.archiva.repository.RemoteRepository> remoteRepositories;
-
-        Map<String, NetworkProxy> networkProxies;
-
-    }
-
-
-    private void resolve( ResolveRequest resolveRequest )
+    private DependencyNode collect( DependencyTreeCache.RepositoryState state, String groupId, String artifactId,
+                                    String version )
     {
-
         RepositorySystem system = mavenSystemManager.getRepositorySystem();
-        RepositorySystemSession session = MavenSystemManager.newRepositorySystemSession( resolveRequest.localRepoDir );
 
-        org.eclipse.aether.artifact.Artifact artifact = new DefaultArtifact(
-            resolveRequest.groupId + ":" + resolveRequest.artifactId + ":" + resolveRequest.version );
+        org.eclipse.aether.artifact.Artifact artifact =
+            new DefaultArtifact( groupId + ":" + artifactId + ":" + version );
 
         CollectRequest collectRequest = new CollectRequest();
         collectRequest.setRoot( new Dependency( artifact, "" ) );
-
-        // add remote repositories
-        for ( RemoteRepository remoteRepository : resolveRequest.remoteRepositories )
-        {
-            org.eclipse.aether.repository.RemoteRepository repo = new org.eclipse.aether.repository.RemoteRepository.Builder( remoteRepository.getId( ), "default", remoteRepository.getLocation( ).toString() ).build( );
-            collectRequest.addRepository(repo);
-        }
+        collectRequest.setRepositories( state.getRemoteRepositories() );
         collectRequest.setRequestContext( "project" );
 
-        //collectRequest.addRepository( repo );
-
         try
         {
-            CollectResult collectResult = system.collectDependencies( session, collectRequest );
-            collectResult.getRoot().accept( resolveRequest.dependencyVisitor );
+            CollectResult collectResult = system.collectDependencies( state.getSession(), collectRequest );
             log.debug("Collected dependency results for resolve");
+            return collectResult.getRoot();
         }
         catch ( DependencyCollectionException e )
         {
             log.error( "Error while collecting dependencies (resolve): {}", e.getMessage(), e );
+            return null;
         }
-
-
-
     }
 
     private ManagedRepository findArtifactInRepositories( List<String> repositoryIds, Artifact projectArtifact ) {
@@ -58,7 +58,6 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
@@ -332,7 +331,7 @@ private void updateProjectMetadata( Path projectMetaDataFileIntargetRepo, Artifa
         {
             availableVersions = (ArrayList<String>) projectMetadata.getAvailableVersions();
 
-            Collections.sort( availableVersions, VersionComparator.getInstance() );
+            VersionComparator.sort( availableVersions );
 
             if ( !availableVersions.contains( artifactMetadata.getVersion() ) )
             {
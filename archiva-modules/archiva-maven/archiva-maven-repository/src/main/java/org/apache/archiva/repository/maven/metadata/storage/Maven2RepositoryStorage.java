@@ -101,6 +101,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -149,6 +150,14 @@
     @Inject
     private MavenSystemManager mavenSystemManager;
 
+    @Inject
+    private MavenModelCache modelCache;
+
+    @Inject
+    private ProxiedModelFetcher modelFetcher;
+
+    private Properties systemProperties;
+
     private static final String METADATA_FILENAME_START = "maven-metadata";
 
     private static final String METADATA_FILENAME = METADATA_FILENAME_START + ".xml";
@@ -162,6 +171,8 @@
     @PostConstruct
     public void initialize() {
         builder = new DefaultModelBuilderFactory().newInstance();
+        systemProperties = new Properties();
+        systemProperties.putAll(System.getProperties());
 
     }
 
@@ -229,99 +240,17 @@ public ProjectVersionMetadata readProjectVersionMetadata(ReadMetadataRequest rea
                     "The artifact's POM file '" + file.getPath() + "' was missing");
         }
 
-        // TODO: this is a workaround until we can properly resolve using proxies as well - this doesn't cache
-        //       anything locally!
-        List<RemoteRepository> remoteRepositories = new ArrayList<>();
-        Map<String, NetworkProxy> networkProxies = new HashMap<>();
-
-        Map<String, List<ProxyConnector>> proxyConnectorsMap = proxyRegistry.getProxyConnectorAsMap();
-        List<ProxyConnector> proxyConnectors = proxyConnectorsMap.get(readMetadataRequest.getRepositoryId());
-        if (proxyConnectors != null) {
-            for (ProxyConnector proxyConnector : proxyConnectors) {
-                RemoteRepository remoteRepoConfig =
-                        repositoryRegistry.getRemoteRepository(proxyConnector.getTargetRepository().getId());
-
-                if (remoteRepoConfig != null) {
-                    remoteRepositories.add(remoteRepoConfig);
-
-                    NetworkProxy networkProxyConfig =
-                            proxyRegistry.getNetworkProxy(proxyConnector.getProxyId());
-
-                    if (networkProxyConfig != null) {
-                        // key/value: remote repo ID/proxy info
-                        networkProxies.put(proxyConnector.getTargetRepository().getId(), networkProxyConfig);
-                    }
-                }
-            }
-        }
-
-        // That's a browsing request so we can a mix of SNAPSHOT and release artifacts (especially with snapshots which
-        // can have released parent pom
-        if (readMetadataRequest.isBrowsingRequest()) {
-            remoteRepositories.addAll(repositoryRegistry.getRemoteRepositories());
-        }
-
-        ModelBuildingRequest req =
-                new DefaultModelBuildingRequest().setProcessPlugins(false).setPomFile(file.getFilePath().toFile()).setTwoPhaseBuilding(
-                        false).setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL);
-
-        //MRM-1607. olamy this will resolve jdk profiles on the current running archiva jvm
-        req.setSystemProperties(System.getProperties());
-
-        // MRM-1411
-        req.setModelResolver(
-                new RepositoryModelResolver(managedRepository, pathTranslator, wagonFactory, remoteRepositories,
-                        networkProxies, managedRepository, mavenSystemManager, metadataReader));
-
-        Model model;
-        try {
-            model = builder.build(req).getEffectiveModel();
-        } catch (ModelBuildingException e) {
-            String msg = "The artifact's POM file '" + file + "' was invalid: " + e.getMessage();
-
-            List<ModelProblem> modelProblems = e.getProblems();
-            for (ModelProblem problem : modelProblems) {
-                // MRM-1411, related to MRM-1335
-                // this means that the problem was that the parent wasn't resolved!
-                // olamy really hackhish but fail with java profile so use error message
-                // || ( StringUtils.startsWith( problem.getMessage(), "Failed to determine Java version for profile" ) )
-                // but setTwoPhaseBuilding(true) fix that
-                if (((problem.getException() instanceof FileNotFoundException
-                        || problem.getException() instanceof NoSuchFileException
-                ) && e.getModelId() != null &&
-                        !e.getModelId().equals(problem.getModelId()))) {
-                    log.warn("The artifact's parent POM file '{}' cannot be resolved. "
-                            + "Using defaults for project version metadata..", file);
-
-                    ProjectVersionMetadata metadata = new ProjectVersionMetadata();
-                    metadata.setId(readMetadataRequest.getProjectVersion());
-
-                    MavenProjectFacet facet = new MavenProjectFacet();
-                    facet.setGroupId(readMetadataRequest.getNamespace());
-                    facet.setArtifactId(readMetadataRequest.getProjectId());
-                    facet.setPackaging("jar");
-                    metadata.addFacet(facet);
-
-                    String errMsg =
-                            "Error in resolving artifact's parent POM file. " + (problem.getException() == null
-                                    ? problem.getMessage()
-                                    : problem.getException().getMessage());
-                    RepositoryProblemFacet repoProblemFacet = new RepositoryProblemFacet();
-                    repoProblemFacet.setRepositoryId(readMetadataRequest.getRepositoryId());
-                    repoProblemFacet.setId(readMetadataRequest.getRepositoryId());
-                    repoProblemFacet.setMessage(errMsg);
-                    repoProblemFacet.setProblem(errMsg);
-                    repoProblemFacet.setProject(readMetadataRequest.getProjectId());
-                    repoProblemFacet.setVersion(readMetadataRequest.getProjectVersion());
-                    repoProblemFacet.setNamespace(readMetadataRequest.getNamespace());
-
-                    metadata.addFacet(repoProblemFacet);
-
-                    return metadata;
-                }
+        String modelKey = readMetadataRequest.getRepositoryId() + "|" + readMetadataRequest.isBrowsingRequest() + "|"
+                + file.getFilePath();
+        Model model = modelCache.getEffectiveModel(modelKey);
+        if (model == null) {
+            try {
+                model = buildEffectiveModel(readMetadataRequest, managedRepository, file, modelKey);
+            } catch (ModelBuildingException e) {
+                return handleModelBuildingException(readMetadataRequest, file, e);
             }
-
-            throw new RepositoryStorageMetadataInvalidException("invalid-pom", msg, e);
+        } else {
+            log.debug("Using cached model for {}", file.getPath());
         }
 
         // Check if the POM is in the correct location
@@ -375,6 +304,121 @@ public ProjectVersionMetadata readProjectVersionMetadata(ReadMetadataRequest rea
 
     }
 
+    /**
+     * Builds the effective model of the given POM file. The raw models of parents and imports are taken from
+     * the shared model cache and the result is stored there.
+     */
+    private Model buildEffectiveModel(ReadMetadataRequest readMetadataRequest, ManagedRepository managedRepository,
+                                      StorageAsset file, String modelKey) throws ModelBuildingException {
+        // The models are fetched through the proxy connectors of the managed repository and stored there. These
+        // remote repositories are only accessed directly, if they are not proxied (e.g. for browsing requests).
+        List<RemoteRepository> remoteRepositories = new ArrayList<>();
+        Map<String, NetworkProxy> networkProxies = new HashMap<>();
+
+        Map<String, List<ProxyConnector>> proxyConnectorsMap = proxyRegistry.getProxyConnectorAsMap();
+        List<ProxyConnector> proxyConnectors = proxyConnectorsMap.get(readMetadataRequest.getRepositoryId());
+        if (proxyConnectors != null) {
+            for (ProxyConnector proxyConnector : proxyConnectors) {
+                RemoteRepository remoteRepoConfig =
+                        repositoryRegistry.getRemoteRepository(proxyConnector.getTargetRepository().getId());
+
+                if (remoteRepoConfig != null) {
+                    remoteRepositories.add(remoteRepoConfig);
+
+                    NetworkProxy networkProxyConfig =
+                            proxyRegistry.getNetworkProxy(proxyConnector.getProxyId());
+
+                    if (networkProxyConfig != null) {
+                        // key/value: remote repo ID/proxy info
+                        networkProxies.put(proxyConnector.getTargetRepository().getId(), networkProxyConfig);
+                    }
+                }
+            }
+        }
+
+        // That's a browsing request so we can a mix of SNAPSHOT and release artifacts (especially with snapshots which
+        // can have released parent pom
+        if (readMetadataRequest.isBrowsingRequest()) {
+            remoteRepositories.addAll(repositoryRegistry.getRemoteRepositories());
+        }
+
+        MavenModelCache.Request cacheRequest = modelCache.newRequest(readMetadataRequest.getRepositoryId());
+        cacheRequest.addSource(readMetadataRequest.getNamespace(), readMetadataRequest.getProjectId(),
+                readMetadataRequest.getProjectVersion(), file.getFilePath());
+
+        ModelBuildingRequest req =
+                new DefaultModelBuildingRequest().setProcessPlugins(false).setPomFile(file.getFilePath().toFile()).setTwoPhaseBuilding(
+                        false).setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL);
+
+        //MRM-1607. olamy this will resolve jdk profiles on the current running archiva jvm
+        // the properties are copied once, so the cached models are built with the same values
+        req.setSystemProperties(systemProperties);
+
+        req.setModelCache(cacheRequest);
+
+        // MRM-1411
+        RepositoryModelResolver modelResolver =
+                new RepositoryModelResolver(managedRepository, pathTranslator, wagonFactory, remoteRepositories,
+                        networkProxies, managedRepository, mavenSystemManager, metadataReader);
+        modelResolver.setModelCacheRequest(cacheRequest);
+        modelResolver.setModelFetcher(modelFetcher);
+        req.setModelResolver(modelResolver);
+
+        Model model = builder.build(req).getEffectiveModel();
+        modelCache.putEffectiveModel(modelKey, model, cacheRequest);
+        return model;
+    }
+
+    private ProjectVersionMetadata handleModelBuildingException(ReadMetadataRequest readMetadataRequest,
+                                                                StorageAsset file, ModelBuildingException e)
+            throws RepositoryStorageMetadataInvalidException {
+        String msg = "The artifact's POM file '" + file + "' was invalid: " + e.getMessage();
+
+        List<ModelProblem> modelProblems = e.getProblems();
+        for (ModelProblem problem : modelProblems) {
+            // MRM-1411, related to MRM-1335
+            // this means that the problem was that the parent wasn't resolved!
+            // olamy really hackhish but fail with java profile so use error message
+            // || ( StringUtils.startsWith( problem.getMessage(), "Failed to determine Java version for profile" ) )
+            // but setTwoPhaseBuilding(true) fix that
+            if (((problem.getException() instanceof FileNotFoundException
+                    || problem.getException() instanceof NoSuchFileException
+            ) && e.getModelId() != null &&
+                    !e.getModelId().equals(problem.getModelId()))) {
+                log.warn("The artifact's parent POM file '{}' cannot be resolved. "
+                        + "Using defaults for project version metadata..", file);
+
+                ProjectVersionMetadata metadata = new ProjectVersionMetadata();
+                metadata.setId(readMetadataRequest.getProjectVersion());
+
+                MavenProjectFacet facet = new MavenProjectFacet();
+                facet.setGroupId(readMetadataRequest.getNamespace());
+                facet.setArtifactId(readMetadataRequest.getProjectId());
+                facet.setPackaging("jar");
+                metadata.addFacet(facet);
+
+                String errMsg =
+                        "Error in resolving artifact's parent POM file. " + (problem.getException() == null
+                                ? problem.getMessage()
+                                : problem.getException().getMessage());
+                RepositoryProblemFacet repoProblemFacet = new RepositoryProblemFacet();
+                repoProblemFacet.setRepositoryId(readMetadataRequest.getRepositoryId());
+                repoProblemFacet.setId(readMetadataRequest.getRepositoryId());
+                repoProblemFacet.setMessage(errMsg);
+                repoProblemFacet.setProblem(errMsg);
+                repoProblemFacet.setProject(readMetadataRequest.getProjectId());
+                repoProblemFacet.setVersion(readMetadataRequest.getProjectVersion());
+                repoProblemFacet.setNamespace(readMetadataRequest.getNamespace());
+
+                metadata.addFacet(repoProblemFacet);
+
+                return metadata;
+            }
+        }
+
+        throw new RepositoryStorageMetadataInvalidException("invalid-pom", msg, e);
+    }
+
     public void setWagonFactory(WagonFactory wagonFactory) {
         this.wagonFactory = wagonFactory;
     }
@@ -0,0 +1,306 @@
+package org.apache.archiva.repository.maven.metadata.storage;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.LruCache;
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.ModelCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache for the POM models that are built by {@link Maven2RepositoryStorage}. It is shared by all requests and
+ * scans, so parent POMs and imported BOMs are read and parsed only once for all the children.
+ * <p>
+ * There are two kinds of entries:
+ * <ul>
+ *     <li>The raw models and imported dependency management sections that the maven model builder stores
+ *     by GAV in its {@link ModelCache}.</li>
+ *     <li>The effective models of the requested POM files.</li>
+ * </ul>
+ * Each entry keeps the identity (path, modification time and size) of the POM files it was built from. An entry
+ * is dropped, if one of these files was changed or removed. Deleted artifacts are also removed by the repository
+ * events. Both maps are bounded and evict the least recently used entries.
+ *
+ * @since 3.0
+ */
+@Service( "modelCache#maven2" )
+public class MavenModelCache
+    implements RepositoryListener
+{
+    private static final Logger log = LoggerFactory.getLogger( MavenModelCache.class );
+
+    private final LruCache<String, ModelEntry> models = new LruCache<>( 1000 );
+
+    private final LruCache<String, EffectiveModelEntry> effectiveModels = new LruCache<>( 500 );
+
+    /**
+     * Creates the cache view for a single model building request.
+     *
+     * @param repositoryId the id of the managed repository the model is built for
+     * @return the request, that must be set as model cache of the model building request
+     */
+    public Request newRequest( String repositoryId )
+    {
+        return new Request( repositoryId );
+    }
+
+    /**
+     * Returns a copy of the cached effective model, if the model and all files it was built from are unchanged.
+     *
+     * @param key the key of the built model
+     * @return the model or <code>null</code>, if there is no valid entry
+     */
+    public Model getEffectiveModel( String key )
+    {
+        EffectiveModelEntry entry = effectiveModels.get( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+        for ( FileIdentity source : entry.sources.values( ) )
+        {
+            if ( !source.isCurrent( ) )
+            {
+                log.debug( "Source {} of cached model {} was changed", source.path, key );
+                effectiveModels.remove( key, entry );
+                return null;
+            }
+        }
+        return entry.model.clone( );
+    }
+
+    /**
+     * Stores a copy of the effective model. The files used by the given request are stored with the entry.
+     *
+     * @param key     the key of the built model
+     * @param model   the effective model
+     * @param request the request that was used for building the model
+     */
+    public void putEffectiveModel( String key, Model model, Request request )
+    {
+        if ( request.sources.isEmpty( ) )
+        {
+            return;
+        }
+        effectiveModels.put( key, new EffectiveModelEntry( model.clone( ), new HashMap<>( request.sources ) ) );
+    }
+
+    /**
+     * Removes all entries that were built from the given project version.
+     */
+    public void invalidate( String namespace, String projectId, String version )
+    {
+        String gav = toKey( namespace, projectId, version );
+        String infix = "|" + gav + ":";
+        models.removeIf( ( key, entry ) -> key.contains( infix ) );
+        effectiveModels.removeIf( ( key, entry ) -> entry.sources.containsKey( gav ) );
+    }
+
+    public void clear( )
+    {
+        models.clear( );
+        effectiveModels.clear( );
+    }
+
+    @Override
+    public void deleteArtifact( MetadataRepository metadataRepository, String repositoryId, String namespace,
+                                String project, String version, String id )
+    {
+        invalidate( namespace, project, version );
+    }
+
+    @Override
+    public void addArtifact( RepositorySession session, String repoId, String namespace, String projectId,
+                             ProjectVersionMetadata metadata )
+    {
+        // a new or replaced POM file is detected by its file identity
+    }
+
+    @Override
+    public void addArtifactProblem( RepositorySession session, String repoId, String namespace, String projectId,
+                                    String projectVersion, RepositoryStorageMetadataException exception )
+    {
+        // nothing cached for invalid models
+    }
+
+    public int getMaxModelEntries( )
+    {
+        return models.getMaxEntries( );
+    }
+
+    public void setMaxModelEntries( int maxModelEntries )
+    {
+        models.setMaxEntries( maxModelEntries );
+    }
+
+    public int getMaxEffectiveModelEntries( )
+    {
+        return effectiveModels.getMaxEntries( );
+    }
+
+    public void setMaxEffectiveModelEntries( int maxEffectiveModelEntries )
+    {
+        effectiveModels.setMaxEntries( maxEffectiveModelEntries );
+    }
+
+    private static String toKey( String groupId, String artifactId, String version )
+    {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+
+    /**
+     * The cache view of a single model building request. It records the POM files that are used by the model
+     * builder, either resolved by the {@link RepositoryModelResolver} or found in the cache.
+     * <p>
+     * A request is used by a single thread only.
+     */
+    public class Request
+        implements ModelCache
+    {
+        private final String repositoryId;
+
+        private final Map<String, FileIdentity> sources = new HashMap<>( );
+
+        Request( String repositoryId )
+        {
+            this.repositoryId = repositoryId;
+        }
+
+        /**
+         * Registers the POM file for the given coordinates.
+         */
+        public void addSource( String groupId, String artifactId, String version, Path file )
+        {
+            FileIdentity identity = FileIdentity.of( file );
+            if ( identity != null )
+            {
+                sources.put( toKey( groupId, artifactId, version ), identity );
+            }
+        }
+
+        @Override
+        public void put( String groupId, String artifactId, String version, String tag, Object data )
+        {
+            FileIdentity source = sources.get( toKey( groupId, artifactId, version ) );
+            if ( source == null )
+            {
+                // the origin of the model is unknown, it cannot be validated later
+                return;
+            }
+            models.put( entryKey( groupId, artifactId, version, tag ), new ModelEntry( data, source ) );
+        }
+
+        @Override
+        public Object get( String groupId, String artifactId, String version, String tag )
+        {
+            String key = entryKey( groupId, artifactId, version, tag );
+            ModelEntry entry = models.get( key );
+            if ( entry == null )
+            {
+                return null;
+            }
+            if ( !entry.source.isCurrent( ) )
+            {
+                models.remove( key, entry );
+                return null;
+            }
+            sources.put( toKey( groupId, artifactId, version ), entry.source );
+            return entry.data;
+        }
+
+        private String entryKey( String groupId, String artifactId, String version, String tag )
+        {
+            return repositoryId + "|" + toKey( groupId, artifactId, version ) + ":" + tag;
+        }
+    }
+
+    private static final class ModelEntry
+    {
+        private final Object data;
+        private final FileIdentity source;
+
+        ModelEntry( Object data, FileIdentity source )
+        {
+            this.data = data;
+            this.source = source;
+        }
+    }
+
+    private static final class EffectiveModelEntry
+    {
+        private final Model model;
+        private final Map<String, FileIdentity> sources;
+
+        EffectiveModelEntry( Model model, Map<String, FileIdentity> sources )
+        {
+            this.model = model;
+            this.sources = sources;
+        }
+    }
+
+    /**
+     * Path, modification time and size of a file.
+     */
+    static final class FileIdentity
+    {
+        private final Path path;
+        private final long lastModified;
+        private final long size;
+
+        private FileIdentity( Path path, long lastModified, long size )
+        {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        static FileIdentity of( Path path )
+        {
+            try
+            {
+                BasicFileAttributes attributes = Files.readAttributes( path, BasicFileAttributes.class );
+                return new FileIdentity( path, attributes.lastModifiedTime( ).toMillis( ), attributes.size( ) );
+            }
+            catch ( IOException e )
+            {
+                return null;
+            }
+        }
+
+        boolean isCurrent( )
+        {
+            FileIdentity current = of( path );
+            return current != null && current.lastModified == lastModified && current.size == size;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package org.apache.archiva.repository.maven.metadata.storage;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.LruCache;
+import org.apache.archiva.common.utils.VersionUtil;
+import org.apache.archiva.metadata.maven.MavenMetadataReader;
+import org.apache.archiva.metadata.repository.storage.RepositoryPathTranslator;
+import org.apache.archiva.model.ArchivaRepositoryMetadata;
+import org.apache.archiva.model.SnapshotVersion;
+import org.apache.archiva.policies.ProxyDownloadException;
+import org.apache.archiva.proxy.ProxyRegistry;
+import org.apache.archiva.proxy.model.ProxyConnector;
+import org.apache.archiva.proxy.model.RepositoryProxyHandler;
+import org.apache.archiva.repository.ManagedRepository;
+import org.apache.archiva.repository.RemoteRepository;
+import org.apache.archiva.repository.content.Artifact;
+import org.apache.archiva.repository.content.BaseRepositoryContentLayout;
+import org.apache.archiva.repository.content.LayoutException;
+import org.apache.archiva.repository.content.base.ArchivaItemSelector;
+import org.apache.archiva.repository.metadata.RepositoryMetadataException;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Fetches POM files that are needed for building a model (e.g. parents and imported BOMs) through the proxy
+ * handler of the managed repository. The downloaded files are stored in the managed repository and the policies
+ * of the proxy connectors (checksums, failure cache, ...) are applied.
+ * <p>
+ * Concurrent requests for the same POM are coalesced into a single fetch. The number of concurrent fetches per
+ * remote repository is limited. POM files that could not be resolved are remembered for a configurable time,
+ * so that repeated model building (e.g. browsing of a freshly proxied project) does not contact the remote
+ * repositories again for the same missing parent.
+ *
+ * @since 3.0
+ */
+@Service( "proxiedModelFetcher#maven2" )
+public class ProxiedModelFetcher
+{
+    private static final Logger log = LoggerFactory.getLogger( ProxiedModelFetcher.class );
+
+    private static final String METADATA_FILENAME = "maven-metadata.xml";
+
+    @Inject
+    private ProxyRegistry proxyRegistry;
+
+    @Inject
+    @Named( "metadataReader#maven" )
+    private MavenMetadataReader metadataReader;
+
+    @Inject
+    @Named( "repositoryPathTranslator#maven2" )
+    private RepositoryPathTranslator pathTranslator;
+
+    private int maxConcurrentFetchesPerRemote = 4;
+
+    private long unresolvableTimeoutMillis = TimeUnit.MINUTES.toMillis( 10 );
+
+    private final Map<String, Semaphore> remotePermits = new ConcurrentHashMap<>( );
+
+    private final Map<String, CompletableFuture<Boolean>> runningFetches = new ConcurrentHashMap<>( );
+
+    private final LruCache<String, Boolean> unresolvable = new LruCache<>( 10000, unresolvableTimeoutMillis );
+
+    /**
+     * Returns <code>true</code>, if there is a proxy handler with proxy connectors for the given repository.
+     */
+    public boolean supports( ManagedRepository repository )
+    {
+        if ( repository == null || !proxyRegistry.hasHandler( repository.getType( ) ) )
+        {
+            return false;
+        }
+        return getHandler( repository ).hasProxies( repository );
+    }
+
+    /**
+     * Returns the remote repositories from the given list, that are not proxied by one of the connectors of the
+     * managed repository.
+     */
+    public List<RemoteRepository> getUnproxiedRepositories( ManagedRepository repository,
+                                                            List<RemoteRepository> remoteRepositories )
+    {
+        if ( !supports( repository ) )
+        {
+            return remoteRepositories;
+        }
+        Set<String> proxied = getHandler( repository ).getProxyConnectors( repository ).stream( )
+            .map( connector -> connector.getTargetRepository( ).getId( ) ).collect( Collectors.toSet( ) );
+        return remoteRepositories.stream( ).filter( remote -> !proxied.contains( remote.getId( ) ) )
+            .collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Fetches the POM file of the given coordinates from the proxied repositories into the managed repository.
+     *
+     * @return <code>true</code>, if the file was downloaded, otherwise <code>false</code>
+     */
+    public boolean fetch( ManagedRepository repository, String groupId, String artifactId, String version )
+    {
+        String key = toKey( repository, groupId, artifactId, version );
+        CompletableFuture<Boolean> fetch = new CompletableFuture<>( );
+        CompletableFuture<Boolean> running = runningFetches.putIfAbsent( key, fetch );
+        if ( running != null )
+        {
+            log.debug( "Waiting for running fetch of {}", key );
+            try
+            {
+                return running.get( );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                return false;
+            }
+            catch ( ExecutionException e )
+            {
+                return false;
+            }
+        }
+        boolean found = false;
+        try
+        {
+            found = fetchFromProxies( repository, groupId, artifactId, version );
+        }
+        finally
+        {
+            runningFetches.remove( key, fetch );
+            fetch.complete( found );
+        }
+        return found;
+    }
+
+    /**
+     * Returns <code>true</code>, if the POM file could not be resolved recently.
+     */
+    public boolean isUnresolvable( ManagedRepository repository, String groupId, String artifactId, String version )
+    {
+        String key = toKey( repository, groupId, artifactId, version );
+        return unresolvable.containsKey( key );
+    }
+
+    /**
+     * Remembers that the POM file could not be resolved from any remote repository.
+     */
+    public void markUnresolvable( ManagedRepository repository, String groupId, String artifactId, String version )
+    {
+        unresolvable.put( toKey( repository, groupId, artifactId, version ), Boolean.TRUE );
+    }
+
+    public void clearUnresolvable( )
+    {
+        unresolvable.clear( );
+    }
+
+    private boolean fetchFromProxies( ManagedRepository repository, String groupId, String artifactId,
+                                      String version )
+    {
+        RepositoryProxyHandler proxyHandler = getHandler( repository );
+        Artifact pom;
+        try
+        {
+            String artifactVersion = version;
+            if ( VersionUtil.isSnapshot( version ) )
+            {
+                artifactVersion = getSnapshotArtifactVersion( repository, proxyHandler, groupId, artifactId, version );
+            }
+
+            BaseRepositoryContentLayout layout =
+                repository.getContent( ).getLayout( BaseRepositoryContentLayout.class );
+            pom = layout.getArtifact( ArchivaItemSelector.builder( )
+                .withNamespace( groupId )
+                .withProjectId( artifactId )
+                .withArtifactId( artifactId )
+                .withVersion( version )
+                .withArtifactVersion( artifactVersion )
+                .withType( "pom" ).build( ) );
+        }
+        catch ( LayoutException e )
+        {
+            log.warn( "Could not retrieve model {}:{}:{} for repository '{}': {}", groupId, artifactId, version,
+                repository.getId( ), e.getMessage( ) );
+            return false;
+        }
+
+        // the remotes are tried one after the other, each attempt holds only the permit of its remote
+        for ( ProxyConnector connector : proxyHandler.getProxyConnectors( repository ) )
+        {
+            if ( !connector.isEnabled( ) )
+            {
+                continue;
+            }
+            String remoteId = connector.getTargetRepository( ).getId( );
+            Semaphore permit =
+                remotePermits.computeIfAbsent( remoteId, id -> new Semaphore( maxConcurrentFetchesPerRemote, true ) );
+            try
+            {
+                permit.acquire( );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                return false;
+            }
+            try
+            {
+                proxyHandler.fetchFromProxy( repository, pom, connector );
+                if ( pom.exists( ) )
+                {
+                    log.info( "Model '{}' successfully retrieved from '{}' through the proxies of '{}'",
+                        pom.getAsset( ).getPath( ), remoteId, repository.getId( ) );
+                    return true;
+                }
+            }
+            catch ( ProxyDownloadException e )
+            {
+                log.warn( "Could not retrieve model {}:{}:{} for repository '{}' from '{}': {}", groupId, artifactId,
+                    version, repository.getId( ), remoteId, e.getMessage( ) );
+            }
+            finally
+            {
+                permit.release( );
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fetches the metadata of the snapshot version and returns the timestamped version of the last build.
+     */
+    private String getSnapshotArtifactVersion( ManagedRepository repository, RepositoryProxyHandler proxyHandler,
+                                               String groupId, String artifactId, String version )
+    {
+        String metadataPath = pathTranslator.toPath( groupId, artifactId, version, METADATA_FILENAME );
+        proxyHandler.fetchMetadataFromProxies( repository, metadataPath );
+        StorageAsset metadataFile = repository.getAsset( metadataPath );
+        if ( metadataFile.exists( ) )
+        {
+            try
+            {
+                ArchivaRepositoryMetadata metadata = metadataReader.read( metadataFile );
+                SnapshotVersion snapshotVersion = metadata.getSnapshotVersion( );
+                if ( snapshotVersion != null )
+                {
+                    // remove SNAPSHOT from end
+                    return version.substring( 0, version.length( ) - 8 ) + snapshotVersion.getTimestamp( ) + "-"
+                        + snapshotVersion.getBuildNumber( );
+                }
+            }
+            catch ( RepositoryMetadataException e )
+            {
+                log.warn( "Invalid metadata: {} - {}", metadataPath, e.getMessage( ) );
+            }
+        }
+        return version;
+    }
+
+    private RepositoryProxyHandler getHandler( ManagedRepository repository )
+    {
+        return proxyRegistry.getHandler( repository.getType( ) ).get( 0 );
+    }
+
+    private static String toKey( ManagedRepository repository, String groupId, String artifactId, String version )
+    {
+        return repository.getId( ) + "|" + groupId + ":" + artifactId + ":" + version;
+    }
+
+    public int getMaxConcurrentFetchesPerRemote( )
+    {
+        return maxConcurrentFetchesPerRemote;
+    }
+
+    /**
+     * Sets the maximum number of concurrent fetches per remote repository. Only used for remote repositories
+     * that were not accessed before.
+     */
+    public void setMaxConcurrentFetchesPerRemote( int maxConcurrentFetchesPerRemote )
+    {
+        this.maxConcurrentFetchesPerRemote = maxConcurrentFetchesPerRemote;
+    }
+
+    public long getUnresolvableTimeoutMillis( )
+    {
+        return unresolvableTimeoutMillis;
+    }
+
+    public void setUnresolvableTimeoutMillis( long unresolvableTimeoutMillis )
+    {
+        this.unresolvableTimeoutMillis = unresolvableTimeoutMillis;
+        unresolvable.setMaxAgeMillis( unresolvableTimeoutMillis );
+    }
+
+    public int getMaxUnresolvableEntries( )
+    {
+        return unresolvable.getMaxEntries( );
+    }
+
+    public void setMaxUnresolvableEntries( int maxUnresolvableEntries )
+    {
+        unresolvable.setMaxEntries( maxUnresolvableEntries );
+    }
+}
@@ -99,6 +99,10 @@
 
     private ManagedRepository managedRepository;
 
+    private MavenModelCache.Request modelCacheRequest;
+
+    private ProxiedModelFetcher modelFetcher;
+
     public RepositoryModelResolver(StorageAsset basedir, RepositoryPathTranslator pathTranslator)
     {
         this.basedir = basedir;
@@ -154,12 +158,28 @@ public ModelSource resolveModel( String groupId, String artifactId, String versi
                 Path localSnapshotModel = findTimeStampedSnapshotPom( groupId, artifactId, version, model.getParent().getFilePath() );
                 if ( localSnapshotModel != null )
                 {
+                    addModelSource( groupId, artifactId, version, localSnapshotModel );
                     return new FileModelSource( localSnapshotModel.toFile() );
                 }
 
             }
 
-            for ( RemoteRepository remoteRepository : remoteRepositories )
+            if ( modelFetcher != null && managedRepository != null )
+            {
+                if ( modelFetcher.isUnresolvable( managedRepository, groupId, artifactId, version ) )
+                {
+                    log.debug( "Model {}:{}:{} was not found recently, not asking remote repositories", groupId,
+                               artifactId, version );
+                    return new FileModelSource( model.getFilePath().toFile() );
+                }
+                ModelSource fetched = fetchFromProxies( model, groupId, artifactId, version );
+                if ( fetched != null )
+                {
+                    return fetched;
+                }
+            }
+
+            for ( RemoteRepository remoteRepository : getUnproxiedRepositories() )
             {
                 try
                 {
@@ -188,9 +208,85 @@ public ModelSource resolveModel( String groupId, String artifactId, String versi
             }
         }
 
+        if ( !model.exists() && modelFetcher != null && managedRepository != null
+            && ( !remoteRepositories.isEmpty() || modelFetcher.supports( managedRepository ) ) )
+        {
+            modelFetcher.markUnresolvable( managedRepository, groupId, artifactId, version );
+        }
+
+        addModelSource( groupId, artifactId, version, model.getFilePath() );
         return new FileModelSource( model.getFilePath().toFile() );
     }
 
+    /**
+     * Fetches the model through the proxy connectors of the managed repository.
+     *
+     * @return the model source, or <code>null</code>, if the model was not found
+     */
+    private ModelSource fetchFromProxies( StorageAsset model, String groupId, String artifactId, String version )
+    {
+        if ( !modelFetcher.supports( managedRepository )
+            || !modelFetcher.fetch( managedRepository, groupId, artifactId, version ) )
+        {
+            return null;
+        }
+        Path file = model.exists() ? model.getFilePath() : null;
+        if ( file == null && VersionUtil.isSnapshot( version ) )
+        {
+            file = findTimeStampedSnapshotPom( groupId, artifactId, version, model.getParent().getFilePath() );
+        }
+        if ( file == null )
+        {
+            return null;
+        }
+        addModelSource( groupId, artifactId, version, file );
+        return new FileModelSource( file.toFile() );
+    }
+
+    /**
+     * Returns the remote repositories that must be accessed directly, because they are not proxied by a connector
+     * of the managed repository (e.g. additional repositories for browsing).
+     */
+    private List<RemoteRepository> getUnproxiedRepositories()
+    {
+        if ( modelFetcher == null || managedRepository == null )
+        {
+            return remoteRepositories;
+        }
+        return modelFetcher.getUnproxiedRepositories( managedRepository, remoteRepositories );
+    }
+
+    private void addModelSource( String groupId, String artifactId, String version, Path file )
+    {
+        if ( modelCacheRequest != null )
+        {
+            modelCacheRequest.addSource( groupId, artifactId, version, file );
+        }
+    }
+
+    /**
+     * Sets the model cache of the current model building request. The resolved POM files are registered there,
+     * so that the cache entries can be validated against the files.
+     *
+     * @param modelCacheRequest the cache view of the request, may be <code>null</code>
+     */
+    public void setModelCacheRequest( MavenModelCache.Request modelCacheRequest )
+    {
+        this.modelCacheRequest = modelCacheRequest;
+    }
+
+    /**
+     * Sets the fetcher for models that are not found in the managed repository. If set, the models are retrieved
+     * through the proxy connectors of the managed repository. Only remote repositories without connector are
+     * accessed directly.
+     *
+     * @param modelFetcher the fetcher, may be <code>null</code>
+     */
+    public void setModelFetcher( ProxiedModelFetcher modelFetcher )
+    {
+        this.modelFetcher = modelFetcher;
+    }
+
     public ModelSource resolveModel(Parent parent) throws UnresolvableModelException {
         try {
             Artifact artifact = new DefaultArtifact(parent.getGroupId(), parent.getArtifactId(), "", "pom", parent.getVersion());
@@ -287,8 +383,12 @@ public void addRepository( Repository repository, boolean b ) throws InvalidRepo
     @Override
     public ModelResolver newCopy()
     {
-        return new RepositoryModelResolver( managedRepository,  pathTranslator, wagonFactory, remoteRepositories, 
-                                            networkProxyMap, targetRepository, mavenSystemManager, metadataReader);
+        RepositoryModelResolver copy =
+            new RepositoryModelResolver( managedRepository,  pathTranslator, wagonFactory, remoteRepositories,
+                                         networkProxyMap, targetRepository, mavenSystemManager, metadataReader);
+        copy.setModelCacheRequest( modelCacheRequest );
+        copy.setModelFetcher( modelFetcher );
+        return copy;
     }
 
     // FIXME: we need to do some refactoring, we cannot re-use the proxy components of archiva-proxy in maven2-repository
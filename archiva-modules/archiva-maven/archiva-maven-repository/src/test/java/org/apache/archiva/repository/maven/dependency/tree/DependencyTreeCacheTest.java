@@ -0,0 +1,121 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.DependencyNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DependencyTreeCacheTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class DependencyTreeCacheTest
+    extends TestCase
+{
+    private DependencyTreeCache cache;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        cache = new DependencyTreeCache( );
+        cache.initialize( );
+    }
+
+    @After
+    @Override
+    public void tearDown( )
+        throws Exception
+    {
+        cache.shutdown( );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testTreeInvalidatedByDeployment( )
+    {
+        List<String> repositoryIds = Arrays.asList( "internal", "snapshots" );
+        String key = DependencyTreeCache.toKey( repositoryIds, "org.example", "app", "1.0" );
+        DependencyNode root = new DefaultDependencyNode( new DefaultArtifact( "org.example:app:1.0" ) );
+        cache.putTree( key, repositoryIds, root );
+        assertSame( root, cache.getTree( key ) );
+
+        cache.auditEvent( createEvent( "other", "org/example/lib/1.0/lib-1.0.jar" ) );
+        assertSame( root, cache.getTree( key ) );
+
+        cache.auditEvent( createEvent( "snapshots", "org/example/lib/1.0-SNAPSHOT/lib-1.0-SNAPSHOT.jar" ) );
+        assertNull( cache.getTree( key ) );
+    }
+
+    @Test
+    public void testKeyIndependentOfRepositoryOrder( )
+    {
+        assertEquals( DependencyTreeCache.toKey( Arrays.asList( "internal", "snapshots" ), "org.example", "app", "1.0" ),
+                      DependencyTreeCache.toKey( Arrays.asList( "snapshots", "internal" ), "org.example", "app",
+                                                 "1.0" ) );
+    }
+
+    @Test
+    public void testSessionDroppedOnPomChange( )
+    {
+        DependencyTreeCache.RepositoryState state =
+            cache.createRepositoryState( "internal", "target/test-repository", Collections.emptyList( ) );
+        assertSame( state, cache.getRepositoryState( "internal" ) );
+        assertSame( state.getDescriptorCache( ),
+                    state.getSession( ).getData( ).get( ArtifactDescriptorCache.class ) );
+
+        cache.auditEvent( createEvent( "internal", "org/example/lib/1.0/lib-1.0.jar" ) );
+        assertSame( state, cache.getRepositoryState( "internal" ) );
+
+        cache.auditEvent( createEvent( "internal", "org/example/lib/1.0/lib-1.0.pom" ) );
+        assertNull( cache.getRepositoryState( "internal" ) );
+    }
+
+    @Test
+    public void testMaxAge( )
+    {
+        cache.setMaxAgeMillis( 0 );
+        cache.createRepositoryState( "internal", "target/test-repository", Collections.emptyList( ) );
+        assertNull( cache.getRepositoryState( "internal" ) );
+    }
+
+    private static AuditEvent createEvent( String repositoryId, String resource )
+    {
+        AuditEvent event = new AuditEvent( );
+        event.setRepositoryId( repositoryId );
+        event.setResource( resource );
+        event.setAction( AuditEvent.UPLOAD_FILE );
+        return event;
+    }
+}
@@ -18,6 +18,8 @@
  * under the License.
  */
 
+import org.apache.archiva.checksum.ChecksumAlgorithm;
+import org.apache.archiva.checksum.ChecksummedFile;
 import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.configuration.ProxyConnectorConfiguration;
 import org.apache.archiva.policies.CachedFailuresPolicy;
@@ -50,10 +52,12 @@
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -207,6 +211,31 @@ public void testUpdateProjectMissingMultipleVersionsWithProxies()
                                       "3.1" );
     }
 
+    @Test
+    public void testUpdateProjectRepairsStaleChecksums()
+        throws Exception
+    {
+        ManagedRepositoryContent testRepo = createTestRepoContent();
+        ItemSelector reference = ArchivaItemSelector.builder()
+            .withNamespace( "org.apache.archiva.metadata.tests" )
+            .withProjectId( "missing_metadata_a" ).build();
+
+        prepProjectTestRepo( testRepo, reference );
+        tools.updateProjectMetadata( testRepo, reference );
+
+        Path metadataFile = testRepo.getRepository().getRoot().getFilePath().resolve( tools.toPath( reference ) );
+        ChecksummedFile checksummedFile = new ChecksummedFile( metadataFile );
+        Path sha1File = checksummedFile.getChecksumFile( ChecksumAlgorithm.SHA1 );
+        Files.write( sha1File, "0000000000000000000000000000000000000000".getBytes( StandardCharsets.UTF_8 ) );
+        Files.delete( checksummedFile.getChecksumFile( ChecksumAlgorithm.MD5 ) );
+
+        // the content of the metadata file is unchanged, but the checksum files are repaired
+        tools.updateProjectMetadata( testRepo, reference );
+
+        assertTrue( checksummedFile.isValidChecksums(
+            Arrays.asList( ChecksumAlgorithm.SHA256, ChecksumAlgorithm.SHA1, ChecksumAlgorithm.MD5 ) ) );
+    }
+
     @Test
     public void testUpdateProjectSimpleYetIncomplete()
         throws Exception
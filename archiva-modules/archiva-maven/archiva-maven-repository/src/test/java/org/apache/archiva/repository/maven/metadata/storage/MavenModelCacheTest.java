@@ -0,0 +1,147 @@
+package org.apache.archiva.repository.maven.metadata.storage;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.apache.maven.model.Model;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * MavenModelCacheTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class MavenModelCacheTest
+    extends TestCase
+{
+    private Path tempDir;
+
+    private Path parentPom;
+
+    private Path childPom;
+
+    private MavenModelCache cache;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        tempDir = Files.createTempDirectory( "model-cache" );
+        parentPom = tempDir.resolve( "parent-1.0.pom" );
+        childPom = tempDir.resolve( "child-1.0.pom" );
+        Files.write( parentPom, "<project/>".getBytes( StandardCharsets.UTF_8 ) );
+        Files.write( childPom, "<project/>".getBytes( StandardCharsets.UTF_8 ) );
+        cache = new MavenModelCache( );
+    }
+
+    @After
+    @Override
+    public void tearDown( )
+        throws Exception
+    {
+        Files.deleteIfExists( parentPom );
+        Files.deleteIfExists( childPom );
+        Files.deleteIfExists( tempDir );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testRawModelSharedBetweenRequests( )
+    {
+        Object data = new Object( );
+        MavenModelCache.Request request = cache.newRequest( "internal" );
+        request.addSource( "org.example", "parent", "1.0", parentPom );
+        request.put( "org.example", "parent", "1.0", "raw", data );
+
+        assertSame( data, cache.newRequest( "internal" ).get( "org.example", "parent", "1.0", "raw" ) );
+        assertNull( cache.newRequest( "other" ).get( "org.example", "parent", "1.0", "raw" ) );
+        assertNull( cache.newRequest( "internal" ).get( "org.example", "parent", "1.0", "import" ) );
+    }
+
+    @Test
+    public void testRawModelWithoutSourceNotCached( )
+    {
+        MavenModelCache.Request request = cache.newRequest( "internal" );
+        request.put( "org.example", "parent", "1.0", "raw", new Object( ) );
+
+        assertNull( cache.newRequest( "internal" ).get( "org.example", "parent", "1.0", "raw" ) );
+    }
+
+    @Test
+    public void testRawModelInvalidatedOnChange( )
+        throws Exception
+    {
+        MavenModelCache.Request request = cache.newRequest( "internal" );
+        request.addSource( "org.example", "parent", "1.0", parentPom );
+        request.put( "org.example", "parent", "1.0", "raw", new Object( ) );
+
+        Files.write( parentPom, "<project></project>".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertNull( cache.newRequest( "internal" ).get( "org.example", "parent", "1.0", "raw" ) );
+    }
+
+    @Test
+    public void testEffectiveModel( )
+        throws Exception
+    {
+        Model model = new Model( );
+        model.setGroupId( "org.example" );
+        model.setArtifactId( "child" );
+        model.setVersion( "1.0" );
+
+        MavenModelCache.Request request = cache.newRequest( "internal" );
+        request.addSource( "org.example", "child", "1.0", childPom );
+        request.addSource( "org.example", "parent", "1.0", parentPom );
+        cache.putEffectiveModel( "key", model, request );
+
+        Model cached = cache.getEffectiveModel( "key" );
+        assertNotNull( cached );
+        assertNotSame( model, cached );
+        assertEquals( "child", cached.getArtifactId( ) );
+
+        // a change of the parent invalidates the child
+        Files.delete( parentPom );
+        assertNull( cache.getEffectiveModel( "key" ) );
+    }
+
+    @Test
+    public void testEffectiveModelInvalidatedByEvent( )
+    {
+        MavenModelCache.Request request = cache.newRequest( "internal" );
+        request.addSource( "org.example", "child", "1.0", childPom );
+        request.addSource( "org.example", "parent", "1.0", parentPom );
+        request.put( "org.example", "parent", "1.0", "raw", new Object( ) );
+        cache.putEffectiveModel( "key", new Model( ), request );
+
+        cache.deleteArtifact( null, "internal", "org.example", "parent", "1.0", "parent-1.0.pom" );
+
+        assertNull( cache.getEffectiveModel( "key" ) );
+        assertNull( cache.newRequest( "internal" ).get( "org.example", "parent", "1.0", "raw" ) );
+    }
+}
@@ -0,0 +1,69 @@
+package org.apache.archiva.repository.maven.metadata.storage;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.repository.ManagedRepository;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ProxiedModelFetcherTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class ProxiedModelFetcherTest
+    extends TestCase
+{
+    @Test
+    public void testUnresolvableModels( )
+    {
+        ManagedRepository internal = mock( ManagedRepository.class );
+        when( internal.getId( ) ).thenReturn( "internal" );
+        ManagedRepository snapshots = mock( ManagedRepository.class );
+        when( snapshots.getId( ) ).thenReturn( "snapshots" );
+
+        ProxiedModelFetcher fetcher = new ProxiedModelFetcher( );
+        assertFalse( fetcher.isUnresolvable( internal, "org.example", "parent", "1.0" ) );
+
+        fetcher.markUnresolvable( internal, "org.example", "parent", "1.0" );
+        assertTrue( fetcher.isUnresolvable( internal, "org.example", "parent", "1.0" ) );
+        assertFalse( fetcher.isUnresolvable( internal, "org.example", "parent", "1.1" ) );
+        assertFalse( fetcher.isUnresolvable( snapshots, "org.example", "parent", "1.0" ) );
+
+        fetcher.clearUnresolvable( );
+        assertFalse( fetcher.isUnresolvable( internal, "org.example", "parent", "1.0" ) );
+    }
+
+    @Test
+    public void testUnresolvableModelsExpire( )
+    {
+        ManagedRepository internal = mock( ManagedRepository.class );
+        when( internal.getId( ) ).thenReturn( "internal" );
+
+        ProxiedModelFetcher fetcher = new ProxiedModelFetcher( );
+        fetcher.setUnresolvableTimeoutMillis( -1 );
+        fetcher.markUnresolvable( internal, "org.example", "parent", "1.0" );
+        assertFalse( fetcher.isUnresolvable( internal, "org.example", "parent", "1.0" ) );
+    }
+}
@@ -23,6 +23,7 @@
 import org.apache.archiva.scheduler.indexing.DownloadRemoteIndexException;
 import org.apache.archiva.scheduler.indexing.DownloadRemoteIndexScheduler;
 import org.apache.archiva.configuration.ArchivaConfiguration;
+import org.apache.archiva.configuration.ArchivaRuntimeConfiguration;
 import org.apache.archiva.configuration.ConfigurationEvent;
 import org.apache.archiva.configuration.ConfigurationListener;
 import org.apache.archiva.indexer.UnsupportedBaseContextException;
@@ -45,6 +46,7 @@
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
 
 /**
  * @author Olivier Lamy
@@ -82,11 +84,25 @@
     // store ids about currently running remote download : updated in DownloadRemoteIndexTask
     private List<String> runningRemoteDownloadIds = new CopyOnWriteArrayList<String>();
 
+    private int maxConcurrentDownloads = 2;
+
+    private long minFreeSpace = 1024L * 1024L * 1024L;
+
+    private Semaphore downloadPermits;
+
     @PostConstruct
     public void startup()
             throws
         DownloadRemoteIndexException, UnsupportedBaseContextException {
         archivaConfiguration.addListener( this );
+        ArchivaRuntimeConfiguration runtimeConfiguration =
+            archivaConfiguration.getConfiguration( ).getArchivaRuntimeConfiguration( );
+        if ( runtimeConfiguration != null )
+        {
+            maxConcurrentDownloads = Math.max( 1, runtimeConfiguration.getRemoteIndexMaxConcurrentDownloads( ) );
+            minFreeSpace = runtimeConfiguration.getRemoteIndexMinFreeSpace( ) * 1024L * 1024L;
+        }
+        downloadPermits = new Semaphore( maxConcurrentDownloads );
         // TODO add indexContexts even if null
 
         for ( org.apache.archiva.repository.RemoteRepository remoteRepository : repositoryRegistry.getRemoteRepositories() )
@@ -153,7 +169,9 @@ public void scheduleDownloadRemote( String repositoryId, boolean now, boolean fu
             .setFullDownload( fullDownload ) //
             .setWagonFactory( wagonFactory ) //
             .setIndexUpdater( indexUpdater ) //
-            .setIndexPacker( this.indexPacker );
+            .setIndexPacker( this.indexPacker ) //
+            .setDownloadPermits( downloadPermits ) //
+            .setMinFreeSpace( minFreeSpace );
 
         if ( now )
         {
@@ -202,6 +220,34 @@ public void setTaskScheduler( TaskScheduler taskScheduler )
         this.taskScheduler = taskScheduler;
     }
 
+    public int getMaxConcurrentDownloads()
+    {
+        return maxConcurrentDownloads;
+    }
+
+    /**
+     * Sets the number of remote indexes, that are downloaded at the same time. Takes effect on startup and is
+     * overridden by the archiva runtime configuration.
+     */
+    public void setMaxConcurrentDownloads( int maxConcurrentDownloads )
+    {
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    public long getMinFreeSpace()
+    {
+        return minFreeSpace;
+    }
+
+    /**
+     * Sets the number of bytes, that must be left free on the disk of the index directory, while a remote index is
+     * downloaded. Takes effect on startup and is overridden by the archiva runtime configuration.
+     */
+    public void setMinFreeSpace( long minFreeSpace )
+    {
+        this.minFreeSpace = minFreeSpace;
+    }
+
     @Override
     public List<String> getRunningRemoteDownloadIds()
     {
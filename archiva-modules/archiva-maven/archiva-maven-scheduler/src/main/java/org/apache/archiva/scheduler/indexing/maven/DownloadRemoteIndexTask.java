@@ -31,14 +31,9 @@
 import org.apache.maven.index.updater.IndexUpdateRequest;
 import org.apache.maven.index.updater.IndexUpdateResult;
 import org.apache.maven.index.updater.IndexUpdater;
-import org.apache.maven.index.updater.ResourceFetcher;
 import org.apache.maven.index_shaded.lucene.index.IndexNotFoundException;
-import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.StreamWagon;
-import org.apache.maven.wagon.TransferFailedException;
-import org.apache.maven.wagon.Wagon;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
-import org.apache.maven.wagon.authorization.AuthorizationException;
 import org.apache.maven.wagon.events.TransferEvent;
 import org.apache.maven.wagon.events.TransferListener;
 import org.apache.maven.wagon.proxy.ProxyInfo;
@@ -49,14 +44,12 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Semaphore;
 
 /**
  * @author Olivier Lamy
@@ -79,6 +72,10 @@
 
     private IndexUpdater indexUpdater;
 
+    private Semaphore downloadPermits;
+
+    private long minFreeSpace;
+
 
     public DownloadRemoteIndexTask( DownloadRemoteIndexTaskRequest downloadRemoteIndexTaskRequest,
                                     List<String> runningRemoteDownloadIds )
@@ -89,6 +86,8 @@ public DownloadRemoteIndexTask( DownloadRemoteIndexTaskRequest downloadRemoteInd
         this.fullDownload = downloadRemoteIndexTaskRequest.isFullDownload();
         this.runningRemoteDownloadIds = runningRemoteDownloadIds;
         this.indexUpdater = downloadRemoteIndexTaskRequest.getIndexUpdater();
+        this.downloadPermits = downloadRemoteIndexTaskRequest.getDownloadPermits();
+        this.minFreeSpace = downloadRemoteIndexTaskRequest.getMinFreeSpace();
     }
 
     @Override
@@ -107,11 +106,19 @@ public void run()
             }
             this.runningRemoteDownloadIds.add( this.remoteRepository.getId() );
         }
-        Path tempIndexDirectory = null;
+        Path downloadDirectory = null;
+        boolean updated = false;
+        boolean permitAcquired = false;
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
         try
         {
+            if ( downloadPermits != null )
+            {
+                // bounds the number of remote index downloads running in parallel
+                downloadPermits.acquire();
+                permitAcquired = true;
+            }
             log.info( "start download remote index for remote repository {}", this.remoteRepository.getId() );
             if (this.remoteRepository.getIndexingContext()==null) {
                 throw new IndexNotFoundException("No index context set for repository "+remoteRepository.getId());
@@ -124,16 +131,13 @@ public void run()
             }
             RemoteIndexFeature rif = this.remoteRepository.getFeature(RemoteIndexFeature.class).get();
             IndexingContext indexingContext = this.remoteRepository.getIndexingContext().getBaseContext(IndexingContext.class);
-            // create a temp directory to download files
-            tempIndexDirectory = Paths.get(indexingContext.getIndexDirectoryFile().getParent(), ".tmpIndex" );
+            // the downloaded files are kept until the update succeeded, so a failed download can be continued
+            downloadDirectory = Paths.get( indexingContext.getIndexDirectoryFile().getParent(), ".indexDownload" );
             Path indexCacheDirectory = Paths.get( indexingContext.getIndexDirectoryFile().getParent(), ".indexCache" );
             Files.createDirectories( indexCacheDirectory );
-            if ( Files.exists(tempIndexDirectory) )
-            {
-                org.apache.archiva.common.utils.FileUtils.deleteDirectory( tempIndexDirectory );
-            }
-            Files.createDirectories( tempIndexDirectory );
-            tempIndexDirectory.toFile().deleteOnExit();
+            Files.createDirectories( downloadDirectory );
+            // temp directory of former versions
+            deleteDirectoryQuiet( Paths.get( indexingContext.getIndexDirectoryFile().getParent(), ".tmpIndex" ) );
             String baseIndexUrl = indexingContext.getIndexUpdateUrl();
 
             String wagonProtocol = this.remoteRepository.getLocation().getScheme();
@@ -146,10 +150,11 @@ public void run()
             wagon.setReadTimeout( (int)rif.getDownloadTimeout().toMillis());
             wagon.setTimeout( (int)remoteRepository.getTimeout().toMillis());
 
+            HttpMethodConfiguration httpMethodConfiguration = null;
             if ( wagon instanceof AbstractHttpClientWagon )
             {
                 HttpConfiguration httpConfiguration = new HttpConfiguration();
-                HttpMethodConfiguration httpMethodConfiguration = new HttpMethodConfiguration();
+                httpMethodConfiguration = new HttpMethodConfiguration();
                 httpMethodConfiguration.setUsePreemptive( true );
                 httpMethodConfiguration.setReadTimeout( (int)rif.getDownloadTimeout().toMillis() );
                 httpConfiguration.setGet( httpMethodConfiguration );
@@ -187,14 +192,25 @@ public void run()
             log.debug("Downloading index file to {}", indexDirectory);
             log.debug("Index cache dir {}", indexCacheDirectory);
 
-            ResourceFetcher resourceFetcher =
-                new WagonResourceFetcher( log, tempIndexDirectory, wagon, remoteRepository );
+            ResumableResourceFetcher resourceFetcher =
+                new ResumableResourceFetcher( downloadDirectory, wagon, remoteRepository.getExtraParameters(),
+                                              httpMethodConfiguration, authenticationInfo, proxyInfo,
+                                              minFreeSpace );
+            boolean forceFullUpdate = this.fullDownload;
+            if ( !forceFullUpdate && !ResumableResourceFetcher.isIncrementalChainValid(
+                resourceFetcher.getProperties() ) )
+            {
+                log.warn( "The incremental chain of the remote index of {} is incomplete, doing a full download",
+                          this.remoteRepository.getId() );
+                forceFullUpdate = true;
+            }
             IndexUpdateRequest request = new IndexUpdateRequest( indexingContext, resourceFetcher );
-            request.setForceFullUpdate( this.fullDownload );
+            request.setForceFullUpdate( forceFullUpdate );
             request.setLocalIndexCacheDir( indexCacheDirectory.toFile() );
 
             IndexUpdateResult result = this.indexUpdater.fetchAndUpdateIndex(request);
             log.debug("Update result success: {}", result.isSuccessful());
+            updated = result.isSuccessful();
             stopWatch.stop();
             log.info( "time update index from remote for repository {}: {}ms", this.remoteRepository.getId(),
                       ( stopWatch.getTime() ) );
@@ -213,7 +229,14 @@ public void run()
         }
         finally
         {
-            deleteDirectoryQuiet( tempIndexDirectory );
+            if ( updated )
+            {
+                deleteDirectoryQuiet( downloadDirectory );
+            }
+            if ( permitAcquired )
+            {
+                downloadPermits.release();
+            }
             this.runningRemoteDownloadIds.remove( this.remoteRepository.getId() );
         }
         log.info( "end download remote index for remote repository {}", this.remoteRepository.getId() );
@@ -256,7 +279,8 @@ public void transferStarted( TransferEvent transferEvent )
         {
             this.totalLength = 0;
             resourceName = transferEvent.getResource().getName();
-            log.info("Transferring: {}, {}",  transferEvent.getResource().getContentLength(), transferEvent.getLocalFile().toString());
+            // the files are streamed, so there is no local file
+            log.info( "Transferring: {}", transferEvent.getResource().getContentLength() );
             log.info( "start transfer of {}", transferEvent.getResource().getName() );
         }
 
@@ -289,92 +313,4 @@ public void debug( String message )
             log.debug( "transfer debug {}", message );
         }
     }
-
-    private static class WagonResourceFetcher
-        implements ResourceFetcher
-    {
-
-        Logger log;
-
-        Path tempIndexDirectory;
-
-        Wagon wagon;
-
-        RemoteRepository remoteRepository;
-
-        private WagonResourceFetcher( Logger log, Path tempIndexDirectory, Wagon wagon,
-                                      RemoteRepository remoteRepository )
-        {
-            this.log = log;
-            this.tempIndexDirectory = tempIndexDirectory;
-            this.wagon = wagon;
-            this.remoteRepository = remoteRepository;
-        }
-
-        @Override
-        public void connect( String id, String url )
-            throws IOException
-        {
-            //no op  
-        }
-
-        @Override
-        public void disconnect()
-            throws IOException
-        {
-            // no op
-        }
-
-        @Override
-        public InputStream retrieve( String name )
-            throws IOException, FileNotFoundException
-        {
-            try
-            {
-                log.info( "index update retrieve file, name:{}", name );
-                Path file = tempIndexDirectory.resolve( name );
-                Files.deleteIfExists( file );
-                file.toFile().deleteOnExit();
-                wagon.get( addParameters( name, this.remoteRepository ), file.toFile() );
-                return Files.newInputStream( file );
-            }
-            catch ( AuthorizationException | TransferFailedException e )
-            {
-                throw new IOException( e.getMessage(), e );
-            }
-            catch ( ResourceDoesNotExistException e )
-            {
-                FileNotFoundException fnfe = new FileNotFoundException( e.getMessage() );
-                fnfe.initCause( e );
-                throw fnfe;
-            }
-        }
-
-        // FIXME remove crappy copy/paste
-        protected String addParameters( String path, RemoteRepository remoteRepository )
-        {
-            if ( remoteRepository.getExtraParameters().isEmpty() )
-            {
-                return path;
-            }
-
-            boolean question = false;
-
-            StringBuilder res = new StringBuilder( path == null ? "" : path );
-
-            for ( Map.Entry<String, String> entry : remoteRepository.getExtraParameters().entrySet() )
-            {
-                if ( !question )
-                {
-                    res.append( '?' ).append( entry.getKey() ).append( '=' ).append( entry.getValue() );
-                }
-            }
-
-            return res.toString();
-        }
-
-    }
-
-
 }
-
@@ -24,6 +24,8 @@
 import org.apache.maven.index.packer.IndexPacker;
 import org.apache.maven.index.updater.IndexUpdater;
 
+import java.util.concurrent.Semaphore;
+
 /**
  * @author Olivier Lamy
  * @since 1.4-M1
@@ -42,6 +44,10 @@
 
     private IndexPacker indexPacker;
 
+    private Semaphore downloadPermits;
+
+    private long minFreeSpace;
+
     public DownloadRemoteIndexTaskRequest()
     {
         // no op
@@ -113,4 +119,32 @@ public DownloadRemoteIndexTaskRequest setIndexPacker( IndexPacker indexPacker )
         this.indexPacker = indexPacker;
         return this;
     }
+
+    public Semaphore getDownloadPermits()
+    {
+        return downloadPermits;
+    }
+
+    /**
+     * @param downloadPermits the permits shared by all remote index downloads, to bound their parallelism
+     */
+    public DownloadRemoteIndexTaskRequest setDownloadPermits( Semaphore downloadPermits )
+    {
+        this.downloadPermits = downloadPermits;
+        return this;
+    }
+
+    public long getMinFreeSpace()
+    {
+        return minFreeSpace;
+    }
+
+    /**
+     * @param minFreeSpace the number of bytes, that must be left free on the disk while downloading
+     */
+    public DownloadRemoteIndexTaskRequest setMinFreeSpace( long minFreeSpace )
+    {
+        this.minFreeSpace = minFreeSpace;
+        return this;
+    }
 }
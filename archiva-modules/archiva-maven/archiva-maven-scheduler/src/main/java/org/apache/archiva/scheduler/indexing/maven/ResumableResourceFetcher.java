@@ -0,0 +1,463 @@
+package org.apache.archiva.scheduler.indexing.maven;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.maven.index.context.IndexingContext;
+import org.apache.maven.index.updater.ResourceFetcher;
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.StreamWagon;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.authorization.AuthorizationException;
+import org.apache.maven.wagon.proxy.ProxyInfo;
+import org.apache.maven.wagon.shared.http.HttpMethodConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Resource fetcher for the remote index update, that keeps the downloaded files in a download directory until
+ * the update was successful. If an update fails, the next run reuses the files, that were downloaded completely,
+ * and continues a partial download with a HTTP range request, if the wagon is a HTTP wagon.
+ * <p>
+ * The range request is sent directly, because the wagon does not accept a <code>206 Partial Content</code>
+ * response. It uses the headers of the GET configuration of the wagon, the credentials and the proxy.
+ * <p>
+ * Files are first written to <code>&lt;name&gt;.part</code> and renamed, when they are complete. The cached files
+ * are only valid for the chain id of the remote index properties, they are dropped if the chain id changes. The
+ * full index file is also dropped, if the timestamp of the remote index changes.
+ *
+ * @since 3.0
+ */
+class ResumableResourceFetcher
+    implements ResourceFetcher
+{
+    private static final Logger log = LoggerFactory.getLogger( ResumableResourceFetcher.class );
+
+    static final String PROPERTIES_FILE = IndexingContext.INDEX_REMOTE_PROPERTIES_FILE;
+
+    static final String CHAIN_ID = "nexus.index.chain-id";
+
+    static final String INCREMENTAL_PREFIX = "nexus.index.incremental-";
+
+    static final String LAST_INCREMENTAL = "nexus.index.last-incremental";
+
+    static final String TIMESTAMP = "nexus.index.timestamp";
+
+    private static final String FULL_INDEX_FILE = IndexingContext.INDEX_FILE_PREFIX + ".gz";
+
+    private static final String CACHE_PROPERTIES_FILE = ".download.properties";
+
+    private static final String PART_SUFFIX = ".part";
+
+    private final Path downloadDirectory;
+
+    private final StreamWagon wagon;
+
+    private final Map<String, String> extraParameters;
+
+    private final HttpMethodConfiguration getConfiguration;
+
+    private final AuthenticationInfo authenticationInfo;
+
+    private final ProxyInfo proxyInfo;
+
+    private final long minFreeSpace;
+
+    private Properties properties;
+
+    /**
+     * @param downloadDirectory the directory, that keeps the downloaded files between the runs
+     * @param wagon             the connected wagon
+     * @param extraParameters   the parameters added to each request
+     * @param getConfiguration   the configuration of the GET requests of a HTTP wagon, that is copied for the range
+     *                           requests, or <code>null</code>, if downloads cannot be resumed
+     * @param authenticationInfo the credentials of the remote repository or <code>null</code>
+     * @param proxyInfo          the proxy of the remote repository or <code>null</code>
+     * @param minFreeSpace       the number of bytes, that must be left free in the download directory
+     */
+    ResumableResourceFetcher( Path downloadDirectory, StreamWagon wagon, Map<String, String> extraParameters,
+                              HttpMethodConfiguration getConfiguration, AuthenticationInfo authenticationInfo,
+                              ProxyInfo proxyInfo, long minFreeSpace )
+    {
+        this.downloadDirectory = downloadDirectory;
+        this.wagon = wagon;
+        this.extraParameters = extraParameters;
+        this.getConfiguration = getConfiguration;
+        this.authenticationInfo = authenticationInfo;
+        this.proxyInfo = proxyInfo;
+        this.minFreeSpace = minFreeSpace;
+    }
+
+    @Override
+    public void connect( String id, String url )
+        throws IOException
+    {
+        // no op
+    }
+
+    @Override
+    public void disconnect( )
+        throws IOException
+    {
+        // no op
+    }
+
+    @Override
+    public InputStream retrieve( String name )
+        throws IOException
+    {
+        log.info( "index update retrieve file, name:{}", name );
+        Path file = downloadDirectory.resolve( name );
+        if ( PROPERTIES_FILE.equals( name ) )
+        {
+            // the properties are downloaded once per run, they decide about the validity of the cached files
+            if ( properties == null )
+            {
+                Files.deleteIfExists( file );
+                Files.deleteIfExists( partOf( file ) );
+                download( name, file );
+                properties = readProperties( file );
+                checkCachedFiles( properties );
+            }
+        }
+        else if ( Files.exists( file ) )
+        {
+            log.info( "Reusing {} from a previous download", file );
+        }
+        else
+        {
+            download( name, file );
+        }
+        return Files.newInputStream( file );
+    }
+
+    /**
+     * Returns the remote index properties. They are downloaded, if this was not done before.
+     */
+    Properties getProperties( )
+        throws IOException
+    {
+        if ( properties == null )
+        {
+            retrieve( PROPERTIES_FILE ).close( );
+        }
+        return properties;
+    }
+
+    /**
+     * Checks, that the incremental chunks listed in the given properties form a gapless chain, that ends with the
+     * last incremental chunk. An index without incremental chunks is valid.
+     *
+     * @param properties the remote index properties
+     * @return <code>true</code>, if the chain is complete
+     */
+    static boolean isIncrementalChainValid( Properties properties )
+    {
+        if ( properties.getProperty( CHAIN_ID ) == null )
+        {
+            return false;
+        }
+        String last = properties.getProperty( LAST_INCREMENTAL );
+        if ( last == null )
+        {
+            return properties.stringPropertyNames( ).stream( ).noneMatch( key -> key.startsWith( INCREMENTAL_PREFIX ) );
+        }
+        try
+        {
+            int[] chunks = properties.stringPropertyNames( ).stream( ) //
+                .filter( key -> key.startsWith( INCREMENTAL_PREFIX ) ) //
+                .mapToInt( key -> Integer.parseInt( properties.getProperty( key ).trim( ) ) ) //
+                .sorted( ).toArray( );
+            if ( chunks.length == 0 || chunks[chunks.length - 1] != Integer.parseInt( last.trim( ) ) )
+            {
+                return false;
+            }
+            for ( int i = 1; i < chunks.length; i++ )
+            {
+                if ( chunks[i] != chunks[i - 1] + 1 )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch ( NumberFormatException e )
+        {
+            return false;
+        }
+    }
+
+    private void checkCachedFiles( Properties remote )
+        throws IOException
+    {
+        Path cacheFile = downloadDirectory.resolve( CACHE_PROPERTIES_FILE );
+        Properties cached = Files.exists( cacheFile ) ? readProperties( cacheFile ) : new Properties( );
+        String chainId = remote.getProperty( CHAIN_ID );
+        String timestamp = remote.getProperty( TIMESTAMP );
+        if ( chainId == null || !chainId.equals( cached.getProperty( CHAIN_ID ) ) )
+        {
+            if ( cached.getProperty( CHAIN_ID ) != null )
+            {
+                log.info( "Remote index chain changed from {} to {}, dropping the downloaded files",
+                          cached.getProperty( CHAIN_ID ), chainId );
+            }
+            deleteCachedFiles( name -> !name.equals( PROPERTIES_FILE ) );
+        }
+        else if ( timestamp == null || !timestamp.equals( cached.getProperty( TIMESTAMP ) ) )
+        {
+            // the incremental chunks are still valid, but the full index was published again
+            deleteCachedFiles( name -> name.startsWith( FULL_INDEX_FILE ) );
+        }
+        Properties current = new Properties( );
+        if ( chainId != null )
+        {
+            current.setProperty( CHAIN_ID, chainId );
+        }
+        if ( timestamp != null )
+        {
+            current.setProperty( TIMESTAMP, timestamp );
+        }
+        try (OutputStream out = Files.newOutputStream( cacheFile ))
+        {
+            current.store( out, null );
+        }
+    }
+
+    private void deleteCachedFiles( Predicate<String> filter )
+        throws IOException
+    {
+        try (Stream<Path> files = Files.list( downloadDirectory ))
+        {
+            files.filter( path -> filter.test( path.getFileName( ).toString( ) ) ).forEach( FileUtils::deleteQuietly );
+        }
+    }
+
+    private void download( String name, Path file )
+        throws IOException
+    {
+        checkFreeSpace( );
+        Path part = partOf( file );
+        long offset = Files.exists( part ) ? Files.size( part ) : 0;
+        if ( offset > 0 && getConfiguration != null )
+        {
+            try
+            {
+                resume( name, part, offset );
+                Files.move( part, file, StandardCopyOption.REPLACE_EXISTING );
+                return;
+            }
+            catch ( IOException e )
+            {
+                log.info( "Could not resume download of {} at {} bytes, downloading it again: {}", name, offset,
+                          e.getMessage( ) );
+            }
+        }
+        try (OutputStream out = Files.newOutputStream( part ))
+        {
+            get( name, out );
+        }
+        Files.move( part, file, StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    private void resume( String name, Path part, long offset )
+        throws IOException
+    {
+        log.info( "Resuming download of {} at {} bytes", name, offset );
+        // the range header is only added to the configuration of this request, the wagon is not changed
+        HttpMethodConfiguration rangeConfiguration = getConfiguration.copy( );
+        rangeConfiguration.addHeader( HttpHeaders.RANGE, "bytes=" + offset + "-" );
+        HttpGet request = new HttpGet( toUrl( name ) );
+        for ( Header header : rangeConfiguration.asRequestHeaders( ) )
+        {
+            request.addHeader( header );
+        }
+        int readTimeout =
+            rangeConfiguration.getReadTimeout( ) > 0 ? rangeConfiguration.getReadTimeout( ) : wagon.getReadTimeout( );
+        request.setConfig( RequestConfig.custom( ) //
+                               .setConnectTimeout( wagon.getTimeout( ) ) //
+                               .setSocketTimeout( readTimeout ) //
+                               .build( ) );
+
+        try (CloseableHttpClient client = createClient( ); CloseableHttpResponse response = client.execute( request ))
+        {
+            int status = response.getStatusLine( ).getStatusCode( );
+            HttpEntity entity = response.getEntity( );
+            if ( status == HttpStatus.SC_PARTIAL_CONTENT )
+            {
+                Header contentRange = response.getFirstHeader( HttpHeaders.CONTENT_RANGE );
+                if ( contentRange == null || !contentRange.getValue( ).startsWith( "bytes " + offset + "-" ) )
+                {
+                    throw new IOException( "Unexpected content range " + ( contentRange == null
+                        ? null
+                        : contentRange.getValue( ) ) + " for " + name + " at " + offset + " bytes" );
+                }
+                try (OutputStream out = Files.newOutputStream( part, StandardOpenOption.APPEND ))
+                {
+                    entity.writeTo( out );
+                }
+            }
+            else if ( status == HttpStatus.SC_OK )
+            {
+                // the server ignored the range and sent the complete file
+                try (OutputStream out = Files.newOutputStream( part ))
+                {
+                    entity.writeTo( out );
+                }
+            }
+            else if ( status == HttpStatus.SC_NOT_FOUND || status == HttpStatus.SC_GONE )
+            {
+                throw new FileNotFoundException( request.getURI( ) + " does not exist" );
+            }
+            else
+            {
+                throw new IOException(
+                    "Range request for " + request.getURI( ) + " failed: " + response.getStatusLine( ) );
+            }
+        }
+    }
+
+    private String toUrl( String name )
+    {
+        String url = wagon.getRepository( ).getUrl( );
+        return ( url.endsWith( "/" ) ? url : url + "/" ) + addParameters( name );
+    }
+
+    private CloseableHttpClient createClient( )
+    {
+        HttpClientBuilder builder = HttpClients.custom( );
+        CredentialsProvider credentials = new BasicCredentialsProvider( );
+        if ( authenticationInfo != null && StringUtils.isNotEmpty( authenticationInfo.getUserName( ) ) )
+        {
+            URI uri = URI.create( wagon.getRepository( ).getUrl( ) );
+            credentials.setCredentials( new AuthScope( uri.getHost( ), uri.getPort( ) ),
+                                        new UsernamePasswordCredentials( authenticationInfo.getUserName( ),
+                                                                         authenticationInfo.getPassword( ) ) );
+        }
+        if ( proxyInfo != null && StringUtils.isNotEmpty( proxyInfo.getHost( ) ) )
+        {
+            builder.setProxy( new HttpHost( proxyInfo.getHost( ), proxyInfo.getPort( ) ) );
+            if ( StringUtils.isNotEmpty( proxyInfo.getUserName( ) ) )
+            {
+                credentials.setCredentials( new AuthScope( proxyInfo.getHost( ), proxyInfo.getPort( ) ),
+                                            new UsernamePasswordCredentials( proxyInfo.getUserName( ),
+                                                                             proxyInfo.getPassword( ) ) );
+            }
+        }
+        return builder.setDefaultCredentialsProvider( credentials ).build( );
+    }
+
+    private void get( String name, OutputStream out )
+        throws IOException
+    {
+        try
+        {
+            wagon.getToStream( addParameters( name ), out );
+        }
+        catch ( AuthorizationException | TransferFailedException e )
+        {
+            throw new IOException( e.getMessage( ), e );
+        }
+        catch ( ResourceDoesNotExistException e )
+        {
+            FileNotFoundException fnfe = new FileNotFoundException( e.getMessage( ) );
+            fnfe.initCause( e );
+            throw fnfe;
+        }
+    }
+
+    private void checkFreeSpace( )
+        throws IOException
+    {
+        long usable = Files.getFileStore( downloadDirectory ).getUsableSpace( );
+        if ( usable < minFreeSpace )
+        {
+            throw new IOException(
+                "Not enough free space in " + downloadDirectory + " to download the remote index: " + usable
+                    + " bytes free, " + minFreeSpace + " bytes required" );
+        }
+    }
+
+    private static Path partOf( Path file )
+    {
+        return file.resolveSibling( file.getFileName( ) + PART_SUFFIX );
+    }
+
+    private static Properties readProperties( Path file )
+        throws IOException
+    {
+        Properties properties = new Properties( );
+        try (InputStream in = Files.newInputStream( file ))
+        {
+            properties.load( in );
+        }
+        return properties;
+    }
+
+    // FIXME remove crappy copy/paste
+    protected String addParameters( String path )
+    {
+        if ( extraParameters.isEmpty( ) )
+        {
+            return path;
+        }
+
+        StringBuilder res = new StringBuilder( path == null ? "" : path );
+
+        char separator = res.indexOf( "?" ) < 0 ? '?' : '&';
+        for ( Map.Entry<String, String> entry : extraParameters.entrySet( ) )
+        {
+            res.append( separator ).append( entry.getKey( ) ).append( '=' ).append( entry.getValue( ) );
+            separator = '&';
+        }
+
+        return res.toString( );
+    }
+}
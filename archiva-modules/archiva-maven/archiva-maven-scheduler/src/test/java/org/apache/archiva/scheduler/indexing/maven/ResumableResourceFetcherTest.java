@@ -0,0 +1,314 @@
+package org.apache.archiva.scheduler.indexing.maven;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.common.utils.FileUtils;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.StreamWagon;
+import org.apache.maven.wagon.InputData;
+import org.apache.maven.wagon.OutputData;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.repository.Repository;
+import org.apache.maven.wagon.resource.Resource;
+import org.apache.maven.wagon.shared.http.HttpMethodConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * ResumableResourceFetcherTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class ResumableResourceFetcherTest
+    extends TestCase
+{
+    private static final String INDEX_FILE = "nexus-maven-repository-index.gz";
+
+    private Path downloadDirectory;
+
+    private Path remoteDirectory;
+
+    private Server server;
+
+    private TestWagon wagon;
+
+    private HttpMethodConfiguration getConfiguration;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        downloadDirectory = Files.createTempDirectory( "index-download" );
+        remoteDirectory = Files.createTempDirectory( "index-remote" );
+        wagon = new TestWagon( );
+        wagon.connect( new Repository( "test", "http://localhost/.index" ) );
+        getConfiguration = new HttpMethodConfiguration( );
+    }
+
+    /**
+     * Starts a server for the range requests, that serves the remote directory.
+     */
+    private void startServer( boolean acceptRanges )
+        throws Exception
+    {
+        server = new Server( );
+        ServerConnector serverConnector = new ServerConnector( server, new HttpConnectionFactory( ) );
+        server.addConnector( serverConnector );
+        ServletContextHandler context = new ServletContextHandler( );
+        context.setResourceBase( remoteDirectory.toAbsolutePath( ).toString( ) );
+        context.setContextPath( "/" );
+        ServletHolder sh = new ServletHolder( DefaultServlet.class );
+        sh.setInitParameter( "acceptRanges", Boolean.toString( acceptRanges ) );
+        context.addServlet( sh, "/" );
+        server.setHandler( context );
+        server.start( );
+        wagon.connect( new Repository( "test", "http://localhost:" + serverConnector.getLocalPort( ) + "/" ) );
+    }
+
+    @After
+    @Override
+    public void tearDown( )
+        throws Exception
+    {
+        if ( server != null )
+        {
+            server.stop( );
+        }
+        FileUtils.deleteQuietly( downloadDirectory );
+        FileUtils.deleteQuietly( remoteDirectory );
+        super.tearDown( );
+    }
+
+    private ResumableResourceFetcher newFetcher( )
+    {
+        return newFetcher( Collections.emptyMap( ) );
+    }
+
+    private ResumableResourceFetcher newFetcher( Map<String, String> extraParameters )
+    {
+        return new ResumableResourceFetcher( downloadDirectory, wagon, extraParameters, getConfiguration, null,
+                                             null, 0 );
+    }
+
+    private static byte[] content( int length )
+    {
+        byte[] data = new byte[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            data[i] = (byte) ( i % 251 );
+        }
+        return data;
+    }
+
+    private static byte[] read( InputStream in )
+        throws Exception
+    {
+        try (InputStream is = in)
+        {
+            return IOUtils.toByteArray( is );
+        }
+    }
+
+    @Test
+    public void testResumePartialDownload( )
+        throws Exception
+    {
+        byte[] data = content( 20000 );
+        Files.write( remoteDirectory.resolve( INDEX_FILE ), data );
+        startServer( true );
+        Files.write( downloadDirectory.resolve( INDEX_FILE + ".part" ), Arrays.copyOf( data, 12000 ) );
+
+        assertTrue( Arrays.equals( data, read( newFetcher( ).retrieve( INDEX_FILE ) ) ) );
+        assertFalse( Files.exists( downloadDirectory.resolve( INDEX_FILE + ".part" ) ) );
+        // the remainder was fetched by the range request, not by a full download of the wagon
+        assertEquals( 0, wagon.requests );
+        // the range header is only added to the configuration of the resumed request
+        assertTrue( getConfiguration.getHeaders( ) == null || getConfiguration.getHeaders( ).getProperty( "Range" ) == null );
+    }
+
+    @Test
+    public void testServerIgnoresRange( )
+        throws Exception
+    {
+        byte[] data = content( 20000 );
+        Files.write( remoteDirectory.resolve( INDEX_FILE ), data );
+        startServer( false );
+        Files.write( downloadDirectory.resolve( INDEX_FILE + ".part" ), Arrays.copyOf( data, 12000 ) );
+
+        assertTrue( Arrays.equals( data, read( newFetcher( ).retrieve( INDEX_FILE ) ) ) );
+        assertEquals( 0, wagon.requests );
+    }
+
+    @Test
+    public void testFailedResumeDownloadsAgain( )
+        throws Exception
+    {
+        // the range request fails with 404, the wagon downloads the complete file
+        byte[] data = content( 20000 );
+        wagon.resources.put( INDEX_FILE, data );
+        startServer( true );
+        Files.write( downloadDirectory.resolve( INDEX_FILE + ".part" ), Arrays.copyOf( data, 12000 ) );
+
+        assertTrue( Arrays.equals( data, read( newFetcher( ).retrieve( INDEX_FILE ) ) ) );
+        assertEquals( 1, wagon.requests );
+    }
+
+    @Test
+    public void testAddParameters( )
+    {
+        Map<String, String> parameters = new LinkedHashMap<>( );
+        parameters.put( "a", "1" );
+        parameters.put( "b", "2" );
+
+        assertEquals( INDEX_FILE + "?a=1&b=2", newFetcher( parameters ).addParameters( INDEX_FILE ) );
+        assertEquals( INDEX_FILE, newFetcher( ).addParameters( INDEX_FILE ) );
+    }
+
+    @Test
+    public void testCompleteFileReused( )
+        throws Exception
+    {
+        byte[] data = content( 100 );
+        Files.write( downloadDirectory.resolve( INDEX_FILE ), data );
+
+        assertTrue( Arrays.equals( data, read( newFetcher( ).retrieve( INDEX_FILE ) ) ) );
+        assertEquals( 0, wagon.requests );
+    }
+
+    @Test
+    public void testChainChangeDropsDownloadedFiles( )
+        throws Exception
+    {
+        wagon.resources.put( ResumableResourceFetcher.PROPERTIES_FILE,
+                             Files.readAllBytes( Paths.get( "src/test/index-updates/nexus-maven-repository-index.properties" ) ) );
+        Path chunk = downloadDirectory.resolve( "nexus-maven-repository-index.57.gz" );
+        Files.write( chunk, content( 100 ) );
+        Properties cached = new Properties( );
+        cached.setProperty( ResumableResourceFetcher.CHAIN_ID, "1" );
+        try (OutputStream out = Files.newOutputStream( downloadDirectory.resolve( ".download.properties" ) ))
+        {
+            cached.store( out, null );
+        }
+
+        ResumableResourceFetcher fetcher = newFetcher( );
+        assertEquals( "1316094851802", fetcher.getProperties( ).getProperty( ResumableResourceFetcher.CHAIN_ID ) );
+        assertFalse( Files.exists( chunk ) );
+
+        // same chain in the next run, the chunk is kept
+        Files.write( chunk, content( 100 ) );
+        newFetcher( ).getProperties( );
+        assertTrue( Files.exists( chunk ) );
+    }
+
+    @Test
+    public void testIncrementalChainValidation( )
+        throws Exception
+    {
+        Properties properties = new Properties( );
+        try (InputStream in = Files.newInputStream(
+            Paths.get( "src/test/index-updates/nexus-maven-repository-index.properties" ) ))
+        {
+            properties.load( in );
+        }
+        assertTrue( ResumableResourceFetcher.isIncrementalChainValid( properties ) );
+
+        properties.remove( "nexus.index.incremental-10" );
+        assertFalse( ResumableResourceFetcher.isIncrementalChainValid( properties ) );
+
+        Properties fullOnly = new Properties( );
+        fullOnly.setProperty( ResumableResourceFetcher.CHAIN_ID, "1" );
+        assertTrue( ResumableResourceFetcher.isIncrementalChainValid( fullOnly ) );
+
+        fullOnly.setProperty( ResumableResourceFetcher.LAST_INCREMENTAL, "3" );
+        assertFalse( ResumableResourceFetcher.isIncrementalChainValid( fullOnly ) );
+
+        assertFalse( ResumableResourceFetcher.isIncrementalChainValid( new Properties( ) ) );
+    }
+
+    /**
+     * Serves the resources from memory.
+     */
+    private static class TestWagon
+        extends StreamWagon
+    {
+        private final Map<String, byte[]> resources = new HashMap<>( );
+
+        private int requests;
+
+        @Override
+        public void fillInputData( InputData inputData )
+            throws TransferFailedException, ResourceDoesNotExistException
+        {
+            requests++;
+            Resource resource = inputData.getResource( );
+            byte[] data = resources.get( resource.getName( ) );
+            if ( data == null )
+            {
+                throw new ResourceDoesNotExistException( resource.getName( ) );
+            }
+            resource.setContentLength( data.length );
+            inputData.setInputStream( new ByteArrayInputStream( data ) );
+        }
+
+        @Override
+        public void fillOutputData( OutputData outputData )
+            throws TransferFailedException
+        {
+            throw new TransferFailedException( "read only" );
+        }
+
+        @Override
+        public void closeConnection( )
+        {
+            // no op
+        }
+
+        @Override
+        protected void openConnectionInternal( )
+        {
+            // no op
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.apache.archiva.scheduler.repository.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+
+/**
+ * Metrics of the queue, that holds the repository tasks until they are executed.
+ *
+ * @since 3.0
+ */
+public interface RepositoryTaskQueueMetrics
+{
+    /**
+     * Returns the number of waiting tasks for single files.
+     */
+    int getQueuedFileTasks( );
+
+    /**
+     * Returns the number of waiting full repository scans.
+     */
+    int getQueuedScans( );
+
+    /**
+     * Returns the number of waiting tasks of each repository, that has waiting tasks.
+     */
+    Map<String, Integer> getQueueDepths( );
+
+    int getRunningTasks( );
+}
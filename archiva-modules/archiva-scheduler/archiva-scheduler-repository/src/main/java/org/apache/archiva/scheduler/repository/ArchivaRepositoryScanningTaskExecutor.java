@@ -42,7 +42,16 @@
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ArchivaRepositoryScanningTaskExecutor
@@ -51,7 +60,7 @@
  */
 @Service( "taskExecutor#repository-scanning" )
 public class ArchivaRepositoryScanningTaskExecutor
-    implements TaskExecutor<RepositoryTask>
+    implements TaskExecutor<RepositoryTask>, RepositoryTaskBatchExecutor
 {
     private Logger log = LoggerFactory.getLogger( ArchivaRepositoryScanningTaskExecutor.class );
 
@@ -64,11 +73,17 @@
     @Inject
     private RepositoryContentConsumers consumers;
 
-    private Task task;
+    /**
+     * The tasks, that are executed right now. The executor runs the tasks of different repositories in parallel.
+     */
+    private final Set<RepositoryTask> tasksInExecution = ConcurrentHashMap.newKeySet( );
 
     @Inject
     private RepositoryStatisticsManager repositoryStatisticsManager;
 
+    @Inject
+    private RepositoryTaskIndex taskIndex;
+
     /**
      * FIXME: this could be multiple implementations and needs to be configured.
      */
@@ -96,7 +111,10 @@ public void executeTask( RepositoryTask task )
             // - store information so that it can restart upon failure (publish event on the server recovery
             // queue, remove it on successful completion)
 
-            this.task = task;
+            tasksInExecution.add( task );
+
+            // from now on an equal task must be queued again
+            taskIndex.remove( task );
 
             String repoId = task.getRepositoryId();
             if ( StringUtils.isBlank( repoId ) )
@@ -186,8 +204,6 @@ public void executeTask( RepositoryTask task )
                 // FIXME: do something
 
                 log.info( "Finished repository task: {}", task );
-
-                this.task = null;
             }
         }
         catch ( MetadataRepositoryException e )
@@ -198,11 +214,65 @@ public void executeTask( RepositoryTask task )
         {
             e.printStackTrace( );
         }
+        finally
+        {
+            tasksInExecution.remove( task );
+        }
     }
 
+    /**
+     * Runs the consumers once for all files of the given tasks. Tasks, that request an update of related artifacts,
+     * are processed separately from the others.
+     */
+    @Override
+    public void executeTasks( List<RepositoryTask> tasks )
+        throws TaskExecutionException
+    {
+        Map<Boolean, List<Path>> files = new HashMap<>( );
+        String repoId = null;
+        for ( RepositoryTask fileTask : tasks )
+        {
+            taskIndex.remove( fileTask );
+            repoId = fileTask.getRepositoryId( );
+            if ( fileTask.getResourceFile( ) != null && fileTask.getResourceFile( ).isFileBased( ) )
+            {
+                files.computeIfAbsent( fileTask.isUpdateRelatedArtifacts( ), k -> new ArrayList<>( ) ).add(
+                    fileTask.getResourceFile( ).getFilePath( ) );
+            }
+        }
+        if ( StringUtils.isBlank( repoId ) )
+        {
+            throw new TaskExecutionException( "Unable to execute RepositoryTask with blank repository Id." );
+        }
+
+        ManagedRepository arepo = repositoryRegistry.getManagedRepository( repoId );
+        log.debug( "Executing {} file tasks of repository {}", tasks.size( ), repoId );
+        for ( Map.Entry<Boolean, List<Path>> entry : files.entrySet( ) )
+        {
+            try
+            {
+                consumers.executeConsumers( arepo, entry.getValue( ), entry.getKey( ) );
+            }
+            catch ( org.apache.archiva.consumers.ConsumerException e )
+            {
+                log.error( "Error executing consumers on {} files of repository {}: {}", entry.getValue( ).size( ),
+                           repoId, e.getMessage( ), e );
+            }
+        }
+    }
+
+    /**
+     * Returns one of the tasks, that are executed right now, or <code>null</code>.
+     */
     public Task getCurrentTaskInExecution()
     {
-        return task;
+        Iterator<RepositoryTask> it = tasksInExecution.iterator( );
+        return it.hasNext( ) ? it.next( ) : null;
+    }
+
+    public Set<RepositoryTask> getTasksInExecution( )
+    {
+        return Collections.unmodifiableSet( tasksInExecution );
     }
 
     public RepositoryScanner getRepoScanner()
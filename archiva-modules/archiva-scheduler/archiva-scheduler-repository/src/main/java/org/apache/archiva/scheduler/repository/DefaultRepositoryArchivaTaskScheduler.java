@@ -31,7 +31,6 @@
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsManager;
 import org.apache.archiva.components.scheduler.CronExpressionValidator;
 import org.apache.archiva.components.scheduler.Scheduler;
-import org.apache.archiva.components.taskqueue.TaskQueue;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
 import org.apache.archiva.scheduler.repository.model.RepositoryArchivaTaskScheduler;
 import org.apache.archiva.scheduler.repository.model.RepositoryTask;
@@ -72,8 +71,11 @@
     private CronExpressionValidator cronValidator;
 
     @Inject
-    @Named( value = "taskQueue#repository-scanning" )
-    private TaskQueue<RepositoryTask> repositoryScanningQueue;
+    @Named( value = "repositoryTaskExecutor#partitioned" )
+    private PartitionedRepositoryTaskExecutor taskExecutor;
+
+    @Inject
+    private RepositoryTaskIndex taskIndex;
 
     @Inject
     private ArchivaConfiguration archivaConfiguration;
@@ -94,7 +96,7 @@
 
     private static final String REPOSITORY_JOB_TRIGGER = "rjt";
 
-    static final String TASK_QUEUE = "TASK_QUEUE";
+    static final String TASK_SCHEDULER = "TASK_SCHEDULER";
 
     static final String TASK_REPOSITORY = "TASK_REPOSITORY";
 
@@ -177,98 +179,52 @@ public void stop()
         }
         jobs.clear();
         queuedRepos.clear();
+        taskIndex.clear();
 
     }
 
-    @SuppressWarnings( "unchecked" )
     @Override
     public boolean isProcessingRepositoryTask( String repositoryId )
     {
-        synchronized ( repositoryScanningQueue )
-        {
-            List<RepositoryTask> queue = null;
-
-            try
-            {
-                queue = repositoryScanningQueue.getQueueSnapshot();
-            }
-            catch ( TaskQueueException e )
-            {
-                // not possible with plexus-taskqueue implementation, ignore
-            }
-
-            for ( RepositoryTask queuedTask : queue )
-            {
-                if ( queuedTask.getRepositoryId().equals( repositoryId ) )
-                {
-                    return true;
-                }
-            }
-            return false;
-        }
+        return taskIndex.containsRepository( repositoryId );
     }
 
     @Override
     public boolean isProcessingRepositoryTask( RepositoryTask task )
     {
-        synchronized ( repositoryScanningQueue )
-        {
-            List<RepositoryTask> queue = null;
-
-            try
-            {
-                queue = repositoryScanningQueue.getQueueSnapshot();
-            }
-            catch ( TaskQueueException e )
-            {
-                // not possible with plexus-taskqueue implementation, ignore
-            }
-
-            for ( RepositoryTask queuedTask : queue )
-            {
-                if ( task.equals( queuedTask ) )
-                {
-                    return true;
-                }
-            }
-            return false;
-        }
+        return taskIndex.contains( task );
     }
 
+    /**
+     * Queues the task, if there is no queued task for the same repository and resource. Otherwise the flags of
+     * the new task are merged into the queued one, so that a single run does the work of both. If the executor
+     * already claimed the queued task, the new task is queued instead.
+     */
     @Override
     public void queueTask( RepositoryTask task )
         throws TaskQueueException
     {
-        synchronized ( repositoryScanningQueue )
+        // the index merges the flags, while the queued task is not claimed by the executor
+        RepositoryTask queued = taskIndex.add( task );
+        if ( queued != task )
         {
-            if ( isProcessingRepositoryTask( task ) )
-            {
-                log.debug( "Repository task '{}' is already queued. Skipping task.", task );
-            }
-            else
-            {
-                // add check if the task is already queued if it is a file scan
-                repositoryScanningQueue.put( task );
-            }
+            log.debug( "Repository task '{}' is already queued. Skipping task.", task );
+            return;
         }
+        taskExecutor.submit( task );
     }
 
     @Override
     public boolean unQueueTask( RepositoryTask task )
         throws TaskQueueException
     {
-        synchronized ( repositoryScanningQueue )
+        RepositoryTask queued = taskIndex.remove( task );
+        if ( queued == null )
         {
-            if ( !isProcessingRepositoryTask( task ) )
-            {
-                log.info( "cannot unqueue Repository task '{}' not already queued.", task );
-                return false;
-            }
-            else
-            {
-                return repositoryScanningQueue.remove( task );
-            }
+            log.info( "cannot unqueue Repository task '{}' not already queued.", task );
+            return false;
         }
+        return taskExecutor.remove( queued );
     }
 
     @Override
@@ -373,7 +329,7 @@ private synchronized void scheduleRepositoryJobs( ManagedRepositoryConfiguration
         }
 
         JobDataMap jobDataMap = new JobDataMap( );
-        jobDataMap.put( TASK_QUEUE, repositoryScanningQueue );
+        jobDataMap.put( TASK_SCHEDULER, this );
         jobDataMap.put( TASK_REPOSITORY, repoConfig.getId() );
 
         // setup the unprocessed artifact job
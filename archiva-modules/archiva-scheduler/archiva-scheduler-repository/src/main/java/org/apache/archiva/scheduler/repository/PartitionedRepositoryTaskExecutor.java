@@ -0,0 +1,495 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.components.taskqueue.execution.TaskExecutionException;
+import org.apache.archiva.components.taskqueue.execution.TaskExecutor;
+import org.apache.archiva.configuration.ArchivaConfiguration;
+import org.apache.archiva.configuration.ArchivaRuntimeConfiguration;
+import org.apache.archiva.configuration.ConfigurationEvent;
+import org.apache.archiva.configuration.ConfigurationListener;
+import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+import org.apache.archiva.scheduler.repository.model.RepositoryTaskQueueMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes the repository tasks on a thread pool, that is partitioned by repository. The tasks of a single
+ * repository run one after another, the tasks of different repositories run in parallel.
+ * <p>
+ * Each repository has two lanes: tasks for single files (e.g. deployed artifacts) are always started before
+ * full repository scans. The number of scans running at the same time is limited to less than the pool size, so
+ * there is always a thread left for the file tasks of other repositories.
+ * <p>
+ * File tasks are started after a short batch window. All file tasks, that are queued for the repository until
+ * then, are executed as one batch, if the task executor is a {@link RepositoryTaskBatchExecutor}.
+ * <p>
+ * The number of threads and concurrent scans are read from the archiva runtime configuration.
+ *
+ * @since 3.0
+ */
+@Service( "repositoryTaskExecutor#partitioned" )
+public class PartitionedRepositoryTaskExecutor
+    implements RepositoryTaskQueueMetrics, ConfigurationListener
+{
+    private static final Logger log = LoggerFactory.getLogger( PartitionedRepositoryTaskExecutor.class );
+
+    @Inject
+    @Named( value = "taskExecutor#repository-scanning" )
+    private TaskExecutor<RepositoryTask> taskExecutor;
+
+    @Inject
+    private ArchivaConfiguration archivaConfiguration;
+
+    private int threads = 4;
+
+    private int maxConcurrentScans = 2;
+
+    private long batchWindow = 200;
+
+    private int maxBatchSize = 500;
+
+    private ScheduledExecutorService pool;
+
+    /**
+     * The lanes of the repositories with queued or running tasks. All lane state is guarded by this executor.
+     */
+    private final Map<String, Lane> lanes = new HashMap<>( );
+
+    private final Deque<Lane> waitingForScan = new ArrayDeque<>( );
+
+    private int runningScans;
+
+    private int runningTasks;
+
+    private final Latency fileLatency = new Latency( );
+
+    private final Latency scanLatency = new Latency( );
+
+    @PostConstruct
+    public void initialize( )
+    {
+        if ( archivaConfiguration != null )
+        {
+            readConfiguration( );
+            archivaConfiguration.addListener( this );
+        }
+        AtomicInteger count = new AtomicInteger( );
+        pool = Executors.newScheduledThreadPool( threads, runnable -> {
+            Thread thread = new Thread( runnable, "repository-scanning-" + count.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        log.info( "Initialized {} with {} threads and at most {} concurrent scans", getClass( ).getName( ), threads,
+                  getScanLimit( ) );
+    }
+
+    private void readConfiguration( )
+    {
+        ArchivaRuntimeConfiguration runtimeConfiguration =
+            archivaConfiguration.getConfiguration( ).getArchivaRuntimeConfiguration( );
+        if ( runtimeConfiguration != null )
+        {
+            threads = Math.max( 1, runtimeConfiguration.getRepositoryScanningThreads( ) );
+            maxConcurrentScans = Math.max( 1, runtimeConfiguration.getRepositoryScanningMaxConcurrentScans( ) );
+        }
+    }
+
+    @Override
+    public void configurationEvent( ConfigurationEvent event )
+    {
+        if ( event.getType( ) == ConfigurationEvent.SAVED )
+        {
+            synchronized ( this )
+            {
+                readConfiguration( );
+                if ( pool instanceof ScheduledThreadPoolExecutor )
+                {
+                    ( (ScheduledThreadPoolExecutor) pool ).setCorePoolSize( threads );
+                }
+                // a higher scan limit lets waiting scans start
+                while ( !waitingForScan.isEmpty( ) && runningScans < getScanLimit( ) )
+                {
+                    schedule( waitingForScan.poll( ) );
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop( )
+    {
+        if ( pool != null )
+        {
+            pool.shutdownNow( );
+            pool = null;
+        }
+        lanes.clear( );
+        waitingForScan.clear( );
+    }
+
+    /**
+     * Queues the task in the lane of its repository.
+     */
+    public synchronized void submit( RepositoryTask task )
+    {
+        Lane lane = lanes.computeIfAbsent( task.getRepositoryId( ), Lane::new );
+        lane.add( new QueuedTask( task ) );
+        schedule( lane );
+    }
+
+    /**
+     * Removes the task, if it is still waiting.
+     *
+     * @return <code>true</code>, if the task was removed
+     */
+    public synchronized boolean remove( RepositoryTask task )
+    {
+        Lane lane = lanes.get( task.getRepositoryId( ) );
+        if ( lane == null || !lane.remove( task ) )
+        {
+            return false;
+        }
+        release( lane );
+        return true;
+    }
+
+    private void schedule( Lane lane )
+    {
+        if ( pool == null || lane.running || lane.isEmpty( ) )
+        {
+            return;
+        }
+        if ( !lane.files.isEmpty( ) )
+        {
+            lane.running = true;
+            runningTasks++;
+            // the files are taken when the window is over, so that following deploys join the batch
+            pool.schedule( ( ) -> runFiles( lane ), batchWindow, TimeUnit.MILLISECONDS );
+        }
+        else if ( runningScans < getScanLimit( ) )
+        {
+            lane.running = true;
+            runningTasks++;
+            runningScans++;
+            QueuedTask scan = lane.scans.poll( );
+            pool.execute( ( ) -> runScan( lane, scan ) );
+        }
+        else if ( !waitingForScan.contains( lane ) )
+        {
+            waitingForScan.add( lane );
+        }
+    }
+
+    private void runScan( Lane lane, QueuedTask queued )
+    {
+        scanLatency.add( System.currentTimeMillis( ) - queued.queuedAt );
+        try
+        {
+            taskExecutor.executeTask( queued.task );
+        }
+        catch ( TaskExecutionException | RuntimeException e )
+        {
+            log.error( "Error executing repository task {}: {}", queued.task, e.getMessage( ), e );
+        }
+        finally
+        {
+            finished( lane, true );
+        }
+    }
+
+    private void runFiles( Lane lane )
+    {
+        List<RepositoryTask> batch = new ArrayList<>( );
+        synchronized ( this )
+        {
+            long now = System.currentTimeMillis( );
+            while ( !lane.files.isEmpty( ) && batch.size( ) < maxBatchSize )
+            {
+                QueuedTask queued = lane.files.poll( );
+                fileLatency.add( now - queued.queuedAt );
+                batch.add( queued.task );
+            }
+        }
+        try
+        {
+            if ( batch.size( ) > 1 && taskExecutor instanceof RepositoryTaskBatchExecutor )
+            {
+                ( (RepositoryTaskBatchExecutor) taskExecutor ).executeTasks( batch );
+            }
+            else
+            {
+                for ( RepositoryTask task : batch )
+                {
+                    executeFileTask( task );
+                }
+            }
+        }
+        catch ( TaskExecutionException | RuntimeException e )
+        {
+            log.error( "Error executing {} file tasks of repository {}: {}", batch.size( ), lane.repositoryId,
+                       e.getMessage( ), e );
+        }
+        finally
+        {
+            finished( lane, false );
+        }
+    }
+
+    private void executeFileTask( RepositoryTask task )
+    {
+        try
+        {
+            taskExecutor.executeTask( task );
+        }
+        catch ( TaskExecutionException | RuntimeException e )
+        {
+            log.error( "Error executing repository task {}: {}", task, e.getMessage( ), e );
+        }
+    }
+
+    private synchronized void finished( Lane lane, boolean scan )
+    {
+        lane.running = false;
+        runningTasks--;
+        if ( scan )
+        {
+            runningScans--;
+            while ( !waitingForScan.isEmpty( ) && runningScans < getScanLimit( ) )
+            {
+                schedule( waitingForScan.poll( ) );
+            }
+        }
+        schedule( lane );
+        release( lane );
+    }
+
+    private void release( Lane lane )
+    {
+        if ( !lane.running && lane.isEmpty( ) )
+        {
+            lanes.remove( lane.repositoryId );
+            waitingForScan.remove( lane );
+        }
+    }
+
+    private int getScanLimit( )
+    {
+        return threads > 1 ? Math.max( 1, Math.min( maxConcurrentScans, threads - 1 ) ) : 1;
+    }
+
+    @Override
+    public synchronized int getQueuedFileTasks( )
+    {
+        return lanes.values( ).stream( ).mapToInt( lane -> lane.files.size( ) ).sum( );
+    }
+
+    @Override
+    public synchronized int getQueuedScans( )
+    {
+        return lanes.values( ).stream( ).mapToInt( lane -> lane.scans.size( ) ).sum( );
+    }
+
+    /**
+     * Returns the number of waiting tasks of the given repository.
+     */
+    public synchronized int getQueueDepth( String repositoryId )
+    {
+        Lane lane = lanes.get( repositoryId );
+        return lane == null ? 0 : lane.files.size( ) + lane.scans.size( );
+    }
+
+    @Override
+    public synchronized Map<String, Integer> getQueueDepths( )
+    {
+        Map<String, Integer> depths = new TreeMap<>( );
+        for ( Lane lane : lanes.values( ) )
+        {
+            if ( !lane.isEmpty( ) )
+            {
+                depths.put( lane.repositoryId, lane.files.size( ) + lane.scans.size( ) );
+            }
+        }
+        return depths;
+    }
+
+    @Override
+    public synchronized int getRunningTasks( )
+    {
+        return runningTasks;
+    }
+
+    /**
+     * Returns the average time in milliseconds, that file tasks waited before they were started.
+     */
+    public long getAverageFileTaskLatency( )
+    {
+        return fileLatency.average( );
+    }
+
+    /**
+     * Returns the average time in milliseconds, that repository scans waited before they were started.
+     */
+    public long getAverageScanLatency( )
+    {
+        return scanLatency.average( );
+    }
+
+    public long getMaxFileTaskLatency( )
+    {
+        return fileLatency.max.get( );
+    }
+
+    public long getMaxScanLatency( )
+    {
+        return scanLatency.max.get( );
+    }
+
+    public long getBatchWindow( )
+    {
+        return batchWindow;
+    }
+
+    /**
+     * Sets the time in milliseconds, that file tasks are held back to be executed together with following ones.
+     */
+    public void setBatchWindow( long batchWindow )
+    {
+        this.batchWindow = batchWindow;
+    }
+
+    public int getMaxBatchSize( )
+    {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize( int maxBatchSize )
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getThreads( )
+    {
+        return threads;
+    }
+
+    public void setThreads( int threads )
+    {
+        this.threads = threads;
+    }
+
+    public int getMaxConcurrentScans( )
+    {
+        return maxConcurrentScans;
+    }
+
+    public void setMaxConcurrentScans( int maxConcurrentScans )
+    {
+        this.maxConcurrentScans = maxConcurrentScans;
+    }
+
+    public void setTaskExecutor( TaskExecutor<RepositoryTask> taskExecutor )
+    {
+        this.taskExecutor = taskExecutor;
+    }
+
+    private static final class QueuedTask
+    {
+        private final RepositoryTask task;
+        private final long queuedAt = System.currentTimeMillis( );
+
+        QueuedTask( RepositoryTask task )
+        {
+            this.task = task;
+        }
+
+        boolean isScan( )
+        {
+            return task.getResourceFile( ) == null;
+        }
+    }
+
+    private static final class Lane
+    {
+        private final String repositoryId;
+        private final Deque<QueuedTask> files = new ArrayDeque<>( );
+        private final Deque<QueuedTask> scans = new ArrayDeque<>( );
+        private boolean running;
+
+        Lane( String repositoryId )
+        {
+            this.repositoryId = repositoryId;
+        }
+
+        void add( QueuedTask task )
+        {
+            ( task.isScan( ) ? scans : files ).add( task );
+        }
+
+        boolean remove( RepositoryTask task )
+        {
+            return ( task.getResourceFile( ) == null ? scans : files ).removeIf( queued -> queued.task.equals( task ) );
+        }
+
+        boolean isEmpty( )
+        {
+            return files.isEmpty( ) && scans.isEmpty( );
+        }
+    }
+
+    private static final class Latency
+    {
+        private final AtomicLong count = new AtomicLong( );
+        private final AtomicLong total = new AtomicLong( );
+        private final AtomicLong max = new AtomicLong( );
+
+        void add( long millis )
+        {
+            count.incrementAndGet( );
+            total.addAndGet( millis );
+            max.accumulateAndGet( millis, Math::max );
+        }
+
+        long average( )
+        {
+            long n = count.get( );
+            return n == 0 ? 0 : total.get( ) / n;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.components.taskqueue.execution.TaskExecutionException;
+import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+
+import java.util.List;
+
+/**
+ * Executor, that processes a batch of file tasks of a single repository at once.
+ *
+ * @since 3.0
+ */
+public interface RepositoryTaskBatchExecutor
+{
+    /**
+     * Executes the given file tasks. All tasks belong to the same repository and have a resource file set.
+     *
+     * @param tasks the tasks to execute
+     * @throws TaskExecutionException if the batch could not be executed
+     */
+    void executeTasks( List<RepositoryTask> tasks )
+        throws TaskExecutionException;
+}
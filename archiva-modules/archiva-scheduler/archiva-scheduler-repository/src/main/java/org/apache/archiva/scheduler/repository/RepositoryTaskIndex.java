@@ -0,0 +1,127 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the repository tasks, that are waiting in the repository scanning queue. The tasks are keyed by
+ * repository id and resource path, so the scheduler can detect duplicates and busy repositories without
+ * walking through a snapshot of the queue.
+ * <p>
+ * A task is added, when it is queued by the scheduler and removed, when it is unqueued or when the executor
+ * starts processing it.
+ *
+ * @since 3.0
+ */
+@Service( "repositoryTaskIndex#default" )
+public class RepositoryTaskIndex
+{
+    private final Map<String, RepositoryTask> tasks = new ConcurrentHashMap<>( );
+
+    private final Map<String, Integer> repositoryCounts = new ConcurrentHashMap<>( );
+
+    /**
+     * Adds the task to the index, if there is no queued task for the same repository and resource. Otherwise the
+     * flags of the given task are merged into the queued task. The merge runs atomically with
+     * {@link #remove(RepositoryTask)}, so the flags are either merged before the executor claims the queued task
+     * or the given task is added as new task.
+     *
+     * @param task the task to add
+     * @return the given task, if it was added, otherwise the task that is already queued
+     */
+    public RepositoryTask add( RepositoryTask task )
+    {
+        RepositoryTask queued = tasks.compute( toKey( task ), ( key, current ) -> {
+            if ( current == null )
+            {
+                return task;
+            }
+            if ( task.isUpdateRelatedArtifacts( ) )
+            {
+                current.setUpdateRelatedArtifacts( true );
+            }
+            if ( task.isScanAll( ) )
+            {
+                current.setScanAll( true );
+            }
+            return current;
+        } );
+        if ( queued == task )
+        {
+            repositoryCounts.merge( task.getRepositoryId( ), 1, Integer::sum );
+        }
+        return queued;
+    }
+
+    /**
+     * Removes the queued task for the same repository and resource.
+     *
+     * @param task the task to remove
+     * @return the removed task or <code>null</code>, if no such task was queued
+     */
+    public RepositoryTask remove( RepositoryTask task )
+    {
+        // removing claims the task, an equal task queued afterwards is added as new task
+        RepositoryTask queued = tasks.remove( toKey( task ) );
+        if ( queued == null )
+        {
+            return null;
+        }
+        repositoryCounts.computeIfPresent( queued.getRepositoryId( ), ( id, count ) -> count > 1 ? count - 1 : null );
+        return queued;
+    }
+
+    public RepositoryTask get( RepositoryTask task )
+    {
+        return tasks.get( toKey( task ) );
+    }
+
+    public boolean contains( RepositoryTask task )
+    {
+        return tasks.containsKey( toKey( task ) );
+    }
+
+    public boolean containsRepository( String repositoryId )
+    {
+        return repositoryCounts.containsKey( repositoryId );
+    }
+
+    public int size( )
+    {
+        return tasks.size( );
+    }
+
+    public void clear( )
+    {
+        tasks.clear( );
+        repositoryCounts.clear( );
+    }
+
+    private static String toKey( RepositoryTask task )
+    {
+        String path = task.getResourceFile( ) == null ? "" : task.getResourceFile( ).getPath( );
+        return task.getRepositoryId( ) + "|" + path;
+    }
+}
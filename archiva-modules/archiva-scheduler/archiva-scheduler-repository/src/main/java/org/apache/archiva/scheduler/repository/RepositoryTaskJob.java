@@ -20,8 +20,8 @@
  */
 
 import org.apache.archiva.components.scheduler.AbstractJob;
-import org.apache.archiva.components.taskqueue.TaskQueue;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
+import org.apache.archiva.scheduler.repository.model.RepositoryArchivaTaskScheduler;
 import org.apache.archiva.scheduler.repository.model.RepositoryTask;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
@@ -39,7 +39,6 @@
      * @param context
      * @throws org.quartz.JobExecutionException
      */
-    @SuppressWarnings( "unchecked" )
     @Override
     public void execute( JobExecutionContext context )
         throws JobExecutionException
@@ -47,7 +46,8 @@ public void execute( JobExecutionContext context )
         JobDataMap dataMap = context.getJobDetail().getJobDataMap();
         setJobDataMap( dataMap );
 
-        TaskQueue taskQueue = (TaskQueue) dataMap.get( DefaultRepositoryArchivaTaskScheduler.TASK_QUEUE );
+        RepositoryArchivaTaskScheduler taskScheduler =
+            (RepositoryArchivaTaskScheduler) dataMap.get( DefaultRepositoryArchivaTaskScheduler.TASK_SCHEDULER );
 
         String repositoryId = (String) dataMap.get( DefaultRepositoryArchivaTaskScheduler.TASK_REPOSITORY );
         RepositoryTask task = new RepositoryTask();
@@ -55,7 +55,8 @@ public void execute( JobExecutionContext context )
 
         try
         {
-            taskQueue.put( task );
+            // queued through the scheduler, so a scan that is still waiting is not queued twice
+            taskScheduler.queueTask( task );
         }
         catch ( TaskQueueException e )
         {
@@ -0,0 +1,199 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.components.taskqueue.execution.TaskExecutor;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * PartitionedRepositoryTaskExecutorTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class PartitionedRepositoryTaskExecutorTest
+    extends TestCase
+{
+    private PartitionedRepositoryTaskExecutor executor;
+
+    private final List<String> executed = Collections.synchronizedList( new ArrayList<>( ) );
+
+    private final List<Integer> batches = Collections.synchronizedList( new ArrayList<>( ) );
+
+    private final CountDownLatch scanStarted = new CountDownLatch( 1 );
+
+    private final CountDownLatch releaseScan = new CountDownLatch( 1 );
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        executor = new PartitionedRepositoryTaskExecutor( );
+        executor.setTaskExecutor( new RecordingTaskExecutor( ) );
+        executor.setThreads( 2 );
+        executor.initialize( );
+    }
+
+    @After
+    @Override
+    public void tearDown( )
+        throws Exception
+    {
+        releaseScan.countDown( );
+        executor.stop( );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testScanDoesNotBlockOtherRepositories( )
+        throws Exception
+    {
+        executor.submit( new RepositoryTask( "internal" ) );
+        assertTrue( scanStarted.await( 10, TimeUnit.SECONDS ) );
+
+        executor.submit( fileTask( "snapshots", "a.jar" ) );
+        waitFor( 1 );
+        assertEquals( Collections.singletonList( "snapshots:a.jar" ), executed );
+    }
+
+    @Test
+    public void testSerialWithinRepositoryAndFilesFirst( )
+        throws Exception
+    {
+        executor.submit( new RepositoryTask( "internal" ) );
+        assertTrue( scanStarted.await( 10, TimeUnit.SECONDS ) );
+
+        executor.submit( new RepositoryTask( "internal", true ) );
+        executor.submit( fileTask( "internal", "a.jar" ) );
+        assertEquals( 2, executor.getQueueDepth( "internal" ) );
+        assertEquals( 1, executor.getQueuedScans( ) );
+        assertEquals( 1, executor.getQueuedFileTasks( ) );
+
+        releaseScan.countDown( );
+        waitFor( 3 );
+        assertEquals( "internal:", executed.get( 0 ) );
+        assertEquals( "internal:a.jar", executed.get( 1 ) );
+        assertEquals( "internal:", executed.get( 2 ) );
+        assertEquals( 0, executor.getQueueDepth( "internal" ) );
+    }
+
+    @Test
+    public void testFileTasksBatched( )
+        throws Exception
+    {
+        executor.submit( fileTask( "internal", "a.jar" ) );
+        executor.submit( fileTask( "internal", "a.pom" ) );
+        executor.submit( fileTask( "internal", "b.jar" ) );
+
+        waitFor( 3 );
+        assertEquals( Collections.singletonList( 3 ), batches );
+        assertEquals( 3, executed.size( ) );
+    }
+
+    @Test
+    public void testRemove( )
+        throws Exception
+    {
+        executor.submit( new RepositoryTask( "internal" ) );
+        assertTrue( scanStarted.await( 10, TimeUnit.SECONDS ) );
+
+        RepositoryTask task = fileTask( "internal", "a.jar" );
+        executor.submit( task );
+        assertTrue( executor.remove( task ) );
+        assertFalse( executor.remove( task ) );
+
+        releaseScan.countDown( );
+        waitFor( 1 );
+        assertEquals( Collections.singletonList( "internal:" ), executed );
+    }
+
+    private void waitFor( int count )
+        throws InterruptedException
+    {
+        long end = System.currentTimeMillis( ) + 10000;
+        while ( executed.size( ) < count && System.currentTimeMillis( ) < end )
+        {
+            Thread.sleep( 10 );
+        }
+    }
+
+    private class RecordingTaskExecutor
+        implements TaskExecutor<RepositoryTask>, RepositoryTaskBatchExecutor
+    {
+        @Override
+        public void executeTask( RepositoryTask task )
+        {
+            if ( task.getResourceFile( ) == null )
+            {
+                scanStarted.countDown( );
+                try
+                {
+                    releaseScan.await( 10, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+            }
+            executed.add( toName( task ) );
+        }
+
+        @Override
+        public void executeTasks( List<RepositoryTask> tasks )
+        {
+            batches.add( tasks.size( ) );
+            for ( RepositoryTask task : tasks )
+            {
+                executed.add( toName( task ) );
+            }
+        }
+    }
+
+    private static String toName( RepositoryTask task )
+    {
+        String path = task.getResourceFile( ) == null ? "" : task.getResourceFile( ).getPath( );
+        return task.getRepositoryId( ) + ":" + path;
+    }
+
+    private static RepositoryTask fileTask( String repositoryId, String path )
+    {
+        StorageAsset asset = mock( StorageAsset.class );
+        when( asset.getPath( ) ).thenReturn( path );
+        RepositoryTask task = new RepositoryTask( repositoryId );
+        task.setResourceFile( asset );
+        return task;
+    }
+}
@@ -0,0 +1,100 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * RepositoryTaskIndexTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class RepositoryTaskIndexTest
+    extends TestCase
+{
+    private RepositoryTaskIndex index = new RepositoryTaskIndex( );
+
+    @Test
+    public void testDuplicateTask( )
+    {
+        RepositoryTask first = fileTask( "internal", "/org/example/a/1.0/a-1.0.jar" );
+        RepositoryTask second = fileTask( "internal", "/org/example/a/1.0/a-1.0.jar" );
+
+        assertSame( first, index.add( first ) );
+        assertSame( first, index.add( second ) );
+        assertTrue( index.contains( second ) );
+        assertEquals( 1, index.size( ) );
+    }
+
+    @Test
+    public void testMergeFlags( )
+    {
+        RepositoryTask queued = new RepositoryTask( "internal" );
+        RepositoryTask scanAll = new RepositoryTask( "internal" );
+        scanAll.setScanAll( true );
+        index.add( queued );
+
+        assertSame( queued, index.add( scanAll ) );
+        assertTrue( queued.isScanAll( ) );
+
+        // the claimed task does not change anymore
+        RepositoryTask updateRelated = new RepositoryTask( "internal" );
+        updateRelated.setUpdateRelatedArtifacts( true );
+        assertSame( queued, index.remove( queued ) );
+        assertSame( updateRelated, index.add( updateRelated ) );
+        assertFalse( queued.isUpdateRelatedArtifacts( ) );
+        assertTrue( index.containsRepository( "internal" ) );
+    }
+
+    @Test
+    public void testRepositoryBusy( )
+    {
+        RepositoryTask fileTask = fileTask( "internal", "/org/example/a/1.0/a-1.0.jar" );
+        RepositoryTask scanTask = new RepositoryTask( "internal" );
+        index.add( fileTask );
+        index.add( scanTask );
+
+        assertTrue( index.containsRepository( "internal" ) );
+        assertFalse( index.containsRepository( "snapshots" ) );
+
+        assertSame( fileTask, index.remove( fileTask( "internal", "/org/example/a/1.0/a-1.0.jar" ) ) );
+        assertTrue( index.containsRepository( "internal" ) );
+
+        assertSame( scanTask, index.remove( scanTask ) );
+        assertNull( index.remove( scanTask ) );
+        assertFalse( index.containsRepository( "internal" ) );
+    }
+
+    private static RepositoryTask fileTask( String repositoryId, String path )
+    {
+        StorageAsset asset = mock( StorageAsset.class );
+        when( asset.getPath( ) ).thenReturn( path );
+        RepositoryTask task = new RepositoryTask( repositoryId );
+        task.setResourceFile( asset );
+        return task;
+    }
+}
@@ -0,0 +1,82 @@
+package org.apache.archiva.rest.api.model;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.maven2.model.Artifact;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A page of an artifact listing. The cursor of the next page is <code>null</code>, if this is the last page.
+ *
+ * @since 3.0
+ */
+@XmlRootElement( name = "artifactPage" )
+public class ArtifactPage
+    implements Serializable
+{
+
+    private List<Artifact> artifacts;
+
+    private String nextCursor;
+
+    public ArtifactPage()
+    {
+        // no op
+    }
+
+    public ArtifactPage( List<Artifact> artifacts, String nextCursor )
+    {
+        this.artifacts = artifacts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Artifact> getArtifacts()
+    {
+        return artifacts;
+    }
+
+    public void setArtifacts( List<Artifact> artifacts )
+    {
+        this.artifacts = artifacts;
+    }
+
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    public void setNextCursor( String nextCursor )
+    {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( "ArtifactPage" );
+        sb.append( "{artifacts=" ).append( artifacts );
+        sb.append( ", nextCursor='" ).append( nextCursor ).append( '\'' );
+        sb.append( '}' );
+        return sb.toString();
+    }
+}
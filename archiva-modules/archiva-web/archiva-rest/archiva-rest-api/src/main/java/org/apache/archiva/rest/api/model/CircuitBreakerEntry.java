@@ -0,0 +1,184 @@
+package org.apache.archiva.rest.api.model;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+/**
+ * The state and statistics of the circuit breaker of a remote repository.
+ *
+ * @since 3.0
+ */
+@XmlRootElement( name = "circuitBreakerEntry" )
+public class CircuitBreakerEntry
+    implements Serializable
+{
+    private String repositoryId;
+
+    private String state;
+
+    private long openedSince;
+
+    private int windowCalls;
+
+    private String failureRate;
+
+    private long averageDuration;
+
+    private int inFlight;
+
+    private int maxInFlight;
+
+    private long totalCalls;
+
+    private long totalFailures;
+
+    private long rejectedCalls;
+
+    public CircuitBreakerEntry()
+    {
+        // no op
+    }
+
+    public String getRepositoryId()
+    {
+        return repositoryId;
+    }
+
+    public void setRepositoryId( String repositoryId )
+    {
+        this.repositoryId = repositoryId;
+    }
+
+    public String getState()
+    {
+        return state;
+    }
+
+    public void setState( String state )
+    {
+        this.state = state;
+    }
+
+    public long getOpenedSince()
+    {
+        return openedSince;
+    }
+
+    public void setOpenedSince( long openedSince )
+    {
+        this.openedSince = openedSince;
+    }
+
+    public int getWindowCalls()
+    {
+        return windowCalls;
+    }
+
+    public void setWindowCalls( int windowCalls )
+    {
+        this.windowCalls = windowCalls;
+    }
+
+    public String getFailureRate()
+    {
+        return failureRate;
+    }
+
+    public void setFailureRate( String failureRate )
+    {
+        this.failureRate = failureRate;
+    }
+
+    public long getAverageDuration()
+    {
+        return averageDuration;
+    }
+
+    public void setAverageDuration( long averageDuration )
+    {
+        this.averageDuration = averageDuration;
+    }
+
+    public int getInFlight()
+    {
+        return inFlight;
+    }
+
+    public void setInFlight( int inFlight )
+    {
+        this.inFlight = inFlight;
+    }
+
+    public int getMaxInFlight()
+    {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight( int maxInFlight )
+    {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getTotalCalls()
+    {
+        return totalCalls;
+    }
+
+    public void setTotalCalls( long totalCalls )
+    {
+        this.totalCalls = totalCalls;
+    }
+
+    public long getTotalFailures()
+    {
+        return totalFailures;
+    }
+
+    public void setTotalFailures( long totalFailures )
+    {
+        this.totalFailures = totalFailures;
+    }
+
+    public long getRejectedCalls()
+    {
+        return rejectedCalls;
+    }
+
+    public void setRejectedCalls( long rejectedCalls )
+    {
+        this.rejectedCalls = rejectedCalls;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( "CircuitBreakerEntry" );
+        sb.append( "{repositoryId='" ).append( repositoryId ).append( '\'' );
+        sb.append( ", state='" ).append( state ).append( '\'' );
+        sb.append( ", failureRate='" ).append( failureRate ).append( '\'' );
+        sb.append( ", averageDuration=" ).append( averageDuration );
+        sb.append( ", inFlight=" ).append( inFlight );
+        sb.append( ", rejectedCalls=" ).append( rejectedCalls );
+        sb.append( '}' );
+        return sb.toString();
+    }
+}
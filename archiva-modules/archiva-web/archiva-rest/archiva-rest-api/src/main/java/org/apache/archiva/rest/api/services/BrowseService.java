@@ -27,6 +27,7 @@
 import org.apache.archiva.rest.api.model.ActionStatus;
 import org.apache.archiva.rest.api.model.ArtifactContent;
 import org.apache.archiva.rest.api.model.ArtifactContentEntry;
+import org.apache.archiva.rest.api.model.ArtifactPage;
 import org.apache.archiva.rest.api.model.AvailabilityStatus;
 import org.apache.archiva.rest.api.model.BrowseResult;
 import org.apache.archiva.rest.api.model.Entry;
@@ -42,6 +43,7 @@
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.util.List;
 
 /**
@@ -52,6 +54,10 @@
 @Tag( name = "Browse", description = "Repository Browse Service")
 public interface BrowseService
 {
+    /**
+     * Media type of the streamed artifact listings. Each line contains one artifact as JSON object.
+     */
+    String APPLICATION_NDJSON = "application/x-ndjson";
     @Path("rootGroups")
     @GET
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
@@ -138,6 +144,21 @@ List<Artifact> getDependees( @PathParam("g") String groupId, @PathParam("a") Str
                                  @PathParam("v") String version, @QueryParam("repositoryId") String repositoryId )
         throws ArchivaRestServiceException;
 
+    /**
+     * List of artifacts using any version of the artifact passed in parameter, sorted by groupId, artifactId and
+     * version and paged with offset and limit. A limit of <code>0</code> returns all remaining artifacts.
+     *
+     * @since 3.0
+     */
+    @Path("dependees/{g}/{a}")
+    @GET
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    @RedbackAuthorization(noPermission = true, noRestriction = true)
+    List<Artifact> getProjectDependees( @PathParam("g") String groupId, @PathParam("a") String artifactId,
+                                        @QueryParam("version") String version, @QueryParam("offset") int offset,
+                                        @QueryParam("limit") int limit )
+        throws ArchivaRestServiceException;
+
     @Path("metadatas/{g}/{a}/{v}")
     @GET
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
@@ -343,4 +364,122 @@ List<Artifact> searchArtifacts( @PathParam( "key" ) String key, @PathParam( "tex
                                     @QueryParam( "repositoryId" ) String repositoryId,
                                     @QueryParam( "exact" ) Boolean exact )
         throws ArchivaRestServiceException;
+
+    /**
+     * Returns a page of the artifacts from this repository. The listing is read from the metadata repository
+     * page by page, so large repositories can be retrieved with bounded memory.
+     *
+     * @param repositoryId the repository id
+     * @param cursor       the cursor returned with the previous page, <code>null</code> for the first page
+     * @param limit        the maximum number of artifacts of the page, the default is used, if it is not positive
+     * @return the page with the cursor of the next page
+     * @throws ArchivaRestServiceException
+     * @since 3.0
+     */
+    @Path( "artifactsPage/{r}" )
+    @GET
+    @Produces( { MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML } )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    ArtifactPage getArtifactsPage( @PathParam( "r" ) String repositoryId, @QueryParam( "cursor" ) String cursor,
+                                   @QueryParam( "limit" ) int limit )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Streams all artifacts from this repository as newline delimited JSON. The artifacts are written while they
+     * are read from the metadata repository.
+     *
+     * @param repositoryId the repository id
+     * @return the streamed response
+     * @throws ArchivaRestServiceException
+     * @since 3.0
+     */
+    @Path( "artifactsStream/{r}" )
+    @GET
+    @Produces( APPLICATION_NDJSON )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    Response streamArtifacts( @PathParam( "r" ) String repositoryId )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Returns a page of {@link #getArtifactsByMetadata(String, String, String)}.
+     *
+     * @since 3.0
+     */
+    @Path( "artifactsByMetadataPage/{key}/{value}" )
+    @GET
+    @Produces( { MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML } )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    ArtifactPage getArtifactsByMetadataPage( @PathParam( "key" ) String key, @PathParam( "value" ) String value,
+                                             @QueryParam( "repositoryId" ) String repositoryId,
+                                             @QueryParam( "cursor" ) String cursor, @QueryParam( "limit" ) int limit )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Streams the result of {@link #getArtifactsByMetadata(String, String, String)} as newline delimited JSON.
+     *
+     * @since 3.0
+     */
+    @Path( "artifactsByMetadataStream/{key}/{value}" )
+    @GET
+    @Produces( APPLICATION_NDJSON )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    Response streamArtifactsByMetadata( @PathParam( "key" ) String key, @PathParam( "value" ) String value,
+                                        @QueryParam( "repositoryId" ) String repositoryId )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Returns a page of {@link #getArtifactsByProperty(String, String, String)}.
+     *
+     * @since 3.0
+     */
+    @Path( "artifactsByPropertyPage/{key}/{value}" )
+    @GET
+    @Produces( { MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML } )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    ArtifactPage getArtifactsByPropertyPage( @PathParam( "key" ) String key, @PathParam( "value" ) String value,
+                                             @QueryParam( "repositoryId" ) String repositoryId,
+                                             @QueryParam( "cursor" ) String cursor, @QueryParam( "limit" ) int limit )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Streams the result of {@link #getArtifactsByProperty(String, String, String)} as newline delimited JSON.
+     *
+     * @since 3.0
+     */
+    @Path( "artifactsByPropertyStream/{key}/{value}" )
+    @GET
+    @Produces( APPLICATION_NDJSON )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    Response streamArtifactsByProperty( @PathParam( "key" ) String key, @PathParam( "value" ) String value,
+                                        @QueryParam( "repositoryId" ) String repositoryId )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Returns a page of {@link #searchArtifacts(String, String, Boolean)}.
+     *
+     * @since 3.0
+     */
+    @Path( "searchArtifactsPage/{text}" )
+    @GET
+    @Produces( { MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML } )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    ArtifactPage searchArtifactsPage( @PathParam( "text" ) String text,
+                                      @QueryParam( "repositoryId" ) String repositoryId,
+                                      @QueryParam( "exact" ) Boolean exact, @QueryParam( "cursor" ) String cursor,
+                                      @QueryParam( "limit" ) int limit )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Streams the result of {@link #searchArtifacts(String, String, Boolean)} as newline delimited JSON.
+     *
+     * @since 3.0
+     */
+    @Path( "searchArtifactsStream/{text}" )
+    @GET
+    @Produces( APPLICATION_NDJSON )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    Response streamSearchArtifacts( @PathParam( "text" ) String text,
+                                    @QueryParam( "repositoryId" ) String repositoryId,
+                                    @QueryParam( "exact" ) Boolean exact )
+        throws ArchivaRestServiceException;
 }
@@ -87,6 +87,20 @@ RepositoryScanStatistics scanRepositoryDirectoriesNow( @PathParam ("repositoryId
     ScanStatus getScanStatus( @PathParam ("repositoryId") String repositoryId )
         throws ArchivaRestServiceException;
 
+    /**
+     * Returns the artifacts, that would have been deleted by the last dry run of the repository purge
+     * @param repositoryId the repository identifier
+     * @return the artifact keys, empty if there was no dry run since the start of the server
+     * @throws ArchivaRestServiceException
+     * @since 3.0
+     */
+    @Path ("purgeDryRunReport/{repositoryId}")
+    @GET
+    @Produces ({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.TEXT_PLAIN })
+    @RedbackAuthorization (permissions = ArchivaRoleConstants.OPERATION_RUN_INDEXER)
+    StringList getPurgeDryRunReport( @PathParam ("repositoryId") String repositoryId )
+        throws ArchivaRestServiceException;
+
     @Path ("removeScanningTaskFromQueue/{repositoryId}")
     @GET
     @Produces ({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.TEXT_PLAIN })
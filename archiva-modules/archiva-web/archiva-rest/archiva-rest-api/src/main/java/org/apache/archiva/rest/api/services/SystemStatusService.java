@@ -22,6 +22,7 @@
 import org.apache.archiva.redback.authorization.RedbackAuthorization;
 import org.apache.archiva.rest.api.model.ActionStatus;
 import org.apache.archiva.rest.api.model.CacheEntry;
+import org.apache.archiva.rest.api.model.CircuitBreakerEntry;
 import org.apache.archiva.rest.api.model.Timestamp;
 import org.apache.archiva.rest.api.model.MemoryStatus;
 import org.apache.archiva.rest.api.model.QueueEntry;
@@ -86,6 +87,30 @@ ActionStatus clearAllCaches()
         throws ArchivaRestServiceException;
 
 
+    /**
+     * Returns the circuit breakers of the remote repositories, that were used by the proxies since the start.
+     *
+     * @since 3.0
+     */
+    @Path( "circuitBreakerEntries" )
+    @GET
+    @Produces( { MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML } )
+    @RedbackAuthorization( permissions = ArchivaRoleConstants.OPERATION_MANAGE_CONFIGURATION )
+    List<CircuitBreakerEntry> getCircuitBreakerEntries()
+        throws ArchivaRestServiceException;
+
+    /**
+     * Closes the circuit breaker of the given remote repository.
+     *
+     * @since 3.0
+     */
+    @Path( "resetCircuitBreaker/{repositoryId}" )
+    @GET
+    @Produces( { MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML } )
+    @RedbackAuthorization( permissions = ArchivaRoleConstants.OPERATION_MANAGE_CONFIGURATION )
+    ActionStatus resetCircuitBreaker( @PathParam( "repositoryId" ) String repositoryId )
+        throws ArchivaRestServiceException;
+
     @Path( "repositoryScannerStatistics" )
     @GET
     @Produces( { MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML } )
@@ -320,22 +320,7 @@ protected List<Artifact> buildArtifacts( Collection<ArtifactMetadata> artifactMe
                 List<Artifact> artifacts = new ArrayList<>( artifactMetadatas.size() );
                 for ( ArtifactMetadata artifact : artifactMetadatas )
                 {
-
-                    String repoId = repositoryId != null ? repositoryId : artifact.getRepositoryId();
-                    if ( repoId == null ) {
-                        throw new IllegalStateException( "Repository Id is null" );
-                    }
-                    ManagedRepository repo = repositoryRegistry.getManagedRepository( repoId );
-                    if (repo==null) {
-                        throw new RepositoryException( "Repository not found "+repoId );
-                    }
-                    ManagedRepositoryContent content = repo.getContent( );
-                    ArtifactBuilder builder =
-                        new ArtifactBuilder().forArtifactMetadata( artifact ).withManagedRepositoryContent(
-                            content );
-                    Artifact art = builder.build();
-                    art.setUrl( getArtifactUrl( art, repositoryId ) );
-                    artifacts.add( art );
+                    artifacts.add( buildArtifact( artifact, repositoryId ) );
                 }
                 return artifacts;
             }
@@ -349,6 +334,32 @@ protected List<Artifact> buildArtifacts( Collection<ArtifactMetadata> artifactMe
         }
     }
 
+    /**
+     * Converts a single artifact metadata object.
+     *
+     * @param artifact     the artifact metadata
+     * @param repositoryId the repository id, if <code>null</code> the repository of the artifact is used
+     */
+    protected Artifact buildArtifact( ArtifactMetadata artifact, String repositoryId )
+        throws RepositoryException, ArchivaRestServiceException
+    {
+        String repoId = repositoryId != null ? repositoryId : artifact.getRepositoryId();
+        if ( repoId == null ) {
+            throw new IllegalStateException( "Repository Id is null" );
+        }
+        ManagedRepository repo = repositoryRegistry.getManagedRepository( repoId );
+        if (repo==null) {
+            throw new RepositoryException( "Repository not found "+repoId );
+        }
+        ManagedRepositoryContent content = repo.getContent( );
+        ArtifactBuilder builder =
+            new ArtifactBuilder().forArtifactMetadata( artifact ).withManagedRepositoryContent(
+                content );
+        Artifact art = builder.build();
+        art.setUrl( getArtifactUrl( art, repositoryId ) );
+        return art;
+    }
+
     protected Boolean doScanRepository( String repositoryId, boolean fullScan )
     {
         if ( repositoryTaskScheduler.isProcessingRepositoryTask( repositoryId ) )
@@ -25,6 +25,7 @@
 import org.apache.archiva.admin.model.runtime.ArchivaRuntimeConfigurationAdmin;
 import org.apache.archiva.common.filelock.FileLockManager;
 import org.apache.archiva.components.cache.Cache;
+import org.apache.archiva.policies.urlcache.UrlFailureCache;
 import org.apache.archiva.rest.api.model.ActionStatus;
 import org.apache.archiva.rest.api.services.ArchivaRestServiceException;
 import org.apache.archiva.rest.api.services.ArchivaRuntimeConfigurationService;
@@ -49,6 +50,9 @@
     @Named( value = "cache#url-failures-cache" )
     private Cache usersCache;
 
+    @Inject
+    private UrlFailureCache urlFailureCache;
+
     @Inject
     @Named( value = "fileLockManager#default" )
     private FileLockManager fileLockManager;
@@ -82,6 +86,8 @@ public ActionStatus updateArchivaRuntimeConfiguration( ArchivaRuntimeConfigurati
                 usersCache.setMaxElementsOnDisk( cacheConfiguration.getMaxElementsOnDisk() );
                 usersCache.setMaxElementsInMemory( cacheConfiguration.getMaxElementsInMemory() );
             }
+            urlFailureCache.setNotFoundTimeToLiveSeconds(
+                archivaRuntimeConfiguration.getUrlFailureNotFoundTimeToLiveSeconds() );
 
             FileLockConfiguration fileLockConfiguration = archivaRuntimeConfiguration.getFileLockConfiguration();
             if ( fileLockConfiguration != null )
@@ -18,6 +18,7 @@
  * under the License.
  */
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.archiva.admin.model.beans.ManagedRepository;
 import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
@@ -26,6 +27,7 @@
 import org.apache.archiva.repository.maven.dependency.tree.DependencyTreeBuilder;
 import org.apache.archiva.maven2.model.Artifact;
 import org.apache.archiva.maven2.model.TreeEntry;
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.generic.GenericMetadataFacet;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.model.MetadataFacet;
@@ -50,6 +52,8 @@
 import org.apache.archiva.rest.api.services.ArchivaRestServiceException;
 import org.apache.archiva.rest.api.services.BrowseService;
 import org.apache.archiva.rest.services.utils.ArtifactContentEntryComparator;
+import org.apache.archiva.rest.services.utils.ZipDirectory;
+import org.apache.archiva.rest.services.utils.ZipDirectoryCache;
 import org.apache.archiva.security.ArchivaSecurityException;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.IOUtils;
@@ -58,15 +62,24 @@
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 
 /**
  * @author Olivier Lamy
@@ -80,9 +93,26 @@
 
     private final Charset ARTIFACT_CONTENT_ENCODING=Charset.forName( "UTF-8" );
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final int MAX_PAGE_SIZE = 10000;
+
+    // central directories of the browsed archives, shared by the listing and content requests
+    private final ZipDirectoryCache zipDirectoryCache = new ZipDirectoryCache( 32, 500000 );
+
     @Inject
     private DependencyTreeBuilder dependencyTreeBuilder;
 
+    @Inject
+    private DependencyGraphIndex dependencyGraphIndex;
+
+    @Inject
+    private NamespaceTreeCache namespaceTreeCache;
+
+    @Inject
+    @Named( value = "redbackJacksonJsonMapper" )
+    private ObjectMapper objectMapper;
+
     @Inject
     ProxyRegistry proxyRegistry;
 
@@ -108,12 +138,11 @@ public BrowseResult getRootGroups( String repositoryId )
     {
         List<String> selectedRepos = getSelectedRepos( repositoryId );
 
-        Set<String> namespaces = new LinkedHashSet<String>();
+        Set<String> namespaces;
 
         // TODO: this logic should be optional, particularly remembering we want to keep this code simple
         //       it is located here to avoid the content repository implementation needing to do too much for what
         //       is essentially presentation code
-        Set<String> namespacesToCollapse = new LinkedHashSet<String>();
         RepositorySession repositorySession = null;
         try
         {
@@ -125,17 +154,7 @@ public BrowseResult getRootGroups( String repositoryId )
         }
         try
         {
-            MetadataResolver metadataResolver = repositorySession.getResolver();
-
-            for ( String repoId : selectedRepos )
-            {
-                namespacesToCollapse.addAll( metadataResolver.resolveRootNamespaces( repositorySession, repoId ) );
-            }
-            for ( String n : namespacesToCollapse )
-            {
-                // TODO: check performance of this
-                namespaces.add( collapseNamespaces( repositorySession, metadataResolver, selectedRepos, n ) );
-            }
+            namespaces = namespaceTreeCache.getCollapsedRootNamespaces( repositorySession, selectedRepos );
         }
         catch ( MetadataResolutionException e )
         {
@@ -177,26 +196,12 @@ public BrowseResult browseGroupId( String groupId, String repositoryId )
         Set<String> namespaces;
         try
         {
-            MetadataResolver metadataResolver = repositorySession.getResolver();
-
-            Set<String> namespacesToCollapse = new LinkedHashSet<>();
-            for ( String repoId : selectedRepos )
-            {
-                namespacesToCollapse.addAll( metadataResolver.resolveNamespaces( repositorySession, repoId, groupId ) );
-
-                projects.addAll( metadataResolver.resolveProjects( repositorySession, repoId, groupId ) );
-            }
+            projects.addAll( namespaceTreeCache.getProjects( repositorySession, selectedRepos, groupId ) );
 
             // TODO: this logic should be optional, particularly remembering we want to keep this code simple
             // it is located here to avoid the content repository implementation needing to do too much for what
             // is essentially presentation code
-            namespaces = new LinkedHashSet<>();
-            for ( String n : namespacesToCollapse )
-            {
-                // TODO: check performance of this
-                namespaces.add(
-                    collapseNamespaces( repositorySession, metadataResolver, selectedRepos, groupId + "." + n ) );
-            }
+            namespaces = namespaceTreeCache.getCollapsedNamespaces( repositorySession, selectedRepos, groupId );
         }
         catch ( MetadataResolutionException e )
         {
@@ -269,7 +274,7 @@ private Collection<String> getVersions( List<String> selectedRepos, String group
 
             List<String> sortedVersions = new ArrayList<>( versions );
 
-            Collections.sort( sortedVersions, VersionComparator.getInstance() );
+            VersionComparator.sort( sortedVersions );
 
             return sortedVersions;
         }
@@ -543,8 +548,8 @@ public List<ManagedRepository> getUserManagableRepositories() throws ArchivaRest
     public List<Artifact> getDependees( String groupId, String artifactId, String version, String repositoryId )
         throws ArchivaRestServiceException
     {
-        List<ProjectVersionReference> references = new ArrayList<>();
-        // TODO: what if we get duplicates across repositories?
+        // references from the dependency graph and the references stored by older versions, without duplicates
+        Map<String, ProjectVersionReference> references = new LinkedHashMap<>();
         RepositorySession repositorySession = null;
         try
         {
@@ -556,16 +561,58 @@ public List<Artifact> getDependees( String groupId, String artifactId, String ve
         }
         try
         {
+            List<String> observableRepos = getObservableRepos();
+            for ( ProjectVersionReference reference : dependencyGraphIndex.getDependees( repositorySession,
+                observableRepos, groupId, artifactId, version, 0, -1 ) )
+            {
+                references.putIfAbsent( toKey( reference ), reference );
+            }
             MetadataResolver metadataResolver = repositorySession.getResolver();
-            for ( String repoId : getObservableRepos() )
+            for ( String repoId : observableRepos )
             {
-                // TODO: what about if we want to see this irrespective of version?
-                references.addAll(
-                    metadataResolver.resolveProjectReferences( repositorySession, repoId, groupId, artifactId,
-                                                               version ) );
+                for ( ProjectVersionReference reference : metadataResolver.resolveProjectReferences( repositorySession,
+                    repoId, groupId, artifactId, version ) )
+                {
+                    references.putIfAbsent( toKey( reference ), reference );
+                }
             }
         }
-        catch ( MetadataResolutionException e )
+        catch ( MetadataResolutionException | MetadataRepositoryException e )
+        {
+            throw new ArchivaRestServiceException( e.getMessage(),
+                                                   Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e );
+        }
+        finally
+        {
+            repositorySession.close();
+        }
+
+        return toArtifacts( references.values() );
+    }
+
+    @Override
+    public List<Artifact> getProjectDependees( String groupId, String artifactId, String version, int offset,
+                                               int limit )
+        throws ArchivaRestServiceException
+    {
+        RepositorySession repositorySession;
+        try
+        {
+            repositorySession = repositorySessionFactory.createSession();
+        }
+        catch ( MetadataRepositoryException e )
+        {
+            throw new ArchivaRestServiceException( e.getMessage(),
+                                                   Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e );
+        }
+        try
+        {
+            return toArtifacts(
+                dependencyGraphIndex.getDependees( repositorySession, getObservableRepos(), groupId, artifactId,
+                                                   StringUtils.isEmpty( version ) ? null : version, offset,
+                                                   limit > 0 ? limit : -1 ) );
+        }
+        catch ( MetadataRepositoryException e )
         {
             throw new ArchivaRestServiceException( e.getMessage(),
                                                    Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e );
@@ -574,7 +621,15 @@ public List<Artifact> getDependees( String groupId, String artifactId, String ve
         {
             repositorySession.close();
         }
+    }
 
+    private static String toKey( ProjectVersionReference reference )
+    {
+        return reference.getNamespace() + ":" + reference.getProjectId() + ":" + reference.getProjectVersion();
+    }
+
+    private static List<Artifact> toArtifacts( Collection<ProjectVersionReference> references )
+    {
         List<Artifact> artifacts = new ArrayList<>( references.size() );
 
         for ( ProjectVersionReference projectVersionReference : references )
@@ -852,6 +907,14 @@ public ArtifactContent getArtifactContentText( String groupId, String artifactId
                 {
                     // zip entry of the path -> path must a real file entry of the archive
                     FsStorageUtil.PathInformation pathInfo = FsStorageUtil.getAssetDataAsPath(file);
+                    if ( !pathInfo.isTmpFile() )
+                    {
+                        byte[] content = readCachedEntry( pathInfo.getPath(), path );
+                        if ( content != null )
+                        {
+                            return new ArtifactContent( new String( content, ARTIFACT_CONTENT_ENCODING ), repoId );
+                        }
+                    }
                     JarFile jarFile = new JarFile( pathInfo.getPath().toFile());
                     ZipEntry zipEntry = jarFile.getEntry( path );
                     try (InputStream inputStream = jarFile.getInputStream( zipEntry ))
@@ -1155,10 +1218,194 @@ public List<Artifact> searchArtifacts( String key, String text, String repositor
         }
     }
 
+    @Override
+    public ArtifactPage getArtifactsPage( String repositoryId, String cursor, int limit )
+        throws ArchivaRestServiceException
+    {
+        long offset = parseCursor( cursor );
+        int pageSize = getPageSize( limit );
+        try (RepositorySession repositorySession = repositorySessionFactory.createSession())
+        {
+            // one additional element tells, if there is a next page
+            try (Stream<ArtifactMetadata> stream = repositorySession.getRepository().getArtifactStream(
+                repositorySession, repositoryId, new QueryParameter( offset, pageSize + 1 ) ))
+            {
+                return buildArtifactPage( stream.limit( pageSize + 1 ).collect( Collectors.toList() ), repositoryId,
+                                          offset, pageSize );
+            }
+        }
+        catch ( MetadataRepositoryException | MetadataResolutionException e )
+        {
+            throw new ArchivaRestServiceException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public Response streamArtifacts( final String repositoryId )
+        throws ArchivaRestServiceException
+    {
+        return streamArtifacts( repositoryId,
+                                session -> session.getRepository().getArtifactStream( session, repositoryId ) );
+    }
+
+    @Override
+    public ArtifactPage getArtifactsByMetadataPage( String key, String value, String repositoryId, String cursor,
+                                                    int limit )
+        throws ArchivaRestServiceException
+    {
+        return getArtifactPage( repositoryId, cursor, limit,
+                                session -> session.getRepository().getArtifactsByAttribute( session, key, value,
+                                                                                            repositoryId ).stream() );
+    }
+
+    @Override
+    public Response streamArtifactsByMetadata( final String key, final String value, final String repositoryId )
+        throws ArchivaRestServiceException
+    {
+        return streamArtifacts( repositoryId,
+                                session -> session.getRepository().getArtifactsByAttribute( session, key, value,
+                                                                                            repositoryId ).stream() );
+    }
+
+    @Override
+    public ArtifactPage getArtifactsByPropertyPage( String key, String value, String repositoryId, String cursor,
+                                                    int limit )
+        throws ArchivaRestServiceException
+    {
+        return getArtifactPage( repositoryId, cursor, limit,
+                                session -> session.getRepository().getArtifactsByProjectVersionAttribute(
+                                    session, key, value, repositoryId ).stream() );
+    }
+
+    @Override
+    public Response streamArtifactsByProperty( final String key, final String value, final String repositoryId )
+        throws ArchivaRestServiceException
+    {
+        return streamArtifacts( repositoryId,
+                                session -> session.getRepository().getArtifactsByProjectVersionAttribute(
+                                    session, key, value, repositoryId ).stream() );
+    }
+
+    @Override
+    public ArtifactPage searchArtifactsPage( String text, String repositoryId, Boolean exact, String cursor,
+                                             int limit )
+        throws ArchivaRestServiceException
+    {
+        final boolean exactMatch = exact == null ? false : exact;
+        return getArtifactPage( repositoryId, cursor, limit,
+                                session -> session.getRepository().searchArtifacts( session, repositoryId, text,
+                                                                                    exactMatch ).stream() );
+    }
+
+    @Override
+    public Response streamSearchArtifacts( final String text, final String repositoryId, final Boolean exact )
+        throws ArchivaRestServiceException
+    {
+        final boolean exactMatch = exact == null ? false : exact;
+        return streamArtifacts( repositoryId,
+                                session -> session.getRepository().searchArtifacts( session, repositoryId, text,
+                                                                                    exactMatch ).stream() );
+    }
+
     //---------------------------
     // internals
     //---------------------------
 
+    /**
+     * Query of the artifact metadata for the paged and streamed listings.
+     */
+    private interface ArtifactQuery
+    {
+        Stream<ArtifactMetadata> execute( RepositorySession session )
+            throws MetadataRepositoryException, MetadataResolutionException;
+    }
+
+    private ArtifactPage getArtifactPage( String repositoryId, String cursor, int limit, ArtifactQuery query )
+        throws ArchivaRestServiceException
+    {
+        long offset = parseCursor( cursor );
+        int pageSize = getPageSize( limit );
+        try (RepositorySession repositorySession = repositorySessionFactory.createSession())
+        {
+            try (Stream<ArtifactMetadata> stream = query.execute( repositorySession ))
+            {
+                return buildArtifactPage( stream.skip( offset ).limit( pageSize + 1 ).collect( Collectors.toList() ),
+                                          repositoryId, offset, pageSize );
+            }
+        }
+        catch ( MetadataRepositoryException | MetadataResolutionException e )
+        {
+            throw new ArchivaRestServiceException( e.getMessage(), e );
+        }
+    }
+
+    private ArtifactPage buildArtifactPage( List<ArtifactMetadata> artifactMetadatas, String repositoryId, long offset,
+                                            int pageSize )
+        throws ArchivaRestServiceException
+    {
+        boolean hasMore = artifactMetadatas.size() > pageSize;
+        List<Artifact> artifacts =
+            buildArtifacts( hasMore ? artifactMetadatas.subList( 0, pageSize ) : artifactMetadatas, repositoryId );
+        return new ArtifactPage( artifacts, hasMore ? Long.toString( offset + pageSize ) : null );
+    }
+
+    /**
+     * Writes the artifacts as newline delimited JSON, while they are read from the metadata repository. The
+     * repository session is held open until the response is written.
+     */
+    private Response streamArtifacts( final String repositoryId, final ArtifactQuery query )
+    {
+        StreamingOutput output = outputStream -> {
+            try (RepositorySession repositorySession = repositorySessionFactory.createSession();
+                 Stream<ArtifactMetadata> stream = query.execute( repositorySession ))
+            {
+                Writer writer = new BufferedWriter( new OutputStreamWriter( outputStream, ARTIFACT_CONTENT_ENCODING ) );
+                Iterator<ArtifactMetadata> it = stream.iterator();
+                while ( it.hasNext() )
+                {
+                    writer.write( objectMapper.writeValueAsString( buildArtifact( it.next(), repositoryId ) ) );
+                    writer.write( '\n' );
+                }
+                writer.flush();
+            }
+            catch ( MetadataRepositoryException | MetadataResolutionException | RepositoryException
+                | ArchivaRestServiceException e )
+            {
+                log.error( "Could not stream artifacts of {}: {}", repositoryId, e.getMessage(), e );
+                throw new WebApplicationException( e, Response.Status.INTERNAL_SERVER_ERROR );
+            }
+        };
+        return Response.ok( output, APPLICATION_NDJSON ).build();
+    }
+
+    private long parseCursor( String cursor )
+        throws ArchivaRestServiceException
+    {
+        if ( StringUtils.isEmpty( cursor ) )
+        {
+            return 0;
+        }
+        try
+        {
+            long offset = Long.parseLong( cursor );
+            if ( offset >= 0 )
+            {
+                return offset;
+            }
+        }
+        catch ( NumberFormatException e )
+        {
+            // invalid cursor
+        }
+        throw new ArchivaRestServiceException( "Invalid cursor " + cursor,
+                                               Response.Status.BAD_REQUEST.getStatusCode(), null );
+    }
+
+    private int getPageSize( int limit )
+    {
+        return limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min( limit, MAX_PAGE_SIZE );
+    }
+
     private void closeQuietly( JarFile jarFile )
     {
         if ( jarFile != null )
@@ -1186,6 +1433,15 @@ protected List<ArtifactContentEntry> readFileEntries(final StorageAsset file, fi
         }
 
         FsStorageUtil.PathInformation pathInfo = FsStorageUtil.getAssetDataAsPath(file);
+        if ( !pathInfo.isTmpFile() )
+        {
+            List<ArtifactContentEntry> entries =
+                readCachedFileEntries( pathInfo.getPath(), cleanedfilterPath, filterDepth, repoId );
+            if ( entries != null )
+            {
+                return entries;
+            }
+        }
         JarFile jarFile = new JarFile(pathInfo.getPath().toFile());
         try
         {
@@ -1251,6 +1507,59 @@ protected List<ArtifactContentEntry> readFileEntries(final StorageAsset file, fi
         return sorted;
     }
 
+    /**
+     * Lists the entries of the given directory level from the cached central directory of the archive.
+     *
+     * @return the sorted entries, or <code>null</code>, if the archive could not be parsed
+     */
+    private List<ArtifactContentEntry> readCachedFileEntries( Path archive, String cleanedfilterPath,
+                                                              int filterDepth, String repoId )
+        throws IOException
+    {
+        ZipDirectory directory;
+        try
+        {
+            directory = zipDirectoryCache.get( archive );
+        }
+        catch ( ZipException e )
+        {
+            log.debug( "Could not read central directory of {}: {}", archive, e.getMessage() );
+            return null;
+        }
+        // a name may be both a directory and a file entry, the last one wins as in the archive order
+        Map<String, ArtifactContentEntry> artifactContentEntryMap = new HashMap<>();
+        for ( int index : directory.findEntries( cleanedfilterPath, filterDepth ) )
+        {
+            String name = directory.getName( index );
+            artifactContentEntryMap.put( name, new ArtifactContentEntry( name, !directory.isDirectory( index ),
+                                                                         filterDepth, repoId ) );
+        }
+        List<ArtifactContentEntry> sorted = new ArrayList<>( artifactContentEntryMap.values() );
+        Collections.sort( sorted, ArtifactContentEntryComparator.INSTANCE );
+        return sorted;
+    }
+
+    /**
+     * Reads a single file entry by the cached central directory of the archive.
+     *
+     * @return the data of the entry, or <code>null</code>, if the entry was not found or could not be read
+     */
+    private byte[] readCachedEntry( Path archive, String path )
+        throws IOException
+    {
+        try
+        {
+            ZipDirectory directory = zipDirectoryCache.get( archive );
+            int index = directory.indexOfFile( path );
+            return index < 0 ? null : directory.readEntry( archive, index );
+        }
+        catch ( ZipException e )
+        {
+            log.debug( "Could not read entry {} of {}: {}", path, archive, e.getMessage() );
+            return null;
+        }
+    }
+
     private List<ArtifactContentEntry> getSmallerDepthEntries( Map<String, ArtifactContentEntry> entries )
     {
         int smallestDepth = Integer.MAX_VALUE;
@@ -1321,36 +1630,6 @@ private List<String> getSelectedRepos( String repositoryId )
     }
 
 
-    private String collapseNamespaces( RepositorySession repositorySession, MetadataResolver metadataResolver,
-                                       Collection<String> repoIds, String n )
-        throws MetadataResolutionException
-    {
-        Set<String> subNamespaces = new LinkedHashSet<String>();
-        for ( String repoId : repoIds )
-        {
-            subNamespaces.addAll( metadataResolver.resolveNamespaces( repositorySession, repoId, n ) );
-        }
-        if ( subNamespaces.size() != 1 )
-        {
-            log.debug( "{} is not collapsible as it has sub-namespaces: {}", n, subNamespaces );
-            return n;
-        }
-        else
-        {
-            for ( String repoId : repoIds )
-            {
-                Collection<String> projects = metadataResolver.resolveProjects( repositorySession, repoId, n );
-                if ( projects != null && !projects.isEmpty() )
-                {
-                    log.debug( "{} is not collapsible as it has projects", n );
-                    return n;
-                }
-            }
-            return collapseNamespaces( repositorySession, metadataResolver, repoIds,
-                                       n + "." + subNamespaces.iterator().next() );
-        }
-    }
-
     public Cache<String, ProjectVersionMetadata> getVersionMetadataCache()
     {
         return versionMetadataCache;
@@ -27,15 +27,18 @@
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.components.cache.Cache;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
+import org.apache.archiva.consumers.RepositoryPurgeReports;
 import org.apache.archiva.maven2.model.Artifact;
 import org.apache.archiva.metadata.audit.RepositoryListener;
 import org.apache.archiva.metadata.maven.model.MavenArtifactFacet;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.DependencyGraphIndex;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
 import org.apache.archiva.metadata.repository.MetadataResolutionException;
 import org.apache.archiva.metadata.repository.MetadataSessionException;
+import org.apache.archiva.metadata.repository.NamespaceTreeCache;
 import org.apache.archiva.metadata.repository.RepositorySession;
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.model.ArchivaRepositoryMetadata;
@@ -149,6 +152,16 @@
     @Inject
     private RepositoryScanner repoScanner;
 
+    @Inject
+    private DependencyGraphIndex dependencyGraphIndex;
+
+    @Inject
+    private NamespaceTreeCache namespaceTreeCache;
+
+    @Inject
+    @Autowired(required = false)
+    private RepositoryPurgeReports repositoryPurgeReports;
+
     /**
      * Cache used for namespaces
      */
@@ -182,6 +195,16 @@ public ScanStatus getScanStatus( String repositoryId )
         return new ScanStatus( false );
     }
 
+    @Override
+    public StringList getPurgeDryRunReport( String repositoryId )
+    {
+        if ( repositoryPurgeReports == null )
+        {
+            return new StringList( );
+        }
+        return new StringList( new ArrayList<>( repositoryPurgeReports.getDryRunReport( repositoryId ) ) );
+    }
+
     @Override
     public ActionStatus removeScanningTaskFromQueue( String repositoryId )
     {
@@ -570,7 +593,7 @@ private void updateProjectMetadata( RepositoryType repositoryType, RepositorySto
         {
             availableVersions = projectMetadata.getAvailableVersions();
 
-            Collections.sort( availableVersions, VersionComparator.getInstance() );
+            VersionComparator.sort( availableVersions );
 
             if ( !availableVersions.contains( artifactTransferRequest.getVersion() ) )
             {
@@ -692,6 +715,7 @@ public ActionStatus removeProjectVersion( String repositoryId, String namespace,
             }
 
             metadataRepository.removeProjectVersion(repositorySession , repositoryId, namespace, projectId, version );
+            dependencyGraphIndex.removeProjectVersion( repositorySession, repositoryId, namespace, projectId, version );
         }
         catch ( MetadataRepositoryException | MetadataResolutionException | RepositoryException | ItemNotFoundException | LayoutException e )
         {
@@ -894,6 +918,8 @@ public ActionStatus deleteArtifact( Artifact artifact )
                         log.warn( "artifact not found when deleted but version still here ! so force cleanup" );
                         metadataRepository.removeProjectVersion(repositorySession , repositoryId,
                             artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion() );
+                        dependencyGraphIndex.removeProjectVersion( repositorySession, repositoryId,
+                            artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion() );
                     }
 
                 }
@@ -1026,6 +1052,7 @@ public ActionStatus deleteGroupId( String groupId, String repositoryId )
             MetadataRepository metadataRepository = repositorySession.getRepository();
 
             metadataRepository.removeNamespace(repositorySession , repositoryId, groupId );
+            namespaceTreeCache.removeNamespace( repositoryId, groupId );
 
             // just invalidate cache entry
             String cacheKey = repositoryId + "-" + groupId;
@@ -1121,6 +1148,7 @@ public ActionStatus deleteProject( String groupId, String projectId, String repo
             MetadataRepository metadataRepository = repositorySession.getRepository();
 
             metadataRepository.removeProject(repositorySession , repositoryId, groupId, projectId );
+            namespaceTreeCache.removeProject( repositoryId, groupId, projectId );
 
             repositorySession.save();
         }
@@ -1192,7 +1220,7 @@ private void updateMetadata( ArchivaRepositoryMetadata metadata, StorageAsset me
 
                 if ( availableVersions.size() > 0 )
                 {
-                    Collections.sort( availableVersions, VersionComparator.getInstance() );
+                    VersionComparator.sort( availableVersions );
 
                     if ( availableVersions.contains( artifact.getVersion() ) )
                     {
@@ -24,10 +24,15 @@
 import org.apache.archiva.components.cache.CacheStatistics;
 import org.apache.archiva.components.taskqueue.TaskQueue;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
+import org.apache.archiva.policies.urlcache.UrlFailureCache;
+import org.apache.archiva.policies.urlcache.UrlFailureCacheStatistics;
+import org.apache.archiva.proxy.RemoteRepositoryCircuitBreakers;
+import org.apache.archiva.proxy.model.CircuitBreakerStatus;
 import org.apache.archiva.repository.scanner.RepositoryScanner;
 import org.apache.archiva.repository.scanner.RepositoryScannerInstance;
 import org.apache.archiva.rest.api.model.ActionStatus;
 import org.apache.archiva.rest.api.model.CacheEntry;
+import org.apache.archiva.rest.api.model.CircuitBreakerEntry;
 import org.apache.archiva.rest.api.model.ConsumerScanningStatistics;
 import org.apache.archiva.rest.api.model.MemoryStatus;
 import org.apache.archiva.rest.api.model.QueueEntry;
@@ -36,6 +41,7 @@
 import org.apache.archiva.rest.api.services.ArchivaRestServiceException;
 import org.apache.archiva.rest.api.services.SystemStatusService;
 import org.apache.archiva.rest.services.utils.ConsumerScanningStatisticsComparator;
+import org.apache.archiva.scheduler.repository.model.RepositoryTaskQueueMetrics;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 
@@ -63,10 +69,18 @@
 {
 
 
+    private static final String REPOSITORY_SCANNING_QUEUE = "repository-scanning";
+
     private Map<String, TaskQueue> queues = null;
 
+    private Map<String, RepositoryTaskQueueMetrics> repositoryTaskQueues = null;
+
     private Map<String, Cache> caches = null;
 
+    private Map<String, UrlFailureCache> urlFailureCaches = null;
+
+    private Map<String, RemoteRepositoryCircuitBreakers> circuitBreakers = null;
+
     private RepositoryScanner scanner;
 
     ManagedRepositoryAdmin managedRepositoryAdmin;
@@ -82,8 +96,14 @@ public DefaultSystemStatusService( ApplicationContext applicationContext, Reposi
 
         queues = getBeansOfType( applicationContext, TaskQueue.class );
 
+        repositoryTaskQueues = getBeansOfType( applicationContext, RepositoryTaskQueueMetrics.class );
+
         caches = getBeansOfType( applicationContext, Cache.class );
 
+        urlFailureCaches = getBeansOfType( applicationContext, UrlFailureCache.class );
+
+        circuitBreakers = getBeansOfType( applicationContext, RemoteRepositoryCircuitBreakers.class );
+
         managedRepositoryAdmin = applicationContext.getBean( ManagedRepositoryAdmin.class );
     }
 
@@ -124,6 +144,18 @@ public List<QueueEntry> getQueueEntries()
                 queueEntries.add( new QueueEntry( entry.getKey(), entry.getValue().getQueueSnapshot().size() ) );
             }
 
+            // the repository tasks are queued in a lane per repository
+            for ( RepositoryTaskQueueMetrics metrics : repositoryTaskQueues.values() )
+            {
+                queueEntries.add( new QueueEntry( REPOSITORY_SCANNING_QUEUE,
+                                                  metrics.getQueuedFileTasks() + metrics.getQueuedScans() ) );
+                for ( Map.Entry<String, Integer> depth : metrics.getQueueDepths().entrySet() )
+                {
+                    queueEntries.add(
+                        new QueueEntry( REPOSITORY_SCANNING_QUEUE + "-" + depth.getKey(), depth.getValue() ) );
+                }
+            }
+
             return queueEntries;
         }
         catch ( TaskQueueException e )
@@ -162,6 +194,16 @@ public List<CacheEntry> getCacheEntries()
                                               cacheStatistics.getInMemorySize() ) );
         }
 
+        for ( Map.Entry<String, UrlFailureCache> entry : urlFailureCaches.entrySet() )
+        {
+            UrlFailureCacheStatistics statistics = entry.getValue().getStatistics();
+
+            cacheEntries.add( new CacheEntry( entry.getKey(), statistics.getSize(), statistics.getHits(),
+                                              statistics.getMisses(),
+                                              decimalFormat.format( statistics.getHitRate() ).toString(),
+                                              statistics.getMemorySize() ) );
+        }
+
         Collections.sort( cacheEntries, new CacheEntryComparator() );
 
         return cacheEntries;
@@ -171,6 +213,13 @@ public List<CacheEntry> getCacheEntries()
     public ActionStatus clearCache( String cacheKey )
         throws ArchivaRestServiceException
     {
+        UrlFailureCache urlFailureCache = urlFailureCaches.get( cacheKey );
+        if ( urlFailureCache != null )
+        {
+            urlFailureCache.clear();
+            return ActionStatus.SUCCESS;
+        }
+
         Cache cache = caches.get( cacheKey );
         if ( cache == null )
         {
@@ -190,6 +239,55 @@ public ActionStatus clearAllCaches()
         {
             cache.clear();
         }
+        for ( UrlFailureCache urlFailureCache : urlFailureCaches.values() )
+        {
+            urlFailureCache.clear();
+        }
+        return ActionStatus.SUCCESS;
+    }
+
+    @Override
+    public List<CircuitBreakerEntry> getCircuitBreakerEntries()
+        throws ArchivaRestServiceException
+    {
+        List<CircuitBreakerEntry> entries = new ArrayList<>();
+        DecimalFormat decimalFormat = new DecimalFormat( "#%" );
+        for ( RemoteRepositoryCircuitBreakers breakers : circuitBreakers.values() )
+        {
+            for ( CircuitBreakerStatus status : breakers.getStatus() )
+            {
+                CircuitBreakerEntry entry = new CircuitBreakerEntry();
+                entry.setRepositoryId( status.getRepositoryId() );
+                entry.setState( status.getState().name() );
+                entry.setOpenedSince( status.getOpenedSince() );
+                entry.setWindowCalls( status.getWindowCalls() );
+                entry.setFailureRate( decimalFormat.format( status.getFailureRate() ) );
+                entry.setAverageDuration( status.getAverageDuration() );
+                entry.setInFlight( status.getInFlight() );
+                entry.setMaxInFlight( status.getMaxInFlight() );
+                entry.setTotalCalls( status.getTotalCalls() );
+                entry.setTotalFailures( status.getTotalFailures() );
+                entry.setRejectedCalls( status.getRejectedCalls() );
+                entries.add( entry );
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public ActionStatus resetCircuitBreaker( String repositoryId )
+        throws ArchivaRestServiceException
+    {
+        boolean found = false;
+        for ( RemoteRepositoryCircuitBreakers breakers : circuitBreakers.values() )
+        {
+            found |= breakers.reset( repositoryId );
+        }
+        if ( !found )
+        {
+            throw new ArchivaRestServiceException( "no circuit breaker for repository: " + repositoryId,
+                                                   Response.Status.BAD_REQUEST.getStatusCode(), null );
+        }
         return ActionStatus.SUCCESS;
     }
 
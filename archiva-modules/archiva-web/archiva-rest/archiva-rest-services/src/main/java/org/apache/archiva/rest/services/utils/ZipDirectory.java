@@ -0,0 +1,465 @@
+package org.apache.archiva.rest.services.utils;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * The parsed central directory of a ZIP archive.
+ * <p>
+ * The entries are stored in arrays sorted by name, without the trailing slash of directory entries. All entries
+ * starting with a given prefix are found by a binary search. The position of the local header of each entry is
+ * kept, so the data of a single entry is read without opening the archive as a whole.
+ *
+ * @since 3.0
+ */
+public final class ZipDirectory
+{
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+
+    private static final int CEN_SIGNATURE = 0x02014b50;
+
+    private static final int LOC_SIGNATURE = 0x04034b50;
+
+    private static final int EOCD_SIZE = 22;
+
+    private static final int CEN_SIZE = 46;
+
+    private static final int LOC_SIZE = 30;
+
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    /**
+     * The maximum uncompressed size of an entry, that is read by {@link #readEntry(Path, int)}
+     */
+    public static final int MAX_ENTRY_SIZE = 16 * 1024 * 1024;
+
+    // the initial size of the inflate buffer, it grows with the inflated data up to the declared size
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final String[] names;
+
+    private final int[] depths;
+
+    private final BitSet directories;
+
+    private final long[] offsets;
+
+    private final long[] compressedSizes;
+
+    private final long[] sizes;
+
+    private final int[] methods;
+
+    private ZipDirectory( List<Entry> entries )
+    {
+        // stable sort, duplicate names keep the archive order
+        entries.sort( Comparator.comparing( e -> e.name ) );
+        int size = entries.size( );
+        names = new String[size];
+        depths = new int[size];
+        directories = new BitSet( size );
+        offsets = new long[size];
+        compressedSizes = new long[size];
+        sizes = new long[size];
+        methods = new int[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            Entry entry = entries.get( i );
+            names[i] = entry.name;
+            depths[i] = countSlashes( entry.name );
+            directories.set( i, entry.directory );
+            offsets[i] = entry.offset;
+            compressedSizes[i] = entry.compressedSize;
+            sizes[i] = entry.size;
+            methods[i] = entry.method;
+        }
+    }
+
+    /**
+     * Reads the central directory of the given archive.
+     *
+     * @throws ZipException if the file is not a ZIP archive, or uses features that are not supported
+     * @throws IOException  if the file could not be read
+     */
+    public static ZipDirectory read( Path file )
+        throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+        {
+            long fileSize = channel.size( );
+            int tailSize = (int) Math.min( fileSize, EOCD_SIZE + MAX_COMMENT_SIZE );
+            ByteBuffer tail = read( channel, fileSize - tailSize, tailSize, tailSize );
+            int eocd = -1;
+            for ( int i = tailSize - EOCD_SIZE; i >= 0; i-- )
+            {
+                if ( tail.getInt( i ) == EOCD_SIGNATURE )
+                {
+                    eocd = i;
+                    break;
+                }
+            }
+            if ( eocd < 0 )
+            {
+                throw new ZipException( "No end of central directory found in " + file );
+            }
+            long eocdPosition = fileSize - tailSize + eocd;
+            long cenSize = tail.getInt( eocd + 12 ) & ZIP64_MAGIC;
+            long cenOffset = tail.getInt( eocd + 16 ) & ZIP64_MAGIC;
+            long cenPosition = eocdPosition - cenSize;
+            if ( cenSize == ZIP64_MAGIC || cenOffset == ZIP64_MAGIC || ( tail.getShort( eocd + 10 ) & 0xFFFF ) == 0xFFFF )
+            {
+                if ( eocdPosition < 20 )
+                {
+                    throw new ZipException( "No zip64 end of central directory locator found in " + file );
+                }
+                ByteBuffer locator = read( channel, eocdPosition - 20, 20, 20 );
+                if ( locator.getInt( 0 ) != ZIP64_LOCATOR_SIGNATURE )
+                {
+                    throw new ZipException( "No zip64 end of central directory locator found in " + file );
+                }
+                long zip64Position = locator.getLong( 8 );
+                ByteBuffer zip64 = read( channel, zip64Position, 56, 56 );
+                if ( zip64.getInt( 0 ) != ZIP64_EOCD_SIGNATURE )
+                {
+                    throw new ZipException( "Invalid zip64 end of central directory in " + file );
+                }
+                cenSize = zip64.getLong( 40 );
+                cenOffset = zip64.getLong( 48 );
+                cenPosition = zip64Position - cenSize;
+            }
+            // the archive may be prefixed, e.g. by a launch script
+            long base = cenPosition - cenOffset;
+            if ( base < 0 || cenPosition < 0 || cenSize > Integer.MAX_VALUE )
+            {
+                throw new ZipException( "Invalid central directory in " + file );
+            }
+
+            ByteBuffer cen = read( channel, cenPosition, (int) cenSize, (int) cenSize );
+            List<Entry> entries = new ArrayList<>( );
+            int pos = 0;
+            while ( pos + CEN_SIZE <= cenSize )
+            {
+                if ( cen.getInt( pos ) != CEN_SIGNATURE )
+                {
+                    throw new ZipException( "Invalid central directory header in " + file );
+                }
+                Entry entry = new Entry( );
+                entry.method = cen.getShort( pos + 10 ) & 0xFFFF;
+                entry.compressedSize = cen.getInt( pos + 20 ) & ZIP64_MAGIC;
+                entry.size = cen.getInt( pos + 24 ) & ZIP64_MAGIC;
+                int nameLength = cen.getShort( pos + 28 ) & 0xFFFF;
+                int extraLength = cen.getShort( pos + 30 ) & 0xFFFF;
+                int commentLength = cen.getShort( pos + 32 ) & 0xFFFF;
+                long offset = cen.getInt( pos + 42 ) & ZIP64_MAGIC;
+                if ( pos + CEN_SIZE + nameLength + extraLength > cenSize )
+                {
+                    throw new ZipException( "Invalid central directory header in " + file );
+                }
+                String name = new String( cen.array( ), pos + CEN_SIZE, nameLength, StandardCharsets.UTF_8 );
+
+                if ( entry.size == ZIP64_MAGIC || entry.compressedSize == ZIP64_MAGIC || offset == ZIP64_MAGIC )
+                {
+                    int extra = pos + CEN_SIZE + nameLength;
+                    int extraEnd = extra + extraLength;
+                    while ( extra + 4 <= extraEnd )
+                    {
+                        int id = cen.getShort( extra ) & 0xFFFF;
+                        int length = cen.getShort( extra + 2 ) & 0xFFFF;
+                        if ( id == 0x0001 )
+                        {
+                            int field = extra + 4;
+                            if ( entry.size == ZIP64_MAGIC && field + 8 <= extraEnd )
+                            {
+                                entry.size = cen.getLong( field );
+                                field += 8;
+                            }
+                            if ( entry.compressedSize == ZIP64_MAGIC && field + 8 <= extraEnd )
+                            {
+                                entry.compressedSize = cen.getLong( field );
+                                field += 8;
+                            }
+                            if ( offset == ZIP64_MAGIC && field + 8 <= extraEnd )
+                            {
+                                offset = cen.getLong( field );
+                            }
+                            break;
+                        }
+                        extra += 4 + length;
+                    }
+                }
+
+                entry.directory = name.endsWith( "/" );
+                entry.name = entry.directory ? name.substring( 0, name.length( ) - 1 ) : name;
+                entry.offset = base + offset;
+                entries.add( entry );
+                pos += CEN_SIZE + nameLength + extraLength + commentLength;
+            }
+            return new ZipDirectory( entries );
+        }
+    }
+
+    public int size( )
+    {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of the entry without the trailing slash of directories.
+     */
+    public String getName( int index )
+    {
+        return names[index];
+    }
+
+    /**
+     * Returns the number of slashes in the name.
+     */
+    public int getDepth( int index )
+    {
+        return depths[index];
+    }
+
+    public boolean isDirectory( int index )
+    {
+        return directories.get( index );
+    }
+
+    /**
+     * Returns the index of the first entry, whose name is not lower than the given prefix. The entries starting
+     * with the prefix follow this entry.
+     */
+    public int findFirst( String prefix )
+    {
+        int low = 0;
+        int high = names.length;
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            if ( names[mid].compareTo( prefix ) < 0 )
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the indexes of the entries, that start with the given prefix and have the given depth. The
+     * entries below a deeper directory are skipped by a binary search each.
+     */
+    public int[] findEntries( String prefix, int depth )
+    {
+        int[] result = new int[16];
+        int count = 0;
+        int i = findFirst( prefix );
+        while ( i < names.length && names[i].startsWith( prefix ) )
+        {
+            if ( depths[i] == depth )
+            {
+                if ( count == result.length )
+                {
+                    result = Arrays.copyOf( result, count * 2 );
+                }
+                result[count++] = i;
+                i++;
+            }
+            else if ( depths[i] > depth )
+            {
+                // skip all entries below the directory at the requested depth
+                int slash = -1;
+                for ( int d = 0; d <= depth; d++ )
+                {
+                    slash = names[i].indexOf( '/', slash + 1 );
+                }
+                i = Math.max( i + 1, findFirst( names[i].substring( 0, slash + 1 ) + Character.MAX_VALUE ) );
+            }
+            else
+            {
+                i++;
+            }
+        }
+        return Arrays.copyOf( result, count );
+    }
+
+    /**
+     * Returns the index of the file entry with the given name, or <code>-1</code>.
+     */
+    public int indexOfFile( String name )
+    {
+        for ( int i = findFirst( name ); i < names.length && names[i].equals( name ); i++ )
+        {
+            if ( !directories.get( i ) )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the data of the given entry from the archive.
+     *
+     * @param file  the archive file, this directory was read from
+     * @param index the index of the entry
+     * @return the uncompressed data, or <code>null</code>, if the compression method is not supported
+     * @throws ZipException if the entry is larger than {@link #MAX_ENTRY_SIZE} or the data is invalid
+     * @throws IOException if the data could not be read
+     */
+    public byte[] readEntry( Path file, int index )
+        throws IOException
+    {
+        if ( sizes[index] > MAX_ENTRY_SIZE || compressedSizes[index] > MAX_ENTRY_SIZE )
+        {
+            throw new ZipException( "Entry " + names[index] + " is too large" );
+        }
+        if ( methods[index] != STORED && methods[index] != DEFLATED )
+        {
+            return null;
+        }
+        int compressedSize = (int) compressedSizes[index];
+        ByteBuffer data;
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+        {
+            ByteBuffer header = read( channel, offsets[index], LOC_SIZE, LOC_SIZE );
+            if ( header.getInt( 0 ) != LOC_SIGNATURE )
+            {
+                throw new ZipException( "Invalid local header of entry " + names[index] + " in " + file );
+            }
+            long dataPosition =
+                offsets[index] + LOC_SIZE + ( header.getShort( 26 ) & 0xFFFF ) + ( header.getShort( 28 ) & 0xFFFF );
+            if ( dataPosition + compressedSize > channel.size( ) )
+            {
+                throw new ZipException( "Entry " + names[index] + " exceeds the archive " + file );
+            }
+            // the inflater needs an additional dummy byte
+            data = read( channel, dataPosition, compressedSize, compressedSize + 1 );
+        }
+        if ( methods[index] == STORED )
+        {
+            byte[] result = new byte[compressedSize];
+            System.arraycopy( data.array( ), 0, result, 0, compressedSize );
+            return result;
+        }
+
+        // the declared size is not trusted for the allocation, the buffer grows with the inflated data
+        int size = (int) sizes[index];
+        byte[] result = new byte[Math.min( size, INITIAL_BUFFER_SIZE )];
+        Inflater inflater = new Inflater( true );
+        try
+        {
+            inflater.setInput( data.array( ) );
+            int count = 0;
+            while ( count < size )
+            {
+                if ( count == result.length )
+                {
+                    result = Arrays.copyOf( result, (int) Math.min( 2L * result.length, size ) );
+                }
+                int inflated = inflater.inflate( result, count, result.length - count );
+                if ( inflated == 0 && ( inflater.finished( ) || inflater.needsInput( ) || inflater.needsDictionary( ) ) )
+                {
+                    break;
+                }
+                count += inflated;
+            }
+            if ( count != size )
+            {
+                throw new ZipException( "Invalid compressed data of entry " + names[index] + " in " + file );
+            }
+            return result;
+        }
+        catch ( DataFormatException e )
+        {
+            throw new ZipException( "Invalid compressed data of entry " + names[index] + " in " + file + ": "
+                                        + e.getMessage( ) );
+        }
+        finally
+        {
+            inflater.end( );
+        }
+    }
+
+    private static ByteBuffer read( FileChannel channel, long position, int length, int capacity )
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( capacity ).order( ByteOrder.LITTLE_ENDIAN );
+        buffer.limit( length );
+        long current = position;
+        while ( buffer.hasRemaining( ) )
+        {
+            int read = channel.read( buffer, current );
+            if ( read < 0 )
+            {
+                throw new ZipException( "Unexpected end of archive" );
+            }
+            current += read;
+        }
+        buffer.clear( );
+        return buffer;
+    }
+
+    private static int countSlashes( String name )
+    {
+        int count = 0;
+        for ( int i = name.indexOf( '/' ); i >= 0; i = name.indexOf( '/', i + 1 ) )
+        {
+            count++;
+        }
+        return count;
+    }
+
+    private static final class Entry
+    {
+        private String name;
+        private boolean directory;
+        private int method;
+        private long compressedSize;
+        private long size;
+        private long offset;
+    }
+}
@@ -0,0 +1,140 @@
+package org.apache.archiva.rest.services.utils;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of parsed ZIP central directories. The entries are keyed by the absolute path of the archive and
+ * are valid as long as the modification time and size of the file are unchanged.
+ * <p>
+ * The cache is limited by the number of archives and by the total number of archive entries. The least recently
+ * used directories are evicted first.
+ *
+ * @since 3.0
+ */
+public class ZipDirectoryCache
+{
+    private final int maxArchives;
+
+    private final long maxEntries;
+
+    private long entryCount = 0;
+
+    private final Map<Path, CachedDirectory> directories = new LinkedHashMap<>( 16, 0.75f, true );
+
+    public ZipDirectoryCache( int maxArchives, long maxEntries )
+    {
+        this.maxArchives = maxArchives;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the central directory of the given archive. The directory is read, if there is no entry for the
+     * current version of the file.
+     *
+     * @param file the archive file
+     * @return the parsed directory
+     * @throws java.util.zip.ZipException if the file is not a valid ZIP archive
+     * @throws IOException                if the file could not be read
+     */
+    public ZipDirectory get( Path file )
+        throws IOException
+    {
+        Path key = file.toAbsolutePath( );
+        BasicFileAttributes attributes = Files.readAttributes( key, BasicFileAttributes.class );
+        long lastModified = attributes.lastModifiedTime( ).toMillis( );
+        synchronized ( directories )
+        {
+            CachedDirectory cached = directories.get( key );
+            if ( cached != null )
+            {
+                if ( cached.lastModified == lastModified && cached.size == attributes.size( ) )
+                {
+                    return cached.directory;
+                }
+                remove( key );
+            }
+        }
+
+        ZipDirectory directory = ZipDirectory.read( key );
+
+        // the file may have been replaced while reading
+        BasicFileAttributes current = Files.readAttributes( key, BasicFileAttributes.class );
+        if ( current.lastModifiedTime( ).toMillis( ) == lastModified && current.size( ) == attributes.size( )
+            && directory.size( ) <= maxEntries )
+        {
+            synchronized ( directories )
+            {
+                remove( key );
+                directories.put( key, new CachedDirectory( directory, lastModified, attributes.size( ) ) );
+                entryCount += directory.size( );
+                Iterator<CachedDirectory> it = directories.values( ).iterator( );
+                while ( it.hasNext( ) && ( directories.size( ) > maxArchives || entryCount > maxEntries ) )
+                {
+                    CachedDirectory eldest = it.next( );
+                    if ( eldest.directory != directory )
+                    {
+                        entryCount -= eldest.directory.size( );
+                        it.remove( );
+                    }
+                }
+            }
+        }
+        return directory;
+    }
+
+    public void clear( )
+    {
+        synchronized ( directories )
+        {
+            directories.clear( );
+            entryCount = 0;
+        }
+    }
+
+    private void remove( Path key )
+    {
+        CachedDirectory removed = directories.remove( key );
+        if ( removed != null )
+        {
+            entryCount -= removed.directory.size( );
+        }
+    }
+
+    private static final class CachedDirectory
+    {
+        private final ZipDirectory directory;
+        private final long lastModified;
+        private final long size;
+
+        CachedDirectory( ZipDirectory directory, long lastModified, long size )
+        {
+            this.directory = directory;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
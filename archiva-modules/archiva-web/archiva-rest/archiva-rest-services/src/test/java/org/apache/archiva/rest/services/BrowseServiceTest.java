@@ -24,6 +24,7 @@
 import org.apache.archiva.redback.rest.api.model.Role;
 import org.apache.archiva.redback.rest.api.services.RedbackServiceException;
 import org.apache.archiva.rest.api.model.ArtifactContentEntry;
+import org.apache.archiva.rest.api.model.ArtifactPage;
 import org.apache.archiva.rest.api.model.BrowseResult;
 import org.apache.archiva.rest.api.model.BrowseResultEntry;
 import org.apache.archiva.rest.api.model.Entry;
@@ -403,6 +404,27 @@ public void searchArtifacts()
     }
 
 
+    @Test
+    public void searchArtifactsPaged()
+        throws Exception
+    {
+        BrowseService browseService = getBrowseService( authorizationHeader, true );
+
+        tryAssert( ( ) -> {
+            ArtifactPage firstPage =
+                browseService.searchArtifactsPage( "The Apache Software Foundation", TEST_REPO_ID, true, null, 5 );
+            assertThat( firstPage.getArtifacts( ) ).isNotNull( ).hasSize( 5 );
+            assertThat( firstPage.getNextCursor( ) ).isNotNull( );
+
+            ArtifactPage secondPage =
+                browseService.searchArtifactsPage( "The Apache Software Foundation", TEST_REPO_ID, true,
+                                                   firstPage.getNextCursor( ), 5 );
+            assertThat( secondPage.getArtifacts( ) ).isNotNull( ).hasSize( 2 );
+            assertThat( secondPage.getNextCursor( ) ).isNull( );
+        } );
+    }
+
+
     @Test
     public void searchArtifactsByField()
         throws Exception
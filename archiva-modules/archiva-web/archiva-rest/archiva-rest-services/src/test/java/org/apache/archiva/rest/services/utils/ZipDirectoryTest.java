@@ -0,0 +1,189 @@
+package org.apache.archiva.rest.services.utils;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ZipDirectoryTest
+{
+    private Path archive;
+
+    @Before
+    public void createArchive() throws IOException
+    {
+        archive = Files.createTempFile( "zip-directory", ".jar" );
+        try (OutputStream out = Files.newOutputStream( archive ); ZipOutputStream zip = new ZipOutputStream( out ))
+        {
+            zip.putNextEntry( new ZipEntry( "META-INF/" ) );
+            zip.putNextEntry( new ZipEntry( "META-INF/MANIFEST.MF" ) );
+            zip.write( "Manifest-Version: 1.0\n".getBytes( StandardCharsets.UTF_8 ) );
+            zip.putNextEntry( new ZipEntry( "org/" ) );
+            zip.putNextEntry( new ZipEntry( "org/apache/" ) );
+            zip.putNextEntry( new ZipEntry( "org/apache/Foo.class" ) );
+            zip.write( new byte[100] );
+            zip.putNextEntry( new ZipEntry( "org/apache/sub/" ) );
+            zip.putNextEntry( new ZipEntry( "org/apache/sub/Bar.class" ) );
+            zip.putNextEntry( new ZipEntry( "org/apache-extra/" ) );
+
+            byte[] stored = "stored content".getBytes( StandardCharsets.UTF_8 );
+            ZipEntry storedEntry = new ZipEntry( "stored.txt" );
+            storedEntry.setMethod( ZipEntry.STORED );
+            storedEntry.setSize( stored.length );
+            CRC32 crc = new CRC32();
+            crc.update( stored );
+            storedEntry.setCrc( crc.getValue() );
+            zip.putNextEntry( storedEntry );
+            zip.write( stored );
+        }
+    }
+
+    @After
+    public void deleteArchive() throws IOException
+    {
+        Files.deleteIfExists( archive );
+    }
+
+    private List<String> names( ZipDirectory directory, String prefix, int depth )
+    {
+        List<String> names = new ArrayList<>();
+        for ( int index : directory.findEntries( prefix, depth ) )
+        {
+            names.add( directory.getName( index ) + ( directory.isDirectory( index ) ? "/" : "" ) );
+        }
+        return names;
+    }
+
+    @Test
+    public void testFindEntries() throws IOException
+    {
+        ZipDirectory directory = ZipDirectory.read( archive );
+        assertThat( directory.size() ).isEqualTo( 9 );
+        assertThat( names( directory, "", 0 ) ).containsExactly( "META-INF/", "org/", "stored.txt" );
+        assertThat( names( directory, "org/", 1 ) ).containsExactly( "org/apache/", "org/apache-extra/" );
+        assertThat( names( directory, "org/apache/", 2 ) ).containsExactly( "org/apache/Foo.class",
+                                                                            "org/apache/sub/" );
+        assertThat( names( directory, "org/apache/sub/", 3 ) ).containsExactly( "org/apache/sub/Bar.class" );
+        assertThat( names( directory, "com/", 1 ) ).isEmpty();
+    }
+
+    @Test
+    public void testReadEntry() throws IOException
+    {
+        ZipDirectory directory = ZipDirectory.read( archive );
+        assertThat( new String( directory.readEntry( archive, directory.indexOfFile( "META-INF/MANIFEST.MF" ) ),
+                                StandardCharsets.UTF_8 ) ).isEqualTo( "Manifest-Version: 1.0\n" );
+        assertThat( new String( directory.readEntry( archive, directory.indexOfFile( "stored.txt" ) ),
+                                StandardCharsets.UTF_8 ) ).isEqualTo( "stored content" );
+        assertThat( directory.readEntry( archive, directory.indexOfFile( "org/apache/Foo.class" ) ) ).hasSize( 100 );
+        assertThat( directory.indexOfFile( "org/apache" ) ).isEqualTo( -1 );
+        assertThat( directory.indexOfFile( "missing.txt" ) ).isEqualTo( -1 );
+    }
+
+    @Test
+    public void testRejectLargeEntries() throws IOException
+    {
+        // the declared sizes of a crafted archive must not be allocated up front
+        setCentralDirectoryInt( "org/apache/Foo.class", 24, Integer.MAX_VALUE - 16 );
+        setCentralDirectoryInt( "META-INF/MANIFEST.MF", 20, ZipDirectory.MAX_ENTRY_SIZE );
+        ZipDirectory directory = ZipDirectory.read( archive );
+
+        assertThatThrownBy( () -> directory.readEntry( archive, directory.indexOfFile( "org/apache/Foo.class" ) ) )
+            .isInstanceOf( ZipException.class ).hasMessageContaining( "too large" );
+        assertThatThrownBy( () -> directory.readEntry( archive, directory.indexOfFile( "META-INF/MANIFEST.MF" ) ) )
+            .isInstanceOf( ZipException.class ).hasMessageContaining( "exceeds the archive" );
+        assertThat( new String( directory.readEntry( archive, directory.indexOfFile( "stored.txt" ) ),
+                                StandardCharsets.UTF_8 ) ).isEqualTo( "stored content" );
+    }
+
+    @Test
+    public void testReadEntryLargerThanInitialBuffer() throws IOException
+    {
+        byte[] content = new byte[200 * 1024];
+        for ( int i = 0; i < content.length; i++ )
+        {
+            content[i] = (byte) ( i % 251 );
+        }
+        try (OutputStream out = Files.newOutputStream( archive ); ZipOutputStream zip = new ZipOutputStream( out ))
+        {
+            zip.putNextEntry( new ZipEntry( "large.bin" ) );
+            zip.write( content );
+        }
+        ZipDirectory directory = ZipDirectory.read( archive );
+        assertThat( directory.readEntry( archive, directory.indexOfFile( "large.bin" ) ) ).isEqualTo( content );
+    }
+
+    /**
+     * Overwrites a 32 bit field of the central directory header of the given entry.
+     */
+    private void setCentralDirectoryInt( String name, int fieldOffset, int value ) throws IOException
+    {
+        byte[] data = Files.readAllBytes( archive );
+        ByteBuffer buffer = ByteBuffer.wrap( data ).order( ByteOrder.LITTLE_ENDIAN );
+        byte[] nameBytes = name.getBytes( StandardCharsets.UTF_8 );
+        for ( int pos = 0; pos + 46 + nameBytes.length <= data.length; pos++ )
+        {
+            if ( buffer.getInt( pos ) == 0x02014b50 && ( buffer.getShort( pos + 28 ) & 0xFFFF ) == nameBytes.length
+                && Arrays.equals( nameBytes, Arrays.copyOfRange( data, pos + 46, pos + 46 + nameBytes.length ) ) )
+            {
+                buffer.putInt( pos + fieldOffset, value );
+                Files.write( archive, data );
+                return;
+            }
+        }
+        throw new IllegalArgumentException( "No central directory header of " + name );
+    }
+
+    @Test
+    public void testCacheReloadsChangedArchive() throws IOException
+    {
+        ZipDirectoryCache cache = new ZipDirectoryCache( 2, 1000 );
+        ZipDirectory directory = cache.get( archive );
+        assertThat( cache.get( archive ) ).isSameAs( directory );
+
+        try (OutputStream out = Files.newOutputStream( archive ); ZipOutputStream zip = new ZipOutputStream( out ))
+        {
+            zip.putNextEntry( new ZipEntry( "other.txt" ) );
+        }
+        Files.setLastModifiedTime( archive, FileTime.fromMillis( System.currentTimeMillis() + 5000 ) );
+        ZipDirectory changed = cache.get( archive );
+        assertThat( changed ).isNotSameAs( directory );
+        assertThat( changed.size() ).isEqualTo( 1 );
+    }
+}
@@ -0,0 +1,316 @@
+package org.apache.archiva.rss;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.rometools.rome.feed.synd.SyndFeed;
+import com.rometools.rome.io.FeedException;
+import com.rometools.rome.io.SyndFeedOutput;
+import org.apache.archiva.common.utils.LruCache;
+import org.apache.archiva.metadata.audit.AuditListener;
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache for the rendered RSS feeds. The entries are keyed by the feed type, the requested repository or artifact
+ * and the repositories visible to the requesting user.
+ * <p>
+ * Entries are invalidated by audit events (deployments) and repository events (deletions) that affect the
+ * repositories or artifacts of the feed. Because artifacts found by the repository scanner are not propagated as
+ * events, each entry has a maximum age after which it is rebuilt.
+ * <p>
+ * The cached entries provide an ETag and a last modified date, that can be used for conditional requests.
+ * <p>
+ * Each key, that is currently loaded, has a generation counter, that is incremented by the invalidation.
+ * A feed is only stored, if the generation did not change while it was loaded, so an invalidation that arrives
+ * during the load is not lost.
+ *
+ * @since 3.0
+ */
+@Service( "rssFeedCache#default" )
+public class RssFeedCache
+    implements AuditListener, RepositoryListener
+{
+    private static final Logger log = LoggerFactory.getLogger( RssFeedCache.class );
+
+    private final LruCache<String, CachedFeed> feeds = new LruCache<>( 1000, TimeUnit.MINUTES.toMillis( 10 ) );
+
+    // the generations of the keys, that are currently loaded, also used as lock for checking and storing entries
+    private final Map<String, Generation> loading = new HashMap<>( );
+
+    /**
+     * Loads the feed, if it is not found in the cache.
+     */
+    public interface FeedLoader
+    {
+        SyndFeed load( )
+            throws FeedException;
+    }
+
+    /**
+     * Returns the cached feed for the given key, or loads and renders the feed, if there is no valid entry.
+     *
+     * @param key            the cache key
+     * @param repositoryIds  the repositories, the feed content is retrieved from. Events on these repositories
+     *                       invalidate the entry.
+     * @param resourcePrefix if not <code>null</code>, only events for resources that start with this path
+     *                       invalidate the entry
+     * @param loader         the loader that creates the feed
+     * @return the cached feed, or <code>null</code>, if the loader did not return a feed
+     * @throws FeedException if the feed could not be created
+     */
+    public CachedFeed getFeed( String key, Collection<String> repositoryIds, String resourcePrefix, FeedLoader loader )
+        throws FeedException
+    {
+        Set<String> repositories = repositoryIds == null ? Collections.emptySet( ) : new HashSet<>( repositoryIds );
+        long now = System.currentTimeMillis( );
+        Generation generation;
+        long startGeneration;
+        synchronized ( loading )
+        {
+            CachedFeed cachedFeed = feeds.get( key );
+            if ( cachedFeed != null )
+            {
+                return cachedFeed;
+            }
+            generation = loading.computeIfAbsent( key, k -> new Generation( repositories, resourcePrefix ) );
+            generation.loads++;
+            startGeneration = generation.value;
+        }
+
+        CachedFeed cachedFeed = null;
+        boolean loaded = false;
+        try
+        {
+            SyndFeed feed = loader.load( );
+            loaded = true;
+            if ( feed != null )
+            {
+                String content = new SyndFeedOutput( ).outputString( feed );
+                long lastModified = feed.getPublishedDate( ) == null ? now : feed.getPublishedDate( ).getTime( );
+                String etag = "\"" + Integer.toHexString( content.hashCode( ) ) + "-" + Integer.toHexString(
+                    content.length( ) ) + "\"";
+                cachedFeed = new CachedFeed( content, etag, lastModified, repositories, resourcePrefix );
+            }
+        }
+        finally
+        {
+            synchronized ( loading )
+            {
+                if ( --generation.loads == 0 )
+                {
+                    loading.remove( key );
+                }
+                if ( cachedFeed == null )
+                {
+                    if ( loaded )
+                    {
+                        feeds.remove( key );
+                    }
+                }
+                else if ( generation.value == startGeneration )
+                {
+                    feeds.put( key, cachedFeed );
+                }
+                else
+                {
+                    // invalidated while loading, the result is returned but not cached
+                    log.debug( "Feed {} was invalidated while it was loaded", key );
+                }
+            }
+        }
+        return cachedFeed;
+    }
+
+    /**
+     * Invalidates all entries that contain data of the given repository and resource.
+     *
+     * @param repositoryId the repository id
+     * @param resource     the resource path, may be <code>null</code>
+     */
+    public void invalidate( String repositoryId, String resource )
+    {
+        if ( resource != null && resource.startsWith( "/" ) )
+        {
+            resource = resource.substring( 1 );
+        }
+        final String path = resource;
+        synchronized ( loading )
+        {
+            feeds.removeIf( ( key, feed ) -> matches( feed.repositoryIds, feed.resourcePrefix, repositoryId, path ) );
+            for ( Generation generation : loading.values( ) )
+            {
+                if ( generation.matches( repositoryId, resource ) )
+                {
+                    generation.value++;
+                }
+            }
+        }
+    }
+
+    private static boolean matches( Set<String> repositoryIds, String resourcePrefix, String repositoryId,
+                                    String resource )
+    {
+        return repositoryIds.contains( repositoryId ) && ( resourcePrefix == null || resource == null
+            || resource.startsWith( resourcePrefix ) );
+    }
+
+    public void clear( )
+    {
+        feeds.clear( );
+    }
+
+    @Override
+    public void auditEvent( AuditEvent event )
+    {
+        if ( event.getRepositoryId( ) != null && ( AuditEvent.CREATE_FILE.equals( event.getAction( ) )
+            || AuditEvent.UPLOAD_FILE.equals( event.getAction( ) ) || AuditEvent.REMOVE_FILE.equals( event.getAction( ) )
+            || AuditEvent.MERGING_REPOSITORIES.equals( event.getAction( ) ) ) )
+        {
+            log.debug( "Invalidating feeds for {}:{}", event.getRepositoryId( ), event.getResource( ) );
+            invalidate( event.getRepositoryId( ), event.getResource( ) );
+        }
+    }
+
+    @Override
+    public void deleteArtifact( MetadataRepository metadataRepository, String repositoryId, String namespace,
+                                String project, String version, String id )
+    {
+        invalidate( repositoryId, toPath( namespace, project ) );
+    }
+
+    @Override
+    public void addArtifact( RepositorySession session, String repoId, String namespace, String projectId,
+                             ProjectVersionMetadata metadata )
+    {
+        invalidate( repoId, toPath( namespace, projectId ) );
+    }
+
+    @Override
+    public void addArtifactProblem( RepositorySession session, String repoId, String namespace, String projectId,
+                                    String projectVersion, RepositoryStorageMetadataException exception )
+    {
+        // no feed content
+    }
+
+    /**
+     * Returns the path prefix of the resources of the given project.
+     */
+    public static String toPath( String namespace, String projectId )
+    {
+        if ( namespace == null || projectId == null )
+        {
+            return null;
+        }
+        return namespace.replace( '.', '/' ) + "/" + projectId + "/";
+    }
+
+    public int getMaxEntries( )
+    {
+        return feeds.getMaxEntries( );
+    }
+
+    public void setMaxEntries( int maxEntries )
+    {
+        feeds.setMaxEntries( maxEntries );
+    }
+
+    public long getMaxAgeMillis( )
+    {
+        return feeds.getMaxAgeMillis( );
+    }
+
+    public void setMaxAgeMillis( long maxAgeMillis )
+    {
+        feeds.setMaxAgeMillis( maxAgeMillis );
+    }
+
+    /**
+     * The invalidation counter of a key, that is loaded.
+     */
+    private static final class Generation
+    {
+        private final Set<String> repositoryIds;
+        private final String resourcePrefix;
+        private long value = 0;
+        private int loads = 0;
+
+        Generation( Set<String> repositoryIds, String resourcePrefix )
+        {
+            this.repositoryIds = repositoryIds;
+            this.resourcePrefix = resourcePrefix;
+        }
+
+        boolean matches( String repositoryId, String resource )
+        {
+            return RssFeedCache.matches( repositoryIds, resourcePrefix, repositoryId, resource );
+        }
+    }
+
+    /**
+     * A rendered feed with the data needed for conditional requests.
+     */
+    public static final class CachedFeed
+    {
+        private final String content;
+        private final String etag;
+        private final long lastModified;
+        private final Set<String> repositoryIds;
+        private final String resourcePrefix;
+
+        CachedFeed( String content, String etag, long lastModified, Set<String> repositoryIds, String resourcePrefix )
+        {
+            this.content = content;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.repositoryIds = repositoryIds;
+            this.resourcePrefix = resourcePrefix;
+        }
+
+        public String getContent( )
+        {
+            return content;
+        }
+
+        public String getEtag( )
+        {
+            return etag;
+        }
+
+        public long getLastModified( )
+        {
+            return lastModified;
+        }
+    }
+}
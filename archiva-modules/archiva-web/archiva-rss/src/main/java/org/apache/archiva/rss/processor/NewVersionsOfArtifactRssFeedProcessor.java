@@ -34,10 +34,12 @@
 import javax.inject.Inject;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Retrieve and process new versions of an artifact from the database and
@@ -76,22 +78,32 @@ public SyndFeed process( Map<String, String> reqParams )
 
         if ( groupId != null && artifactId != null )
         {
-            return processNewVersionsOfArtifact( groupId, artifactId );
+            String repoIds = reqParams.get( RssFeedProcessor.KEY_REPO_IDS );
+            List<String> repositoryIds;
+            if ( repoIds != null )
+            {
+                repositoryIds = Arrays.stream( repoIds.split( "," ) ).map( String::trim ).filter( id -> !id.isEmpty( ) )
+                    .collect( Collectors.toList( ) );
+            }
+            else
+            {
+                repositoryIds = repositoryRegistry.getRepositories( ).stream( ).map( Repository::getId ).collect( Collectors.toList( ) );
+            }
+            return processNewVersionsOfArtifact( repositoryIds, groupId, artifactId );
         }
 
         return null;
     }
 
-    private SyndFeed processNewVersionsOfArtifact( String groupId, String artifactId )
+    private SyndFeed processNewVersionsOfArtifact( List<String> repositoryIds, String groupId, String artifactId )
         throws FeedException
     {
         List<ArtifactMetadata> artifacts = new ArrayList<>();
         try(RepositorySession session = repositorySessionFactory.createSession())
         {
             final MetadataRepository metadataRepository = session.getRepository( );
-            for ( Repository repo : repositoryRegistry.getRepositories() )
+            for ( String repoId : repositoryIds )
             {
-                final String repoId = repo.getId();
                 Collection<String> versions = metadataRepository.getProjectVersions( session, repoId, groupId, artifactId );
                 for ( String version : versions )
                 {
@@ -35,6 +35,11 @@
 
     String KEY_ARTIFACT_ID = "artifactId";
 
+    /**
+     * Comma separated list of repository ids, the feed data is restricted to.
+     */
+    String KEY_REPO_IDS = "repoIds";
+
     SyndFeed process( Map<String, String> reqParams )
         throws FeedException;
 }
@@ -0,0 +1,116 @@
+package org.apache.archiva.rss;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.rometools.rome.feed.synd.SyndFeed;
+import junit.framework.TestCase;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RssFeedCacheTest
+    extends TestCase
+{
+    private RssFeedCache cache = new RssFeedCache();
+
+    private AtomicInteger loadCount = new AtomicInteger( 0 );
+
+    private SyndFeed createFeed()
+    {
+        loadCount.incrementAndGet();
+        List<RssFeedEntry> entries = new ArrayList<>();
+        RssFeedEntry entry = new RssFeedEntry( "Item 1" );
+        entry.setDescription( "RSS 2.0 feed item 1." );
+        entry.setPublishedDate( new Date( 1000000L ) );
+        entries.add( entry );
+        return new RssFeedGenerator().generateFeed( "Test Feed", "Test", entries );
+    }
+
+    @Test
+    public void testCachedUntilInvalidated()
+        throws Exception
+    {
+        RssFeedCache.CachedFeed feed =
+            cache.getFeed( "key", Collections.singletonList( "internal" ), "org/apache/archiva/test/", this::createFeed );
+        assertNotNull( feed );
+        assertEquals( 1000000L, feed.getLastModified() );
+        assertNotNull( feed.getEtag() );
+
+        RssFeedCache.CachedFeed second =
+            cache.getFeed( "key", Collections.singletonList( "internal" ), "org/apache/archiva/test/", this::createFeed );
+        assertSame( feed, second );
+        assertEquals( 1, loadCount.get() );
+
+        // other artifact and other repository do not change the feed
+        cache.auditEvent( new AuditEvent( "internal", "user", "/org/apache/archiva/other/1.0/other-1.0.jar", AuditEvent.UPLOAD_FILE ) );
+        cache.auditEvent( new AuditEvent( "snapshots", "user", "/org/apache/archiva/test/1.0/test-1.0.jar", AuditEvent.UPLOAD_FILE ) );
+        cache.getFeed( "key", Collections.singletonList( "internal" ), "org/apache/archiva/test/", this::createFeed );
+        assertEquals( 1, loadCount.get() );
+
+        cache.auditEvent( new AuditEvent( "internal", "user", "/org/apache/archiva/test/1.0/test-1.0.jar", AuditEvent.UPLOAD_FILE ) );
+        RssFeedCache.CachedFeed third =
+            cache.getFeed( "key", Collections.singletonList( "internal" ), "org/apache/archiva/test/", this::createFeed );
+        assertEquals( 2, loadCount.get() );
+        assertEquals( feed.getEtag(), third.getEtag() );
+    }
+
+    @Test
+    public void testExpired()
+        throws Exception
+    {
+        cache.setMaxAgeMillis( 0 );
+        cache.getFeed( "key", Collections.singletonList( "internal" ), null, this::createFeed );
+        cache.getFeed( "key", Collections.singletonList( "internal" ), null, this::createFeed );
+        assertEquals( 2, loadCount.get() );
+    }
+
+    @Test
+    public void testInvalidatedWhileLoading()
+        throws Exception
+    {
+        RssFeedCache.CachedFeed feed =
+            cache.getFeed( "key", Collections.singletonList( "internal" ), "org/apache/archiva/test/", () -> {
+                SyndFeed loaded = createFeed();
+                // a deployment arrives, while the feed is built
+                cache.auditEvent( new AuditEvent( "internal", "user", "/org/apache/archiva/test/1.0/test-1.0.jar",
+                                                  AuditEvent.UPLOAD_FILE ) );
+                return loaded;
+            } );
+        assertNotNull( feed );
+
+        // the stale result is not cached
+        cache.getFeed( "key", Collections.singletonList( "internal" ), "org/apache/archiva/test/", this::createFeed );
+        assertEquals( 2, loadCount.get() );
+        cache.getFeed( "key", Collections.singletonList( "internal" ), "org/apache/archiva/test/", this::createFeed );
+        assertEquals( 2, loadCount.get() );
+    }
+
+    @Test
+    public void testNoFeed()
+        throws Exception
+    {
+        assertNull( cache.getFeed( "key", Collections.singletonList( "internal" ), null, () -> null ) );
+    }
+}
@@ -80,7 +80,6 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -585,7 +584,7 @@ private void updateProjectMetadata(StorageAsset targetPath, Date lastUpdatedTime
         if (projectMetadataFile.exists()) {
             availableVersions = projectMetadata.getAvailableVersions();
 
-            Collections.sort(availableVersions, VersionComparator.getInstance());
+            VersionComparator.sort( availableVersions );
 
             if (!availableVersions.contains(version)) {
                 availableVersions.add(version);
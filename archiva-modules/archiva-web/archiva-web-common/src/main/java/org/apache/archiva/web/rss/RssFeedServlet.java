@@ -21,7 +21,6 @@
 
 import com.rometools.rome.feed.synd.SyndFeed;
 import com.rometools.rome.io.FeedException;
-import com.rometools.rome.io.SyndFeedOutput;
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.redback.authentication.AuthenticationException;
 import org.apache.archiva.redback.authentication.AuthenticationResult;
@@ -33,6 +32,7 @@
 import org.apache.archiva.redback.system.SecuritySession;
 import org.apache.archiva.redback.users.UserManager;
 import org.apache.archiva.redback.users.UserNotFoundException;
+import org.apache.archiva.rss.RssFeedCache;
 import org.apache.archiva.rss.processor.RssFeedProcessor;
 import org.apache.archiva.security.AccessDeniedException;
 import org.apache.archiva.security.ArchivaSecurityException;
@@ -89,6 +89,8 @@
 
     private RssFeedProcessor newVersionsprocessor;
 
+    private RssFeedCache feedCache;
+
     /**
      * FIXME: this could be multiple implementations and needs to be configured.
      */
@@ -108,6 +110,7 @@ public void init( ServletConfig servletConfig )
 
         newArtifactsprocessor = wac.getBean( "rssFeedProcessor#new-artifacts", RssFeedProcessor.class );
         newVersionsprocessor = wac.getBean( "rssFeedProcessor#new-versions", RssFeedProcessor.class );
+        feedCache = wac.getBean( "rssFeedCache#default", RssFeedCache.class );
     }
 
     @Override
@@ -149,23 +152,30 @@ else if ( StringUtils.countMatches( StringUtils.substringAfter( url, "feeds/" ),
         try
         {
             Map<String, String> map = new HashMap<>();
-            SyndFeed feed = null;
+            String feedKey;
+            String resourcePrefix = null;
 
-            if ( isAllowed( req, repoId, groupId, artifactId ) )
+            List<String> repoIds = getRepositoryIds( req, repoId, groupId, artifactId );
+            if ( repoIds != null && isAllowed( req, repoIds ) )
             {
                 if ( repoId != null )
                 {
                     // new artifacts in repo feed request
                     processor = newArtifactsprocessor;
                     map.put( RssFeedProcessor.KEY_REPO_ID, repoId );
+                    feedKey = "new-artifacts|" + repoId;
                 }
-                else if ( ( groupId != null ) && ( artifactId != null ) )
+                else
                 {
-                    // TODO: this only works for guest - we could pass in the list of repos
-                    // new versions of artifact feed request
+                    // new versions of artifact feed request, restricted to the repositories the user can observe
                     processor = newVersionsprocessor;
                     map.put( RssFeedProcessor.KEY_GROUP_ID, groupId );
                     map.put( RssFeedProcessor.KEY_ARTIFACT_ID, artifactId );
+                    List<String> sortedRepoIds = new ArrayList<>( repoIds );
+                    Collections.sort( sortedRepoIds );
+                    map.put( RssFeedProcessor.KEY_REPO_IDS, StringUtils.join( sortedRepoIds, ',' ) );
+                    feedKey = "new-versions|" + groupId + ":" + artifactId + "|" + map.get( RssFeedProcessor.KEY_REPO_IDS );
+                    resourcePrefix = RssFeedCache.toPath( groupId, artifactId );
                 }
             }
             else
@@ -174,7 +184,16 @@ else if ( ( groupId != null ) && ( artifactId != null ) )
                 return;
             }
 
-            feed = processor.process( map );
+            final String link = req.getRequestURL().toString();
+            final RssFeedProcessor feedProcessor = processor;
+            RssFeedCache.CachedFeed feed = feedCache.getFeed( feedKey + "|" + link, repoIds, resourcePrefix, ( ) -> {
+                SyndFeed syndFeed = feedProcessor.process( map );
+                if ( syndFeed != null )
+                {
+                    syndFeed.setLink( link );
+                }
+                return syndFeed;
+            } );
 
             if ( feed == null )
             {
@@ -182,19 +201,16 @@ else if ( ( groupId != null ) && ( artifactId != null ) )
                 return;
             }
 
-            res.setContentType( MIME_TYPE );
-
-            if ( repoId != null )
-            {
-                feed.setLink( req.getRequestURL().toString() );
-            }
-            else if ( ( groupId != null ) && ( artifactId != null ) )
+            res.setHeader( "ETag", feed.getEtag() );
+            res.setDateHeader( "Last-Modified", feed.getLastModified() );
+            if ( isNotModified( req, feed ) )
             {
-                feed.setLink( req.getRequestURL().toString() );
+                res.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+                return;
             }
 
-            SyndFeedOutput output = new SyndFeedOutput();
-            output.output( feed, res.getWriter() );
+            res.setContentType( MIME_TYPE );
+            res.getWriter().write( feed.getContent() );
         }
         catch ( UserNotFoundException unfe )
         {
@@ -237,17 +253,46 @@ else if ( ( groupId != null ) && ( artifactId != null ) )
     }
 
     /**
-     * Basic authentication.
+     * Returns <code>true</code>, if the client has a valid copy of the feed.
+     */
+    private boolean isNotModified( HttpServletRequest req, RssFeedCache.CachedFeed feed )
+    {
+        String ifNoneMatch = req.getHeader( "If-None-Match" );
+        if ( ifNoneMatch != null )
+        {
+            for ( String tag : StringUtils.split( ifNoneMatch, ',' ) )
+            {
+                String trimmed = StringUtils.removeStart( tag.trim(), "W/" );
+                if ( "*".equals( trimmed ) || feed.getEtag().equals( trimmed ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try
+        {
+            long ifModifiedSince = req.getDateHeader( "If-Modified-Since" );
+            // the header has only second precision
+            return ifModifiedSince >= 0 && feed.getLastModified() / 1000 <= ifModifiedSince / 1000;
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the repositories, that are used for the feed. For artifact feeds these are the repositories, that
+     * the user can observe.
      *
      * @param req
-     * @param repositoryId TODO
-     * @param groupId      TODO
-     * @param artifactId   TODO
-     * @return
+     * @param repositoryId the requested repository or <code>null</code>
+     * @param groupId      the requested group or <code>null</code>
+     * @param artifactId   the requested artifact or <code>null</code>
+     * @return the list of repository ids or <code>null</code>, if the request is not valid
      */
-    private boolean isAllowed( HttpServletRequest req, String repositoryId, String groupId, String artifactId )
-        throws UserNotFoundException, AccountLockedException, AuthenticationException, MustChangePasswordException,
-        UnauthorizedException
+    private List<String> getRepositoryIds( HttpServletRequest req, String repositoryId, String groupId, String artifactId )
     {
         String auth = req.getHeader( "Authorization" );
         List<String> repoIds = new ArrayList<>();
@@ -262,7 +307,7 @@ else if ( artifactId != null && groupId != null )
             {
                 if ( !auth.toUpperCase().startsWith( "BASIC " ) )
                 {
-                    return false;
+                    return null;
                 }
 
                 Decoder dec = new Base64();
@@ -294,9 +339,22 @@ else if ( artifactId != null && groupId != null )
         }
         else
         {
-            return false;
+            return null;
         }
+        return repoIds;
+    }
 
+    /**
+     * Basic authentication.
+     *
+     * @param req
+     * @param repoIds the repositories, the feed is built from
+     * @return
+     */
+    private boolean isAllowed( HttpServletRequest req, List<String> repoIds )
+        throws UserNotFoundException, AccountLockedException, AuthenticationException, MustChangePasswordException,
+        UnauthorizedException
+    {
         for ( String repoId : repoIds )
         {
             try
@@ -24,6 +24,7 @@
 import org.apache.archiva.components.taskqueue.Task;
 import org.apache.archiva.components.taskqueue.execution.ThreadedTaskQueueExecutor;
 import org.apache.archiva.scheduler.repository.DefaultRepositoryArchivaTaskScheduler;
+import org.apache.archiva.scheduler.repository.PartitionedRepositoryTaskExecutor;
 import org.quartz.SchedulerException;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
@@ -43,7 +44,7 @@
 {
     private ThreadedTaskQueueExecutor tqeDbScanning;
 
-    private ThreadedTaskQueueExecutor tqeRepoScanning;
+    private PartitionedRepositoryTaskExecutor repoScanningExecutor;
 
     private ThreadedTaskQueueExecutor tqeIndexing;
 
@@ -62,7 +63,8 @@ public void contextInitialized( ServletContextEvent contextEvent )
 
         Properties archivaRuntimeProperties = wac.getBean( "archivaRuntimeProperties", Properties.class );
 
-        tqeRepoScanning = wac.getBean( "taskQueueExecutor#repository-scanning", ThreadedTaskQueueExecutor.class );
+        repoScanningExecutor =
+            wac.getBean( "repositoryTaskExecutor#partitioned", PartitionedRepositoryTaskExecutor.class );
 
         tqeIndexing = wac.getBean( "taskQueueExecutor#indexing", ThreadedTaskQueueExecutor.class );
 
@@ -101,7 +103,10 @@ public void contextDestroyed( ServletContextEvent contextEvent )
         {
             // stop task queue executors
             stopTaskQueueExecutor( tqeDbScanning, servletContext );
-            stopTaskQueueExecutor( tqeRepoScanning, servletContext );
+            if ( repoScanningExecutor != null )
+            {
+                repoScanningExecutor.stop();
+            }
             stopTaskQueueExecutor( tqeIndexing, servletContext );
 
             // stop the DefaultArchivaTaskScheduler and its scheduler
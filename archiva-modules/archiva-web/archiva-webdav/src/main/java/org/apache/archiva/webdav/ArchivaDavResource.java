@@ -19,17 +19,25 @@
  * under the License.
  */
 
+import org.apache.archiva.checksum.Checksum;
+import org.apache.archiva.checksum.ChecksumAlgorithm;
+import org.apache.archiva.checksum.ChecksumUtil;
+import org.apache.archiva.checksum.ChecksummingOutputStream;
 import org.apache.archiva.metadata.model.facets.AuditEvent;
 import org.apache.archiva.repository.content.LayoutException;
+import org.apache.archiva.repository.storage.AssetEntry;
 import org.apache.archiva.repository.storage.RepositoryStorage;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.archiva.metadata.audit.AuditListener;
+import org.apache.archiva.proxy.StreamingDownload;
 import org.apache.archiva.scheduler.ArchivaTaskScheduler;
 import org.apache.archiva.scheduler.repository.model.RepositoryArchivaTaskScheduler;
 import org.apache.archiva.scheduler.repository.model.RepositoryTask;
 import org.apache.archiva.webdav.util.IndexWriter;
 import org.apache.archiva.webdav.util.MimeTypes;
+import org.apache.archiva.webdav.util.PackedIndexFileCache;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.util.Text;
 import org.apache.jackrabbit.webdav.DavException;
 import org.apache.jackrabbit.webdav.DavResource;
@@ -60,14 +68,18 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  */
@@ -76,6 +88,12 @@
 {
     public static final String HIDDEN_PATH_PREFIX = ".";
 
+    // the data of an upload is written to a hidden temporary file next to the target, named .<name><random>.upload
+    private static final String UPLOAD_FILE_SUFFIX = ".upload";
+
+    // a checksum file contains the hex checksum and optionally the file name
+    private static final int MAX_CHECKSUM_READ_SIZE = 1024;
+
     private final ArchivaDavResourceLocator locator;
 
     private final DavResourceFactory factory;
@@ -108,6 +126,23 @@
 
     private StorageAsset asset;
 
+    // attributes read by the directory listing of the parent, if this resource is a listed member
+    private AssetEntry entry;
+
+    private static final String CHECKSUM_HEADER_PREFIX = "X-Checksum-";
+
+    // the algorithms, that may be used by clients for checksum headers and checksum files
+    private static final List<ChecksumAlgorithm> HEADER_ALGORITHMS = Arrays.asList( ChecksumAlgorithm.MD5,
+        ChecksumAlgorithm.SHA1, ChecksumAlgorithm.SHA256, ChecksumAlgorithm.SHA384, ChecksumAlgorithm.SHA512 );
+
+    private List<ChecksumAlgorithm> checksumAlgorithms = Collections.emptyList( );
+
+    // serves the packed index files from memory, if set
+    private PackedIndexFileCache packedIndexFileCache;
+
+    // the running proxy download of the file, if it is read while it is downloaded
+    private StreamingDownload streamingDownload;
+
     public ArchivaDavResource( StorageAsset localResource, String logicalResource, RepositoryStorage repositoryStorage,
                                DavSession session, ArchivaDavResourceLocator locator, DavResourceFactory factory,
                                MimeTypes mimeTypes, List<AuditListener> auditListeners,
@@ -143,6 +178,31 @@ public ArchivaDavResource( StorageAsset localResource, String logicalResource, R
     }
 
 
+    /*
+     * Creates a member of the given collection from the entry of the directory listing. The member does not
+     * read the attributes again.
+     */
+    private ArchivaDavResource( ArchivaDavResource parent, AssetEntry entry, ArchivaDavResourceLocator locator )
+    {
+        this.asset = entry.getAsset();
+        this.entry = entry;
+        this.logicalResource = StringUtils.isEmpty( parent.logicalResource ) || parent.logicalResource.endsWith( "/" )
+            ? StringUtils.defaultString( parent.logicalResource ) + entry.getName()
+            : parent.logicalResource + "/" + entry.getName();
+        this.locator = locator;
+        this.factory = parent.factory;
+        this.session = parent.session;
+        this.repositoryStorage = parent.repositoryStorage;
+        this.mimeTypes = parent.mimeTypes;
+        this.auditListeners = parent.auditListeners;
+        this.scheduler = parent.scheduler;
+        this.remoteAddr = parent.remoteAddr;
+        this.principal = parent.principal;
+        this.lockManager = parent.lockManager;
+        this.checksumAlgorithms = parent.checksumAlgorithms;
+        this.packedIndexFileCache = parent.packedIndexFileCache;
+    }
+
     @Override
     public String getComplianceClass()
     {
@@ -158,13 +218,17 @@ public String getSupportedMethods()
     @Override
     public boolean exists()
     {
-        return asset.exists();
+        return entry != null || streamingDownload != null || asset.exists();
     }
 
     @Override
     public boolean isCollection()
     {
-        return asset.isContainer();
+        if ( streamingDownload != null )
+        {
+            return false;
+        }
+        return entry != null ? entry.isContainer() : asset.isContainer();
     }
 
     @Override
@@ -195,13 +259,41 @@ public String getHref()
     @Override
     public long getModificationTime()
     {
-        return asset.getModificationTime().toEpochMilli();
+        return getAssetModificationTime().toEpochMilli();
+    }
+
+    private Instant getAssetModificationTime()
+    {
+        if ( entry == null && streamingDownload != null && !asset.exists() )
+        {
+            return Instant.now();
+        }
+        return entry != null ? entry.getModificationTime() : asset.getModificationTime();
+    }
+
+    private long getAssetSize()
+    {
+        if ( entry == null && streamingDownload != null && !asset.exists() )
+        {
+            return streamingDownload.getContentLength();
+        }
+        return entry != null ? entry.getSize() : asset.getSize();
     }
 
     @Override
     public void spool( OutputContext outputContext )
         throws IOException
     {
+        if ( packedIndexFileCache != null && !isCollection() && asset.isFileBased()
+            && PackedIndexFileCache.isPackedIndexFile( asset.getName() ) )
+        {
+            spoolPackedIndexFile( outputContext );
+            return;
+        }
+        if ( streamingDownload != null && spoolStreamingDownload( outputContext ) )
+        {
+            return;
+        }
         if ( !isCollection() )
         {
             outputContext.setContentLength( asset.getSize());
@@ -219,6 +311,66 @@ else if ( outputContext.hasStream() )
         }
     }
 
+    /*
+     * The packed index files are immutable, they are served from the cache together with the precomputed checksums.
+     */
+    private void spoolPackedIndexFile( OutputContext outputContext )
+        throws IOException
+    {
+        PackedIndexFileCache.PackedIndexFile indexFile = packedIndexFileCache.get( asset.getFilePath() );
+        outputContext.setContentLength( indexFile.getSize() );
+        outputContext.setContentType( mimeTypes.getMimeType( asset.getName() ) );
+        outputContext.setModificationTime( indexFile.getLastModified() );
+        outputContext.setETag( indexFile.getETag() );
+        outputContext.setProperty( CHECKSUM_HEADER_PREFIX + ChecksumAlgorithm.SHA1.getType( ), indexFile.getSha1() );
+        outputContext.setProperty( CHECKSUM_HEADER_PREFIX + ChecksumAlgorithm.MD5.getType( ), indexFile.getMd5() );
+        if ( outputContext.hasStream() )
+        {
+            indexFile.writeTo( outputContext.getOutputStream() );
+        }
+    }
+
+    /*
+     * Sends the content of a proxied file while it is downloaded. Returns false, if the download is already complete
+     * and the file can be read from the repository.
+     */
+    private boolean spoolStreamingDownload( OutputContext outputContext )
+        throws IOException
+    {
+        if ( !outputContext.hasStream() )
+        {
+            if ( asset.exists() )
+            {
+                return false;
+            }
+            if ( streamingDownload.getContentLength() >= 0 )
+            {
+                outputContext.setContentLength( streamingDownload.getContentLength() );
+            }
+            outputContext.setContentType( mimeTypes.getMimeType( asset.getName() ) );
+            return true;
+        }
+        InputStream is = streamingDownload.openStream();
+        if ( is == null )
+        {
+            return false;
+        }
+        try
+        {
+            if ( streamingDownload.getContentLength() >= 0 )
+            {
+                outputContext.setContentLength( streamingDownload.getContentLength() );
+            }
+            outputContext.setContentType( mimeTypes.getMimeType( asset.getName() ) );
+            IOUtils.copy( is, outputContext.getOutputStream() );
+        }
+        finally
+        {
+            is.close();
+        }
+        return true;
+    }
+
     private void copyStream(InputStream is, OutputStream os) throws RuntimeException {
         try
         {
@@ -309,24 +461,26 @@ public void addMember( DavResource resource, InputContext inputContext )
 
         if ( isCollection() && inputContext.hasStream() ) // New File
         {
+            StorageAsset member = repositoryStorage.addAsset( newPath, false );
+            ChecksumAlgorithm companionAlgorithm = getChecksumAlgorithm( member.getName() );
+            List<Checksum> checksums = ChecksumUtil.newChecksums( getUploadAlgorithms( inputContext, companionAlgorithm ) );
             Path tempFile = null;
             try
             {
-                tempFile = Files.createTempFile( "archiva_upload","dat" );
-                try(OutputStream os = Files.newOutputStream( tempFile, StandardOpenOption.CREATE ))
+                if ( member.hasParent( ) && !member.getParent( ).exists( ) )
                 {
-                    IOUtils.copy( inputContext.getInputStream( ), os );
+                    member.getParent( ).create( );
                 }
-                long expectedContentLength = inputContext.getContentLength();
-                long actualContentLength = 0;
-                try
+                tempFile = createUploadFile( member );
+                long actualContentLength;
+                // the checksums are computed while the data is written
+                try ( ChecksummingOutputStream os = new ChecksummingOutputStream(
+                    Files.newOutputStream( tempFile, StandardOpenOption.CREATE ), checksums ) )
                 {
-                    actualContentLength = Files.size(tempFile);
-                }
-                catch ( IOException e )
-                {
-                    log.error( "Could not get length of file {}: {}", tempFile, e.getMessage(), e );
+                    IOUtils.copy( inputContext.getInputStream( ), os );
+                    actualContentLength = os.getCount( );
                 }
+                long expectedContentLength = inputContext.getContentLength();
                 // length of -1 is given for a chunked request or unknown length, in which case we accept what was uploaded
                 if ( expectedContentLength >= 0 && expectedContentLength != actualContentLength )
                 {
@@ -334,9 +488,16 @@ public void addMember( DavResource resource, InputContext inputContext )
                     log.debug( "Upload failed: {}", msg );
                     throw new DavException( HttpServletResponse.SC_BAD_REQUEST, msg );
                 }
-                StorageAsset member = repositoryStorage.addAsset( newPath, false );
-                member.create();
+                verifyChecksumHeaders( inputContext, checksums );
+                if ( companionAlgorithm != null )
+                {
+                    verifyCompanion( member, companionAlgorithm, tempFile );
+                }
                 member.replaceDataFromFile( tempFile );
+                if ( companionAlgorithm == null )
+                {
+                    writeChecksumFiles( member, checksums );
+                }
             }
             catch ( IOException e )
             {
@@ -387,6 +548,196 @@ else if ( !inputContext.hasStream() && isCollection() ) // New directory
         }
     }
 
+    /*
+     * Creates the file for the upload data. If possible, it is created in the directory of the target asset, so
+     * that the data is moved into place by a rename.
+     */
+    private Path createUploadFile( StorageAsset member )
+        throws IOException
+    {
+        if ( member.isFileBased( ) )
+        {
+            Path directory = member.getFilePath( ).getParent( );
+            if ( directory != null && Files.isDirectory( directory ) )
+            {
+                return Files.createTempFile( directory, HIDDEN_PATH_PREFIX + member.getName( ), UPLOAD_FILE_SUFFIX );
+            }
+        }
+        return Files.createTempFile( "archiva_upload", "dat" );
+    }
+
+    /*
+     * Returns the algorithms for the checksums of the upload: the configured algorithms and the algorithms of
+     * the checksum headers sent by the client. No checksums are computed for checksum files.
+     */
+    private List<ChecksumAlgorithm> getUploadAlgorithms( InputContext inputContext,
+                                                         ChecksumAlgorithm companionAlgorithm )
+    {
+        if ( companionAlgorithm != null )
+        {
+            return Collections.emptyList( );
+        }
+        List<ChecksumAlgorithm> algorithms = new ArrayList<>( checksumAlgorithms );
+        for ( ChecksumAlgorithm algorithm : HEADER_ALGORITHMS )
+        {
+            if ( !algorithms.contains( algorithm )
+                && StringUtils.isNotEmpty( inputContext.getProperty( CHECKSUM_HEADER_PREFIX + algorithm.getType( ) ) ) )
+            {
+                algorithms.add( algorithm );
+            }
+        }
+        return algorithms;
+    }
+
+    private void verifyChecksumHeaders( InputContext inputContext, List<Checksum> checksums )
+        throws DavException
+    {
+        for ( Checksum checksum : checksums )
+        {
+            String expected =
+                inputContext.getProperty( CHECKSUM_HEADER_PREFIX + checksum.getAlgorithm( ).getType( ) );
+            if ( StringUtils.isNotEmpty( expected ) && !checksum.getChecksum( ).equalsIgnoreCase( expected.trim( ) ) )
+            {
+                String msg = checksum.getAlgorithm( ).getType( ) + " checksum of upload does not match: expected "
+                    + expected + " but was " + checksum.getChecksum( );
+                log.debug( "Upload failed: {}", msg );
+                throw new DavException( HttpServletResponse.SC_BAD_REQUEST, msg );
+            }
+        }
+    }
+
+    /*
+     * Verifies the uploaded checksum file against the already deployed file. Checksum files, that contain no
+     * valid checksum, are accepted.
+     */
+    private void verifyCompanion( StorageAsset companion, ChecksumAlgorithm algorithm, Path uploadFile )
+        throws IOException, DavException
+    {
+        StorageAsset target = repositoryStorage.getAsset( StringUtils.substringBeforeLast( companion.getPath( ), "." ) );
+        if ( !target.exists( ) || target.isContainer( ) )
+        {
+            return;
+        }
+        String uploaded;
+        try ( InputStream is = Files.newInputStream( uploadFile ) )
+        {
+            uploaded = readChecksum( is );
+        }
+        if ( uploaded == null || uploaded.length( ) != new Checksum( algorithm ).getChecksum( ).length( ) )
+        {
+            return;
+        }
+        // the checksum file, that was written when the target was deployed
+        String actual = null;
+        if ( companion.exists( ) && companion.getModificationTime( ).compareTo( target.getModificationTime( ) ) >= 0 )
+        {
+            try ( InputStream is = companion.getReadStream( ) )
+            {
+                actual = readChecksum( is );
+            }
+        }
+        if ( actual == null )
+        {
+            Checksum checksum = new Checksum( algorithm );
+            try ( InputStream is = target.getReadStream( ) )
+            {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ( ( read = is.read( buffer ) ) >= 0 )
+                {
+                    checksum.update( buffer, 0, read );
+                }
+            }
+            actual = checksum.getChecksum( );
+        }
+        if ( !actual.equalsIgnoreCase( uploaded ) )
+        {
+            String msg = "Checksum file " + companion.getName( ) + " does not match " + target.getName( );
+            log.debug( "Upload failed: {}", msg );
+            throw new DavException( HttpServletResponse.SC_BAD_REQUEST, msg );
+        }
+    }
+
+    /*
+     * Returns the first token of a checksum file. Only the beginning of the file is read, because the checksum is
+     * at the start and the uploaded file may be of any size.
+     */
+    private static String readChecksum( InputStream is )
+        throws IOException
+    {
+        byte[] content = new byte[MAX_CHECKSUM_READ_SIZE];
+        int length = IOUtils.read( is, content );
+        String[] tokens = StringUtils.split( new String( content, 0, length, StandardCharsets.US_ASCII ) );
+        return tokens == null || tokens.length == 0 ? null : tokens[0];
+    }
+
+    private void writeChecksumFiles( StorageAsset member, List<Checksum> checksums )
+    {
+        for ( Checksum checksum : checksums )
+        {
+            if ( !checksumAlgorithms.contains( checksum.getAlgorithm( ) ) )
+            {
+                continue;
+            }
+            StorageAsset checksumAsset = repositoryStorage.addAsset(
+                member.getPath( ) + "." + checksum.getAlgorithm( ).getDefaultExtension( ), false );
+            try ( OutputStream os = checksumAsset.getWriteStream( true ) )
+            {
+                os.write( checksum.getChecksum( ).getBytes( StandardCharsets.US_ASCII ) );
+            }
+            catch ( IOException e )
+            {
+                log.error( "Could not write checksum file {}: {}", checksumAsset, e.getMessage( ) );
+            }
+        }
+    }
+
+    private static ChecksumAlgorithm getChecksumAlgorithm( String fileName )
+    {
+        String extension = StringUtils.substringAfterLast( fileName, "." ).toLowerCase( );
+        for ( ChecksumAlgorithm algorithm : HEADER_ALGORITHMS )
+        {
+            if ( algorithm.getExt( ).contains( extension ) )
+            {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the checksum algorithms, that are computed for uploaded files. The checksum files are written
+     * together with the uploaded file.
+     */
+    public void setChecksumAlgorithms( List<ChecksumAlgorithm> checksumAlgorithms )
+    {
+        this.checksumAlgorithms = checksumAlgorithms == null ? Collections.emptyList( ) : checksumAlgorithms;
+    }
+
+    /**
+     * Sets the cache, that serves the packed index files of this resource and its members.
+     */
+    public void setPackedIndexFileCache( PackedIndexFileCache packedIndexFileCache )
+    {
+        this.packedIndexFileCache = packedIndexFileCache;
+    }
+
+    /**
+     * Sets the proxy download, that is read, if the file is requested before the download is complete.
+     */
+    public void setStreamingDownload( StreamingDownload streamingDownload )
+    {
+        this.streamingDownload = streamingDownload;
+    }
+
+    /**
+     * Returns <code>true</code>, if the given file name is the name of the temporary file of a running upload.
+     */
+    public static boolean isUploadFile( String name )
+    {
+        return name.startsWith( HIDDEN_PATH_PREFIX ) && name.endsWith( UPLOAD_FILE_SUFFIX );
+    }
+
     public StorageAsset getAsset() {
         return asset;
     }
@@ -397,21 +748,17 @@ public DavResourceIterator getMembers()
         List<DavResource> list;
         if ( exists() && isCollection() )
         {
-            list = asset.list().stream().filter( m -> !m.getName().startsWith( HIDDEN_PATH_PREFIX ) )
-                .map(m -> {
-                    String path = locator.getResourcePath( ) + '/' + m.getName();
-                    DavResourceLocator resourceLocator =
-                        locator.getFactory( ).createResourceLocator( locator.getPrefix( ), path );
-                    try
-                    {
-                        return factory.createResource( resourceLocator, session );
-                    }
-                    catch ( DavException e )
-                    {
-                        return null;
-                    }
-
-                }).filter( Objects::nonNull ).collect( Collectors.toList());
+            // the members are created from the listing, without resolving each path by the resource factory
+            try ( Stream<AssetEntry> entries = asset.listEntries() )
+            {
+                list = entries.filter( m -> !m.getName().startsWith( HIDDEN_PATH_PREFIX ) )
+                    .map( m -> {
+                        String path = locator.getResourcePath( ) + '/' + m.getName();
+                        DavResourceLocator resourceLocator =
+                            locator.getFactory( ).createResourceLocator( locator.getPrefix( ), path );
+                        return new ArchivaDavResource( this, m, (ArchivaDavResourceLocator) resourceLocator );
+                    } ).collect( Collectors.toList() );
+            }
         } else {
             list = Collections.emptyList( );
         }
@@ -682,11 +1029,11 @@ protected DavPropertySet initProperties()
         }
 
         // Need to get the ISO8601 date for properties
-        String modifiedDate = DateTimeFormatter.ISO_INSTANT.format( asset.getModificationTime() );
+        String modifiedDate = DateTimeFormatter.ISO_INSTANT.format( getAssetModificationTime() );
         properties.add( new DefaultDavProperty<>( DavPropertyName.GETLASTMODIFIED, modifiedDate ) );
         properties.add( new DefaultDavProperty<>( DavPropertyName.CREATIONDATE, modifiedDate ) );
 
-        properties.add( new DefaultDavProperty<>( DavPropertyName.GETCONTENTLENGTH, asset.getSize() ) );
+        properties.add( new DefaultDavProperty<>( DavPropertyName.GETCONTENTLENGTH, getAssetSize() ) );
 
         this.properties = properties;
 
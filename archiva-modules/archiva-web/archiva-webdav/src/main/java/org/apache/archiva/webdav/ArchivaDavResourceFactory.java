@@ -46,6 +46,8 @@
 import org.apache.archiva.model.ArchivaRepositoryMetadata;
 import org.apache.archiva.policies.ProxyDownloadException;
 import org.apache.archiva.proxy.ProxyRegistry;
+import org.apache.archiva.proxy.StreamingDownload;
+import org.apache.archiva.proxy.StreamingDownloads;
 import org.apache.archiva.proxy.model.RepositoryProxyHandler;
 import org.apache.archiva.redback.authentication.AuthenticationException;
 import org.apache.archiva.redback.authentication.AuthenticationResult;
@@ -79,6 +81,7 @@
 import org.apache.archiva.scheduler.repository.model.RepositoryArchivaTaskScheduler;
 import org.apache.archiva.security.ServletAuthenticator;
 import org.apache.archiva.webdav.util.MimeTypes;
+import org.apache.archiva.webdav.util.PackedIndexFileCache;
 import org.apache.archiva.webdav.util.TemporaryGroupIndexSessionCleaner;
 import org.apache.archiva.webdav.util.WebdavMethodUtil;
 import org.apache.archiva.xml.XMLException;
@@ -119,6 +122,8 @@
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -183,6 +188,12 @@
     @Named( value = "fileLockManager#default" )
     private FileLockManager fileLockManager;
 
+    @Inject
+    private PackedIndexFileCache packedIndexFileCache;
+
+    @Inject
+    private StreamingDownloads streamingDownloads;
+
     private ApplicationContext applicationContext;
 
 
@@ -428,9 +439,12 @@ private DavResource processRepositoryGroup( final DavServletRequest request,
             StorageAsset asset = temporaryIndexDirectory.resolve(requestedFileName);
 
             try {
-                resource = new ArchivaDavResource( asset, requestedFileName, repoGroup,
-                                                   request.getRemoteAddr(), activePrincipal, request.getDavSession(),
-                                                   archivaLocator, this, mimeTypes, auditListeners, scheduler );
+                ArchivaDavResource indexResource =
+                    new ArchivaDavResource( asset, requestedFileName, repoGroup, request.getRemoteAddr(),
+                                            activePrincipal, request.getDavSession(), archivaLocator, this,
+                                            mimeTypes, auditListeners, scheduler );
+                indexResource.setPackedIndexFileCache( packedIndexFileCache );
+                resource = indexResource;
             } catch (LayoutException e) {
                 log.error("Bad layout: {}", e.getMessage(), e);
                 throw new DavException(500, e);
@@ -593,7 +607,19 @@ private DavResource processRepository( final DavServletRequest request, ArchivaD
                     {
                         boolean previouslyExisted = repoAsset.exists();
 
-                        boolean fromProxy = fetchContentFromProxies( managedRepository, request, logicalResource );
+                        StreamingDownload download = null;
+                        boolean fromProxy = false;
+                        if ( !previouslyExisted && isStreamable( request, managedRepository, logicalResource ) )
+                        {
+                            // the fetch, that downloads the file, triggers the audit event after the file was stored
+                            download = fetchStreamingContentFromProxies( managedRepository, request, logicalResource,
+                                                                         archivaLocator.getRepositoryId(),
+                                                                         activePrincipal );
+                        }
+                        else
+                        {
+                            fromProxy = fetchContentFromProxies( managedRepository, request, logicalResource );
+                        }
 
                         StorageAsset resourceAsset=null;
                         // At this point the incoming request can either be in default or
@@ -604,12 +630,16 @@ private DavResource processRepository( final DavServletRequest request, ArchivaD
                             // repository expected path.
                             // String localResourcePath = managedRepository.getRequestInfo().toNativePath( logicalResource.getPath() );
                             resourceAsset = managedRepository.getAsset( logicalResource.getPath() );
-                            resource =
+                            ArchivaDavResource fileResource =
                                 new ArchivaDavResource( resourceAsset, logicalResource.getPath(),
                                                         managedRepository,
                                                         request.getRemoteAddr(), activePrincipal,
                                                         request.getDavSession(), archivaLocator, this, mimeTypes,
                                                         auditListeners, scheduler );
+                            // the packed index files are served from memory
+                            fileResource.setPackedIndexFileCache( packedIndexFileCache );
+                            fileResource.setStreamingDownload( download );
+                            resource = fileResource;
                         }
                         catch ( LayoutException e )
                         {
@@ -631,7 +661,7 @@ private DavResource processRepository( final DavServletRequest request, ArchivaD
                                                logicalResource.getPath(), action, activePrincipal );
                         }
 
-                        if ( !resourceAsset.exists() )
+                        if ( download == null && !resourceAsset.exists() )
                         {
                             throw new DavException( HttpServletResponse.SC_NOT_FOUND, "Resource does not exist" );
                         }
@@ -731,7 +761,7 @@ public DavResource createResource( final DavResourceLocator locator, final DavSe
                 "Invalid repository: " + archivaLocator.getRepositoryId() );
         }
 
-        DavResource resource = null;
+        ArchivaDavResource resource = null;
         String logicalResource = getLogicalResource( archivaLocator, repo, false );
         if ( logicalResource.startsWith( "/" ) )
         {
@@ -743,6 +773,8 @@ public DavResource createResource( final DavResourceLocator locator, final DavSe
             resource = new ArchivaDavResource( resourceAsset, logicalResource,
                                                repo, davSession, archivaLocator,
                                                this, mimeTypes, auditListeners, scheduler);
+            // the collection resource receives the uploaded members
+            resource.setChecksumAlgorithms( getUploadChecksumAlgorithms( ) );
         }
         catch ( LayoutException e )
         {
@@ -754,6 +786,96 @@ public DavResource createResource( final DavResourceLocator locator, final DavSe
         return resource;
     }
 
+    /**
+     * Only GET requests of artifacts, that are not yet in the repository, are streamed while they are proxied.
+     */
+    private boolean isStreamable( DavServletRequest request, ManagedRepository managedRepository,
+                                  LogicalResource resource )
+    {
+        if ( streamingDownloads == null || !streamingDownloads.isEnabled() || !"GET".equals( request.getMethod() ) )
+        {
+            return false;
+        }
+        RepositoryRequestInfo repositoryRequestInfo = managedRepository.getRequestInfo();
+        return !repositoryRequestInfo.isMetadata( resource.getPath() )
+            && !repositoryRequestInfo.isArchetypeCatalog( resource.getPath() );
+    }
+
+    /**
+     * Fetches the content from the proxies and returns, as soon as the download of the file is started. If the file
+     * is already downloaded for another request, this request reads from the same download.
+     * <p>
+     * The audit event of the proxied file is triggered by the fetch, that downloaded the file, after the file was
+     * stored in the repository. The requests, that join the running download, do not trigger an event.
+     *
+     * @return the running download or <code>null</code>, if the fetch finished without streaming
+     */
+    private StreamingDownload fetchStreamingContentFromProxies( ManagedRepository managedRepository,
+                                                                DavServletRequest request,
+                                                                LogicalResource resource,
+                                                                String auditRepositoryId, String principal )
+        throws DavException
+    {
+        String repositoryId = managedRepository.getId();
+        try
+        {
+            // the downloads are registered under the path of the file in the repository, that differs from the
+            // requested path, if the artifact was relocated or requested in another layout
+            resource.setPath( resolveArtifactPath( managedRepository, resource.getPath() ) );
+            if ( streamingDownloads.get( repositoryId, resource.getPath() ) != null )
+            {
+                StreamingDownload download = streamingDownloads.awaitStart( repositoryId, resource.getPath(), null );
+                if ( download != null || managedRepository.getAsset( resource.getPath() ).exists() )
+                {
+                    // the other request finished the download in the meantime
+                    return download;
+                }
+            }
+
+            LogicalResource fetchResource = new LogicalResource( resource.getPath() );
+            String remoteAddr = request.getRemoteAddr();
+            Future<Boolean> fetch = streamingDownloads.submit( () -> {
+                boolean proxied = fetchContentFromProxies( managedRepository, request, fetchResource );
+                if ( proxied )
+                {
+                    triggerAuditEvent( remoteAddr, auditRepositoryId, fetchResource.getPath(),
+                                       AuditEvent.CREATE_FILE + PROXIED_SUFFIX, principal );
+                }
+                return proxied;
+            } );
+            StreamingDownload download = streamingDownloads.awaitStart( repositoryId, resource.getPath(), fetch );
+            if ( download != null )
+            {
+                return download;
+            }
+            // throws the failure of the fetch
+            fetch.get();
+            resource.setPath( fetchResource.getPath() );
+            return null;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new DavException( HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e );
+        }
+        catch ( ProxyDownloadException e )
+        {
+            log.error( e.getMessage(), e );
+            throw new DavException( HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                                    "Unable to fetch artifact resource." );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof DavException )
+            {
+                throw (DavException) e.getCause();
+            }
+            log.error( "Unable to fetch {}: {}", resource.getPath(), e.getCause().getMessage(), e.getCause() );
+            throw new DavException( HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                                    "Unable to fetch artifact resource." );
+        }
+    }
+
     private boolean fetchContentFromProxies( ManagedRepository managedRepository, DavServletRequest request,
                                              LogicalResource resource )
         throws DavException
@@ -791,16 +913,10 @@ private boolean fetchContentFromProxies( ManagedRepository managedRepository, Da
         {
             // Get the artifact reference in a layout neutral way.
 //             ArtifactReference artifact = repositoryRequestInfo.toArtifactReference( path );
-            ItemSelector selector = repositoryRequestInfo.toItemSelector( path );
+            ItemSelector selector = toRelocatedSelector( managedRepository, path );
 
             if ( selector != null )
             {
-                String repositoryLayout = managedRepository.getLayout();
-
-                RepositoryStorage repositoryStorage =
-                    this.applicationContext.getBean( "repositoryStorage#" + repositoryLayout, RepositoryStorage.class );
-                selector = repositoryStorage.applyServerSideRelocation( managedRepository, selector );
-
                 StorageAsset proxiedFile = proxyHandler.fetchFromProxies( managedRepository, selector );
 
                 resource.setPath( managedRepository.getContent().toPath( selector ) );
@@ -824,6 +940,42 @@ private boolean fetchContentFromProxies( ManagedRepository managedRepository, Da
         return false;
     }
 
+    /**
+     * Returns the path of the artifact in the managed repository, after the server side relocation and the conversion
+     * to the layout of the repository. Paths, that do not denote an artifact, are returned unchanged.
+     */
+    private String resolveArtifactPath( ManagedRepository managedRepository, String path )
+        throws ProxyDownloadException
+    {
+        if ( managedRepository.getRequestInfo().isSupportFile( path ) )
+        {
+            return path;
+        }
+        try
+        {
+            ItemSelector selector = toRelocatedSelector( managedRepository, path );
+            return selector == null ? path : managedRepository.getContent().toPath( selector );
+        }
+        catch ( LayoutException e )
+        {
+            return path;
+        }
+    }
+
+    private ItemSelector toRelocatedSelector( ManagedRepository managedRepository, String path )
+        throws LayoutException, ProxyDownloadException
+    {
+        ItemSelector selector = managedRepository.getRequestInfo().toItemSelector( path );
+        if ( selector == null )
+        {
+            return null;
+        }
+        RepositoryStorage repositoryStorage =
+            this.applicationContext.getBean( "repositoryStorage#" + managedRepository.getLayout(),
+                                             RepositoryStorage.class );
+        return repositoryStorage.applyServerSideRelocation( managedRepository, selector );
+    }
+
     // TODO: remove?
 
     private void triggerAuditEvent( String remoteIP, String repositoryId, String resource, String action,
@@ -1264,6 +1416,15 @@ private StorageAsset writeMergedMetadataToFile( RepositoryGroup repoGroup, Archi
     }
 
 
+    /*
+     * The configured checksum algorithms, that are written with each deployed file.
+     */
+    private List<ChecksumAlgorithm> getUploadChecksumAlgorithms( )
+    {
+        return ChecksumUtil.getAlgorithms( archivaConfiguration.getConfiguration( ).getArchivaRuntimeConfiguration( ).getChecksumTypes( ) )
+            .stream( ).filter( algorithm -> algorithm != ChecksumAlgorithm.ASC ).collect( Collectors.toList( ) );
+    }
+
     private void createChecksumFiles(RepositoryGroup repo, String path) {
         List<ChecksumAlgorithm> algorithms = ChecksumUtil.getAlgorithms( archivaConfiguration.getConfiguration( ).getArchivaRuntimeConfiguration( ).getChecksumTypes( ) );
         List<OutputStream> outStreams = algorithms.stream( ).map( algo -> {
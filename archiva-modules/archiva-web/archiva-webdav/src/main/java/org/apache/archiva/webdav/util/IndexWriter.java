@@ -19,7 +19,9 @@
  * under the License.
  */
 
+import org.apache.archiva.repository.storage.AssetEntry;
 import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.webdav.ArchivaDavResource;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.webdav.io.OutputContext;
 import org.slf4j.Logger;
@@ -35,9 +37,9 @@
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.stream.Stream;
 
 /**
  */
@@ -53,6 +55,8 @@
 
     private final boolean isVirtual;
 
+    private DateFormat dateFormatter;
+
     public IndexWriter( StorageAsset reference, String logicalResource )
     {
         this.repositoryAssets = new ArrayList<>(  );
@@ -154,41 +158,48 @@ private void writeHyperlinks( PrintWriter writer ) throws IOException
         {
             for ( StorageAsset localResource : repositoryAssets )
             {
-                localResource.list().stream().sorted(
-                    Comparator.comparing( StorageAsset::getName )
-                ).forEach( asset -> {
-                    writeHyperlink( writer, asset.getName(), asset.getModificationTime().toEpochMilli(), asset.getSize(),
-                        asset.isContainer() );
-                } );
+                // the attributes are read with the directory listing, the rows are written as soon as sorted
+                try ( Stream<AssetEntry> entries = localResource.listEntries() )
+                {
+                    // the temporary files of running uploads are not listed
+                    entries.filter( entry -> !ArchivaDavResource.isUploadFile( entry.getName() ) )
+                        .sorted( Comparator.comparing( AssetEntry::getName ) )
+                        .forEach( entry -> writeHyperlink( writer, entry ) );
+                }
             }
         }
         else
         {
             // virtual repository - filter unique directories
-            SortedMap<String, StorageAsset> uniqueChildFiles = new TreeMap<>();
+            SortedMap<String, AssetEntry> uniqueChildFiles = new TreeMap<>();
             for ( StorageAsset resource : repositoryAssets )
             {
-                List<? extends StorageAsset> files = resource.list();
-                for ( StorageAsset file : files )
+                try ( Stream<AssetEntry> entries = resource.listEntries() )
                 {
                     // the first entry wins
-                    if (!uniqueChildFiles.containsKey( file.getName() )) {
-                        uniqueChildFiles.put(file.getName(), file);
-                    }
+                    entries.filter( entry -> !ArchivaDavResource.isUploadFile( entry.getName() ) )
+                        .forEach( entry -> uniqueChildFiles.putIfAbsent( entry.getName(), entry ) );
                 }
             }
-            for ( Map.Entry<String, StorageAsset> entry : uniqueChildFiles.entrySet())
+            for ( AssetEntry entry : uniqueChildFiles.values() )
             {
-                final StorageAsset asset = entry.getValue();
-                 writeHyperlink( writer, asset.getName(), asset.getModificationTime().toEpochMilli(),
-                            asset.getSize(), asset.isContainer());
+                writeHyperlink( writer, entry );
             }
         }
     }
 
-    private static String fileDateFormat( long date ) 
+    private void writeHyperlink( PrintWriter writer, AssetEntry entry )
+    {
+        writeHyperlink( writer, entry.getName(), entry.getModificationTime().toEpochMilli(), entry.getSize(),
+            entry.isContainer() );
+    }
+
+    private String fileDateFormat( long date )
     {
-        DateFormat dateFormatter = DateFormat.getDateTimeInstance( DateFormat.SHORT, DateFormat.SHORT, Locale.getDefault() );
+        if ( dateFormatter == null )
+        {
+            dateFormatter = DateFormat.getDateTimeInstance( DateFormat.SHORT, DateFormat.SHORT, Locale.getDefault() );
+        }
         Date aDate = new Date( date );
         return dateFormatter.format( aDate );
     }
@@ -0,0 +1,292 @@
+package org.apache.archiva.webdav.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.checksum.Checksum;
+import org.apache.archiva.checksum.ChecksumAlgorithm;
+import org.apache.archiva.common.utils.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Cache for the packed index files (<code>nexus-maven-repository-index.*</code>), that are downloaded by the IDEs
+ * and other repository managers. The files are mapped read only into memory and their checksums and ETag are
+ * computed once, when a file is loaded. Small files, like the index properties, are kept on the heap. Files, that are
+ * too large to be mapped, are streamed from the disk.
+ * <p>
+ * The index packer publishes a new generation of the files by renaming them into the index directory, so a file is
+ * never changed in place. A cached file is reloaded, if the file key, modification time or size of the path changes.
+ * The number of entries is bounded, the least recently used entries are evicted.
+ *
+ * @since 3.0
+ */
+@Service( "packedIndexFileCache#default" )
+public class PackedIndexFileCache
+{
+    private static final Logger log = LoggerFactory.getLogger( PackedIndexFileCache.class );
+
+    /**
+     * The prefix of the packed index files, as defined by the maven indexer.
+     */
+    public static final String INDEX_FILE_PREFIX = "nexus-maven-repository-index";
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private int maxHeapSize = 64 * 1024;
+
+    private long maxMapSize = Integer.MAX_VALUE;
+
+    private final LruCache<Path, PackedIndexFile> files = new LruCache<>( 64 );
+
+    /**
+     * Returns <code>true</code>, if the given file name is the name of a packed index file or of the index
+     * properties.
+     */
+    public static boolean isPackedIndexFile( String fileName )
+    {
+        return fileName != null && fileName.startsWith( INDEX_FILE_PREFIX ) && ( fileName.endsWith( ".gz" )
+            || fileName.endsWith( ".properties" ) || fileName.endsWith( ".zip" ) );
+    }
+
+    /**
+     * Returns the cached content of the given file. The file is loaded, if it is not cached or if it was replaced.
+     *
+     * @param file the packed index file
+     * @return the content
+     * @throws IOException if the file could not be read
+     */
+    public PackedIndexFile get( Path file )
+        throws IOException
+    {
+        BasicFileAttributes attributes = Files.readAttributes( file, BasicFileAttributes.class );
+        PackedIndexFile cached = files.get( file );
+        if ( cached != null && cached.isCurrent( attributes ) )
+        {
+            return cached;
+        }
+        PackedIndexFile loaded = load( file, attributes );
+        files.put( file, loaded );
+        return loaded;
+    }
+
+    public void clear( )
+    {
+        files.clear( );
+    }
+
+    private PackedIndexFile load( Path file, BasicFileAttributes attributes )
+        throws IOException
+    {
+        log.debug( "Loading packed index file {}", file );
+        ByteBuffer content;
+        try (FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ))
+        {
+            long size = channel.size( );
+            if ( size > maxMapSize )
+            {
+                // a file can only be mapped up to 2 GB, larger files are read for the checksums and streamed later
+                Checksum sha1 = new Checksum( ChecksumAlgorithm.SHA1 );
+                Checksum md5 = new Checksum( ChecksumAlgorithm.MD5 );
+                ByteBuffer buffer = ByteBuffer.allocate( STREAM_BUFFER_SIZE );
+                while ( channel.read( buffer ) >= 0 )
+                {
+                    buffer.flip( );
+                    sha1.update( buffer.duplicate( ) );
+                    md5.update( buffer );
+                    buffer.clear( );
+                }
+                return new PackedIndexFile( file, attributes, sha1.getChecksum( ), md5.getChecksum( ) );
+            }
+            if ( size <= maxHeapSize )
+            {
+                ByteBuffer buffer = ByteBuffer.allocate( (int) size );
+                while ( buffer.hasRemaining( ) )
+                {
+                    if ( channel.read( buffer ) < 0 )
+                    {
+                        break;
+                    }
+                }
+                buffer.flip( );
+                content = buffer;
+            }
+            else
+            {
+                // the mapping stays valid after the channel is closed
+                content = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+            }
+        }
+        Checksum sha1 = new Checksum( ChecksumAlgorithm.SHA1 ).update( content.duplicate( ) );
+        Checksum md5 = new Checksum( ChecksumAlgorithm.MD5 ).update( content.duplicate( ) );
+        return new PackedIndexFile( content.asReadOnlyBuffer( ), attributes, sha1.getChecksum( ),
+                                    md5.getChecksum( ) );
+    }
+
+    public int getMaxEntries( )
+    {
+        return files.getMaxEntries( );
+    }
+
+    public void setMaxEntries( int maxEntries )
+    {
+        files.setMaxEntries( maxEntries );
+    }
+
+    public int getMaxHeapSize( )
+    {
+        return maxHeapSize;
+    }
+
+    /**
+     * Sets the size up to which files are copied to the heap instead of being mapped.
+     */
+    public void setMaxHeapSize( int maxHeapSize )
+    {
+        this.maxHeapSize = maxHeapSize;
+    }
+
+    public long getMaxMapSize( )
+    {
+        return maxMapSize;
+    }
+
+    /**
+     * Sets the size up to which files are mapped. Larger files are streamed from the disk. The size is limited to
+     * 2 GB by {@link FileChannel#map(FileChannel.MapMode, long, long)}.
+     */
+    public void setMaxMapSize( long maxMapSize )
+    {
+        this.maxMapSize = Math.min( maxMapSize, Integer.MAX_VALUE );
+    }
+
+    /**
+     * The immutable content of a packed index file.
+     */
+    public static final class PackedIndexFile
+    {
+        // null, if the file is streamed from the disk
+        private final ByteBuffer content;
+
+        private final Path file;
+
+        private final Object fileKey;
+
+        private final long lastModified;
+
+        private final long size;
+
+        private final String sha1;
+
+        private final String md5;
+
+        PackedIndexFile( ByteBuffer content, BasicFileAttributes attributes, String sha1, String md5 )
+        {
+            this( content, null, attributes, sha1, md5 );
+        }
+
+        PackedIndexFile( Path file, BasicFileAttributes attributes, String sha1, String md5 )
+        {
+            this( null, file, attributes, sha1, md5 );
+        }
+
+        private PackedIndexFile( ByteBuffer content, Path file, BasicFileAttributes attributes, String sha1,
+                                 String md5 )
+        {
+            this.content = content;
+            this.file = file;
+            this.fileKey = attributes.fileKey( );
+            this.lastModified = attributes.lastModifiedTime( ).toMillis( );
+            this.size = attributes.size( );
+            this.sha1 = sha1;
+            this.md5 = md5;
+        }
+
+        boolean isCurrent( BasicFileAttributes attributes )
+        {
+            return Objects.equals( fileKey, attributes.fileKey( ) )
+                && lastModified == attributes.lastModifiedTime( ).toMillis( ) && size == attributes.size( );
+        }
+
+        public long getSize( )
+        {
+            return size;
+        }
+
+        public long getLastModified( )
+        {
+            return lastModified;
+        }
+
+        public String getSha1( )
+        {
+            return sha1;
+        }
+
+        public String getMd5( )
+        {
+            return md5;
+        }
+
+        /**
+         * Returns the strong entity tag, that is derived from the content.
+         */
+        public String getETag( )
+        {
+            return "\"" + sha1 + "\"";
+        }
+
+        /**
+         * Writes the content to the given stream. The stream is not closed. A streamed file must not have been
+         * replaced since it was loaded.
+         */
+        public void writeTo( OutputStream os )
+            throws IOException
+        {
+            if ( content == null )
+            {
+                if ( !isCurrent( Files.readAttributes( file, BasicFileAttributes.class ) ) )
+                {
+                    throw new IOException( "The packed index file " + file + " was replaced" );
+                }
+                Files.copy( file, os );
+                return;
+            }
+            WritableByteChannel channel = Channels.newChannel( os );
+            ByteBuffer buffer = content.duplicate( );
+            while ( buffer.hasRemaining( ) )
+            {
+                channel.write( buffer );
+            }
+        }
+    }
+}
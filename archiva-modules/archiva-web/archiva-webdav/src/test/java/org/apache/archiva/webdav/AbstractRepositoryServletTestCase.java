@@ -74,6 +74,7 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
@@ -613,6 +614,10 @@ protected WebResponse getWebResponse( WebRequest webRequest ) //, boolean follow
             PutMethodWebRequest putRequest = PutMethodWebRequest.class.cast( webRequest );
             request.setContentType( putRequest.contentType );
             request.setContent( IOUtils.toByteArray( putRequest.inputStream ) );
+            for ( String header : putRequest.headers.keySet() )
+            {
+                request.addHeader( header, putRequest.headers.get( header ) );
+            }
         }
 
         if ( webRequest instanceof MkColMethodWebRequest )
@@ -699,6 +704,8 @@ public GetMethodWebRequest( String url )
 
         String contentType;
 
+        Map<String, String> headers = new HashMap<>();
+
         public PutMethodWebRequest( String url, InputStream inputStream, String contentType )
             throws Exception
         {
@@ -708,6 +715,10 @@ public PutMethodWebRequest( String url, InputStream inputStream, String contentT
             this.contentType = contentType;
         }
 
+        public void setHeader( String name, String value )
+        {
+            headers.put( name, value );
+        }
 
     }
 
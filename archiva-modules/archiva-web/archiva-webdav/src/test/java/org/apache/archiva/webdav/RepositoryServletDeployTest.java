@@ -28,9 +28,12 @@
 import org.junit.Test;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 
 /**
@@ -76,6 +79,48 @@ public void testPutWithMissingParentCollection()
         assertFileContents( "artifact.jar\n", repoRootInternal, ARTIFACT_DEFAULT_LAYOUT );
     }    
 
+    @Test
+    public void testPutWritesChecksumFiles()
+        throws Exception
+    {
+        setupCleanRepo( repoRootInternal );
+        archivaConfiguration.getConfiguration().getArchivaRuntimeConfiguration().setChecksumTypes( Arrays.asList( "SHA1" ) );
+        saveConfiguration( archivaConfiguration );
+
+        String putUrl = "http://machine.com/repository/internal" + ARTIFACT_DEFAULT_LAYOUT;
+        InputStream is = getClass().getResourceAsStream( "/artifact.jar" );
+
+        PutMethodWebRequest request = new PutMethodWebRequest( putUrl, is, "application/octet-stream" );
+        request.setHeader( "X-Checksum-SHA1", "99a8679a33a4e9f01e593a7551cb67a3061b0f73" );
+        WebResponse response = getServletUnitClient().getResponse( request );
+        assertResponseCreated( response );
+        assertFileContents( "artifact.jar\n", repoRootInternal, ARTIFACT_DEFAULT_LAYOUT );
+        assertFileContents( "99a8679a33a4e9f01e593a7551cb67a3061b0f73", repoRootInternal, ARTIFACT_DEFAULT_LAYOUT + ".sha1" );
+
+        // a checksum file, that does not match the deployed file, is rejected
+        request = new PutMethodWebRequest( putUrl + ".sha1", new ByteArrayInputStream(
+            "0000000000000000000000000000000000000000".getBytes( StandardCharsets.US_ASCII ) ), "application/octet-stream" );
+        response = getServletUnitClient().getResponse( request );
+        assertEquals( HttpServletResponse.SC_BAD_REQUEST, response.getStatusCode() );
+        assertFileContents( "99a8679a33a4e9f01e593a7551cb67a3061b0f73", repoRootInternal, ARTIFACT_DEFAULT_LAYOUT + ".sha1" );
+    }
+
+    @Test
+    public void testPutWithWrongChecksumHeaderFails()
+        throws Exception
+    {
+        setupCleanRepo( repoRootInternal );
+
+        String putUrl = "http://machine.com/repository/internal" + ARTIFACT_DEFAULT_LAYOUT;
+        InputStream is = getClass().getResourceAsStream( "/artifact.jar" );
+
+        PutMethodWebRequest request = new PutMethodWebRequest( putUrl, is, "application/octet-stream" );
+        request.setHeader( "X-Checksum-SHA1", "0000000000000000000000000000000000000000" );
+        WebResponse response = getServletUnitClient().getResponse( request );
+        assertEquals( HttpServletResponse.SC_BAD_REQUEST, response.getStatusCode() );
+        assertFalse( Files.exists( repoRootInternal.resolve( ARTIFACT_DEFAULT_LAYOUT.substring( 1 ) ) ) );
+    }
+
     /**
      * MRM-747
      * test whether trying to overwrite existing relase-artifact is blocked by returning HTTP-code 409 
@@ -0,0 +1,368 @@
+package org.apache.archiva.webdav;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.configuration.RemoteRepositoryConfiguration;
+import org.apache.archiva.metadata.audit.AuditListener;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.proxy.StreamingDownloads;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * RepositoryServlet Tests, Proxied, Get of artifacts, that are streamed to the client while they are downloaded from
+ * the remote repository.
+ */
+public class RepositoryServletProxiedStreamingTest
+    extends AbstractRepositoryServletProxiedTestCase
+{
+    private static final String PATH_JAR = "org/apache/archiva/test/1.0/test-1.0.jar";
+
+    private static final String PATH_RELOCATED_POM = "org/apache/archiva/old-test/1.0/old-test-1.0.pom";
+
+    private static final String PATH_RELOCATED_JAR = "org/apache/archiva/old-test/1.0/old-test-1.0.jar";
+
+    private static final String CONTENT_RELOCATED_POM =
+        "<project><modelVersion>4.0.0</modelVersion><groupId>org.apache.archiva</groupId>"
+            + "<artifactId>old-test</artifactId><version>1.0</version><distributionManagement><relocation>"
+            + "<artifactId>test</artifactId></relocation></distributionManagement></project>";
+
+    private static final long TIMEOUT = 10 * ONE_SECOND;
+
+    @Inject
+    private StreamingDownloads streamingDownloads;
+
+    private GatedServlet remoteServlet;
+
+    private ExecutorService clients;
+
+    private String content;
+
+    private final List<AuditEvent> auditEvents = new CopyOnWriteArrayList<>();
+
+    private final AuditListener auditListener = auditEvents::add;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        super.setUp();
+        clients = Executors.newCachedThreadPool();
+        // larger than the buffers of the remote server and the client, so the first half is sent on its own
+        content = StringUtils.repeat( "0123456789abcdef", 16 * 1024 );
+        getResourceFactory().addAuditListener( auditListener );
+    }
+
+    @After
+    @Override
+    public void tearDown()
+        throws Exception
+    {
+        if ( remoteServlet != null )
+        {
+            remoteServlet.gate.countDown();
+        }
+        clients.shutdownNow();
+        getResourceFactory().removeAuditListener( auditListener );
+        super.tearDown();
+    }
+
+    @Test
+    public void testStreamThrough()
+        throws Exception
+    {
+        setupGatedRemoteRepo( PATH_JAR );
+        populateRepo( remoteCentral, PATH_JAR, content );
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Future<?> request = get( PATH_JAR, response );
+
+        // the client receives the first half, while the remote repository holds back the rest
+        awaitCondition( "content streamed to the client", () -> response.getContentAsByteArray().length > 0 );
+        assertFalse( request.isDone() );
+        assertManagedFileNotExists( repoRootInternal, PATH_JAR );
+
+        remoteServlet.gate.countDown();
+        request.get( TIMEOUT, TimeUnit.MILLISECONDS );
+
+        assertResponseContent( response, content );
+        assertFileContents( content, repoRootInternal, PATH_JAR );
+        assertEquals( 1, remoteServlet.requests.get() );
+        assertProxiedEvent( PATH_JAR );
+    }
+
+    @Test
+    public void testJoinRunningDownloadOfRelocatedArtifact()
+        throws Exception
+    {
+        setupGatedRemoteRepo( PATH_JAR );
+        populateRepo( remoteCentral, PATH_JAR, content );
+        populateRepo( remoteCentral, PATH_RELOCATED_POM, CONTENT_RELOCATED_POM );
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        Future<?> firstRequest = get( PATH_JAR, first );
+        awaitCondition( "content streamed to the first client", () -> first.getContentAsByteArray().length > 0 );
+
+        // the relocated artifact is stored under the path of the running download
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        Future<?> secondRequest = get( PATH_RELOCATED_JAR, second );
+        awaitCondition( "content streamed to the second client", () -> second.getContentAsByteArray().length > 0 );
+        assertFalse( secondRequest.isDone() );
+
+        remoteServlet.gate.countDown();
+        firstRequest.get( TIMEOUT, TimeUnit.MILLISECONDS );
+        secondRequest.get( TIMEOUT, TimeUnit.MILLISECONDS );
+
+        assertResponseContent( first, content );
+        assertResponseContent( second, content );
+        assertFileContents( content, repoRootInternal, PATH_JAR );
+        assertManagedFileNotExists( repoRootInternal, PATH_RELOCATED_JAR );
+        assertEquals( "The file is downloaded once", 1, remoteServlet.requests.get() );
+        // only the request, that downloaded the file, is audited
+        assertProxiedEvent( PATH_JAR );
+    }
+
+    @Test
+    public void testFailedDownload()
+        throws Exception
+    {
+        setupGatedRemoteRepo( PATH_JAR );
+        populateRepo( remoteCentral, PATH_JAR, content );
+        remoteServlet.fail = true;
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        Future<?> firstRequest = get( PATH_JAR, first );
+        awaitCondition( "content streamed to the first client", () -> first.getContentAsByteArray().length > 0 );
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        Future<?> secondRequest = get( PATH_JAR, second );
+        awaitCondition( "content streamed to the second client", () -> second.getContentAsByteArray().length > 0 );
+
+        // the remote repository closes the connection instead of sending the rest
+        remoteServlet.gate.countDown();
+        assertIncomplete( firstRequest, first );
+        assertIncomplete( secondRequest, second );
+        assertManagedFileNotExists( repoRootInternal, PATH_JAR );
+        awaitCondition( "failed download removed",
+                        () -> streamingDownloads.get( REPOID_INTERNAL, PATH_JAR ) == null );
+        assertTrue( "A failed download is not audited", auditEvents.isEmpty() );
+
+        // the next request downloads the file again
+        remoteServlet.fail = false;
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        get( PATH_JAR, retry ).get( TIMEOUT, TimeUnit.MILLISECONDS );
+
+        assertResponseContent( retry, content );
+        assertFileContents( content, repoRootInternal, PATH_JAR );
+        assertEquals( 2, remoteServlet.requests.get() );
+        assertProxiedEvent( PATH_JAR );
+    }
+
+    private void setupGatedRemoteRepo( String gatedPath )
+        throws Exception
+    {
+        remoteServlet = new GatedServlet( repoRootInternali.getRoot(), gatedPath );
+
+        RemoteRepoInfo repo = new RemoteRepoInfo();
+        repo.id = "central";
+        repo.context = "/central";
+        repo.root = repoRootInternali.getRoot();
+        repo.server = new Server();
+        ServerConnector serverConnector = new ServerConnector( repo.server, new HttpConnectionFactory() );
+        repo.server.addConnector( serverConnector );
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath( repo.context );
+        context.addServlet( new ServletHolder( remoteServlet ), "/" );
+        repo.server.setHandler( context );
+        repo.server.start();
+        repo.url = "http://localhost:" + serverConnector.getLocalPort() + repo.context;
+        repo.config = createRemoteRepository( repo.id, "Testable [" + repo.id + "] Remote Repo", repo.url );
+        remoteCentral = repo;
+
+        RemoteRepositoryConfiguration remoteRepositoryConfiguration =
+            archivaConfiguration.getConfiguration().getRemoteRepositoriesAsMap().get( remoteCentral.id );
+        if ( remoteRepositoryConfiguration != null )
+        {
+            archivaConfiguration.getConfiguration().removeRemoteRepository( remoteRepositoryConfiguration );
+        }
+        archivaConfiguration.getConfiguration().addRemoteRepository( remoteCentral.config );
+        setupCleanInternalRepo();
+        setupConnector( REPOID_INTERNAL, remoteCentral );
+        saveConfiguration();
+    }
+
+    private Future<?> get( String path, MockHttpServletResponse response )
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRequestURI( "/repository/internal/" + path );
+        request.addHeader( "User-Agent", "Apache Archiva unit test" );
+        request.setMethod( "GET" );
+        return clients.submit( () -> {
+            unauthenticatedRepositoryServlet.service( request, response );
+            return null;
+        } );
+    }
+
+    private void awaitCondition( String message, BooleanSupplier condition )
+        throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while ( !condition.getAsBoolean() )
+        {
+            assertTrue( "Timeout waiting for " + message, System.currentTimeMillis() < end );
+            Thread.sleep( 10 );
+        }
+    }
+
+    private ArchivaDavResourceFactory getResourceFactory()
+    {
+        return (ArchivaDavResourceFactory) unauthenticatedRepositoryServlet.getResourceFactory();
+    }
+
+    private void assertProxiedEvent( String path )
+        throws InterruptedException
+    {
+        // the event is triggered by the fetch, after the file was stored
+        awaitCondition( "audit event of " + path, () -> !auditEvents.isEmpty() );
+        assertEquals( 1, auditEvents.size() );
+        AuditEvent event = auditEvents.get( 0 );
+        assertEquals( AuditEvent.CREATE_FILE + " (proxied)", event.getAction() );
+        assertEquals( REPOID_INTERNAL, event.getRepositoryId() );
+        assertEquals( path, event.getResource() );
+    }
+
+    private void assertResponseContent( MockHttpServletResponse response, String expectedContent )
+        throws Exception
+    {
+        assertEquals( HttpServletResponse.SC_OK, response.getStatus() );
+        assertEquals( expectedContent, response.getContentAsString() );
+    }
+
+    private void assertIncomplete( Future<?> request, MockHttpServletResponse response )
+        throws Exception
+    {
+        try
+        {
+            request.get( TIMEOUT, TimeUnit.MILLISECONDS );
+        }
+        catch ( ExecutionException e )
+        {
+            // the failure of the download is reported as error of the response stream
+        }
+        assertTrue( "The client must not receive the full content",
+                    response.getContentAsByteArray().length < content.length() );
+    }
+
+    /**
+     * Serves the files of the remote repository. The gated file is sent in two halves, the second half is sent after
+     * the gate was opened. If the servlet is set to fail, the connection is closed instead.
+     */
+    private static class GatedServlet
+        extends HttpServlet
+    {
+        private final Path root;
+
+        private final String gatedPath;
+
+        private final CountDownLatch gate = new CountDownLatch( 1 );
+
+        private final AtomicInteger requests = new AtomicInteger();
+
+        private volatile boolean fail;
+
+        GatedServlet( Path root, String gatedPath )
+        {
+            this.root = root;
+            this.gatedPath = gatedPath;
+        }
+
+        @Override
+        protected void doGet( HttpServletRequest req, HttpServletResponse resp )
+            throws IOException
+        {
+            String path = StringUtils.removeStart( req.getPathInfo(), "/" );
+            Path file = root.resolve( path );
+            if ( !Files.isRegularFile( file ) )
+            {
+                resp.sendError( HttpServletResponse.SC_NOT_FOUND );
+                return;
+            }
+            byte[] data = Files.readAllBytes( file );
+            resp.setContentLength( data.length );
+            resp.setDateHeader( "Last-Modified", Files.getLastModifiedTime( file ).toMillis() );
+            OutputStream out = resp.getOutputStream();
+            if ( !gatedPath.equals( path ) )
+            {
+                out.write( data );
+                return;
+            }
+
+            requests.incrementAndGet();
+            out.write( data, 0, data.length / 2 );
+            out.flush();
+            try
+            {
+                if ( !gate.await( TIMEOUT, TimeUnit.MILLISECONDS ) )
+                {
+                    throw new IOException( "Gate of " + path + " was not opened" );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( e );
+            }
+            if ( fail )
+            {
+                // the response is committed, so the connection is aborted
+                throw new IOException( "Transfer of " + path + " aborted" );
+            }
+            out.write( data, data.length / 2, data.length - data.length / 2 );
+        }
+    }
+}
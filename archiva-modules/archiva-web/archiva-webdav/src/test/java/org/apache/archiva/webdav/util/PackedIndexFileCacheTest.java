@@ -0,0 +1,159 @@
+package org.apache.archiva.webdav.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.common.utils.FileUtils;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * PackedIndexFileCacheTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class PackedIndexFileCacheTest
+    extends TestCase
+{
+    private Path indexDirectory;
+
+    private PackedIndexFileCache cache;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        indexDirectory = Files.createTempDirectory( "packed-index" );
+        cache = new PackedIndexFileCache( );
+        cache.setMaxHeapSize( 1024 );
+    }
+
+    @After
+    @Override
+    public void tearDown( )
+        throws Exception
+    {
+        FileUtils.deleteQuietly( indexDirectory );
+        super.tearDown( );
+    }
+
+    private static byte[] content( int length )
+    {
+        byte[] data = new byte[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            data[i] = (byte) ( i % 127 );
+        }
+        return data;
+    }
+
+    @Test
+    public void testIsPackedIndexFile( )
+    {
+        assertTrue( PackedIndexFileCache.isPackedIndexFile( "nexus-maven-repository-index.gz" ) );
+        assertTrue( PackedIndexFileCache.isPackedIndexFile( "nexus-maven-repository-index.12.gz" ) );
+        assertTrue( PackedIndexFileCache.isPackedIndexFile( "nexus-maven-repository-index.properties" ) );
+        assertFalse( PackedIndexFileCache.isPackedIndexFile( "nexus-maven-repository-index.gz.sha1" ) );
+        assertFalse( PackedIndexFileCache.isPackedIndexFile( "archiva-1.0.jar" ) );
+        assertFalse( PackedIndexFileCache.isPackedIndexFile( null ) );
+    }
+
+    @Test
+    public void testMappedFile( )
+        throws Exception
+    {
+        byte[] data = content( 10000 );
+        Path file = indexDirectory.resolve( "nexus-maven-repository-index.gz" );
+        Files.write( file, data );
+
+        PackedIndexFileCache.PackedIndexFile indexFile = cache.get( file );
+        assertEquals( 10000, indexFile.getSize( ) );
+        assertEquals( 40, indexFile.getSha1( ).length( ) );
+        assertEquals( 32, indexFile.getMd5( ).length( ) );
+        assertEquals( "\"" + indexFile.getSha1( ) + "\"", indexFile.getETag( ) );
+        assertSame( indexFile, cache.get( file ) );
+
+        // the content can be written more than once
+        for ( int i = 0; i < 2; i++ )
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream( );
+            indexFile.writeTo( out );
+            assertTrue( Arrays.equals( data, out.toByteArray( ) ) );
+        }
+    }
+
+    @Test
+    public void testStreamedFile( )
+        throws Exception
+    {
+        byte[] data = content( 10000 );
+        Path file = indexDirectory.resolve( "nexus-maven-repository-index.gz" );
+        Files.write( file, data );
+        String sha1 = cache.get( file ).getSha1( );
+
+        // files above the map size are streamed from the disk
+        PackedIndexFileCache streamingCache = new PackedIndexFileCache( );
+        streamingCache.setMaxHeapSize( 1024 );
+        streamingCache.setMaxMapSize( 4096 );
+        PackedIndexFileCache.PackedIndexFile indexFile = streamingCache.get( file );
+        assertEquals( 10000, indexFile.getSize( ) );
+        assertEquals( sha1, indexFile.getSha1( ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream( );
+        indexFile.writeTo( out );
+        assertTrue( Arrays.equals( data, out.toByteArray( ) ) );
+    }
+
+    @Test
+    public void testReplacedFileReloaded( )
+        throws Exception
+    {
+        Path file = indexDirectory.resolve( "nexus-maven-repository-index.properties" );
+        Files.write( file, "nexus.index.chain-id=1".getBytes( StandardCharsets.UTF_8 ) );
+        PackedIndexFileCache.PackedIndexFile first = cache.get( file );
+
+        // a new generation is published by renaming the file
+        Path next = indexDirectory.resolve( "next.properties" );
+        Files.write( next, "nexus.index.chain-id=22".getBytes( StandardCharsets.UTF_8 ) );
+        Files.move( next, file, StandardCopyOption.REPLACE_EXISTING );
+
+        PackedIndexFileCache.PackedIndexFile second = cache.get( file );
+        assertNotSame( first, second );
+        assertFalse( first.getETag( ).equals( second.getETag( ) ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream( );
+        second.writeTo( out );
+        assertEquals( "nexus.index.chain-id=22", new String( out.toByteArray( ), StandardCharsets.UTF_8 ) );
+
+        // the old content stays readable for requests, that still use it
+        out = new ByteArrayOutputStream( );
+        first.writeTo( out );
+        assertEquals( "nexus.index.chain-id=1", new String( out.toByteArray( ), StandardCharsets.UTF_8 ) );
+    }
+}
@@ -0,0 +1,120 @@
+package org.apache.archiva.metadata.model.facets;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.MetadataFacet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Repository level facet that stores a single reverse edge of the dependency graph: a project version that
+ * depends on a project.
+ * <p>
+ * The name of the facet is <code>&lt;namespace&gt;/&lt;project&gt;/&lt;dependent namespace&gt;/&lt;dependent
+ * project&gt;/&lt;dependent version&gt;</code>, so each dependent writes its own facet and the facets of a
+ * project can be found by the name prefix.
+ *
+ * @since 3.0
+ */
+public class DependeeFacet
+    implements MetadataFacet
+{
+    public static final String FACET_ID = "org.apache.archiva.metadata.dependee";
+
+    private static final String VERSION_KEY = "version";
+
+    private String name;
+
+    private String version;
+
+    public DependeeFacet()
+    {
+    }
+
+    public DependeeFacet( String name )
+    {
+        this.name = name;
+    }
+
+    public DependeeFacet( String name, String version )
+    {
+        this.name = name;
+        this.version = version;
+    }
+
+    @Override
+    public String getFacetId()
+    {
+        return FACET_ID;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the version of the project, that is required by the dependent.
+     */
+    public String getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion( String version )
+    {
+        this.version = version;
+    }
+
+    @Override
+    public Map<String, String> toProperties()
+    {
+        Map<String, String> properties = new HashMap<>();
+        properties.put( VERSION_KEY, version == null ? "" : version );
+        return properties;
+    }
+
+    @Override
+    public void fromProperties( Map<String, String> properties )
+    {
+        version = properties.getOrDefault( VERSION_KEY, "" );
+    }
+
+    /**
+     * Returns the name prefix of the facets of all dependents of the given project.
+     */
+    public static String prefix( String namespace, String projectId )
+    {
+        return namespace + "/" + projectId + "/";
+    }
+
+    public static String createName( String namespace, String projectId, String dependentNamespace,
+                                     String dependentProjectId, String dependentVersion )
+    {
+        return prefix( namespace, projectId ) + dependentNamespace + "/" + dependentProjectId + "/" + dependentVersion;
+    }
+}
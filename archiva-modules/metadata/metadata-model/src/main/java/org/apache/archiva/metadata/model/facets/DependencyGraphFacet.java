@@ -0,0 +1,144 @@
+package org.apache.archiva.metadata.model.facets;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.MetadataFacet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Repository level facet that stores the forward edges of the dependency graph for a single project version
+ * (name <code>dependencies/&lt;namespace&gt;/&lt;project&gt;/&lt;version&gt;</code>). The edges map the key of
+ * each dependency (<code>namespace:project</code>) to the required version. The reverse edges are stored as
+ * {@link DependeeFacet}.
+ * <p>
+ * The edges are stored as numbered properties, because the keys may contain characters that are not allowed as
+ * property names in all metadata stores.
+ *
+ * @since 3.0
+ */
+public class DependencyGraphFacet
+    implements MetadataFacet
+{
+    public static final String FACET_ID = "org.apache.archiva.metadata.dependency-graph";
+
+    public static final String DEPENDENCIES_PREFIX = "dependencies/";
+
+    private static final String SIZE_KEY = "size";
+
+    private static final String EDGE_KEY = "edge.";
+
+    private static final char SEPARATOR = '|';
+
+    private String name;
+
+    private final Map<String, String> edges = new TreeMap<>();
+
+    public DependencyGraphFacet()
+    {
+    }
+
+    public DependencyGraphFacet( String name )
+    {
+        this.name = name;
+    }
+
+    public DependencyGraphFacet( String name, Map<String, String> edges )
+    {
+        this.name = name;
+        this.edges.putAll( edges );
+    }
+
+    @Override
+    public String getFacetId()
+    {
+        return FACET_ID;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the edges of this node. The key is the dependency, the value is the required version.
+     */
+    public Map<String, String> getEdges()
+    {
+        return Collections.unmodifiableMap( edges );
+    }
+
+    public void setEdges( Map<String, String> edges )
+    {
+        this.edges.clear();
+        this.edges.putAll( edges );
+    }
+
+    @Override
+    public Map<String, String> toProperties()
+    {
+        Map<String, String> properties = new HashMap<>();
+        properties.put( SIZE_KEY, Integer.toString( edges.size() ) );
+        int i = 0;
+        for ( Map.Entry<String, String> edge : edges.entrySet() )
+        {
+            properties.put( EDGE_KEY + i++, edge.getKey() + SEPARATOR + edge.getValue() );
+        }
+        return properties;
+    }
+
+    @Override
+    public void fromProperties( Map<String, String> properties )
+    {
+        edges.clear();
+        int size = Integer.parseInt( properties.getOrDefault( SIZE_KEY, "0" ) );
+        // properties beyond the size may be left over from a larger node
+        for ( int i = 0; i < size; i++ )
+        {
+            String edge = properties.get( EDGE_KEY + i );
+            if ( edge != null )
+            {
+                int idx = edge.indexOf( SEPARATOR );
+                if ( idx < 0 )
+                {
+                    edges.put( edge, "" );
+                }
+                else
+                {
+                    edges.put( edge.substring( 0, idx ), edge.substring( idx + 1 ) );
+                }
+            }
+        }
+    }
+
+    public static String dependenciesName( String namespace, String projectId, String projectVersion )
+    {
+        return DEPENDENCIES_PREFIX + namespace + "/" + projectId + "/" + projectVersion;
+    }
+}
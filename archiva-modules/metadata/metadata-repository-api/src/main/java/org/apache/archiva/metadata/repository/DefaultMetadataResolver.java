@@ -122,14 +122,7 @@ public ProjectVersionMetadata resolveProjectVersion( RepositorySession session,
 
                 // FIXME: make this a more generic post-processing that plugins can take advantage of
                 //       eg. maven projects should be able to process parent here
-                if ( !metadata.getDependencies().isEmpty() )
-                {
-                    ProjectVersionReference ref = new ProjectVersionReference();
-                    ref.setNamespace( namespace );
-                    ref.setProjectId( projectId );
-                    ref.setProjectVersion( projectVersion );
-                    ref.setReferenceType( ProjectVersionReference.ReferenceType.DEPENDENCY );
-                }
+                // the dependency references are stored by the DependencyGraphIndex listener
                 try
                 {
                     for ( RepositoryListener listener : listeners )
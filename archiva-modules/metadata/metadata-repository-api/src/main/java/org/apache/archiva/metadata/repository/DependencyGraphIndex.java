@@ -0,0 +1,301 @@
+package org.apache.archiva.metadata.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.VersionUtil;
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.model.Dependency;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.model.ProjectVersionReference;
+import org.apache.archiva.metadata.model.facets.DependeeFacet;
+import org.apache.archiva.metadata.model.facets.DependencyGraphFacet;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of the dependency graph of the project versions in a repository.
+ * <p>
+ * The forward edges (the dependencies of a project version) are stored as one {@link DependencyGraphFacet} per
+ * project version. Each reverse edge (a project version that depends on a project) is stored as its own
+ * {@link DependeeFacet}, that is named by the dependent. Storing a project version therefore only adds or removes
+ * the facets of its own edges and concurrent updates of different dependents of the same project do not
+ * interfere. The index is updated whenever the metadata of a project version is stored, and the edges of a
+ * project version are removed, when its POM is deleted.
+ * <p>
+ * The reverse edges are keyed by the project (namespace and project id), because the dependency versions are
+ * not resolved. The required version of each edge is stored, so the query can filter by version. The names of the
+ * reverse edges are kept in a sorted in memory index, so a query reads only the edges of the requested project.
+ *
+ * @since 3.0
+ */
+@Service( "dependencyGraphIndex#default" )
+public class DependencyGraphIndex
+    implements RepositoryListener
+{
+    private static final Logger log = LoggerFactory.getLogger( DependencyGraphIndex.class );
+
+    private static final Comparator<ProjectVersionReference> REFERENCE_ORDER =
+        Comparator.comparing( ProjectVersionReference::getNamespace )
+            .thenComparing( ProjectVersionReference::getProjectId )
+            .thenComparing( ProjectVersionReference::getProjectVersion );
+
+    @Inject
+    private RepositorySessionFactory repositorySessionFactory;
+
+    // sorted names of the reverse edges, the edges of a project are found by the name prefix
+    private final MetadataFacetNameIndex dependeeNames = new MetadataFacetNameIndex( DependeeFacet.FACET_ID );
+
+    /**
+     * Updates the edges of the given project version. Edges of dependencies that were removed from the project
+     * version are removed from the index.
+     *
+     * @param session   the repository session
+     * @param repoId    the repository id
+     * @param namespace the namespace of the project
+     * @param projectId the project id
+     * @param metadata  the project version metadata with the current dependencies
+     * @throws MetadataRepositoryException if the index could not be updated
+     */
+    public void updateProjectVersion( RepositorySession session, String repoId, String namespace, String projectId,
+                                      ProjectVersionMetadata metadata )
+        throws MetadataRepositoryException
+    {
+        if ( metadata == null || metadata.getId( ) == null )
+        {
+            return;
+        }
+        Map<String, String> dependencies = new TreeMap<>( );
+        for ( Dependency dependency : metadata.getDependencies( ) )
+        {
+            if ( isNotEmpty( dependency.getNamespace( ) ) && isNotEmpty( dependency.getArtifactId( ) ) )
+            {
+                dependencies.put( toKey( dependency.getNamespace( ), dependency.getArtifactId( ) ),
+                    dependency.getVersion( ) == null ? "" : dependency.getVersion( ) );
+            }
+        }
+        updateEdges( session, repoId, namespace, projectId, metadata.getId( ), dependencies );
+    }
+
+    /**
+     * Removes all edges of the given project version from the index.
+     *
+     * @throws MetadataRepositoryException if the index could not be updated
+     */
+    public void removeProjectVersion( RepositorySession session, String repoId, String namespace, String projectId,
+                                      String projectVersion )
+        throws MetadataRepositoryException
+    {
+        updateEdges( session, repoId, namespace, projectId, projectVersion, Collections.emptyMap( ) );
+    }
+
+    /**
+     * Returns the project versions that depend on the given project.
+     *
+     * @param session       the repository session
+     * @param repositoryIds the repositories to search
+     * @param namespace     the namespace of the required project
+     * @param projectId     the id of the required project
+     * @param version       if not <code>null</code>, only dependents that require exactly this version are returned
+     * @param offset        the index of the first reference to return
+     * @param limit         the maximum number of references, a negative value returns all references
+     * @return the references in the order of namespace, project id and version. References found in more than one
+     * repository are returned once.
+     * @throws MetadataRepositoryException if the index could not be read
+     */
+    public List<ProjectVersionReference> getDependees( RepositorySession session, Collection<String> repositoryIds,
+                                                       String namespace, String projectId, String version, int offset,
+                                                       int limit )
+        throws MetadataRepositoryException
+    {
+        MetadataRepository metadataRepository = session.getRepository( );
+        String prefix = DependeeFacet.prefix( namespace, projectId );
+        Set<String> keys = new LinkedHashSet<>( );
+        for ( String repoId : repositoryIds )
+        {
+            // the names of the edges of the project are a range of the sorted names
+            NavigableSet<String> names = dependeeNames.getNames( session, metadataRepository, repoId )
+                .subSet( prefix, true, prefix + Character.MAX_VALUE, false );
+            for ( String name : names )
+            {
+                if ( version != null )
+                {
+                    DependeeFacet edge =
+                        metadataRepository.getMetadataFacet( session, repoId, DependeeFacet.class, name );
+                    if ( edge == null || !version.equals( edge.getVersion( ) ) )
+                    {
+                        continue;
+                    }
+                }
+                keys.add( name.substring( prefix.length( ) ) );
+            }
+        }
+
+        List<ProjectVersionReference> references = new ArrayList<>( keys.size( ) );
+        for ( String key : keys )
+        {
+            ProjectVersionReference reference = toReference( key );
+            if ( reference != null )
+            {
+                references.add( reference );
+            }
+        }
+        references.sort( REFERENCE_ORDER );
+
+        int from = Math.min( Math.max( offset, 0 ), references.size( ) );
+        int to = limit < 0 ? references.size( ) : (int) Math.min( (long) from + limit, references.size( ) );
+        return new ArrayList<>( references.subList( from, to ) );
+    }
+
+    private void updateEdges( RepositorySession session, String repoId, String namespace, String projectId,
+                              String projectVersion, Map<String, String> dependencies )
+        throws MetadataRepositoryException
+    {
+        MetadataRepository metadataRepository = session.getRepository( );
+        String forwardName = DependencyGraphFacet.dependenciesName( namespace, projectId, projectVersion );
+        DependencyGraphFacet forward =
+            metadataRepository.getMetadataFacet( session, repoId, DependencyGraphFacet.class, forwardName );
+        Map<String, String> previous = forward == null ? Collections.emptyMap( ) : forward.getEdges( );
+        if ( previous.equals( dependencies ) )
+        {
+            return;
+        }
+
+        // each reverse edge is a facet of its own, only the edges that changed are written
+        for ( String key : previous.keySet( ) )
+        {
+            if ( !dependencies.containsKey( key ) )
+            {
+                String name = toDependeeName( key, namespace, projectId, projectVersion );
+                metadataRepository.removeMetadataFacet( session, repoId, DependeeFacet.FACET_ID, name );
+                dependeeNames.remove( repoId, name );
+            }
+        }
+        for ( Map.Entry<String, String> dependency : dependencies.entrySet( ) )
+        {
+            if ( !dependency.getValue( ).equals( previous.get( dependency.getKey( ) ) ) )
+            {
+                String name = toDependeeName( dependency.getKey( ), namespace, projectId, projectVersion );
+                metadataRepository.addMetadataFacet( session, repoId, new DependeeFacet( name, dependency.getValue( ) ) );
+                dependeeNames.add( repoId, name );
+            }
+        }
+
+        if ( dependencies.isEmpty( ) )
+        {
+            metadataRepository.removeMetadataFacet( session, repoId, DependencyGraphFacet.FACET_ID, forwardName );
+        }
+        else
+        {
+            metadataRepository.addMetadataFacet( session, repoId, new DependencyGraphFacet( forwardName, dependencies ) );
+        }
+    }
+
+    private static String toDependeeName( String dependencyKey, String namespace, String projectId,
+                                          String projectVersion )
+    {
+        int idx = dependencyKey.indexOf( ':' );
+        return DependeeFacet.createName( dependencyKey.substring( 0, idx ), dependencyKey.substring( idx + 1 ),
+            namespace, projectId, projectVersion );
+    }
+
+    private static boolean isNotEmpty( String value )
+    {
+        return value != null && !value.isEmpty( );
+    }
+
+    private static String toKey( String namespace, String projectId )
+    {
+        return namespace + ":" + projectId;
+    }
+
+    private static ProjectVersionReference toReference( String key )
+    {
+        String[] parts = key.split( "/", 3 );
+        if ( parts.length != 3 )
+        {
+            return null;
+        }
+        return new ProjectVersionReference( ProjectVersionReference.ReferenceType.DEPENDENCY, parts[1], parts[0],
+            parts[2] );
+    }
+
+    @Override
+    public void addArtifact( RepositorySession session, String repoId, String namespace, String projectId,
+                             ProjectVersionMetadata metadata )
+    {
+        try
+        {
+            updateProjectVersion( session, repoId, namespace, projectId, metadata );
+        }
+        catch ( MetadataRepositoryException e )
+        {
+            log.warn( "Unable to update the dependency graph of {}:{}:{} in {}: {}", namespace, projectId,
+                metadata.getId( ), repoId, e.getMessage( ), e );
+        }
+    }
+
+    @Override
+    public void deleteArtifact( MetadataRepository metadataRepository, String repositoryId, String namespace,
+                                String project, String version, String id )
+    {
+        // the dependencies are read from the POM, without it the edges of the project version are unknown
+        if ( id == null || !id.endsWith( ".pom" ) )
+        {
+            return;
+        }
+        String projectVersion = VersionUtil.getBaseVersion( version );
+        try ( RepositorySession session = repositorySessionFactory.createSession( ) )
+        {
+            removeProjectVersion( session, repositoryId, namespace, project, projectVersion );
+            session.save( );
+        }
+        catch ( MetadataRepositoryException | MetadataSessionException e )
+        {
+            log.warn( "Unable to remove the dependency graph of {}:{}:{} in {}: {}", namespace, project,
+                projectVersion, repositoryId, e.getMessage( ), e );
+        }
+    }
+
+    public void setRepositorySessionFactory( RepositorySessionFactory repositorySessionFactory )
+    {
+        this.repositorySessionFactory = repositorySessionFactory;
+    }
+
+    @Override
+    public void addArtifactProblem( RepositorySession session, String repoId, String namespace, String projectId,
+                                    String projectVersion, RepositoryStorageMetadataException exception )
+    {
+        // no dependencies known
+    }
+}
@@ -0,0 +1,124 @@
+package org.apache.archiva.metadata.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sorted index of the names of the repository level facets of one facet id, kept for each repository.
+ * <p>
+ * The names of a repository are listed once from the metadata repository and kept up to date by the component,
+ * that writes the facets. If the names start with a formatted timestamp, the natural string order is the time
+ * order, so the latest entries and ranges are found without listing and sorting all facets on each call.
+ * <p>
+ * The entry of a repository is published before the names are loaded, so a name added while the names are loaded
+ * is kept. A name removed while the names are loaded is removed after the loading finished.
+ *
+ * @since 3.0
+ */
+public class MetadataFacetNameIndex
+{
+    private final String facetId;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>( );
+
+    /**
+     * @param facetId the id of the indexed facets
+     */
+    public MetadataFacetNameIndex( String facetId )
+    {
+        this.facetId = facetId;
+    }
+
+    /**
+     * Returns the sorted facet names of the given repository. If the repository is not indexed yet, the names are
+     * loaded from the metadata repository.
+     */
+    public NavigableSet<String> getNames( RepositorySession session, MetadataRepository metadataRepository,
+                                          String repositoryId )
+        throws MetadataRepositoryException
+    {
+        Entry entry = entries.computeIfAbsent( repositoryId, id -> new Entry( ) );
+        if ( !entry.loaded )
+        {
+            synchronized ( entry )
+            {
+                if ( !entry.loaded )
+                {
+                    List<String> facetNames = metadataRepository.getMetadataFacets( session, repositoryId, facetId );
+                    if ( facetNames != null )
+                    {
+                        entry.names.addAll( facetNames );
+                    }
+                    entry.loaded = true;
+                }
+            }
+        }
+        return entry.names;
+    }
+
+    /**
+     * Adds the name of a facet, that was written to the metadata repository.
+     */
+    public void add( String repositoryId, String name )
+    {
+        Entry entry = entries.get( repositoryId );
+        if ( entry != null )
+        {
+            // the loading only adds names, so the name is kept even if the listing did not contain it
+            entry.names.add( name );
+        }
+    }
+
+    /**
+     * Removes the name of a facet, that was removed from the metadata repository.
+     */
+    public void remove( String repositoryId, String name )
+    {
+        Entry entry = entries.get( repositoryId );
+        if ( entry != null )
+        {
+            // waits for a running load, which may have listed the name before it was removed
+            synchronized ( entry )
+            {
+                entry.names.remove( name );
+            }
+        }
+    }
+
+    /**
+     * Drops the names of the repository, they are loaded again on the next access.
+     */
+    public void invalidate( String repositoryId )
+    {
+        entries.remove( repositoryId );
+    }
+
+    private static final class Entry
+    {
+        private final NavigableSet<String> names = new ConcurrentSkipListSet<>( );
+
+        private volatile boolean loaded;
+    }
+}
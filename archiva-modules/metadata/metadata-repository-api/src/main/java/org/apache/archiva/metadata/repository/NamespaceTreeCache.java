@@ -0,0 +1,475 @@
+package org.apache.archiva.metadata.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.audit.AuditListener;
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In memory tree of the namespaces and projects of each repository, used for browsing.
+ * <p>
+ * The tree of a repository is built lazily: the child namespaces and the projects of a namespace are resolved
+ * by the {@link MetadataResolver} on first access and kept until the namespace is invalidated. Deployments and
+ * deletions update or invalidate the affected namespaces. Because files added to the repository directory are only
+ * found by the resolver, the tree of a repository is dropped after a maximum age.
+ * <p>
+ * The trees of different repositories are merged at query time, so the result depends on the repositories
+ * visible to the user without storing a tree per user.
+ *
+ * @since 3.0
+ */
+@Service( "namespaceTreeCache#default" )
+public class NamespaceTreeCache
+    implements AuditListener, RepositoryListener
+{
+    private static final Logger log = LoggerFactory.getLogger( NamespaceTreeCache.class );
+
+    private volatile long maxAgeMillis = TimeUnit.MINUTES.toMillis( 10 );
+
+    private final Map<String, Tree> trees = new ConcurrentHashMap<>( );
+
+    /**
+     * Returns the root namespaces of the given repositories, each collapsed to the deepest namespace that has no
+     * projects and no siblings in any of the repositories.
+     */
+    public Set<String> getCollapsedRootNamespaces( RepositorySession session, Collection<String> repositoryIds )
+        throws MetadataResolutionException
+    {
+        Set<String> namespaces = new LinkedHashSet<>( );
+        for ( String name : getChildNamespaces( session, repositoryIds, null ) )
+        {
+            namespaces.add( collapse( session, repositoryIds, name ) );
+        }
+        return namespaces;
+    }
+
+    /**
+     * Returns the child namespaces of the given namespace, each collapsed like the root namespaces. The returned
+     * names are fully qualified.
+     */
+    public Set<String> getCollapsedNamespaces( RepositorySession session, Collection<String> repositoryIds,
+                                               String namespace )
+        throws MetadataResolutionException
+    {
+        Set<String> namespaces = new LinkedHashSet<>( );
+        for ( String name : getChildNamespaces( session, repositoryIds, namespace ) )
+        {
+            namespaces.add( collapse( session, repositoryIds, namespace + "." + name ) );
+        }
+        return namespaces;
+    }
+
+    /**
+     * Returns the names of the child namespaces of the given namespace in all the given repositories.
+     *
+     * @param namespace the namespace, or <code>null</code> for the root namespaces
+     */
+    public Set<String> getChildNamespaces( RepositorySession session, Collection<String> repositoryIds,
+                                           String namespace )
+        throws MetadataResolutionException
+    {
+        Set<String> names = new TreeSet<>( );
+        for ( String repositoryId : repositoryIds )
+        {
+            Node node = getNode( repositoryId, namespace );
+            if ( node != null )
+            {
+                names.addAll( node.getChildren( session, repositoryId ).keySet( ) );
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the projects of the given namespace in all the given repositories.
+     */
+    public Set<String> getProjects( RepositorySession session, Collection<String> repositoryIds, String namespace )
+        throws MetadataResolutionException
+    {
+        Set<String> projects = new TreeSet<>( );
+        for ( String repositoryId : repositoryIds )
+        {
+            Node node = getNode( repositoryId, namespace );
+            if ( node != null )
+            {
+                projects.addAll( node.getProjects( session, repositoryId ) );
+            }
+        }
+        return projects;
+    }
+
+    private String collapse( RepositorySession session, Collection<String> repositoryIds, String namespace )
+        throws MetadataResolutionException
+    {
+        String current = namespace;
+        while ( true )
+        {
+            Set<String> children = getChildNamespaces( session, repositoryIds, current );
+            if ( children.size( ) != 1 )
+            {
+                return current;
+            }
+            for ( String repositoryId : repositoryIds )
+            {
+                Node node = getNode( repositoryId, current );
+                if ( node != null && !node.getProjects( session, repositoryId ).isEmpty( ) )
+                {
+                    return current;
+                }
+            }
+            current = current + "." + children.iterator( ).next( );
+        }
+    }
+
+    /**
+     * Returns the node of the namespace. The parents are created as needed, because the namespace may be known
+     * only in some of the repositories.
+     */
+    private Node getNode( String repositoryId, String namespace )
+    {
+        // the check and the replacement are atomic, so concurrent callers share the same new tree
+        Tree tree = trees.compute( repositoryId,
+            ( id, current ) -> current == null || System.currentTimeMillis( ) - current.created >= maxAgeMillis
+                ? new Tree( )
+                : current );
+        Node node = tree.root;
+        if ( namespace == null || namespace.isEmpty( ) )
+        {
+            return node;
+        }
+        for ( String segment : namespace.split( "\\." ) )
+        {
+            node = node.getOrCreateChild( segment );
+        }
+        return node;
+    }
+
+    /**
+     * Returns the node of the namespace, if it exists in the tree.
+     */
+    private Node findNode( String repositoryId, String namespace )
+    {
+        Tree tree = trees.get( repositoryId );
+        if ( tree == null )
+        {
+            return null;
+        }
+        Node node = tree.root;
+        if ( namespace == null || namespace.isEmpty( ) )
+        {
+            return node;
+        }
+        for ( String segment : namespace.split( "\\." ) )
+        {
+            node = node.findChild( segment );
+            if ( node == null )
+            {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Adds the project and its namespaces to the loaded nodes.
+     */
+    public void addProject( String repositoryId, String namespace, String projectId )
+    {
+        Tree tree = trees.get( repositoryId );
+        if ( tree == null || namespace == null || namespace.isEmpty( ) )
+        {
+            return;
+        }
+        Node node = tree.root;
+        for ( String segment : namespace.split( "\\." ) )
+        {
+            node = node.addChild( segment );
+        }
+        node.addProject( projectId );
+    }
+
+    /**
+     * Removes the namespace and all its children.
+     */
+    public void removeNamespace( String repositoryId, String namespace )
+    {
+        int idx = namespace.lastIndexOf( '.' );
+        Node parent = findNode( repositoryId, idx < 0 ? null : namespace.substring( 0, idx ) );
+        if ( parent != null )
+        {
+            parent.removeChild( namespace.substring( idx + 1 ) );
+        }
+    }
+
+    public void removeProject( String repositoryId, String namespace, String projectId )
+    {
+        Node node = findNode( repositoryId, namespace );
+        if ( node != null )
+        {
+            node.removeProject( projectId );
+        }
+    }
+
+    /**
+     * Invalidates the deepest loaded namespace on the given repository path, so its children and projects are
+     * resolved again.
+     *
+     * @param repositoryId the repository id
+     * @param path         the path of the changed resource, or <code>null</code> to drop the whole tree
+     */
+    public void invalidatePath( String repositoryId, String path )
+    {
+        if ( path == null )
+        {
+            trees.remove( repositoryId );
+            return;
+        }
+        Tree tree = trees.get( repositoryId );
+        if ( tree == null )
+        {
+            return;
+        }
+        String[] segments = path.startsWith( "/" ) ? path.substring( 1 ).split( "/" ) : path.split( "/" );
+        Node node = tree.root;
+        // the last segment is the file name
+        for ( int i = 0; i < segments.length - 1; i++ )
+        {
+            Node child = node.findChild( segments[i] );
+            if ( child == null )
+            {
+                break;
+            }
+            node = child;
+        }
+        log.debug( "Invalidating namespace {} of {}", node.namespace, repositoryId );
+        node.invalidate( );
+    }
+
+    public void clear( )
+    {
+        trees.clear( );
+    }
+
+    @Override
+    public void auditEvent( AuditEvent event )
+    {
+        String action = event.getAction( );
+        if ( event.getRepositoryId( ) == null )
+        {
+            return;
+        }
+        if ( AuditEvent.MERGING_REPOSITORIES.equals( action ) || AuditEvent.ADD_MANAGED_REPO.equals( action )
+            || AuditEvent.MODIFY_MANAGED_REPO.equals( action ) || AuditEvent.DELETE_MANAGED_REPO.equals( action ) )
+        {
+            invalidatePath( event.getRepositoryId( ), null );
+        }
+        else if ( AuditEvent.CREATE_FILE.equals( action ) || AuditEvent.UPLOAD_FILE.equals( action )
+            || AuditEvent.REMOVE_FILE.equals( action ) || AuditEvent.REMOVE_DIR.equals( action )
+            || AuditEvent.CREATE_DIR.equals( action ) )
+        {
+            invalidatePath( event.getRepositoryId( ), event.getResource( ) );
+        }
+    }
+
+    @Override
+    public void deleteArtifact( MetadataRepository metadataRepository, String repositoryId, String namespace,
+                                String project, String version, String id )
+    {
+        Node node = findNode( repositoryId, namespace );
+        if ( node != null )
+        {
+            node.invalidate( );
+        }
+    }
+
+    @Override
+    public void addArtifact( RepositorySession session, String repoId, String namespace, String projectId,
+                             ProjectVersionMetadata metadata )
+    {
+        addProject( repoId, namespace, projectId );
+    }
+
+    @Override
+    public void addArtifactProblem( RepositorySession session, String repoId, String namespace, String projectId,
+                                    String projectVersion, RepositoryStorageMetadataException exception )
+    {
+        // no op
+    }
+
+    public long getMaxAgeMillis( )
+    {
+        return maxAgeMillis;
+    }
+
+    public void setMaxAgeMillis( long maxAgeMillis )
+    {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    private static final class Tree
+    {
+        private final Node root = new Node( null );
+        private final long created = System.currentTimeMillis( );
+    }
+
+    /**
+     * A namespace. The children and projects are <code>null</code> until they are resolved. Loaded collections
+     * are replaced, not modified, so they can be read without locking.
+     */
+    private static final class Node
+    {
+        private final String namespace;
+        private final Map<String, Node> nodes = new HashMap<>( );
+        private volatile Map<String, Node> children;
+        private volatile Set<String> projects;
+
+        Node( String namespace )
+        {
+            this.namespace = namespace;
+        }
+
+        Map<String, Node> getChildren( RepositorySession session, String repositoryId )
+            throws MetadataResolutionException
+        {
+            Map<String, Node> result = children;
+            if ( result != null )
+            {
+                return result;
+            }
+            synchronized ( this )
+            {
+                if ( children == null )
+                {
+                    MetadataResolver resolver = session.getResolver( );
+                    Collection<String> names = namespace == null
+                        ? resolver.resolveRootNamespaces( session, repositoryId )
+                        : resolver.resolveNamespaces( session, repositoryId, namespace );
+                    Map<String, Node> loaded = new HashMap<>( );
+                    for ( String name : names )
+                    {
+                        loaded.put( name, getOrCreateChild( name ) );
+                    }
+                    children = Collections.unmodifiableMap( loaded );
+                }
+                return children;
+            }
+        }
+
+        Set<String> getProjects( RepositorySession session, String repositoryId )
+            throws MetadataResolutionException
+        {
+            Set<String> result = projects;
+            if ( result != null )
+            {
+                return result;
+            }
+            synchronized ( this )
+            {
+                if ( projects == null )
+                {
+                    projects = namespace == null ? Collections.emptySet( ) : Collections.unmodifiableSet(
+                        new TreeSet<>( session.getResolver( ).resolveProjects( session, repositoryId, namespace ) ) );
+                }
+                return projects;
+            }
+        }
+
+        /**
+         * Returns the node for the child name, without adding it to the loaded children.
+         */
+        synchronized Node getOrCreateChild( String name )
+        {
+            return nodes.computeIfAbsent( name, n -> new Node( namespace == null ? n : namespace + "." + n ) );
+        }
+
+        synchronized Node findChild( String name )
+        {
+            return nodes.get( name );
+        }
+
+        /**
+         * Returns the node for the child name and adds it to the loaded children.
+         */
+        synchronized Node addChild( String name )
+        {
+            Node child = getOrCreateChild( name );
+            if ( children != null && !children.containsKey( name ) )
+            {
+                Map<String, Node> updated = new HashMap<>( children );
+                updated.put( name, child );
+                children = Collections.unmodifiableMap( updated );
+            }
+            return child;
+        }
+
+        synchronized void removeChild( String name )
+        {
+            nodes.remove( name );
+            if ( children != null && children.containsKey( name ) )
+            {
+                Map<String, Node> updated = new HashMap<>( children );
+                updated.remove( name );
+                children = Collections.unmodifiableMap( updated );
+            }
+        }
+
+        synchronized void addProject( String projectId )
+        {
+            if ( projects != null && !projects.contains( projectId ) )
+            {
+                Set<String> updated = new TreeSet<>( projects );
+                updated.add( projectId );
+                projects = Collections.unmodifiableSet( updated );
+            }
+        }
+
+        synchronized void removeProject( String projectId )
+        {
+            if ( projects != null && projects.contains( projectId ) )
+            {
+                Set<String> updated = new TreeSet<>( projects );
+                updated.remove( projectId );
+                projects = Collections.unmodifiableSet( updated );
+            }
+        }
+
+        synchronized void invalidate( )
+        {
+            children = null;
+            projects = null;
+        }
+    }
+}
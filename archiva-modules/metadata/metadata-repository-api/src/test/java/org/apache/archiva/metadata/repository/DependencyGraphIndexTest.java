@@ -0,0 +1,301 @@
+package org.apache.archiva.metadata.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.metadata.model.Dependency;
+import org.apache.archiva.metadata.model.MetadataFacet;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.model.ProjectVersionReference;
+import org.apache.archiva.metadata.model.facets.DependeeFacet;
+import org.apache.archiva.metadata.model.facets.DependencyGraphFacet;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * DependencyGraphIndexTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class DependencyGraphIndexTest
+    extends TestCase
+{
+    private static final String TEST_REPO = "internal";
+
+    private static final String OTHER_REPO = "snapshots";
+
+    // stored facet properties by repository, facet id and facet name
+    private final Map<String, Map<String, String>> store = new TreeMap<>( );
+
+    // the names of the dependee facets read by the index
+    private final List<String> dependeeReads = new ArrayList<>( );
+
+    private int listings = 0;
+
+    private RepositorySession session;
+
+    private DependencyGraphIndex index;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        MetadataRepository metadataRepository = EasyMock.createNiceMock( MetadataRepository.class );
+        session = new RepositorySession( metadataRepository, null );
+
+        EasyMock.expect( metadataRepository.getMetadataFacet( EasyMock.anyObject( RepositorySession.class ),
+            EasyMock.anyString( ), EasyMock.eq( DependencyGraphFacet.class ), EasyMock.anyString( ) ) ).andStubAnswer(
+            ( ) -> {
+                Object[] args = EasyMock.getCurrentArguments( );
+                Map<String, String> properties =
+                    store.get( toKey( args[1], DependencyGraphFacet.FACET_ID, args[3] ) );
+                if ( properties == null )
+                {
+                    return null;
+                }
+                DependencyGraphFacet facet = new DependencyGraphFacet( (String) args[3] );
+                facet.fromProperties( properties );
+                return facet;
+            } );
+        EasyMock.expect( metadataRepository.getMetadataFacet( EasyMock.anyObject( RepositorySession.class ),
+            EasyMock.anyString( ), EasyMock.eq( DependeeFacet.class ), EasyMock.anyString( ) ) ).andStubAnswer(
+            ( ) -> {
+                Object[] args = EasyMock.getCurrentArguments( );
+                dependeeReads.add( (String) args[3] );
+                Map<String, String> properties = store.get( toKey( args[1], DependeeFacet.FACET_ID, args[3] ) );
+                if ( properties == null )
+                {
+                    return null;
+                }
+                DependeeFacet facet = new DependeeFacet( (String) args[3] );
+                facet.fromProperties( properties );
+                return facet;
+            } );
+        EasyMock.expect( metadataRepository.getMetadataFacets( EasyMock.anyObject( RepositorySession.class ),
+            EasyMock.anyString( ), EasyMock.anyString( ) ) ).andStubAnswer( ( ) -> {
+            Object[] args = EasyMock.getCurrentArguments( );
+            listings++;
+            String prefix = toKey( args[1], args[2], "" );
+            List<String> names = new ArrayList<>( );
+            for ( String key : store.keySet( ) )
+            {
+                if ( key.startsWith( prefix ) )
+                {
+                    names.add( key.substring( prefix.length( ) ) );
+                }
+            }
+            return names;
+        } );
+        metadataRepository.addMetadataFacet( EasyMock.anyObject( RepositorySession.class ), EasyMock.anyString( ),
+            EasyMock.anyObject( MetadataFacet.class ) );
+        EasyMock.expectLastCall( ).andStubAnswer( ( ) -> {
+            Object[] args = EasyMock.getCurrentArguments( );
+            MetadataFacet facet = (MetadataFacet) args[2];
+            store.put( toKey( args[1], facet.getFacetId( ), facet.getName( ) ), facet.toProperties( ) );
+            return null;
+        } );
+        metadataRepository.removeMetadataFacet( EasyMock.anyObject( RepositorySession.class ), EasyMock.anyString( ),
+            EasyMock.anyString( ), EasyMock.anyString( ) );
+        EasyMock.expectLastCall( ).andStubAnswer( ( ) -> {
+            Object[] args = EasyMock.getCurrentArguments( );
+            store.remove( toKey( args[1], args[2], args[3] ) );
+            return null;
+        } );
+        EasyMock.replay( metadataRepository );
+
+        RepositorySessionFactory sessionFactory = EasyMock.createMock( RepositorySessionFactory.class );
+        EasyMock.expect( sessionFactory.createSession( ) ).andStubReturn( session );
+        EasyMock.replay( sessionFactory );
+
+        index = new DependencyGraphIndex( );
+        index.setRepositorySessionFactory( sessionFactory );
+    }
+
+    @Test
+    public void testDependees( )
+        throws Exception
+    {
+        index.updateProjectVersion( session, TEST_REPO, "org.example", "app", createMetadata( "1.0",
+            createDependency( "commons-io", "commons-io", "2.6" ),
+            createDependency( "org.example", "lib", "1.0" ) ) );
+        index.updateProjectVersion( session, TEST_REPO, "org.example", "app", createMetadata( "1.1",
+            createDependency( "commons-io", "commons-io", "2.7" ) ) );
+        index.updateProjectVersion( session, OTHER_REPO, "org.example", "tool", createMetadata( "0.1",
+            createDependency( "commons-io", "commons-io", "2.6" ) ) );
+
+        List<ProjectVersionReference> references =
+            index.getDependees( session, Arrays.asList( TEST_REPO, OTHER_REPO ), "commons-io", "commons-io", null, 0,
+                -1 );
+        assertEquals( 3, references.size( ) );
+        assertReference( references.get( 0 ), "org.example", "app", "1.0" );
+        assertReference( references.get( 1 ), "org.example", "app", "1.1" );
+        assertReference( references.get( 2 ), "org.example", "tool", "0.1" );
+
+        references =
+            index.getDependees( session, Arrays.asList( TEST_REPO, OTHER_REPO ), "commons-io", "commons-io", "2.6", 0,
+                -1 );
+        assertEquals( 2, references.size( ) );
+        assertReference( references.get( 0 ), "org.example", "app", "1.0" );
+        assertReference( references.get( 1 ), "org.example", "tool", "0.1" );
+
+        references =
+            index.getDependees( session, Collections.singletonList( TEST_REPO ), "commons-io", "commons-io", null, 1,
+                5 );
+        assertEquals( 1, references.size( ) );
+        assertReference( references.get( 0 ), "org.example", "app", "1.1" );
+    }
+
+    @Test
+    public void testQueryReadsOnlyEdgesOfProject( )
+        throws Exception
+    {
+        // edges stored before the index was loaded, e.g. by another instance
+        store.put( toKey( TEST_REPO, DependeeFacet.FACET_ID,
+            DependeeFacet.createName( "commons-io", "commons-io", "org.example", "old", "0.9" ) ),
+            new DependeeFacet( "", "2.6" ).toProperties( ) );
+        store.put( toKey( TEST_REPO, DependeeFacet.FACET_ID,
+            DependeeFacet.createName( "commons-io", "commons-io-extra", "org.example", "old", "0.9" ) ),
+            new DependeeFacet( "", "2.6" ).toProperties( ) );
+        List<String> repos = Collections.singletonList( TEST_REPO );
+
+        assertEquals( 1, index.getDependees( session, repos, "commons-io", "commons-io", null, 0, -1 ).size( ) );
+        index.updateProjectVersion( session, TEST_REPO, "org.example", "app", createMetadata( "1.0",
+            createDependency( "commons-io", "commons-io", "2.6" ),
+            createDependency( "org.example", "lib", "1.0" ) ) );
+        dependeeReads.clear( );
+
+        List<ProjectVersionReference> references =
+            index.getDependees( session, repos, "commons-io", "commons-io", "2.6", 0, -1 );
+        assertEquals( 2, references.size( ) );
+        assertReference( references.get( 0 ), "org.example", "app", "1.0" );
+        assertReference( references.get( 1 ), "org.example", "old", "0.9" );
+        // the names are listed once, the version filter reads only the edges of the project
+        assertEquals( 1, listings );
+        assertEquals( 2, dependeeReads.size( ) );
+        for ( String name : dependeeReads )
+        {
+            assertTrue( name, name.startsWith( DependeeFacet.prefix( "commons-io", "commons-io" ) ) );
+        }
+    }
+
+    @Test
+    public void testUpdateRemovesStaleEdges( )
+        throws Exception
+    {
+        index.updateProjectVersion( session, TEST_REPO, "org.example", "app", createMetadata( "1.0",
+            createDependency( "commons-io", "commons-io", "2.6" ),
+            createDependency( "org.example", "lib", "1.0" ) ) );
+        index.updateProjectVersion( session, TEST_REPO, "org.example", "app", createMetadata( "1.0",
+            createDependency( "commons-io", "commons-io", "2.7" ) ) );
+
+        List<String> repos = Collections.singletonList( TEST_REPO );
+        assertTrue( index.getDependees( session, repos, "org.example", "lib", null, 0, -1 ).isEmpty( ) );
+        assertFalse( store.containsKey( toKey( TEST_REPO, DependeeFacet.FACET_ID,
+            DependeeFacet.createName( "org.example", "lib", "org.example", "app", "1.0" ) ) ) );
+        assertTrue( index.getDependees( session, repos, "commons-io", "commons-io", "2.6", 0, -1 ).isEmpty( ) );
+        assertEquals( 1, index.getDependees( session, repos, "commons-io", "commons-io", "2.7", 0, -1 ).size( ) );
+
+        index.removeProjectVersion( session, TEST_REPO, "org.example", "app", "1.0" );
+        assertTrue( index.getDependees( session, repos, "commons-io", "commons-io", null, 0, -1 ).isEmpty( ) );
+        assertTrue( store.isEmpty( ) );
+    }
+
+    @Test
+    public void testConcurrentDependentsAreAdditive( )
+        throws Exception
+    {
+        // the reverse edges of two dependents are separate facets, storing one does not rewrite the other
+        index.updateProjectVersion( session, TEST_REPO, "org.example", "app", createMetadata( "1.0",
+            createDependency( "commons-io", "commons-io", "2.6" ) ) );
+        Map<String, Map<String, String>> before = new TreeMap<>( store );
+        index.updateProjectVersion( session, TEST_REPO, "org.example", "tool", createMetadata( "1.0",
+            createDependency( "commons-io", "commons-io", "2.6" ) ) );
+
+        for ( Map.Entry<String, Map<String, String>> entry : before.entrySet( ) )
+        {
+            assertEquals( entry.getValue( ), store.get( entry.getKey( ) ) );
+        }
+        assertEquals( 2, index.getDependees( session, Collections.singletonList( TEST_REPO ), "commons-io",
+            "commons-io", null, 0, -1 ).size( ) );
+    }
+
+    @Test
+    public void testDeletePomRemovesEdges( )
+        throws Exception
+    {
+        index.updateProjectVersion( session, TEST_REPO, "org.example", "app", createMetadata( "1.0-SNAPSHOT",
+            createDependency( "commons-io", "commons-io", "2.6" ) ) );
+        List<String> repos = Collections.singletonList( TEST_REPO );
+
+        index.deleteArtifact( session.getRepository( ), TEST_REPO, "org.example", "app", "1.0-20201014.123456-1",
+            "app-1.0-20201014.123456-1.jar" );
+        assertEquals( 1, index.getDependees( session, repos, "commons-io", "commons-io", null, 0, -1 ).size( ) );
+
+        index.deleteArtifact( session.getRepository( ), TEST_REPO, "org.example", "app", "1.0-20201014.123456-1",
+            "app-1.0-20201014.123456-1.pom" );
+        assertTrue( index.getDependees( session, repos, "commons-io", "commons-io", null, 0, -1 ).isEmpty( ) );
+        assertTrue( store.isEmpty( ) );
+    }
+
+    private static String toKey( Object repoId, Object facetId, Object name )
+    {
+        return repoId + "|" + facetId + "|" + name;
+    }
+
+    private static void assertReference( ProjectVersionReference reference, String namespace, String projectId,
+                                         String version )
+    {
+        assertEquals( namespace, reference.getNamespace( ) );
+        assertEquals( projectId, reference.getProjectId( ) );
+        assertEquals( version, reference.getProjectVersion( ) );
+        assertEquals( ProjectVersionReference.ReferenceType.DEPENDENCY, reference.getReferenceType( ) );
+    }
+
+    private static ProjectVersionMetadata createMetadata( String version, Dependency... dependencies )
+    {
+        ProjectVersionMetadata metadata = new ProjectVersionMetadata( );
+        metadata.setId( version );
+        for ( Dependency dependency : dependencies )
+        {
+            metadata.addDependency( dependency );
+        }
+        return metadata;
+    }
+
+    private static Dependency createDependency( String namespace, String artifactId, String version )
+    {
+        Dependency dependency = new Dependency( );
+        dependency.setNamespace( namespace );
+        dependency.setArtifactId( artifactId );
+        dependency.setVersion( version );
+        return dependency;
+    }
+}
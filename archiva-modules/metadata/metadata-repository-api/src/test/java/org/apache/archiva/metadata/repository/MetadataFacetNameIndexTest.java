@@ -0,0 +1,141 @@
+package org.apache.archiva.metadata.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MetadataFacetNameIndexTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class MetadataFacetNameIndexTest
+    extends TestCase
+{
+    private static final String FACET_ID = "org.apache.archiva.test";
+
+    private static final String REPO = "internal";
+
+    private MetadataRepository metadataRepository;
+
+    private MetadataFacetNameIndex index;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        metadataRepository = EasyMock.createMock( MetadataRepository.class );
+        index = new MetadataFacetNameIndex( FACET_ID );
+    }
+
+    @Test
+    public void testNamesAreLoadedOnce( )
+        throws Exception
+    {
+        EasyMock.expect( metadataRepository.getMetadataFacets( null, REPO, FACET_ID ) )
+            .andReturn( Arrays.asList( "2020/01/02", "2020/01/01" ) ).once( );
+        EasyMock.replay( metadataRepository );
+
+        assertEquals( Arrays.asList( "2020/01/01", "2020/01/02" ),
+                      Arrays.asList( index.getNames( null, metadataRepository, REPO ).toArray( ) ) );
+        index.add( REPO, "2020/01/03" );
+        index.remove( REPO, "2020/01/01" );
+        assertEquals( Arrays.asList( "2020/01/02", "2020/01/03" ),
+                      Arrays.asList( index.getNames( null, metadataRepository, REPO ).toArray( ) ) );
+        EasyMock.verify( metadataRepository );
+    }
+
+    @Test
+    public void testNameAddedWhileLoading( )
+        throws Exception
+    {
+        // the facet is written after the names were listed, but before the loading finished
+        EasyMock.expect( metadataRepository.getMetadataFacets( null, REPO, FACET_ID ) ).andAnswer( ( ) -> {
+            index.add( REPO, "2020/01/02" );
+            return Collections.singletonList( "2020/01/01" );
+        } );
+        EasyMock.replay( metadataRepository );
+
+        assertEquals( Arrays.asList( "2020/01/01", "2020/01/02" ),
+                      Arrays.asList( index.getNames( null, metadataRepository, REPO ).toArray( ) ) );
+    }
+
+    @Test
+    public void testNameRemovedWhileLoading( )
+        throws Exception
+    {
+        CountDownLatch listed = new CountDownLatch( 1 );
+        CountDownLatch removed = new CountDownLatch( 1 );
+        // the facet is removed after it was listed
+        EasyMock.expect( metadataRepository.getMetadataFacets( null, REPO, FACET_ID ) ).andAnswer( ( ) -> {
+            listed.countDown( );
+            removed.await( 200, TimeUnit.MILLISECONDS );
+            return Arrays.asList( "2020/01/01", "2020/01/02" );
+        } );
+        EasyMock.replay( metadataRepository );
+
+        Thread remover = new Thread( ( ) -> {
+            try
+            {
+                listed.await( );
+                index.remove( REPO, "2020/01/01" );
+                removed.countDown( );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        } );
+        remover.start( );
+        index.getNames( null, metadataRepository, REPO );
+        remover.join( 10000 );
+
+        assertEquals( Collections.singletonList( "2020/01/02" ),
+                      Arrays.asList( index.getNames( null, metadataRepository, REPO ).toArray( ) ) );
+    }
+
+    @Test
+    public void testInvalidate( )
+        throws Exception
+    {
+        EasyMock.expect( metadataRepository.getMetadataFacets( null, REPO, FACET_ID ) )
+            .andReturn( Collections.singletonList( "2020/01/01" ) ).times( 2 );
+        EasyMock.replay( metadataRepository );
+
+        index.getNames( null, metadataRepository, REPO );
+        index.invalidate( REPO );
+        // names of repositories, that are not loaded, are not added
+        index.add( REPO, "2020/01/02" );
+        assertEquals( Collections.singletonList( "2020/01/01" ),
+                      Arrays.asList( index.getNames( null, metadataRepository, REPO ).toArray( ) ) );
+        EasyMock.verify( metadataRepository );
+    }
+}
@@ -0,0 +1,158 @@
+package org.apache.archiva.metadata.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NamespaceTreeCacheTest
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class NamespaceTreeCacheTest
+    extends TestCase
+{
+    private static final List<String> REPOS = Arrays.asList( "internal", "snapshots" );
+
+    private static final String ROOT = "";
+
+    // the children returned by the resolver by repository and namespace, the projects use the key suffix "#projects"
+    private final Map<String, List<String>> children = new HashMap<>( );
+
+    private final Map<String, Integer> calls = new HashMap<>( );
+
+    private RepositorySession session;
+
+    private NamespaceTreeCache cache;
+
+    @Before
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        MetadataResolver resolver = EasyMock.createMock( MetadataResolver.class );
+        session = new RepositorySession( null, resolver );
+
+        EasyMock.expect( resolver.resolveRootNamespaces( EasyMock.same( session ), EasyMock.anyString( ) ) )
+            .andStubAnswer( ( ) -> resolve( EasyMock.getCurrentArguments( )[1], ROOT ) );
+        EasyMock.expect( resolver.resolveNamespaces( EasyMock.same( session ), EasyMock.anyString( ),
+            EasyMock.anyString( ) ) ).andStubAnswer(
+            ( ) -> resolve( EasyMock.getCurrentArguments( )[1], EasyMock.getCurrentArguments( )[2] ) );
+        EasyMock.expect( resolver.resolveProjects( EasyMock.same( session ), EasyMock.anyString( ),
+            EasyMock.anyString( ) ) ).andStubAnswer(
+            ( ) -> resolve( EasyMock.getCurrentArguments( )[1], EasyMock.getCurrentArguments( )[2] + "#projects" ) );
+        EasyMock.replay( resolver );
+
+        // internal: org.apache.archiva:{archiva-common}, org.apache.maven:{maven-core}
+        children.put( "internal:", Collections.singletonList( "org" ) );
+        children.put( "internal:org", Collections.singletonList( "apache" ) );
+        children.put( "internal:org.apache", Collections.singletonList( "archiva" ) );
+        children.put( "internal:org.apache.archiva#projects", Collections.singletonList( "archiva-common" ) );
+
+        // snapshots: org.apache.maven:{maven-core}, com.example:{app}
+        children.put( "snapshots:", Arrays.asList( "org", "com" ) );
+        children.put( "snapshots:org", Collections.singletonList( "apache" ) );
+        children.put( "snapshots:org.apache", Collections.singletonList( "maven" ) );
+        children.put( "snapshots:org.apache.maven#projects", Collections.singletonList( "maven-core" ) );
+        children.put( "snapshots:com", Collections.singletonList( "example" ) );
+        children.put( "snapshots:com.example#projects", Collections.singletonList( "app" ) );
+
+        cache = new NamespaceTreeCache( );
+    }
+
+    private Collection<String> resolve( Object repoId, Object namespace )
+    {
+        String key = repoId + ":" + namespace;
+        calls.merge( key, 1, Integer::sum );
+        return children.getOrDefault( key, Collections.emptyList( ) );
+    }
+
+    @Test
+    public void testCollapsedRootNamespaces( )
+        throws Exception
+    {
+        assertEquals( Arrays.asList( "com.example", "org.apache" ),
+                      new ArrayList<>( cache.getCollapsedRootNamespaces( session, REPOS ) ) );
+        assertEquals( Collections.singletonList( "org.apache.archiva" ),
+                      new ArrayList<>( cache.getCollapsedRootNamespaces( session,
+                          Collections.singletonList( "internal" ) ) ) );
+    }
+
+    @Test
+    public void testBrowseNamespace( )
+        throws Exception
+    {
+        assertEquals( Arrays.asList( "org.apache.archiva", "org.apache.maven" ),
+                      new ArrayList<>( cache.getCollapsedNamespaces( session, REPOS, "org.apache" ) ) );
+        assertEquals( Collections.singleton( "maven-core" ), cache.getProjects( session, REPOS, "org.apache.maven" ) );
+    }
+
+    @Test
+    public void testNamespacesResolvedOnce( )
+        throws Exception
+    {
+        cache.getCollapsedRootNamespaces( session, REPOS );
+        cache.getCollapsedRootNamespaces( session, REPOS );
+        cache.getCollapsedNamespaces( session, REPOS, "org.apache" );
+
+        assertEquals( Integer.valueOf( 1 ), calls.get( "internal:" ) );
+        assertEquals( Integer.valueOf( 1 ), calls.get( "internal:org.apache" ) );
+        assertEquals( Integer.valueOf( 1 ), calls.get( "snapshots:org.apache.maven#projects" ) );
+    }
+
+    @Test
+    public void testUpdates( )
+        throws Exception
+    {
+        cache.getCollapsedNamespaces( session, REPOS, "org.apache" );
+        assertTrue( cache.getProjects( session, REPOS, "org.apache" ).isEmpty( ) );
+
+        cache.addProject( "internal", "org.apache", "apache-parent" );
+        assertEquals( Collections.singleton( "apache-parent" ), cache.getProjects( session, REPOS, "org.apache" ) );
+        assertEquals( Collections.singletonList( "org.apache" ),
+                      new ArrayList<>( cache.getCollapsedRootNamespaces( session,
+                          Collections.singletonList( "internal" ) ) ) );
+
+        cache.removeNamespace( "snapshots", "org.apache.maven" );
+        assertEquals( Collections.singleton( "archiva" ), cache.getChildNamespaces( session, REPOS, "org.apache" ) );
+
+        // a deployment reloads the deepest known namespace
+        children.put( "internal:org.apache.archiva#projects", Arrays.asList( "archiva-common", "archiva-model" ) );
+        cache.auditEvent( new AuditEvent( "internal", "admin",
+                                          "org/apache/archiva/archiva-model/1.0/archiva-model-1.0.jar",
+                                          AuditEvent.UPLOAD_FILE ) );
+        assertEquals( Arrays.asList( "archiva-common", "archiva-model" ),
+                      new ArrayList<>( cache.getProjects( session, REPOS, "org.apache.archiva" ) ) );
+    }
+}
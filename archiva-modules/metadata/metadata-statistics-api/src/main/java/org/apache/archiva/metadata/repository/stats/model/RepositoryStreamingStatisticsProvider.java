@@ -0,0 +1,118 @@
+package org.apache.archiva.metadata.repository.stats.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.maven.model.MavenArtifactFacet;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.MetadataResolutionException;
+import org.apache.archiva.metadata.repository.RepositorySession;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ *
+ * Statistics provider that aggregates the repository statistics in a single pass over
+ * {@link MetadataRepository#getArtifactStream(RepositorySession, String)}.
+ * In contrast to the {@link RepositoryWalkingStatisticsProvider} there are no calls for each namespace,
+ * project and version level. The stream is backed by the repository session, so it is consumed sequentially
+ * in the calling thread.
+ *
+ * Metadata store implementations that are able to compute the statistics natively (e.g. by a query)
+ * should still implement {@link RepositoryStatisticsProvider} in their MetadataRepository class.
+ *
+ * @since 3.0
+ */
+public class RepositoryStreamingStatisticsProvider implements RepositoryStatisticsProvider
+{
+
+    /**
+     * Streams all artifacts of the given repository and populates the statistics object.
+     *
+     * @param repositorySession The repository session
+     * @param metadataRepository The repository implementation
+     * @param repositoryId The repository Id
+     * @param repositoryStatistics The statistics object that must be populated
+     * @throws MetadataRepositoryException Throws the repository exception, if an error occurs while accessing the repository.
+     */
+    @Override
+    public void populateStatistics( RepositorySession repositorySession, MetadataRepository metadataRepository, String repositoryId,
+                                    RepositoryStatistics repositoryStatistics )
+        throws MetadataRepositoryException
+    {
+        StatisticsAccumulator result = new StatisticsAccumulator( );
+        try ( Stream<ArtifactMetadata> artifactStream = metadataRepository.getArtifactStream( repositorySession, repositoryId ) )
+        {
+            artifactStream.forEach( result::add );
+        }
+        catch ( MetadataResolutionException e )
+        {
+            throw new MetadataRepositoryException( e.getMessage( ), e );
+        }
+        result.populate( repositoryStatistics );
+    }
+
+    /**
+     * Container for the aggregated values.
+     */
+    static final class StatisticsAccumulator
+    {
+        private long artifactCount = 0;
+        private long artifactFileSize = 0;
+        private final Set<String> namespaces = new HashSet<>( );
+        private final Set<String> projects = new HashSet<>( );
+        // long[1] is used as mutable counter to avoid boxing on each increment
+        private final Map<String, long[]> typeCounts = new HashMap<>( );
+
+        void add( ArtifactMetadata artifact )
+        {
+            artifactCount++;
+            artifactFileSize += artifact.getSize( );
+            String namespace = artifact.getNamespace( );
+            if ( namespace != null )
+            {
+                namespaces.add( namespace );
+                projects.add( namespace + ":" + artifact.getProject( ) );
+            }
+            MavenArtifactFacet facet = (MavenArtifactFacet) artifact.getFacet( MavenArtifactFacet.FACET_ID );
+            if ( facet != null )
+            {
+                typeCounts.computeIfAbsent( facet.getType( ), k -> new long[1] )[0]++;
+            }
+        }
+
+        void populate( RepositoryStatistics stats )
+        {
+            stats.setTotalArtifactCount( stats.getTotalArtifactCount( ) + artifactCount );
+            stats.setTotalArtifactFileSize( stats.getTotalArtifactFileSize( ) + artifactFileSize );
+            stats.setTotalGroupCount( stats.getTotalGroupCount( ) + namespaces.size( ) );
+            stats.setTotalProjectCount( stats.getTotalProjectCount( ) + projects.size( ) );
+            for ( Map.Entry<String, long[]> entry : typeCounts.entrySet( ) )
+            {
+                stats.setTotalCountForType( entry.getKey( ), stats.getTotalCountForType( entry.getKey( ) ) + entry.getValue( )[0] );
+            }
+        }
+    }
+}
@@ -1279,7 +1279,7 @@ public Stream<ArtifactMetadata> getArtifactStream(  final RepositorySession sess
                     return null;
                 }
             }
-            ).filter( Objects::nonNull );
+            ).filter( Objects::nonNull ).skip( queryParameter.getOffset( ) ).limit( queryParameter.getLimit( ) );
     }
 
     @Override
@@ -0,0 +1,37 @@
+package org.apache.archiva.audit;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Holds audit events, that are accepted but not yet written to the metadata repository.
+ *
+ * @since 3.0
+ */
+public interface AuditEventBuffer
+{
+    /**
+     * Waits until the events, that were accepted before the call, are written to the metadata repository.
+     * The method returns after the given timeout, even if events are still pending.
+     *
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return <code>true</code>, if all pending events are written, <code>false</code> if the timeout elapsed
+     */
+    boolean flush( long timeoutMillis );
+}
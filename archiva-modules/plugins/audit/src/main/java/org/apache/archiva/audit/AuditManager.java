@@ -22,6 +22,7 @@
 import org.apache.archiva.metadata.model.facets.AuditEvent;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.RepositorySession;
 
 import java.util.Collection;
 import java.util.Date;
@@ -35,6 +36,17 @@ List<AuditEvent> getMostRecentAuditEvents( MetadataRepository metadataRepository
     void addAuditEvent( MetadataRepository repository, AuditEvent event )
         throws MetadataRepositoryException;
 
+    /**
+     * Stores the given events using the given session. Failures of single events are logged and do not
+     * prevent the other events from being stored. The session is not saved, this is up to the caller.
+     *
+     * @param session the session used to store the events
+     * @param events  the events to store
+     * @since 3.0
+     */
+    void addAuditEvents( RepositorySession session, Collection<AuditEvent> events )
+        throws MetadataRepositoryException;
+
     void deleteAuditEvents( MetadataRepository metadataRepository, String repositoryId )
         throws MetadataRepositoryException;
 
@@ -20,6 +20,7 @@
  */
 
 import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.MetadataFacetNameIndex;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -36,7 +37,10 @@
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
 import java.util.TimeZone;
 
 /**
@@ -48,25 +52,48 @@
 {
     private static final int NUM_RECENT_EVENTS = 10;
 
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;
+
     private static final Logger log = LoggerFactory.getLogger( DefaultAuditManager.class );
 
     private static final TimeZone UTC_TIME_ZONE = TimeZone.getTimeZone( "UTC" );
 
+    private final MetadataFacetNameIndex auditIndex = new MetadataFacetNameIndex( AuditEvent.FACET_ID );
+
     @Inject
     RepositorySessionFactory repositorySessionFactory;
 
+    /**
+     * Buffers of events, that are not written yet. They are flushed before the events are queried.
+     */
+    @Inject
+    private Optional<List<AuditEventBuffer>> auditEventBuffers = Optional.empty( );
+
+    private void flushPendingEvents( )
+    {
+        for ( AuditEventBuffer buffer : auditEventBuffers.orElse( Collections.emptyList( ) ) )
+        {
+            if ( !buffer.flush( FLUSH_TIMEOUT_MILLIS ) )
+            {
+                log.warn( "Pending audit events were not written within {} ms, the result may miss recent events",
+                    FLUSH_TIMEOUT_MILLIS );
+            }
+        }
+    }
+
     @Override
     public List<AuditEvent> getMostRecentAuditEvents( MetadataRepository metadataRepository,
                                                       List<String> repositoryIds )
         throws MetadataRepositoryException
     {
+        flushPendingEvents( );
         try(RepositorySession session = repositorySessionFactory.createSession()) {
-            // TODO: consider a more efficient implementation that directly gets the last ten from the content repository
             List<AuditRecord> records = new ArrayList<>();
             for (String repositoryId : repositoryIds) {
-                List<String> names = metadataRepository.getMetadataFacets(session, repositoryId, AuditEvent.FACET_ID);
-                for (String name : names) {
-                    records.add(new AuditRecord(repositoryId, name));
+                // only the newest entries of each repository are candidates for the overall result
+                Iterator<String> names = auditIndex.getNames(session, metadataRepository, repositoryId).descendingIterator();
+                for (int i = 0; i < NUM_RECENT_EVENTS && names.hasNext(); i++) {
+                    records.add(new AuditRecord(repositoryId, names.next()));
                 }
             }
             Collections.sort(records);
@@ -91,6 +118,26 @@ public void addAuditEvent( MetadataRepository repository, AuditEvent event )
             // ignore those with no repository - they will still be logged to the textual audit log
             if (event.getRepositoryId() != null) {
                 repository.addMetadataFacet(session, event.getRepositoryId(), event);
+                auditIndex.add(event.getRepositoryId(), event.getName());
+            }
+        }
+    }
+
+    @Override
+    public void addAuditEvents( RepositorySession session, Collection<AuditEvent> events )
+        throws MetadataRepositoryException
+    {
+        MetadataRepository repository = session.getRepository( );
+        for (AuditEvent event : events) {
+            // ignore those with no repository - they will still be logged to the textual audit log
+            if (event.getRepositoryId() == null) {
+                continue;
+            }
+            try {
+                repository.addMetadataFacet(session, event.getRepositoryId(), event);
+                auditIndex.add(event.getRepositoryId(), event.getName());
+            } catch (MetadataRepositoryException e) {
+                log.warn("Unable to write audit event {} to repository {}: {}", event.getName(), event.getRepositoryId(), e.getMessage(), e);
             }
         }
     }
@@ -102,6 +149,10 @@ public void deleteAuditEvents( MetadataRepository metadataRepository, String rep
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             metadataRepository.removeMetadataFacets(session, repositoryId, AuditEvent.FACET_ID);
         }
+        finally
+        {
+            auditIndex.invalidate( repositoryId );
+        }
     }
 
     @Override
@@ -118,13 +169,22 @@ public List<AuditEvent> getAuditEventsInRange( MetadataRepository metadataReposi
                                                    Date endTime )
         throws MetadataRepositoryException
     {
+        flushPendingEvents( );
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             List<AuditEvent> results = new ArrayList<>();
+            SimpleDateFormat nameFormat = createNameFormat();
             for (String repositoryId : repositoryIds) {
-                List<String> list = metadataRepository.getMetadataFacets(session, repositoryId, AuditEvent.FACET_ID);
+                NavigableSet<String> list = auditIndex.getNames(session, metadataRepository, repositoryId);
+                if (startTime != null) {
+                    list = list.tailSet(nameFormat.format(startTime), true);
+                }
+                if (endTime != null) {
+                    // the names are suffixed by a hash, so the upper bound must include all suffixes of the timestamp
+                    list = list.headSet(nameFormat.format(endTime) + Character.MAX_VALUE, true);
+                }
                 for (String name : list) {
                     try {
-                        Date date = createNameFormat().parse(name);
+                        Date date = nameFormat.parse(name);
                         if ((startTime == null || !date.before(startTime)) && (endTime == null || !date.after(
                                 endTime))) {
                             AuditEvent event = (AuditEvent) metadataRepository.getMetadataFacet(session,
@@ -188,4 +248,9 @@ public void setRepositorySessionFactory( RepositorySessionFactory repositorySess
     {
         this.repositorySessionFactory = repositorySessionFactory;
     }
+
+    public void setAuditEventBuffers( List<AuditEventBuffer> auditEventBuffers )
+    {
+        this.auditEventBuffers = Optional.ofNullable( auditEventBuffers );
+    }
 }
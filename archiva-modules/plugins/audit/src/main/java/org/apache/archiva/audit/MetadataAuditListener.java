@@ -21,6 +21,7 @@
 
 import org.apache.archiva.metadata.model.facets.AuditEvent;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.MetadataSessionException;
 import org.apache.archiva.metadata.repository.RepositorySession;
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.metadata.audit.AuditListener;
@@ -28,17 +29,49 @@
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- *
+ * Writes the audit events to the metadata repository. The events are put into a bounded queue and written
+ * in batches by a background thread, so the request that triggered the event does not wait for the metadata store.
+ * If the queue is full, the {@link OverflowPolicy} decides if the event is written by the calling thread
+ * or discarded. The {@link AuditManager} queries call {@link #flush(long)} to see the events, that are
+ * still in the queue.
  */
 @Service("auditListener#metadata")
 public class MetadataAuditListener
-    implements AuditListener
+    implements AuditListener, AuditEventBuffer
 {
     private static final Logger log = LoggerFactory.getLogger( MetadataAuditListener.class );
 
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * Behaviour, if the writer queue is full
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * The event is written synchronously by the thread that sends the event. This slows down the producers.
+         */
+        CALLER_RUNS,
+        /**
+         * The event is not written to the metadata repository. It is still logged to the textual audit log.
+         */
+        DISCARD
+    }
+
     /**
      *
      */
@@ -52,6 +85,69 @@
     @Inject
     private RepositorySessionFactory repositorySessionFactory;
 
+    private int queueCapacity = 10000;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_RUNS;
+
+    private BlockingQueue<AuditEvent> queue;
+
+    private ExecutorService writer;
+
+    private volatile boolean running = false;
+
+    private final AtomicLong discardedEvents = new AtomicLong( 0 );
+
+    // guards the sequence counters and is used for waiting on written events
+    private final Object sequenceLock = new Object( );
+
+    // number of events put into the queue, guarded by the sequenceLock
+    private long queuedEvents = 0;
+
+    // number of queued events, that are written. The queue is FIFO, so these are the first queued events.
+    private long writtenEvents = 0;
+
+    @PostConstruct
+    public void start( )
+    {
+        queue = new ArrayBlockingQueue<>( queueCapacity );
+        writer = Executors.newSingleThreadExecutor( r -> {
+            Thread thread = new Thread( r, "archiva-audit-writer" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        running = true;
+        writer.execute( this::processQueue );
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        running = false;
+        if ( writer != null )
+        {
+            writer.shutdownNow( );
+            try
+            {
+                writer.awaitTermination( 10, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+        if ( queue != null )
+        {
+            // write the remaining events synchronously
+            List<AuditEvent> remaining = new ArrayList<>( );
+            queue.drainTo( remaining );
+            if ( !remaining.isEmpty( ) )
+            {
+                writeEvents( remaining );
+                addWritten( remaining.size( ) );
+            }
+        }
+    }
+
     @Override
     public void auditEvent( AuditEvent event )
     {
@@ -59,32 +155,182 @@ public void auditEvent( AuditEvent event )
         if ( event.getAction().equals( AuditEvent.CREATE_FILE ) || event.getAction().equals( AuditEvent.UPLOAD_FILE ) ||
             event.getAction().equals( AuditEvent.MERGING_REPOSITORIES ) )
         {
-            RepositorySession repositorySession = null;
-            try
+            boolean queued;
+            synchronized ( sequenceLock )
             {
-                repositorySession = repositorySessionFactory.createSession();
+                queued = running && queue.offer( event );
+                if ( queued )
+                {
+                    queuedEvents++;
+                }
             }
-            catch ( MetadataRepositoryException e )
+            if ( !queued )
             {
-                e.printStackTrace( );
+                if ( running && overflowPolicy == OverflowPolicy.DISCARD )
+                {
+                    long discarded = discardedEvents.incrementAndGet( );
+                    log.warn( "Audit queue is full, event for {} is not written to the metadata repository ({} discarded)",
+                        event.getResource( ), discarded );
+                }
+                else
+                {
+                    writeEvents( Collections.singletonList( event ) );
+                }
             }
+        }
+    }
+
+    private void processQueue( )
+    {
+        List<AuditEvent> batch = new ArrayList<>( MAX_BATCH_SIZE );
+        while ( running )
+        {
             try
             {
-                auditManager.addAuditEvent( repositorySession.getRepository(), event );
-                repositorySession.save();
+                batch.add( queue.take( ) );
+                queue.drainTo( batch, MAX_BATCH_SIZE - 1 );
+                try
+                {
+                    writeEvents( batch );
+                }
+                finally
+                {
+                    addWritten( batch.size( ) );
+                }
             }
-            catch ( MetadataRepositoryException e )
+            catch ( InterruptedException e )
             {
-                log.warn( "Unable to write audit event to repository: {}", e.getMessage(), e );
+                // shutdown, remaining events are written by the shutdown method
+                queue.addAll( batch );
+                Thread.currentThread( ).interrupt( );
+                return;
             }
-            catch ( org.apache.archiva.metadata.repository.MetadataSessionException e )
+            catch ( RuntimeException e )
             {
-                e.printStackTrace( );
+                log.error( "Unexpected error while writing audit events: {}", e.getMessage( ), e );
             }
-            finally
+            batch.clear( );
+        }
+    }
+
+    private void addWritten( int count )
+    {
+        synchronized ( sequenceLock )
+        {
+            writtenEvents += count;
+            sequenceLock.notifyAll( );
+        }
+    }
+
+    /**
+     * Waits until the events, that were queued before the call, are written. Events queued later do not delay
+     * the flush.
+     */
+    @Override
+    public boolean flush( long timeoutMillis )
+    {
+        long deadline = System.currentTimeMillis( ) + timeoutMillis;
+        synchronized ( sequenceLock )
+        {
+            long target = queuedEvents;
+            while ( writtenEvents < target )
             {
-                repositorySession.close();
+                long remaining = deadline - System.currentTimeMillis( );
+                if ( remaining <= 0 )
+                {
+                    return false;
+                }
+                try
+                {
+                    sequenceLock.wait( remaining );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    return false;
+                }
             }
+            return true;
+        }
+    }
+
+    private void writeEvents( List<AuditEvent> events )
+    {
+        RepositorySession repositorySession;
+        try
+        {
+            repositorySession = repositorySessionFactory.createSession();
+        }
+        catch ( MetadataRepositoryException e )
+        {
+            log.warn( "Unable to create session for writing audit events: {}", e.getMessage(), e );
+            return;
+        }
+        try
+        {
+            auditManager.addAuditEvents( repositorySession, events );
+            repositorySession.save();
         }
+        catch ( MetadataRepositoryException e )
+        {
+            log.warn( "Unable to write audit event to repository: {}", e.getMessage(), e );
+        }
+        catch ( MetadataSessionException e )
+        {
+            log.warn( "Unable to save audit event session: {}", e.getMessage(), e );
+        }
+        finally
+        {
+            repositorySession.close();
+        }
+    }
+
+    public void setAuditManager( AuditManager auditManager )
+    {
+        this.auditManager = auditManager;
+    }
+
+    public void setRepositorySessionFactory( RepositorySessionFactory repositorySessionFactory )
+    {
+        this.repositorySessionFactory = repositorySessionFactory;
+    }
+
+    public int getQueueCapacity( )
+    {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the capacity of the writer queue. Must be set before the listener is started.
+     */
+    public void setQueueCapacity( int queueCapacity )
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy( )
+    {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy( OverflowPolicy overflowPolicy )
+    {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * @return the number of events, that were not written because of a full queue
+     */
+    public long getDiscardedEvents( )
+    {
+        return discardedEvents.get( );
+    }
+
+    /**
+     * @return the number of events waiting in the writer queue
+     */
+    public int getQueueSize( )
+    {
+        return queue == null ? 0 : queue.size( );
     }
 }
@@ -276,6 +276,55 @@ public void testAddAuditEvent()
         metadataRepositoryControl.verify();
     }
 
+    @Test
+    public void testAddAuditEvents()
+        throws Exception
+    {
+        AuditEvent event1 = createEvent( new Date() );
+        AuditEvent event2 = createEvent( new Date() );
+        event2.setRepositoryId( TEST_REPO_ID_2 );
+        AuditEvent ignored = createEvent( new Date() );
+        ignored.setRepositoryId( null );
+
+        sessionControl.reset();
+        EasyMock.expect( session.getRepository() ).andStubReturn( metadataRepository );
+        sessionControl.replay();
+        metadataRepository.addMetadataFacet( session, TEST_REPO_ID, event1 );
+        metadataRepository.addMetadataFacet( session, TEST_REPO_ID_2, event2 );
+
+        metadataRepositoryControl.replay();
+
+        auditManager.addAuditEvents( session, Arrays.asList( event1, ignored, event2 ) );
+
+        metadataRepositoryControl.verify();
+    }
+
+    @Test
+    public void testPendingEventsFlushedBeforeQuery()
+        throws Exception
+    {
+        List<Long> flushes = new ArrayList<>( );
+        auditManager.setAuditEventBuffers( Collections.singletonList( timeout -> {
+            flushes.add( timeout );
+            return true;
+        } ) );
+
+        sessionControl.reset();
+        factoryControl.reset();
+        EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
+        factoryControl.replay();
+        EasyMock.expect( metadataRepository.getMetadataFacets( session, TEST_REPO_ID, AuditEvent.FACET_ID ) ).andReturn(
+            Collections.<String>emptyList() );
+        metadataRepositoryControl.replay();
+
+        List<AuditEvent> events =
+            auditManager.getMostRecentAuditEvents( metadataRepository, Collections.singletonList( TEST_REPO_ID ) );
+        assertTrue( events.isEmpty() );
+        assertEquals( 1, flushes.size() );
+
+        metadataRepositoryControl.verify();
+    }
+
     @Test
     public void testAddAuditEventNoRepositoryId()
         throws Exception
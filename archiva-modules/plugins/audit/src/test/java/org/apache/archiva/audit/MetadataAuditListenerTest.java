@@ -0,0 +1,145 @@
+package org.apache.archiva.audit;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.RepositorySessionFactory;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class MetadataAuditListenerTest
+    extends TestCase
+{
+    private static final long TIMEOUT = 10000;
+
+    private MetadataAuditListener listener;
+
+    private ExecutorService executor;
+
+    private final AuditEvent first = createEvent( "first" );
+
+    private final AuditEvent second = createEvent( "second" );
+
+    private final AuditEvent third = createEvent( "third" );
+
+    // the writer waits on the gate of an event, before it writes the batch, that contains the event
+    private final CountDownLatch firstGate = new CountDownLatch( 1 );
+
+    private final CountDownLatch secondGate = new CountDownLatch( 1 );
+
+    private final CountDownLatch thirdGate = new CountDownLatch( 1 );
+
+    private final CountDownLatch firstWriting = new CountDownLatch( 1 );
+
+    private final CountDownLatch secondWriting = new CountDownLatch( 1 );
+
+    @Override
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        executor = Executors.newSingleThreadExecutor( );
+
+        RepositorySession session = EasyMock.createNiceMock( RepositorySession.class );
+        RepositorySessionFactory sessionFactory = EasyMock.createMock( RepositorySessionFactory.class );
+        EasyMock.expect( sessionFactory.createSession( ) ).andStubReturn( session );
+        AuditManager auditManager = EasyMock.createMock( AuditManager.class );
+        auditManager.addAuditEvents( EasyMock.same( session ), EasyMock.anyObject( ) );
+        EasyMock.expectLastCall( ).andStubAnswer( ( ) -> {
+            Collection<?> events = (Collection<?>) EasyMock.getCurrentArguments( )[1];
+            if ( events.contains( first ) )
+            {
+                firstWriting.countDown( );
+                firstGate.await( );
+            }
+            if ( events.contains( second ) )
+            {
+                secondWriting.countDown( );
+                secondGate.await( );
+            }
+            if ( events.contains( third ) )
+            {
+                thirdGate.await( );
+            }
+            return null;
+        } );
+        EasyMock.replay( session, sessionFactory, auditManager );
+
+        listener = new MetadataAuditListener( );
+        listener.setAuditManager( auditManager );
+        listener.setRepositorySessionFactory( sessionFactory );
+        listener.start( );
+    }
+
+    @Override
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        firstGate.countDown( );
+        secondGate.countDown( );
+        thirdGate.countDown( );
+        executor.shutdownNow( );
+        listener.shutdown( );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testFlushWaitsOnlyForEarlierEvents( )
+        throws Exception
+    {
+        listener.auditEvent( first );
+        assertTrue( firstWriting.await( TIMEOUT, TimeUnit.MILLISECONDS ) );
+        listener.auditEvent( second );
+
+        Future<Boolean> flush = executor.submit( ( ) -> listener.flush( TIMEOUT ) );
+        // the first event is still written
+        assertFalse( listener.flush( 100 ) );
+
+        firstGate.countDown( );
+        assertTrue( secondWriting.await( TIMEOUT, TimeUnit.MILLISECONDS ) );
+        // queued after the flush started, the writer blocks on it
+        listener.auditEvent( third );
+        secondGate.countDown( );
+
+        assertTrue( flush.get( TIMEOUT, TimeUnit.MILLISECONDS ) );
+        assertFalse( listener.flush( 100 ) );
+    }
+
+    private static AuditEvent createEvent( String resource )
+    {
+        return new AuditEvent( "internal", "user", resource, AuditEvent.CREATE_FILE );
+    }
+}
@@ -0,0 +1,242 @@
+package org.apache.archiva.reports.consumers;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Scan scoped index of SHA1 digests and the repository paths of the artifacts with that digest.
+ * <p>
+ * The digests are not stored as strings. The first 64 bits are the key of an open addressing hash table,
+ * the remaining 96 bits are kept in primitive arrays and compared on lookup. All entries with the same
+ * leading 64 bits are chained, so the entries of one digest are found without scanning the index.
+ * <p>
+ * The index is not thread safe. It is used by one consumer instance during a single scan.
+ *
+ * @since 3.0
+ */
+class ChecksumIndex
+{
+    private static final int SHA1_HEX_LENGTH = 40;
+
+    // hash table: leading digest bits and the first entry (index + 1, 0 marks an empty slot)
+    private long[] slotKeys;
+    private int[] slotHeads;
+    private int slotCount = 0;
+
+    // entries
+    private long[] digestHigh;
+    private long[] digestMid;
+    private int[] digestLow;
+    private int[] nextEntry;
+    private String[] paths;
+    private int size = 0;
+
+    private final BitSet scanned = new BitSet( );
+
+    ChecksumIndex( )
+    {
+        this( 1024 );
+    }
+
+    ChecksumIndex( int expectedSize )
+    {
+        int capacity = Integer.highestOneBit( Math.max( 16, expectedSize ) * 2 - 1 );
+        slotKeys = new long[capacity * 2];
+        slotHeads = new int[capacity * 2];
+        digestHigh = new long[capacity];
+        digestMid = new long[capacity];
+        digestLow = new int[capacity];
+        nextEntry = new int[capacity];
+        paths = new String[capacity];
+    }
+
+    /**
+     * Returns <code>true</code>, if the given string is a hex encoded SHA1 digest.
+     */
+    static boolean isValid( String checksum )
+    {
+        if ( checksum == null || checksum.length( ) != SHA1_HEX_LENGTH )
+        {
+            return false;
+        }
+        for ( int i = 0; i < SHA1_HEX_LENGTH; i++ )
+        {
+            if ( Character.digit( checksum.charAt( i ), 16 ) < 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the artifact path for the given digest. If the same path is already registered with this digest,
+     * the existing entry is returned.
+     *
+     * @param checksum the hex encoded SHA1 digest
+     * @param path     the repository path of the artifact
+     * @return the entry index, or <code>-1</code>, if the checksum is not a valid SHA1 digest
+     */
+    int add( String checksum, String path )
+    {
+        if ( !isValid( checksum ) )
+        {
+            return -1;
+        }
+        long high = Long.parseUnsignedLong( checksum.substring( 0, 16 ), 16 );
+        long mid = Long.parseUnsignedLong( checksum.substring( 16, 32 ), 16 );
+        int low = (int) Long.parseLong( checksum.substring( 32, 40 ), 16 );
+
+        int slot = findSlot( high );
+        for ( int entry = slotHeads[slot] - 1; entry >= 0; entry = nextEntry[entry] - 1 )
+        {
+            if ( digestMid[entry] == mid && digestLow[entry] == low && paths[entry].equals( path ) )
+            {
+                return entry;
+            }
+        }
+
+        if ( size == paths.length )
+        {
+            growEntries( );
+        }
+        int entry = size++;
+        digestHigh[entry] = high;
+        digestMid[entry] = mid;
+        digestLow[entry] = low;
+        paths[entry] = path;
+        if ( slotHeads[slot] == 0 )
+        {
+            slotKeys[slot] = high;
+            slotCount++;
+        }
+        nextEntry[entry] = slotHeads[slot];
+        slotHeads[slot] = entry + 1;
+
+        if ( slotCount * 4 > slotKeys.length * 3 )
+        {
+            rehash( slotKeys.length * 2 );
+        }
+        return entry;
+    }
+
+    /**
+     * Marks the entry as found by the current scan. Duplicates are only reported for scanned entries.
+     */
+    void markScanned( int entry )
+    {
+        scanned.set( entry );
+    }
+
+    /**
+     * Returns the indexes of the scanned entries in the order they were added.
+     */
+    int[] getScannedEntries( )
+    {
+        return scanned.stream( ).toArray( );
+    }
+
+    String getPath( int entry )
+    {
+        return paths[entry];
+    }
+
+    /**
+     * Returns the paths of all other artifacts with the same digest as the given entry.
+     */
+    List<String> getDuplicates( int entry )
+    {
+        int slot = findSlot( digestHigh[entry] );
+        List<String> result = null;
+        for ( int other = slotHeads[slot] - 1; other >= 0; other = nextEntry[other] - 1 )
+        {
+            if ( other != entry && digestMid[other] == digestMid[entry] && digestLow[other] == digestLow[entry]
+                && !paths[other].equals( paths[entry] ) )
+            {
+                if ( result == null )
+                {
+                    result = new ArrayList<>( );
+                }
+                result.add( paths[other] );
+            }
+        }
+        if ( result == null )
+        {
+            return Collections.emptyList( );
+        }
+        // chains are in reverse insertion order
+        Collections.reverse( result );
+        return result;
+    }
+
+    int size( )
+    {
+        return size;
+    }
+
+    private int findSlot( long key )
+    {
+        int mask = slotKeys.length - 1;
+        int slot = mix( key ) & mask;
+        while ( slotHeads[slot] != 0 && slotKeys[slot] != key )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix( long key )
+    {
+        // the digest bits are already uniformly distributed
+        return (int) ( key ^ ( key >>> 32 ) );
+    }
+
+    private void rehash( int newLength )
+    {
+        long[] oldKeys = slotKeys;
+        int[] oldHeads = slotHeads;
+        slotKeys = new long[newLength];
+        slotHeads = new int[newLength];
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldHeads[i] != 0 )
+            {
+                int slot = findSlot( oldKeys[i] );
+                slotKeys[slot] = oldKeys[i];
+                slotHeads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    private void growEntries( )
+    {
+        int newLength = paths.length * 2;
+        digestHigh = Arrays.copyOf( digestHigh, newLength );
+        digestMid = Arrays.copyOf( digestMid, newLength );
+        digestLow = Arrays.copyOf( digestLow, newLength );
+        nextEntry = Arrays.copyOf( nextEntry, newLength );
+        paths = Arrays.copyOf( paths, newLength );
+    }
+}
@@ -29,6 +29,8 @@
 import org.apache.archiva.metadata.model.facets.RepositoryProblemFacet;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.MetadataResolutionException;
+import org.apache.archiva.metadata.repository.MetadataSessionException;
 import org.apache.archiva.metadata.repository.RepositorySession;
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.metadata.repository.storage.RepositoryPathTranslator;
@@ -43,17 +45,26 @@
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
 
 /**
  * Search the artifact repository of known SHA1 Checksums for potential duplicate artifacts.
  * <p>
+ * On a scan of the entire repository the checksums of the metadata repository and of the scanned files are
+ * collected in a {@link ChecksumIndex} and the duplicates are reported at the end of the scan. For single files
+ * (e.g. deployments) the metadata repository is queried for the checksum of the file.
+ * <p>
  * TODO: no need for this to be a scanner - we can just query the database / content repository to get a full list
  */
 @Service ( "knownRepositoryContentConsumer#duplicate-artifacts" )
@@ -93,6 +104,13 @@
 
     private RepositorySession repositorySession;
 
+    /**
+     * The checksum index, if the entire repository is scanned
+     */
+    private ChecksumIndex checksumIndex;
+
+    private final List<RepositoryProblemFacet> problems = new ArrayList<>();
+
     @Override
     public String getId()
     {
@@ -123,6 +141,8 @@ public void beginScan( ManagedRepository repo, Date whenGathered )
     {
         repoId = repo.getId();
         this.repositoryDir = Paths.get( repo.getLocation() );
+        this.checksumIndex = null;
+        this.problems.clear();
         try
         {
             repositorySession = repositorySessionFactory.createSession();
@@ -133,33 +153,72 @@ public void beginScan( ManagedRepository repo, Date whenGathered )
         }
     }
 
+    /**
+     * If the whole repository is scanned, the known checksums are read once from the metadata repository
+     * and the duplicates are detected in memory. Otherwise the metadata repository is queried for each file.
+     */
     @Override
     public void beginScan( ManagedRepository repo, Date whenGathered, boolean executeOnEntireRepo )
         throws ConsumerException
     {
         beginScan( repo, whenGathered );
+        if ( executeOnEntireRepo )
+        {
+            checksumIndex = new ChecksumIndex( );
+            loadChecksums( );
+        }
     }
 
-    @Override
-    public void processFile( String path )
+    /**
+     * Adds the SHA1 checksums that are already stored in the metadata repository to the index. These are the
+     * checksums computed by the metadata consumer, so the artifacts that are not scanned again are not read.
+     */
+    private void loadChecksums( )
         throws ConsumerException
     {
-        Path artifactFile = this.repositoryDir.resolve( path );
-
-        // TODO: would be quicker to somehow make sure it ran after the update database consumer, or as a part of that
-        //  perhaps could use an artifact context that is retained for all consumers? First in can set the SHA-1
-        //  alternatively this could come straight from the storage resolver, which could populate the artifact metadata
-        //  in the later parse call with the desired checksum and use that
-        String checksumSha1;
-        ChecksummedFile checksummedFile = new ChecksummedFile( artifactFile);
-        try
+        MetadataRepository metadataRepository = repositorySession.getRepository();
+        try ( Stream<ArtifactMetadata> artifacts = metadataRepository.getArtifactStream( repositorySession, repoId ) )
         {
-            checksumSha1 = checksummedFile.calculateChecksum( ChecksumAlgorithm.SHA1 );
+            artifacts.forEach( artifact -> {
+                String checksum = artifact.getChecksum( ChecksumAlgorithm.SHA1 );
+                if ( checksum != null )
+                {
+                    String projectVersion = artifact.getProjectVersion() != null ? artifact.getProjectVersion() : artifact.getVersion();
+                    String path = pathTranslator.toPath( artifact.getNamespace(), artifact.getProject(), projectVersion, artifact.getId() );
+                    if ( path != null )
+                    {
+                        checksumIndex.add( checksum.toLowerCase( Locale.ROOT ), path );
+                    }
+                }
+            } );
         }
-        catch ( IOException e )
+        catch ( MetadataResolutionException e )
         {
+            repositorySession.close();
             throw new ConsumerException( e.getMessage(), e );
         }
+        log.debug( "Loaded {} known checksums for repository {}", checksumIndex.size(), repoId );
+    }
+
+    @Override
+    public void processFile( String path )
+        throws ConsumerException
+    {
+        String checksumSha1 = getChecksum( this.repositoryDir.resolve( path ) );
+
+        if ( checksumIndex != null )
+        {
+            int entry = checksumIndex.add( checksumSha1, path );
+            if ( entry < 0 )
+            {
+                log.warn( "Not checking duplicates for artifact with invalid checksum {}: {}", path, checksumSha1 );
+            }
+            else
+            {
+                checksumIndex.markScanned( entry );
+            }
+            return;
+        }
 
         MetadataRepository metadataRepository = repositorySession.getRepository();
 
@@ -202,32 +261,66 @@ public void processFile( String path )
                     continue;
                 }
 
-                RepositoryProblemFacet problem = new RepositoryProblemFacet();
-                problem.setRepositoryId( repoId );
-                problem.setNamespace( originalArtifact.getNamespace() );
-                problem.setProject( originalArtifact.getProject() );
-                problem.setVersion( originalArtifact.getVersion() );
-                problem.setId( id );
                 // FIXME: need to get the right storage resolver for the repository the dupe artifact is in, it might be
                 //       a different type
                 // FIXME: we need the project version here, not the artifact version
-                problem.setMessage( "Duplicate Artifact Detected: " + path + " <--> " + pathTranslator.toPath(
+                problems.add( createProblem( originalArtifact, path, pathTranslator.toPath(
                     dupArtifact.getNamespace(), dupArtifact.getProject(), dupArtifact.getVersion(),
-                    dupArtifact.getId() ) );
-                problem.setProblem( "duplicate-artifact" );
+                    dupArtifact.getId() ) ) );
+            }
+        }
+    }
 
+    /**
+     * Returns the SHA1 checksum of the artifact file. The checksum is read from the <code>.sha1</code> file,
+     * if it exists and is not older than the artifact. Otherwise it is calculated from the file content.
+     */
+    private String getChecksum( Path artifactFile )
+        throws ConsumerException
+    {
+        ChecksummedFile checksummedFile = new ChecksummedFile( artifactFile );
+        try
+        {
+            FileTime artifactModified = Files.getLastModifiedTime( artifactFile );
+            Path checksumFile = checksummedFile.getChecksumFile( ChecksumAlgorithm.SHA1 );
+            if ( Files.exists( checksumFile )
+                && Files.getLastModifiedTime( checksumFile ).compareTo( artifactModified ) >= 0 )
+            {
                 try
                 {
-                    metadataRepository.addMetadataFacet(repositorySession , repoId, problem );
+                    String checksum = checksummedFile.parseChecksumFile( checksumFile, ChecksumAlgorithm.SHA1,
+                        StandardCharsets.UTF_8 ).getChecksum();
+                    if ( ChecksumIndex.isValid( checksum ) )
+                    {
+                        return checksum.toLowerCase( Locale.ROOT );
+                    }
                 }
-                catch ( MetadataRepositoryException e )
+                catch ( RuntimeException e )
                 {
-                    throw new ConsumerException( e.getMessage(), e );
+                    log.debug( "Could not read checksum file {}: {}", checksumFile, e.getMessage() );
                 }
             }
+            return checksummedFile.calculateChecksum( ChecksumAlgorithm.SHA1 );
+        }
+        catch ( IOException e )
+        {
+            throw new ConsumerException( e.getMessage(), e );
         }
     }
 
+    private RepositoryProblemFacet createProblem( ArtifactMetadata originalArtifact, String path, String dupPath )
+    {
+        RepositoryProblemFacet problem = new RepositoryProblemFacet();
+        problem.setRepositoryId( repoId );
+        problem.setNamespace( originalArtifact.getNamespace() );
+        problem.setProject( originalArtifact.getProject() );
+        problem.setVersion( originalArtifact.getVersion() );
+        problem.setId( path.substring( path.lastIndexOf( '/' ) + 1 ) );
+        problem.setMessage( "Duplicate Artifact Detected: " + path + " <--> " + dupPath );
+        problem.setProblem( "duplicate-artifact" );
+        return problem;
+    }
+
     @Override
     public void processFile( String path, boolean executeOnEntireRepo )
         throws ConsumerException
@@ -235,10 +328,66 @@ public void processFile( String path, boolean executeOnEntireRepo )
         processFile( path );
     }
 
+    /**
+     * Reports the duplicates found in memory for the scanned files and writes all problems in one session.
+     */
     @Override
     public void completeScan()
     {
-        repositorySession.close();
+        try
+        {
+            if ( checksumIndex != null )
+            {
+                findDuplicates( );
+            }
+            if ( !problems.isEmpty() )
+            {
+                MetadataRepository metadataRepository = repositorySession.getRepository();
+                for ( RepositoryProblemFacet problem : problems )
+                {
+                    metadataRepository.addMetadataFacet( repositorySession, repoId, problem );
+                }
+                repositorySession.save();
+                log.info( "Found {} duplicate artifacts in repository {}", problems.size(), repoId );
+            }
+        }
+        catch ( MetadataRepositoryException | MetadataSessionException e )
+        {
+            log.error( "Could not store the duplicate artifact problems of repository {}: {}", repoId, e.getMessage(), e );
+        }
+        finally
+        {
+            checksumIndex = null;
+            problems.clear();
+            repositorySession.close();
+        }
+    }
+
+    private void findDuplicates( )
+    {
+        for ( int entry : checksumIndex.getScannedEntries() )
+        {
+            List<String> duplicates = checksumIndex.getDuplicates( entry );
+            if ( duplicates.isEmpty() )
+            {
+                continue;
+            }
+            String path = checksumIndex.getPath( entry );
+            ArtifactMetadata originalArtifact;
+            try
+            {
+                originalArtifact = pathTranslator.getArtifactForPath( repoId, path );
+            }
+            catch ( Exception e )
+            {
+                log.warn( "Not reporting problem for invalid artifact in checksum check: {}", e.getMessage() );
+                continue;
+            }
+            for ( String dupPath : duplicates )
+            {
+                problems.add( createProblem( originalArtifact, path, dupPath ) );
+            }
+        }
     }
 
     @Override
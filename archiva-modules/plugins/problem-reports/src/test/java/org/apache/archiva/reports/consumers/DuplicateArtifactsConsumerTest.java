@@ -20,6 +20,7 @@
  */
 
 import junit.framework.TestCase;
+import org.apache.archiva.checksum.ChecksumAlgorithm;
 import org.apache.archiva.consumers.ConsumerException;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.model.MetadataFacet;
@@ -45,6 +46,7 @@
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.stream.Stream;
 
 import static org.mockito.Mockito.*;
 
@@ -228,6 +230,52 @@ public void testConsumerArtifactNotAnArtifactPathResults()
         verify( metadataRepository, never() ).addMetadataFacet(eq(session) , eq( TEST_REPO ), Matchers.<MetadataFacet>anyObject() );
     }
 
+    @Test
+    public void testConsumerEntireRepoArtifactDuplicated()
+        throws Exception
+    {
+        ArtifactMetadata dupArtifact = createMetadata( "1.0" );
+        dupArtifact.setChecksum( ChecksumAlgorithm.SHA1, TEST_CHECKSUM );
+        ArtifactMetadata otherArtifact = createMetadata( "1.1" );
+        otherArtifact.setChecksum( ChecksumAlgorithm.SHA1, "0123456789abcdef0123456789abcdef01234567" );
+        String dupPath = "com/example/test/test-artifact/1.0/test-artifact-1.0.jar";
+        when( metadataRepository.getArtifactStream( session, TEST_REPO ) ).thenReturn(
+            Stream.of( dupArtifact, otherArtifact ) );
+        when( pathTranslator.toPath( TEST_NAMESPACE, TEST_PROJECT, "1.0", TEST_PROJECT + "-1.0.jar" ) ).thenReturn( dupPath );
+        when( pathTranslator.toPath( TEST_NAMESPACE, TEST_PROJECT, "1.1", TEST_PROJECT + "-1.1.jar" ) ).thenReturn(
+            "com/example/test/test-artifact/1.1/test-artifact-1.1.jar" );
+
+        consumer.beginScan( config, new Date(), true );
+        consumer.processFile( TEST_FILE, true );
+        consumer.completeScan( true );
+
+        verify( metadataRepository, never() ).getArtifactsByChecksum( eq( session ), eq( TEST_REPO ), anyString() );
+        ArgumentCaptor<RepositoryProblemFacet> argument = ArgumentCaptor.forClass( RepositoryProblemFacet.class );
+        verify( metadataRepository ).addMetadataFacet( eq( session ), eq( TEST_REPO ), argument.capture() );
+        RepositoryProblemFacet problem = argument.getValue();
+        assertProblem( problem );
+        assertEquals( "Duplicate Artifact Detected: " + TEST_FILE + " <--> " + dupPath, problem.getMessage() );
+        verify( session ).save();
+    }
+
+    @Test
+    public void testConsumerEntireRepoArtifactNotDuplicated()
+        throws Exception
+    {
+        ArtifactMetadata artifact = createMetadata( TEST_VERSION );
+        artifact.setProjectVersion( "1.0-SNAPSHOT" );
+        artifact.setChecksum( ChecksumAlgorithm.SHA1, TEST_CHECKSUM );
+        when( metadataRepository.getArtifactStream( session, TEST_REPO ) ).thenReturn( Stream.of( artifact ) );
+        when( pathTranslator.toPath( TEST_NAMESPACE, TEST_PROJECT, "1.0-SNAPSHOT", TEST_PROJECT + "-" + TEST_VERSION + ".jar" ) ).thenReturn(
+            TEST_FILE );
+
+        consumer.beginScan( config, new Date(), true );
+        consumer.processFile( TEST_FILE, true );
+        consumer.completeScan( true );
+
+        verify( metadataRepository, never() ).addMetadataFacet( eq( session ), eq( TEST_REPO ), Matchers.<MetadataFacet>anyObject() );
+    }
+
     private static void assertProblem( RepositoryProblemFacet problem )
     {
         assertEquals( TEST_REPO, problem.getRepositoryId() );
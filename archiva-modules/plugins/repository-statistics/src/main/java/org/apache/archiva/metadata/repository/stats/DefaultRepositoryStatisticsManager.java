@@ -19,6 +19,10 @@
  * under the License.
  */
 
+import org.apache.archiva.configuration.ArchivaConfiguration;
+import org.apache.archiva.configuration.ArchivaRuntimeConfiguration;
+import org.apache.archiva.configuration.ConfigurationEvent;
+import org.apache.archiva.configuration.ConfigurationListener;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -27,39 +31,87 @@
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatistics;
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsManager;
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsProvider;
-import org.apache.archiva.metadata.repository.stats.model.RepositoryWalkingStatisticsProvider;
+import org.apache.archiva.metadata.repository.stats.model.RepositoryStreamingStatisticsProvider;
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
  */
 @Service("repositoryStatisticsManager#default")
 public class DefaultRepositoryStatisticsManager
-    implements RepositoryStatisticsManager
+    implements RepositoryStatisticsManager, ConfigurationListener
 {
     private static final Logger log = LoggerFactory.getLogger( DefaultRepositoryStatisticsManager.class );
 
     private static final TimeZone UTC_TIME_ZONE = TimeZone.getTimeZone( "UTC" );
 
-    private RepositoryWalkingStatisticsProvider walkingProvider = new RepositoryWalkingStatisticsProvider();
+    private RepositoryStatisticsProvider defaultProvider = new RepositoryStreamingStatisticsProvider();
 
+    private static final int DAY_PREFIX_LENGTH = "yyyy/MM/dd".length( );
 
+    private final RepositoryStatisticsIndex statisticsIndex = new RepositoryStatisticsIndex( );
+
+    /**
+     * Number of days, for which all statistics entries are kept. Older entries are compacted to one entry per day.
+     * A value &lt;= 0 disables the compaction. The value is taken from the runtime configuration.
+     */
+    private volatile int fullResolutionDays = 0;
+
+    /**
+     * Maximum number of days, the statistics entries are kept. A value &lt;= 0 keeps the entries forever.
+     * The value is taken from the runtime configuration.
+     */
+    private volatile int maxAgeDays = 0;
 
     @Inject
     RepositorySessionFactory repositorySessionFactory;
 
+    @Inject
+    private ArchivaConfiguration archivaConfiguration;
+
+    @PostConstruct
+    public void initialize( )
+    {
+        archivaConfiguration.addListener( this );
+        updateRetention( );
+    }
+
+    @Override
+    public void configurationEvent( ConfigurationEvent event )
+    {
+        if ( event.getType( ) == ConfigurationEvent.SAVED )
+        {
+            updateRetention( );
+        }
+    }
+
+    private void updateRetention( )
+    {
+        ArchivaRuntimeConfiguration runtimeConfiguration =
+            archivaConfiguration.getConfiguration( ).getArchivaRuntimeConfiguration( );
+        if ( runtimeConfiguration != null )
+        {
+            fullResolutionDays = runtimeConfiguration.getStatisticsFullResolutionDays( );
+            maxAgeDays = runtimeConfiguration.getStatisticsMaxAgeDays( );
+        }
+    }
+
     @Override
     public boolean hasStatistics( String repositoryId )
         throws MetadataRepositoryException
@@ -79,23 +131,18 @@ public RepositoryStatistics getLastStatistics( String repositoryId )
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             final MetadataRepository metadataRepository = session.getRepository( );
 
-            // TODO: consider a more efficient implementation that directly gets the last one from the content repository
-            List<String> scans = metadataRepository.getMetadataFacets(session, repositoryId, DefaultRepositoryStatistics.FACET_ID);
-            if (scans == null) {
-                return null;
-            }
-            Collections.sort(scans);
-            if (!scans.isEmpty()) {
-                String name = scans.get(scans.size() - 1);
-                RepositoryStatistics repositoryStatistics =
-                        RepositoryStatistics.class.cast(metadataRepository.getMetadataFacet(session, repositoryId,
-                                RepositoryStatistics.FACET_ID, name));
-                stopWatch.stop();
-                log.debug("time to find last RepositoryStatistics: {} ms", stopWatch.getTime());
-                return repositoryStatistics;
-            } else {
+            NavigableSet<String> scans = statisticsIndex.getNames( session, metadataRepository, repositoryId );
+            if ( scans.isEmpty( ) )
+            {
                 return null;
             }
+            String name = scans.last( );
+            RepositoryStatistics repositoryStatistics =
+                RepositoryStatistics.class.cast( metadataRepository.getMetadataFacet( session, repositoryId,
+                    RepositoryStatistics.FACET_ID, name ) );
+            stopWatch.stop();
+            log.debug( "time to find last RepositoryStatistics: {} ms", stopWatch.getTime() );
+            return repositoryStatistics;
         }
     }
 
@@ -127,12 +174,15 @@ public void addStatisticsAfterScan( String repositoryId, Date startTime,
                 ((RepositoryStatisticsProvider) metadataRepository).populateStatistics(session,
                         metadataRepository, repositoryId, repositoryStatistics);
             } else {
-                walkingProvider.populateStatistics(session, metadataRepository, repositoryId, repositoryStatistics);
+                defaultProvider.populateStatistics(session, metadataRepository, repositoryId, repositoryStatistics);
             }
 
             log.info("Gathering statistics executed in {} ms", (System.currentTimeMillis() - startGather));
 
             metadataRepository.addMetadataFacet(session, repositoryId, repositoryStatistics);
+            statisticsIndex.add( repositoryId, repositoryStatistics.getName( ) );
+
+            compactStatistics( session, metadataRepository, repositoryId, endTime );
         }
     }
 
@@ -144,6 +194,10 @@ public void deleteStatistics( String repositoryId )
             final MetadataRepository metadataRepository = session.getRepository( );
             metadataRepository.removeMetadataFacets(session, repositoryId, DefaultRepositoryStatistics.FACET_ID);
         }
+        finally
+        {
+            statisticsIndex.invalidate( repositoryId );
+        }
     }
 
     @Override
@@ -154,11 +208,19 @@ public List<RepositoryStatistics> getStatisticsInRange( String repositoryId,
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             final MetadataRepository metadataRepository = session.getRepository( );
             List<RepositoryStatistics> results = new ArrayList<>();
-            List<String> list = metadataRepository.getMetadataFacets(session, repositoryId, DefaultRepositoryStatistics.FACET_ID);
-            Collections.sort(list, Collections.reverseOrder());
-            for (String name : list) {
+            NavigableSet<String> names = statisticsIndex.getNames( session, metadataRepository, repositoryId );
+            SimpleDateFormat nameFormat = createNameFormat( );
+            if ( startTime != null )
+            {
+                names = names.tailSet( nameFormat.format( startTime ), true );
+            }
+            if ( endTime != null )
+            {
+                names = names.headSet( nameFormat.format( endTime ), true );
+            }
+            for (String name : names.descendingSet()) {
                 try {
-                    Date date = createNameFormat().parse(name);
+                    Date date = nameFormat.parse(name);
                     if ((startTime == null || !date.before(startTime)) && (endTime == null || !date.after(
                             endTime))) {
                         RepositoryStatistics stats =
@@ -176,6 +238,68 @@ public List<RepositoryStatistics> getStatisticsInRange( String repositoryId,
         }
     }
 
+    /**
+     * Applies the retention policy to the stored statistics of the repository. Entries that are older than
+     * the full resolution period are compacted to the last entry of each day. Entries that are older than the
+     * maximum age are removed, if a maximum age is set.
+     * Only the entries that were not compacted by a previous run are checked.
+     */
+    private void compactStatistics( RepositorySession session, MetadataRepository metadataRepository, String repositoryId,
+                                    Date referenceTime )
+        throws MetadataRepositoryException
+    {
+        if ( fullResolutionDays <= 0 && maxAgeDays <= 0 )
+        {
+            return;
+        }
+        NavigableSet<String> names = statisticsIndex.getNames( session, metadataRepository, repositoryId );
+        SimpleDateFormat nameFormat = createNameFormat( );
+        long refTime = referenceTime == null ? System.currentTimeMillis( ) : referenceTime.getTime( );
+        Set<String> removals = new LinkedHashSet<>( );
+
+        if ( maxAgeDays > 0 )
+        {
+            String maxAgeLimit = nameFormat.format( new Date( refTime - TimeUnit.DAYS.toMillis( maxAgeDays ) ) );
+            removals.addAll( names.headSet( maxAgeLimit, false ) );
+        }
+
+        if ( fullResolutionDays > 0 )
+        {
+            // Only complete days are compacted, the limit is the day prefix of the name
+            String limit = nameFormat.format( new Date( refTime - TimeUnit.DAYS.toMillis( fullResolutionDays ) ) )
+                .substring( 0, DAY_PREFIX_LENGTH );
+            String lastCompacted = statisticsIndex.getCompactedUpTo( repositoryId );
+            if ( lastCompacted == null || lastCompacted.compareTo( limit ) < 0 )
+            {
+                NavigableSet<String> candidates = lastCompacted == null
+                    ? names.headSet( limit, false )
+                    : names.subSet( lastCompacted, true, limit, false );
+                String previous = null;
+                for ( String name : candidates )
+                {
+                    if ( previous != null && previous.length( ) >= DAY_PREFIX_LENGTH
+                        && name.startsWith( previous.substring( 0, DAY_PREFIX_LENGTH ) ) )
+                    {
+                        // keep only the last entry of a day
+                        removals.add( previous );
+                    }
+                    previous = name;
+                }
+                statisticsIndex.setCompactedUpTo( repositoryId, limit );
+            }
+        }
+
+        for ( String name : removals )
+        {
+            metadataRepository.removeMetadataFacet( session, repositoryId, DefaultRepositoryStatistics.FACET_ID, name );
+            statisticsIndex.remove( repositoryId, name );
+        }
+        if ( !removals.isEmpty( ) )
+        {
+            log.info( "Removed {} statistics entries of repository {} by the retention policy", removals.size( ), repositoryId );
+        }
+    }
+
     private static SimpleDateFormat createNameFormat()
     {
         SimpleDateFormat fmt = new SimpleDateFormat( DefaultRepositoryStatistics.SCAN_TIMESTAMP_FORMAT );
@@ -192,4 +316,40 @@ public void setRepositorySessionFactory( RepositorySessionFactory repositorySess
     {
         this.repositorySessionFactory = repositorySessionFactory;
     }
+
+    public int getFullResolutionDays( )
+    {
+        return fullResolutionDays;
+    }
+
+    public void setFullResolutionDays( int fullResolutionDays )
+    {
+        this.fullResolutionDays = fullResolutionDays;
+    }
+
+    public int getMaxAgeDays( )
+    {
+        return maxAgeDays;
+    }
+
+    public void setMaxAgeDays( int maxAgeDays )
+    {
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    public RepositoryStatisticsProvider getDefaultProvider( )
+    {
+        return defaultProvider;
+    }
+
+    /**
+     * Sets the provider that is used, if the metadata repository does not implement {@link RepositoryStatisticsProvider}
+     * itself.
+     *
+     * @param defaultProvider the fallback statistics provider
+     */
+    public void setDefaultProvider( RepositoryStatisticsProvider defaultProvider )
+    {
+        this.defaultProvider = defaultProvider;
+    }
 }
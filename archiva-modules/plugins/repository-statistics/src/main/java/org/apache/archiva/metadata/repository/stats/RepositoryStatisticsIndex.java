@@ -0,0 +1,66 @@
+package org.apache.archiva.metadata.repository.stats;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.repository.MetadataFacetNameIndex;
+import org.apache.archiva.metadata.repository.stats.model.DefaultRepositoryStatistics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time ordered index of the statistics facet names of each repository.
+ * <p>
+ * The facet names are the formatted scan start times ({@link DefaultRepositoryStatistics#SCAN_TIMESTAMP_FORMAT}),
+ * so the natural string order is the time order. The names are kept up to date by the statistics manager, which
+ * is the only writer of statistics facets. In addition the index stores the progress of the compaction.
+ *
+ * @since 3.0
+ */
+class RepositoryStatisticsIndex
+    extends MetadataFacetNameIndex
+{
+    /**
+     * Stores the name up to which the older entries are already compacted
+     */
+    private final Map<String, String> compactedUpTo = new ConcurrentHashMap<>( );
+
+    RepositoryStatisticsIndex( )
+    {
+        super( DefaultRepositoryStatistics.FACET_ID );
+    }
+
+    @Override
+    public void invalidate( String repositoryId )
+    {
+        super.invalidate( repositoryId );
+        compactedUpTo.remove( repositoryId );
+    }
+
+    String getCompactedUpTo( String repositoryId )
+    {
+        return compactedUpTo.get( repositoryId );
+    }
+
+    void setCompactedUpTo( String repositoryId, String name )
+    {
+        compactedUpTo.put( repositoryId, name );
+    }
+}
@@ -42,8 +42,10 @@
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 import static org.easymock.EasyMock.*;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith( ArchivaBlockJUnit4ClassRunner.class )
 public class RepositoryStatisticsManagerTest
@@ -220,6 +222,59 @@ public void testAddNewStats()
         metadataRepositoryControl.verify();
     }
 
+    @Test
+    public void testCompactOldStats()
+        throws Exception
+    {
+        Date current = new Date();
+        Date startTime = new Date( current.getTime() - 12345 );
+
+        RepositoryStatistics stats = createTestStats( startTime, current );
+
+        // three scans on the same day, that is out of the full resolution period
+        long oldDay = current.getTime() - TimeUnit.DAYS.toMillis( 40 );
+        String old1 = TIMESTAMP_FORMAT.format( new Date( oldDay - 3000 ) );
+        String old2 = TIMESTAMP_FORMAT.format( new Date( oldDay - 2000 ) );
+        String old3 = TIMESTAMP_FORMAT.format( new Date( oldDay - 1000 ) );
+        // do not fail, if the test runs around midnight
+        assumeTrue( old1.substring( 0, 10 ).equals( old3.substring( 0, 10 ) ) );
+
+        repositoryStatisticsManager.setFullResolutionDays( 31 );
+
+        walkRepository( 1 );
+
+        sessionControl.reset();
+        factoryControl.reset();
+        expect( repositorySessionFactory.createSession( ) ).andStubReturn( session );
+        expect( session.getRepository() ).andStubReturn( metadataRepository );
+        session.close();
+        expectLastCall( ).anyTimes( );
+        factoryControl.replay();
+        sessionControl.replay();
+
+        metadataRepository.addMetadataFacet(session , TEST_REPO_ID, stats );
+
+        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn(
+            Arrays.asList( old2, stats.getName(), old3, old1 ) );
+
+        metadataRepository.removeMetadataFacet( session, TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID, old1 );
+        metadataRepository.removeMetadataFacet( session, TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID, old2 );
+
+        expect( metadataRepository.getMetadataFacet(session , TEST_REPO_ID,
+            DefaultRepositoryStatistics.FACET_ID, old3 ) ).andReturn( createTestStats( new Date( oldDay - 1000 ), new Date( oldDay ) ) );
+
+        metadataRepositoryControl.replay();
+
+        repositoryStatisticsManager.addStatisticsAfterScan( TEST_REPO_ID, startTime, current, 56345,
+                                                            45 );
+
+        List<RepositoryStatistics> list =
+            repositoryStatisticsManager.getStatisticsInRange( TEST_REPO_ID, new Date( oldDay - 10000 ), new Date( oldDay ) );
+        assertEquals( 1, list.size() );
+
+        metadataRepositoryControl.verify();
+    }
+
     @Test
     public void testDeleteStats()
         throws Exception
@@ -622,109 +677,32 @@ private void walkRepository( int count )
 
         for ( int i = 0; i < count; i++ )
         {
-
-
-            expect( metadataRepository.getRootNamespaces(session , TEST_REPO_ID ) ).andReturn( Arrays.asList( "com", "org" ) );
-
-            expect( metadataRepository.getProjects(session , TEST_REPO_ID, "com" ) ).andReturn( Arrays.<String>asList() );
-
-            expect( metadataRepository.getChildNamespaces(session , TEST_REPO_ID, "com" ) ).andReturn( Arrays.asList( "example" ) );
-
-            expect( metadataRepository.getChildNamespaces(session , TEST_REPO_ID, "com.example" ) ).andReturn(
-                Arrays.<String>asList() );
-
-            expect( metadataRepository.getProjects(session , TEST_REPO_ID, "com.example" ) ).andReturn(
-                Arrays.asList( "example-project" ) );
-
-            expect( metadataRepository.getProjectVersions(session , TEST_REPO_ID, "com.example", "example-project" ) ).andReturn(
-                Arrays.asList( "1.0", "1.1" ) );
-
-            expect(
-                metadataRepository.getArtifacts(session , TEST_REPO_ID, "com.example", "example-project", "1.0" ) ).andReturn(
-                Arrays.asList( createArtifact( "com.example", "example-project", "1.0", "jar" ),
-                               createArtifact( "com.example", "example-project", "1.0", "pom" ) ) );
-
-            expect(
-                metadataRepository.getArtifacts(session , TEST_REPO_ID, "com.example", "example-project", "1.1" ) ).andReturn(
-                Arrays.asList( createArtifact( "com.example", "example-project", "1.1", "jar" ),
-                               createArtifact( "com.example", "example-project", "1.1", "pom" ) ) );
-
-
-            expect( metadataRepository.getChildNamespaces(session , TEST_REPO_ID, "org" ) ).andReturn( Arrays.asList( "apache", "codehaus" ) );
-
-            expect( metadataRepository.getChildNamespaces(session , TEST_REPO_ID, "org.apache" ) ).andReturn( Arrays.asList( "archiva", "maven" )  );
-
-
-            expect( metadataRepository.getProjects(session , TEST_REPO_ID, "org.apache" ) ).andReturn( Arrays.<String>asList() );
-
-            expect( metadataRepository.getChildNamespaces(session , TEST_REPO_ID, "org.apache.archiva" ) ).andReturn( Arrays.<String>asList() );
-
-            expect( metadataRepository.getProjects(session , TEST_REPO_ID, "org.apache.archiva" ) ).andReturn( Arrays.asList( "metadata-repository-api", "metadata-model" ) );
-
-            expect( metadataRepository.getProjectVersions(session , TEST_REPO_ID, "org.apache.archiva", "metadata-repository-api" ) )
-                .andReturn( Arrays.asList( "1.3-SNAPSHOT", "1.3" )  );
-
-
-            expect( metadataRepository.getArtifacts(session , TEST_REPO_ID, "org.apache.archiva", "metadata-repository-api", "1.3-SNAPSHOT" ) )
-                .andReturn( Arrays.asList( createArtifact( "org.apache.archiva", "metadata-repository-api", "1.3-SNAPSHOT", "jar" ),
-                                           createArtifact( "org.apache.archiva", "metadata-repository-api", "1.3-SNAPSHOT",
-                                                           "pom" ) )  );
-
-            expect( metadataRepository.getArtifacts(session , TEST_REPO_ID, "org.apache.archiva", "metadata-repository-api", "1.3" ) )
-                .andReturn( Arrays.asList( createArtifact( "org.apache.archiva", "metadata-repository-api", "1.3", "jar" ),
-                                           createArtifact( "org.apache.archiva", "metadata-repository-api", "1.3", "pom" ) ) );
-
-            expect( metadataRepository.getProjectVersions(session , TEST_REPO_ID, "org.apache.archiva", "metadata-model" ) )
-                .andReturn( Arrays.asList( "1.3-SNAPSHOT", "1.3" )  );
-
-            expect( metadataRepository.getArtifacts(session , TEST_REPO_ID, "org.apache.archiva", "metadata-model", "1.3-SNAPSHOT" ) )
-                .andReturn( Arrays.asList( createArtifact( "org.apache.archiva", "metadata-model", "1.3-SNAPSHOT", "jar" ),
-                                           createArtifact( "org.apache.archiva", "metadata-model", "1.3-SNAPSHOT", "pom" ) ) );
-
-            expect( metadataRepository.getArtifacts(session , TEST_REPO_ID, "org.apache.archiva", "metadata-model", "1.3" ) )
-                .andReturn( Arrays.asList( createArtifact( "org.apache.archiva", "metadata-model", "1.3", "jar" ),
-                                           createArtifact( "org.apache.archiva", "metadata-model", "1.3", "pom" ) ) );
-
-            expect( metadataRepository.getChildNamespaces(session , TEST_REPO_ID, "org.apache.maven" ) ).andReturn( Arrays.<String>asList() );
-
-            expect( metadataRepository.getProjects(session , TEST_REPO_ID, "org.apache.maven" ) )
-                .andReturn( Arrays.asList( "maven-model" )  );
-
-            expect( metadataRepository.getProjectVersions(session , TEST_REPO_ID, "org.apache.maven", "maven-model" ) )
-                .andReturn( Arrays.asList( "2.2.1" ) );
-
-            expect( metadataRepository.getArtifacts(session , TEST_REPO_ID, "org.apache.maven", "maven-model", "2.2.1" ) )
-                .andReturn( Arrays.asList( createArtifact( "org.apache.archiva", "maven-model", "2.2.1", "jar" ),
-                                           createArtifact( "org.apache.archiva", "maven-model", "2.2.1", "pom" ) ) );
-
-            expect( metadataRepository.getChildNamespaces(session , TEST_REPO_ID, "org.codehaus" ) ).andReturn( Arrays.asList( "plexus" ) );
-
-            expect( metadataRepository.getProjects(session , TEST_REPO_ID, "org" ) ).andReturn( Arrays.<String>asList(  ) );
-
-            expect( metadataRepository.getProjects(session , TEST_REPO_ID, "org.codehaus" ) )
-                .andReturn( Arrays.<String>asList(  ) );
-
-            expect( metadataRepository.getChildNamespaces(session , TEST_REPO_ID, "org.codehaus.plexus" ) )
-                .andReturn( Arrays.<String>asList(  ) );
-
-            expect( metadataRepository.getProjects(session , TEST_REPO_ID, "org.codehaus.plexus" ) )
-                .andReturn( Arrays.asList( "plexus-spring" )  );
-
-            expect( metadataRepository.getProjectVersions(session, TEST_REPO_ID, "org.codehaus.plexus", "plexus-spring" ) )
-                .andReturn( Arrays.asList( "1.0", "1.1", "1.2" ) );
-
-
-            expect( metadataRepository.getArtifacts(session , TEST_REPO_ID, "org.codehaus.plexus", "plexus-spring", "1.0" ) )
-                .andReturn( Arrays.asList( createArtifact( "org.codehaus.plexus", "plexus-spring", "1.0", "jar" ),
-                                           createArtifact( "org.codehaus.plexus", "plexus-spring", "1.0", "pom" ) ) );
-
-            expect( metadataRepository.getArtifacts(session, TEST_REPO_ID, "org.codehaus.plexus", "plexus-spring", "1.1" ) )
-                .andReturn( Arrays.asList( createArtifact( "org.codehaus.plexus", "plexus-spring", "1.1", "jar" ),
-                                           createArtifact( "org.codehaus.plexus", "plexus-spring", "1.1", "pom" ) )  );
-
-            expect( metadataRepository.getArtifacts(session , TEST_REPO_ID, "org.codehaus.plexus", "plexus-spring", "1.2" ) )
-                .andReturn( Arrays.asList( createArtifact( "org.codehaus.plexus", "plexus-spring", "1.2", "jar" ),
-                                           createArtifact( "org.codehaus.plexus", "plexus-spring", "1.2", "pom" ) )  );
+            expect( metadataRepository.getArtifactStream( session, TEST_REPO_ID ) ).andAnswer(
+                ( ) -> createRepositoryArtifacts( ).stream( ) );
         }
     }
+
+    private List<ArtifactMetadata> createRepositoryArtifacts( )
+    {
+        return Arrays.asList( createArtifact( "com.example", "example-project", "1.0", "jar" ),
+                              createArtifact( "com.example", "example-project", "1.0", "pom" ),
+                              createArtifact( "com.example", "example-project", "1.1", "jar" ),
+                              createArtifact( "com.example", "example-project", "1.1", "pom" ),
+                              createArtifact( "org.apache.archiva", "metadata-repository-api", "1.3-SNAPSHOT", "jar" ),
+                              createArtifact( "org.apache.archiva", "metadata-repository-api", "1.3-SNAPSHOT", "pom" ),
+                              createArtifact( "org.apache.archiva", "metadata-repository-api", "1.3", "jar" ),
+                              createArtifact( "org.apache.archiva", "metadata-repository-api", "1.3", "pom" ),
+                              createArtifact( "org.apache.archiva", "metadata-model", "1.3-SNAPSHOT", "jar" ),
+                              createArtifact( "org.apache.archiva", "metadata-model", "1.3-SNAPSHOT", "pom" ),
+                              createArtifact( "org.apache.archiva", "metadata-model", "1.3", "jar" ),
+                              createArtifact( "org.apache.archiva", "metadata-model", "1.3", "pom" ),
+                              createArtifact( "org.apache.maven", "maven-model", "2.2.1", "jar" ),
+                              createArtifact( "org.apache.maven", "maven-model", "2.2.1", "pom" ),
+                              createArtifact( "org.codehaus.plexus", "plexus-spring", "1.0", "jar" ),
+                              createArtifact( "org.codehaus.plexus", "plexus-spring", "1.0", "pom" ),
+                              createArtifact( "org.codehaus.plexus", "plexus-spring", "1.1", "jar" ),
+                              createArtifact( "org.codehaus.plexus", "plexus-spring", "1.1", "pom" ),
+                              createArtifact( "org.codehaus.plexus", "plexus-spring", "1.2", "jar" ),
+                              createArtifact( "org.codehaus.plexus", "plexus-spring", "1.2", "pom" ) );
+    }
 }